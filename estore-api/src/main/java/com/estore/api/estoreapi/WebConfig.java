@@ -1,16 +1,39 @@
 package com.estore.api.estoreapi;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.estore.api.estoreapi.controller.AccountController;
+import com.estore.api.estoreapi.controller.SessionTokenInterceptor;
+import com.estore.api.estoreapi.controller.SessionTokens;
+import com.estore.api.estoreapi.persistence.AccountDAO;
+
 @Configuration
 @EnableWebMvc
 public class WebConfig implements WebMvcConfigurer {
+    private final SessionTokens sessionTokens;
+    private final AccountDAO accountDAO;
+
+    public WebConfig(SessionTokens sessionTokens, AccountDAO accountDAO) {
+        this.sessionTokens = sessionTokens;
+        this.accountDAO = accountDAO;
+    }
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
-                .allowedMethods("HEAD", "GET", "PUT", "POST", "DELETE", "PATCH");
+                .allowedMethods("HEAD", "GET", "PUT", "POST", "DELETE", "PATCH")
+                .exposedHeaders(AccountController.SESSION_TOKEN_HEADER, HttpHeaders.ETAG);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (sessionTokens.isEnabled()) {
+            registry.addInterceptor(new SessionTokenInterceptor(sessionTokens, accountDAO))
+                    .addPathPatterns(SessionTokenInterceptor.ACCOUNT_PATHS);
+        }
     }
-}
\ No newline at end of file
+}
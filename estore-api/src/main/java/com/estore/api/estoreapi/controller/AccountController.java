@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,7 +13,9 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -21,8 +25,10 @@ import com.estore.api.estoreapi.model.Address;
 import com.estore.api.estoreapi.model.Color;
 import com.estore.api.estoreapi.model.Payment;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.SessionToken;
 import com.estore.api.estoreapi.model.ShoppingCart;
 import com.estore.api.estoreapi.persistence.AccountDAO;
+import com.estore.api.estoreapi.persistence.VersionConflictException;
 
 /**
  * Handles the REST API requests for Accounts
@@ -34,12 +40,38 @@ import com.estore.api.estoreapi.persistence.AccountDAO;
 @RequestMapping("/account")
 public class AccountController {
 	private static final Logger LOG = Logger.getLogger(AccountController.class.getName());
+	/**
+	 * The response header of a successful login that carries the session token
+	 */
+	public static final String SESSION_TOKEN_HEADER = "X-Session-Token";
 	private AccountDAO accountDAO;
+	// null when the controller is used without session tokens
+	private SessionTokens sessionTokens;
 
 	public AccountController(AccountDAO accountDao) {
 		this.accountDAO = accountDao;
 	}
 
+	@Autowired
+	public AccountController(AccountDAO accountDao, SessionTokens sessionTokens) {
+		this.accountDAO = accountDao;
+		this.sessionTokens = sessionTokens;
+	}
+
+	/**
+	 * Answer with a logged in account, adding its session token if tokens are
+	 * enabled
+	 */
+	private ResponseEntity<Account> withSessionToken(Account account, HttpStatus status) {
+		if (sessionTokens != null && sessionTokens.isEnabled()) {
+			HttpHeaders headers = new HttpHeaders();
+			headers.set(SESSION_TOKEN_HEADER,
+					sessionTokens.issue(account.getId(), account.getSessionID(), System.currentTimeMillis()));
+			return new ResponseEntity<Account>(account, headers, status);
+		}
+		return new ResponseEntity<Account>(account, status);
+	}
+
 	/**
 	 * Get all accounts in the system
 	 * 
@@ -73,7 +105,9 @@ public class AccountController {
 		try {
 			Account returnValue = accountDAO.getAccountById(id);
 			if (returnValue != null) {
-				return new ResponseEntity<Account>(returnValue, HttpStatus.OK);
+				HttpHeaders headers = new HttpHeaders();
+				headers.setETag(ETags.of(returnValue.getVersion()));
+				return new ResponseEntity<Account>(returnValue, headers, HttpStatus.OK);
 			} else {
 				return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 			}
@@ -88,7 +122,8 @@ public class AccountController {
 	 * 
 	 * @param account The account to create
 	 * 
-	 * @return ResponseEntity with create account object and HTTP status of OK
+	 * @return ResponseEntity with the created and logged in account, its session
+	 *         token if tokens are enabled, and HTTP status of CREATED
 	 * 
 	 *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
 	 */
@@ -98,7 +133,8 @@ public class AccountController {
 		try {
 			Account returnValue = accountDAO.createAccount(account);
 			if (returnValue != null) {
-				return new ResponseEntity<Account>(returnValue, HttpStatus.CREATED);
+				// signing up logs in, so the new session needs its token as well
+				return withSessionToken(returnValue, HttpStatus.CREATED);
 			} else {
 				return new ResponseEntity<>(HttpStatus.CONFLICT);
 			}
@@ -109,22 +145,39 @@ public class AccountController {
 	}
 
 	/**
-	 * Update the password of the current account
+	 * Update an account, optionally only if it is still at the version named by
+	 * the If-Match header
 	 * 
-	 * @param password The password of the account that needs to be updated
+	 * @param account The new state of the account
+	 * @param ifMatch The ETag the update is based on, null to always update
+	 * @param token   The verified session token, null if tokens are disabled
 	 * 
-	 * @return the account that was updated
+	 * @return the account that was updated with its new ETag, PRECONDITION_FAILED
+	 *         if it changed since that ETag was handed out, FORBIDDEN if the
+	 *         token belongs to another account
 	 */
 	@PostMapping("/update")
-	public ResponseEntity<Account> updateAccount(@RequestBody Account account) {
+	public ResponseEntity<Account> updateAccount(@RequestBody Account account,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestAttribute(value = SessionTokenInterceptor.TOKEN_ATTRIBUTE, required = false) SessionToken token) {
 		LOG.info("POST /account/update" + account);
 		try {
-			Account returnValue = accountDAO.updateAccount(account);
+			// the account is named in the body, which the interceptor cannot see
+			if (token != null && !SessionTokenInterceptor.mayActFor(token, account.getId(), accountDAO)) {
+				return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+			}
+			Account returnValue = ifMatch == null ? accountDAO.updateAccount(account)
+					: accountDAO.updateAccount(account, ETags.parseIfMatch(ifMatch));
 			if (returnValue != null) {
-				return new ResponseEntity<Account>(returnValue, HttpStatus.OK);
+				HttpHeaders headers = new HttpHeaders();
+				headers.setETag(ETags.of(returnValue.getVersion()));
+				return new ResponseEntity<Account>(returnValue, headers, HttpStatus.OK);
 			} else {
 				return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 			}
+		} catch (VersionConflictException e) {
+			LOG.info("POST /account/update " + account.getId() + ": " + e.getMessage());
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (IOException e) {
 			LOG.log(Level.SEVERE, e.getMessage(), e);
 			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -179,8 +232,7 @@ public class AccountController {
 		try {
 			Account res = accountDAO.loginAccount(username, password);
 			if (res != null) {
-				;
-				return new ResponseEntity<Account>(res, HttpStatus.OK);
+				return withSessionToken(res, HttpStatus.OK);
 			} else {
 				return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 			}
@@ -0,0 +1,53 @@
+package com.estore.api.estoreapi.controller;
+
+import com.estore.api.estoreapi.persistence.ProductDAO;
+
+/**
+ * Converts between object versions and the ETag / If-Match headers
+ *
+ * A version is sent as a strong ETag, the number in double quotes. An update
+ * carrying If-Match is only applied if the number still matches the stored
+ * version, otherwise the controller answers 412 Precondition Failed.
+ *
+ * @author Team H
+ */
+public final class ETags {
+    /** If-Match could not be read, so no stored version can match it */
+    public static final long NO_VERSION = -2;
+
+    private ETags() {
+    }
+
+    /**
+     * @param version the version of an object
+     * @return the ETag header value for it
+     */
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifMatch the If-Match header value, not null
+     * @return the version it names, {@link ProductDAO#ANY_VERSION} for "*" and
+     *         {@link #NO_VERSION} if it is not an ETag this service issued
+     */
+    public static long parseIfMatch(String ifMatch) {
+        String value = ifMatch.trim();
+        if (value.equals("*")) {
+            return ProductDAO.ANY_VERSION;
+        }
+        if (value.startsWith("W/")) {
+            // weak validators never match for an update
+            return NO_VERSION;
+        }
+        if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            return NO_VERSION;
+        }
+        try {
+            long version = Long.parseLong(value.substring(1, value.length() - 1));
+            return version < 0 ? NO_VERSION : version;
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.estore.api.estoreapi.controller;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -8,18 +9,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.estore.api.estoreapi.persistence.ProductDAO;
+import com.estore.api.estoreapi.persistence.SuggestIndex;
+import com.estore.api.estoreapi.persistence.VersionConflictException;
 import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.FacetResult;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductPage;
+import com.estore.api.estoreapi.model.ProductType;
 import com.estore.api.estoreapi.model.Review;
+import com.estore.api.estoreapi.model.SearchPage;
+import com.estore.api.estoreapi.model.Suggestion;
 
 /**
  * Handles the REST API requests for the Product resource
@@ -30,6 +40,7 @@ import com.estore.api.estoreapi.model.Review;
 @RequestMapping("product")
 public class ProductController {
 	private static final Logger LOG = Logger.getLogger(ProductController.class.getName());
+	private static final int MAX_PAGE_SIZE = 100;
 
 	private ProductDAO productDAO;
 
@@ -67,27 +78,40 @@ public class ProductController {
 	}
 
 	/**
-	 * Update a Product given the product id and other Product information
+	 * Update a Product, optionally only if it is still at the version named by
+	 * the If-Match header
 	 *
 	 * @param product - The product to be updates and its new information
+	 * @param ifMatch - The ETag the update is based on, null to always update
 	 *
-	 * @return ResponseEntity with create product object and HTTP status of OK
+	 * @return ResponseEntity with the updated product, its new ETag and HTTP
+	 *         status of OK
 	 *
 	 *         ResponseEntity with HTTP status of NOT FOUND if product object does
 	 *         not exist
 	 *
+	 *         ResponseEntity with HTTP status of PRECONDITION FAILED if the
+	 *         product changed since that ETag was handed out
+	 *
 	 *         ResponseEntity with HTTP status of INTERNAL SERVER ERROR otherwise
 	 */
 	@PutMapping("")
-	public ResponseEntity<Product> updateProduct(@RequestBody Product product) {
+	public ResponseEntity<Product> updateProduct(@RequestBody Product product,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		LOG.info("PUT /product " + product);
 		try {
-			Product product_n = productDAO.updateProduct(product);
+			Product product_n = ifMatch == null ? productDAO.updateProduct(product)
+					: productDAO.updateProduct(product, ETags.parseIfMatch(ifMatch));
 			if (product_n != null) {
-				return new ResponseEntity<Product>(product_n, HttpStatus.OK);
+				HttpHeaders headers = new HttpHeaders();
+				headers.setETag(ETags.of(product_n.getVersion()));
+				return new ResponseEntity<Product>(product_n, headers, HttpStatus.OK);
 			} else {
 				return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 			}
+		} catch (VersionConflictException e) {
+			LOG.info("PUT /product " + product.getId() + ": " + e.getMessage());
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (IOException e) {
 			LOG.log(Level.SEVERE, e.getLocalizedMessage());
 			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -126,7 +150,13 @@ public class ProductController {
 	public ResponseEntity<Product> getProduct(@PathVariable("id") int id) {
 		LOG.info("GET /product/" + id);
 		try {
-			return new ResponseEntity<Product>(productDAO.getProductById(id), HttpStatus.OK);
+			Product product = productDAO.getProductById(id);
+			if (product != null) {
+				HttpHeaders headers = new HttpHeaders();
+				headers.setETag(ETags.of(product.getVersion()));
+				return new ResponseEntity<Product>(product, headers, HttpStatus.OK);
+			}
+			return new ResponseEntity<Product>(product, HttpStatus.OK);
 			//return new ResponseEntity<Product>(inventory.getProduct(id), HttpStatus.OK);
 		} catch (Exception e) {
 			LOG.log(Level.SEVERE, e.getLocalizedMessage());
@@ -181,6 +211,138 @@ public class ProductController {
 		}
 	}
 
+	/**
+	 * Ranks products by how well their name and description match the query,
+	 * tolerating small typos
+	 * 
+	 * @param query - the words to search for
+	 * @param page  - the page of hits to return, starting at 0
+	 * @param size  - the most hits on a page, up to 100
+	 * 
+	 * @return the page of hits, best match first, with their scores and HTTP
+	 *         status of OK
+	 * 
+	 *         ResponseEntity with HTTP status of BAD_REQUEST if the page or size
+	 *         is out of range
+	 * 
+	 *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<SearchPage> searchProducts(@RequestParam("q") String query,
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "20") int size) {
+		LOG.info("GET /product/search?q=" + query + "&page=" + page + "&size=" + size);
+		if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		try {
+			return new ResponseEntity<SearchPage>(productDAO.searchProducts(query, page, size), HttpStatus.OK);
+		} catch (Exception e) {
+			LOG.log(Level.SEVERE, e.getLocalizedMessage());
+			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Filters products by type, color and stock, and counts the products of
+	 * every facet value so the storefront does not have to download the catalog
+	 * 
+	 * @param types   - the product types to show, all if none
+	 * @param colors  - the names of the colors to show, all if none
+	 * @param inStock - true for products in stock, false for sold out ones,
+	 *                both if missing
+	 * 
+	 * @return the matching products with the facet counts and HTTP status of OK
+	 * 
+	 *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+	 */
+	@GetMapping("/filter")
+	public ResponseEntity<FacetResult> filterProducts(
+			@RequestParam(value = "type", required = false) List<ProductType> types,
+			@RequestParam(value = "color", required = false) List<String> colors,
+			@RequestParam(value = "inStock", required = false) Boolean inStock) {
+		LOG.info("GET /product/filter?type=" + types + "&color=" + colors + "&inStock=" + inStock);
+		try {
+			return new ResponseEntity<FacetResult>(productDAO.filterProducts(types, colors, inStock), HttpStatus.OK);
+		} catch (Exception e) {
+			LOG.log(Level.SEVERE, e.getLocalizedMessage());
+			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Lists products in a price range ordered by price, optionally of one type
+	 * 
+	 * @param type  - the product type, every type if missing
+	 * @param min   - the lowest price, inclusive, no lower bound if missing
+	 * @param max   - the highest price, inclusive, no upper bound if missing
+	 * @param order - asc for the cheapest first, desc for the most expensive
+	 * @param page  - the page of products to return, starting at 0
+	 * @param size  - the most products on a page, up to 100
+	 * 
+	 * @return the page of products and HTTP status of OK
+	 * 
+	 *         ResponseEntity with HTTP status of BAD_REQUEST if the order, page
+	 *         or size is not valid or min is above max
+	 * 
+	 *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+	 */
+	@GetMapping("/price")
+	public ResponseEntity<ProductPage> getProductsByPrice(
+			@RequestParam(value = "type", required = false) ProductType type,
+			@RequestParam(value = "min", required = false) Double min,
+			@RequestParam(value = "max", required = false) Double max,
+			@RequestParam(value = "order", defaultValue = "asc") String order,
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "20") int size) {
+		LOG.info("GET /product/price?type=" + type + "&min=" + min + "&max=" + max + "&order=" + order + "&page="
+				+ page + "&size=" + size);
+		double low = min == null ? -Double.MAX_VALUE : min;
+		double high = max == null ? Double.MAX_VALUE : max;
+		boolean descending = order.equalsIgnoreCase("desc");
+		if (!descending && !order.equalsIgnoreCase("asc") || page < 0 || size < 1 || size > MAX_PAGE_SIZE
+				|| !(low <= high)) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		try {
+			return new ResponseEntity<ProductPage>(
+					productDAO.getProductsByPrice(type, low, high, descending, page, size), HttpStatus.OK);
+		} catch (Exception e) {
+			LOG.log(Level.SEVERE, e.getLocalizedMessage());
+			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Completes a product name typed into the search box, meant to be called on
+	 * every keystroke
+	 * 
+	 * @param prefix - the start of a product name or of any word in it
+	 * @param limit  - the most suggestions, up to 10
+	 * 
+	 * @return the ids and names of the most reviewed matching products and HTTP
+	 *         status of OK
+	 * 
+	 *         ResponseEntity with HTTP status of BAD_REQUEST if the limit is not
+	 *         valid
+	 * 
+	 *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+	 */
+	@GetMapping("/suggest")
+	public ResponseEntity<Suggestion[]> suggestProducts(@RequestParam(value = "prefix") String prefix,
+			@RequestParam(value = "limit", defaultValue = "10") int limit) {
+		LOG.info("GET /product/suggest?prefix=" + prefix + "&limit=" + limit);
+		if (limit < 1 || limit > SuggestIndex.MAX_SUGGESTIONS) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		try {
+			return new ResponseEntity<Suggestion[]>(productDAO.suggestProducts(prefix, limit), HttpStatus.OK);
+		} catch (Exception e) {
+			LOG.log(Level.SEVERE, e.getLocalizedMessage());
+			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
 	/**
 	 * Gets all the possible colors that can be used
 	 * 
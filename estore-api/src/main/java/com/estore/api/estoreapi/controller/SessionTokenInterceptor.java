@@ -0,0 +1,138 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.SessionToken;
+import com.estore.api.estoreapi.persistence.AccountDAO;
+
+/**
+ * Checks the session token of requests for a logged in account's data
+ *
+ * The token has to be valid and belong to the account (or session) named by
+ * the {id} in the path or the username parameter, otherwise the request is
+ * answered with UNAUTHORIZED or FORBIDDEN before it reaches the controller. As
+ * before tokens, the admin account may act for any account. Endpoints that
+ * name the account in their body check it against the token the interceptor
+ * leaves in the {@link #TOKEN_ATTRIBUTE} request attribute. The token is
+ * verified from its signature alone; a session that was started on another
+ * node is started locally from the token's claims.
+ *
+ * @author Team H
+ */
+public class SessionTokenInterceptor implements HandlerInterceptor {
+    private static final Logger LOG = Logger.getLogger(SessionTokenInterceptor.class.getName());
+    private static final String BEARER = "Bearer ";
+    private static final String ADMIN = "admin";
+
+    /**
+     * The request attribute holding the verified session token of the request
+     */
+    public static final String TOKEN_ATTRIBUTE = "com.estore.api.estoreapi.controller.SessionTokenInterceptor.token";
+
+    /**
+     * The endpoints that need a session token
+     */
+    public static final String[] ACCOUNT_PATHS = { "/account/*", "/account/current/**", "/account/cart/**",
+            "/account/payment/**", "/account/*/payment", "/account/address/**", "/account/*/address/**",
+            "/account/order-history/**" };
+
+    // "/account/*" also covers these, logging in and signing up need no token
+    private static final Set<String> OPEN_PATHS = Set.of("/account/", "/account/login", "/account/create");
+    // reading an account by id stays open, deleting it is guarded
+    private static final Pattern ACCOUNT_BY_ID = Pattern.compile("/account/-?\\d+");
+
+    private final SessionTokens tokens;
+    private final AccountDAO accountDAO;
+
+    public SessionTokenInterceptor(SessionTokens tokens, AccountDAO accountDAO) {
+        this.tokens = tokens;
+        this.accountDAO = accountDAO;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (OPEN_PATHS.contains(path)
+                || ACCOUNT_BY_ID.matcher(path).matches() && !HttpMethod.DELETE.matches(request.getMethod())) {
+            return true;
+        }
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        SessionToken token = header != null && header.startsWith(BEARER)
+                ? tokens.verify(header.substring(BEARER.length()), System.currentTimeMillis())
+                : null;
+        if (token == null) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value());
+            return false;
+        }
+        Integer id = pathId(request);
+        // these endpoints take the session id rather than the account id
+        boolean bySession = path.startsWith("/account/current/") || path.startsWith("/account/address/");
+        // logout names the account by its username
+        String username = request.getParameter("username");
+        boolean other = id != null && id != (bySession ? token.getSessionID() : token.getAccountID())
+                || username != null && !username.equals(usernameOf(token, accountDAO));
+        if (other && !isAdmin(token, accountDAO)) {
+            LOG.info("Session token of account " + token.getAccountID() + " used for " + path);
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return false;
+        }
+        if (!accountDAO.resumeSession(token)) {
+            // logged out, or replaced by a newer login
+            response.sendError(HttpStatus.UNAUTHORIZED.value());
+            return false;
+        }
+        request.setAttribute(TOKEN_ATTRIBUTE, token);
+        return true;
+    }
+
+    /**
+     * Check whether the holder of a token may act for an account
+     *
+     * @param token      the verified token of the request
+     * @param accountId  the id of the account acted for
+     * @param accountDAO the accounts
+     *
+     * @return true if the token belongs to the account or to the admin
+     */
+    static boolean mayActFor(SessionToken token, int accountId, AccountDAO accountDAO) throws IOException {
+        return token.getAccountID() == accountId || isAdmin(token, accountDAO);
+    }
+
+    private static boolean isAdmin(SessionToken token, AccountDAO accountDAO) throws IOException {
+        return ADMIN.equals(usernameOf(token, accountDAO));
+    }
+
+    private static String usernameOf(SessionToken token, AccountDAO accountDAO) throws IOException {
+        Account account = accountDAO.getAccountById(token.getAccountID());
+        return account == null ? null : account.getUsername();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Integer pathId(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request
+                .getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || variables.get("id") == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(variables.get("id"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
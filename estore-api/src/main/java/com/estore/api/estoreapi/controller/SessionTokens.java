@@ -0,0 +1,128 @@
+package com.estore.api.estoreapi.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.stereotype.Component;
+
+import com.estore.api.estoreapi.model.SessionToken;
+import com.estore.api.estoreapi.persistence.StorageProperties;
+
+/**
+ * Issues and verifies signed session tokens
+ *
+ * A token is "accountId.sessionId.issuedAt.expiresAt" followed by an
+ * HMAC-SHA256 of that text, both base64url encoded. Verifying one only needs
+ * the secret, so any node that shares it can check a session without asking
+ * the node that handled the login. The signed issue time lets a node tell an
+ * older login of an account from a newer one.
+ *
+ * @author Team H
+ */
+@Component
+public class SessionTokens {
+    private static final Logger LOG = Logger.getLogger(SessionTokens.class.getName());
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final boolean enabled;
+    private final long ttl;
+    private final SecretKeySpec key;
+    // a Mac is not thread safe, each request thread keeps its own
+    private final ThreadLocal<Mac> macs;
+
+    public SessionTokens(StorageProperties properties) {
+        this.enabled = properties.isSessionTokenEnabled();
+        this.ttl = properties.getSessionTokenTtl();
+        byte[] secret = properties.getSessionTokenSecret().getBytes(StandardCharsets.UTF_8);
+        if (secret.length == 0) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            if (enabled) {
+                LOG.warning("No account.token.secret set, tokens are only valid on this node until it restarts");
+            }
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return true if login hands out tokens and account requests need one
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Issue a token for a new session
+     *
+     * @param accountID the id of the logged in account
+     * @param sessionID the id of the session
+     * @param now       the current time in milliseconds
+     *
+     * @return the signed token
+     */
+    public String issue(int accountID, int sessionID, long now) {
+        String payload = accountID + "." + sessionID + "." + now + "." + (now / 1000 + ttl);
+        return ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "."
+                + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Verify a token
+     *
+     * @param token the token from the request
+     * @param now   the current time in milliseconds
+     *
+     * @return the contents of the token, or null if it is malformed, forged or
+     *         expired
+     */
+    public SessionToken verify(String token, long now) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            String payload = new String(DECODER.decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+            String[] fields = payload.split("\\.");
+            if (fields.length != 4) {
+                return null;
+            }
+            SessionToken session = new SessionToken(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                    Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+            return session.getExpiresAt() * 1000 > now ? session : null;
+        } catch (IllegalArgumentException e) {
+            // bad base64 or numbers, NumberFormatException is an IllegalArgumentException
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.estore.api.estoreapi.controller;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.estore.api.estoreapi.persistence.AccountDAO;
+import com.estore.api.estoreapi.persistence.AccountFileDAO;
+import com.estore.api.estoreapi.persistence.ProductDAO;
+import com.estore.api.estoreapi.persistence.ProductFileDAO;
+
+/**
+ * Handles the REST API requests for maintenance of the data files
+ *
+ * @author Team H
+ */
+@RestController
+@RequestMapping("/admin/storage")
+public class StorageAdminController {
+	private static final Logger LOG = Logger.getLogger(StorageAdminController.class.getName());
+
+	private ProductDAO productDAO;
+	private AccountDAO accountDAO;
+
+	public StorageAdminController(ProductDAO productDAO, AccountDAO accountDAO) {
+		this.productDAO = productDAO;
+		this.accountDAO = accountDAO;
+	}
+
+	/**
+	 * Train a new compression dictionary from the current catalog and rewrite
+	 * the product and account files with it
+	 *
+	 * @return ResponseEntity with the id of the new dictionary and HTTP status of OK
+	 *
+	 *         ResponseEntity with HTTP status of CONFLICT if compression is disabled
+	 *         or the storage engine does not use data files
+	 *
+	 *         ResponseEntity with HTTP status of INTERNAL_SERVER_ERROR otherwise
+	 */
+	@PostMapping("/dictionary")
+	public ResponseEntity<Integer> retrainDictionary() {
+		LOG.info("POST /admin/storage/dictionary");
+		if (!(productDAO instanceof ProductFileDAO) || !(accountDAO instanceof AccountFileDAO)) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		try {
+			int id = ((ProductFileDAO) productDAO).retrainDictionary();
+			((AccountFileDAO) accountDAO).rewriteAccounts();
+			return new ResponseEntity<Integer>(id, HttpStatus.OK);
+		} catch (IllegalStateException e) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		} catch (IOException e) {
+			LOG.log(Level.SEVERE, e.getLocalizedMessage());
+			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+}
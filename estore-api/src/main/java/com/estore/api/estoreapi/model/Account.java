@@ -20,6 +20,7 @@ public class Account {
     private int sessionID;
     private ShoppingCart shoppingCart;
     private String profilePicture;
+    private long version;
 
     /**
      * Empty Account constructor
@@ -224,7 +225,44 @@ public class Account {
         this.profilePicture = url;
     }
 
+    /**
+     * @return the version of the account, bumped on every saved change and used
+     *         as its ETag
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public ShoppingCart getShoppingCart() {
         return shoppingCart;
     }
+
+    /**
+     * Copy the account for storage, login state only lives in memory
+     * 
+     * @return a copy that is logged out and has no session, with its own
+     *         address, payment and cart so later changes do not reach it
+     */
+    public Account withoutSession() {
+        Account copy = new Account();
+        copy.id = id;
+        copy.username = username;
+        copy.email = email;
+        copy.password = password;
+        copy.firstName = firstName;
+        copy.lastName = lastName;
+        copy.address = address == null ? null
+                : new Address(address.getCity(), address.getStreet(), address.getState(), address.getHouseNumber(),
+                        address.getZip());
+        copy.payment = payment == null ? null
+                : new Payment(payment.getCardHolder(), payment.getCardNumber(), payment.getExpDate(), payment.getCvv());
+        copy.shoppingCart = shoppingCart == null ? null : shoppingCart.copy();
+        copy.profilePicture = profilePicture;
+        copy.version = version;
+        return copy;
+    }
 }
@@ -1,9 +1,16 @@
 package com.estore.api.estoreapi.model;
 
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class AccountSession {
-    private static int idChanger = 1;
+    // starts at a random point so that nodes sharing signed session tokens
+    // rarely hand out the same session id
+    private static final AtomicInteger idChanger = new AtomicInteger(new SecureRandom().nextInt(1 << 30) + 1);
     private int sessionID;
-    private Account loggedAccount;
+    private volatile Account loggedAccount;
+    private final long createdAt;
+    private volatile long lastAccess;
 
     /**
      * Account Sessions 
@@ -12,13 +19,37 @@ public class AccountSession {
      * 
      */
     public AccountSession(Account loggedAccount, ActiveAccountSessions activeAccounts) throws Exception {
-        for (AccountSession session : activeAccounts.getSessions()) {
-            if (session.getLoggedAccountID() == loggedAccount.getId()) {
-                throw new Exception();                
-            }
+        if (activeAccounts.getByAccountId(loggedAccount.getId()) != null) {
+            throw new Exception();
         }
-        this.sessionID = idChanger++;
+        this.sessionID = nextSessionID();
         this.loggedAccount = loggedAccount;
+        this.createdAt = System.currentTimeMillis();
+        this.lastAccess = createdAt;
+    }
+
+    /**
+     * Account Session restored from a signed session token, for example one
+     * issued by another node
+     * @param loggedAccount the account of the session
+     * @param sessionID the id the session was given at login
+     * @param createdAt the time the token was issued, in milliseconds
+     */
+    public AccountSession(Account loggedAccount, int sessionID, long createdAt) {
+        this.sessionID = sessionID;
+        this.loggedAccount = loggedAccount;
+        this.createdAt = createdAt;
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    private static int nextSessionID() {
+        // 0 means not logged in, skip it (and negative ids) after the counter wraps
+        int id = idChanger.getAndIncrement();
+        while (id <= 0) {
+            idChanger.compareAndSet(id + 1, 1);
+            id = idChanger.getAndIncrement();
+        }
+        return id;
     }
 
     /**
@@ -37,6 +68,14 @@ public class AccountSession {
         return loggedAccount;
     }
 
+    /**
+     * replaces the account after an update stored a new object for it
+     * @param loggedAccount the stored account
+     */
+    public void setLoggedAccount(Account loggedAccount) {
+        this.loggedAccount = loggedAccount;
+    }
+
     /**
      * gets account id 
      * @return an account int id 
@@ -44,4 +83,27 @@ public class AccountSession {
     public int getLoggedAccountID() {
         return loggedAccount.getId();
     }
+
+    /**
+     * gets the time the session was created
+     * @return milliseconds since the epoch
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * gets the time the session was last used
+     * @return milliseconds since the epoch
+     */
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * marks the session as used now, which pushes back its idle timeout
+     */
+    public void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
 }
@@ -1,32 +1,136 @@
 package com.estore.api.estoreapi.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ActiveAccountSessions {
-    public List<AccountSession> activeSessions;
+    // the same sessions indexed twice, so callers never scan the sessions
+    private final ConcurrentMap<Integer, AccountSession> sessionsByAccount = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, AccountSession> sessionsById = new ConcurrentHashMap<>();
+    // per account, session tokens issued before this time are revoked on this node
+    private final ConcurrentMap<Integer, Long> notBefore = new ConcurrentHashMap<>();
 
     /**
-     * Create a list of active accounts as sessions
+     * Create an empty registry of active sessions
      */
     public ActiveAccountSessions() {
-        activeSessions = new ArrayList<AccountSession>();
     }
 
     /**
-     * Get a list of all online/active sessions
-     * @return list of AccountSession
+     * Get all online/active sessions
+     * @return read-only view of the sessions
      */
-    public List<AccountSession> getSessions() {
-        return activeSessions;
+    public Collection<AccountSession> getSessions() {
+        return Collections.unmodifiableCollection(sessionsById.values());
+    }
+
+    /**
+     * Get the session of a logged in account, the session counts as used
+     * @param accountId the id of the account
+     * @return the session, or null if the account is not logged in
+     */
+    public AccountSession getByAccountId(int accountId) {
+        return touch(sessionsByAccount.get(accountId));
+    }
+
+    /**
+     * Get a session by its session id, the session counts as used
+     * @param sessionId the id of the session
+     * @return the session, or null if there is no such session
+     */
+    public AccountSession getBySessionId(int sessionId) {
+        return touch(sessionsById.get(sessionId));
+    }
+
+    private static AccountSession touch(AccountSession session) {
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    /**
+     * Get a session by its session id without counting it as used
+     * @param sessionId the id of the session
+     * @return the session, or null if there is no such session
+     */
+    public AccountSession peekBySessionId(int sessionId) {
+        return sessionsById.get(sessionId);
     }
 
     /**
      * Add a session (account is logged in as session)
      * @param session new session to be added
+     * @return false if the account already had a session or the session id is
+     *         taken, the new session is then not added
+     */
+    public boolean addSession(AccountSession session) {
+        if (sessionsByAccount.putIfAbsent(session.getLoggedAccountID(), session) != null) {
+            return false;
+        }
+        if (sessionsById.putIfAbsent(session.getSessionID(), session) != null) {
+            sessionsByAccount.remove(session.getLoggedAccountID(), session);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Make the session of a verified session token the active session of its
+     * account. A session that was started before the token was issued gives
+     * way to it, a later one wins over the token
+     * @param account the account named by the token
+     * @param sessionId the session id in the token
+     * @param issuedAt the time the token was issued, in milliseconds
+     * @return the active session of the token, or null if the token was
+     *         revoked on this node or a later login of the account is active
+     */
+    public AccountSession resume(Account account, int sessionId, long issuedAt) {
+        if (isRevoked(account.getId(), issuedAt)) {
+            return null;
+        }
+        AccountSession current = sessionsByAccount.get(account.getId());
+        if (current != null && current.getSessionID() == sessionId) {
+            return touch(current);
+        }
+        if (current != null) {
+            if (current.getCreatedAt() >= issuedAt) {
+                return null;
+            }
+            // the account logged in again on another node
+            revoke(account.getId(), issuedAt);
+            removeSession(current);
+        }
+        AccountSession session = new AccountSession(account, sessionId, issuedAt);
+        if (addSession(session)) {
+            return session;
+        }
+        // a concurrent request may have resumed the same session
+        current = sessionsByAccount.get(account.getId());
+        return current != null && current.getSessionID() == sessionId ? current : null;
+    }
+
+    /**
+     * Revoke the session tokens of an account issued before a time, on this
+     * node only; other nodes keep accepting them until they expire or see a
+     * later login of the account
+     * @param accountId the id of the account
+     * @param time milliseconds since the epoch
+     */
+    public void revoke(int accountId, long time) {
+        notBefore.merge(accountId, time, Math::max);
+    }
+
+    /**
+     * @param accountId the id of the account
+     * @param issuedAt the time a token of the account was issued
+     * @return true if the token was revoked on this node
      */
-    public void addSession(AccountSession session) {
-        activeSessions.add(session);
+    public boolean isRevoked(int accountId, long issuedAt) {
+        Long time = notBefore.get(accountId);
+        return time != null && issuedAt < time;
     }
 
     /**
@@ -34,6 +138,9 @@ public class ActiveAccountSessions {
      * @param session exisiting session to be removed
      */
     public void removeSession(AccountSession session) {
-        activeSessions.remove(session);
+        if (session != null) {
+            sessionsById.remove(session.getSessionID(), session);
+            sessionsByAccount.remove(session.getLoggedAccountID(), session);
+        }
     }
 }
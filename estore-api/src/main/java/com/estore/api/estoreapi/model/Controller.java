@@ -1,7 +1,6 @@
 package com.estore.api.estoreapi.model;
 
 import java.util.List;
-import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -16,11 +15,22 @@ public class Controller extends Product {
                 imageURL);
     }
 
+    public Controller(List<Color> colors, String name) {
+        this(-1, colors, name, 0, 0, "");
+    }
+
     @JsonCreator
     public Controller(
-            @JsonProperty("color") List<Color> colors,
-            @JsonProperty("name") String name) {
-        this(-1, colors, name, 0, 0, "");
+            @JsonProperty("id") int id,
+            @JsonProperty("allColors") List<Color> colors,
+            @JsonProperty("name") String name,
+            @JsonProperty("quantity") int quantity,
+            @JsonProperty("price") double price,
+            @JsonProperty("description") String description,
+            @JsonProperty("imageURL") String imageURL,
+            @JsonProperty("reviews") List<Review> reviews,
+            @JsonProperty("version") long version) {
+        super(id, colors, name, quantity, price, ProductType.CONTROLLER, description, imageURL, reviews, version);
     }
 
     /**
@@ -53,6 +63,12 @@ public class Controller extends Product {
         return new Controller(this, id);
     }
 
+    @Override
+    protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+            String description, String imageURL, List<Review> reviews, long version) {
+        return new Controller(id, colors, name, quantity, price, description, imageURL, reviews, version);
+    }
+
     /**
      * compares controller
      * 
@@ -69,9 +85,4 @@ public class Controller extends Product {
         }
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(this.id, name, quantity, price, imageURL, Objects.hashCode(colors));
-    }
-
 }
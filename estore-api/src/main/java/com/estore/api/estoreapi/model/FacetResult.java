@@ -0,0 +1,56 @@
+package com.estore.api.estoreapi.model;
+
+import java.util.Map;
+
+/**
+ * The products passing a facet filter with the product count of every facet
+ * value
+ *
+ * The count of a value applies the filters on the other facets only, so it is
+ * the number of products that also selecting that value would add.
+ *
+ * @author Team H
+ */
+public class FacetResult {
+    private Product[] products;
+    private Map<ProductType, Integer> types;
+    private Map<String, Integer> colors;
+    private int inStock;
+    private int outOfStock;
+
+    /**
+     * @param products   the products passing the filter
+     * @param types      the count for each product type
+     * @param colors     the count for each color name
+     * @param inStock    the count of products in stock
+     * @param outOfStock the count of products out of stock
+     */
+    public FacetResult(Product[] products, Map<ProductType, Integer> types, Map<String, Integer> colors,
+            int inStock, int outOfStock) {
+        this.products = products;
+        this.types = types;
+        this.colors = colors;
+        this.inStock = inStock;
+        this.outOfStock = outOfStock;
+    }
+
+    public Product[] getProducts() {
+        return products;
+    }
+
+    public Map<ProductType, Integer> getTypes() {
+        return types;
+    }
+
+    public Map<String, Integer> getColors() {
+        return colors;
+    }
+
+    public int getInStock() {
+        return inStock;
+    }
+
+    public int getOutOfStock() {
+        return outOfStock;
+    }
+}
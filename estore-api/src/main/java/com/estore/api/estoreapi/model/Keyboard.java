@@ -1,7 +1,6 @@
 package com.estore.api.estoreapi.model;
 
 import java.util.List;
-import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -15,11 +14,22 @@ public class Keyboard extends Product {
         super(id, colors, name, quantity, price, ProductType.KEYBOARD, "This is a description of the product", imageURL);
     }
     
+    public Keyboard(List<Color> colors, String name) {
+        this(-1, colors, name, 0, 0, "");
+    }
+
     @JsonCreator
     public Keyboard(
-            @JsonProperty("color") List<Color> colors,
-            @JsonProperty("name") String name) {
-        this(-1, colors, name, 0, 0, "");
+            @JsonProperty("id") int id,
+            @JsonProperty("allColors") List<Color> colors,
+            @JsonProperty("name") String name,
+            @JsonProperty("quantity") int quantity,
+            @JsonProperty("price") double price,
+            @JsonProperty("description") String description,
+            @JsonProperty("imageURL") String imageURL,
+            @JsonProperty("reviews") List<Review> reviews,
+            @JsonProperty("version") long version) {
+        super(id, colors, name, quantity, price, ProductType.KEYBOARD, description, imageURL, reviews, version);
     }
 
     /**
@@ -49,6 +59,12 @@ public class Keyboard extends Product {
 		return new Keyboard(this, id);
 	}
 
+    @Override
+    protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+            String description, String imageURL, List<Review> reviews, long version) {
+        return new Keyboard(id, colors, name, quantity, price, description, imageURL, reviews, version);
+    }
+
      /**
      * compares keyboard  
      * @param other object of keyboard  
@@ -63,8 +79,4 @@ public class Keyboard extends Product {
 			return false;
 		}
 	}
-    @Override
-    public int hashCode() {
-        return Objects.hash(id, name, quantity, price, imageURL, Objects.hashCode(colors));
-    }
 }
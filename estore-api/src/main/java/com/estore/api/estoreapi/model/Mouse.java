@@ -1,7 +1,6 @@
 package com.estore.api.estoreapi.model;
 
 import java.util.List;
-import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -11,11 +10,22 @@ public class Mouse extends Product {
         super(id, colors, name, quantity, price, ProductType.MOUSE, "This is a description of the product", imageURL);
     }
 
+    public Mouse(List<Color> colors, String name) {
+        this(-1, colors, name, 0, 0, "");
+    }
+
     @JsonCreator
     public Mouse(
-            @JsonProperty("color") List<Color> colors,
-            @JsonProperty("name") String name) {
-        this(-1, colors, name, 0, 0, "");
+            @JsonProperty("id") int id,
+            @JsonProperty("allColors") List<Color> colors,
+            @JsonProperty("name") String name,
+            @JsonProperty("quantity") int quantity,
+            @JsonProperty("price") double price,
+            @JsonProperty("description") String description,
+            @JsonProperty("imageURL") String imageURL,
+            @JsonProperty("reviews") List<Review> reviews,
+            @JsonProperty("version") long version) {
+        super(id, colors, name, quantity, price, ProductType.MOUSE, description, imageURL, reviews, version);
     }
 
     private Mouse(Mouse m, int id) {
@@ -41,6 +51,12 @@ public class Mouse extends Product {
 		return new Mouse(this, id);
 	}
 
+	@Override
+	protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+	        String description, String imageURL, List<Review> reviews, long version) {
+		return new Mouse(id, colors, name, quantity, price, description, imageURL, reviews, version);
+	}
+
     /**
      * compares Mouse  
      * @param other object of Mouse  
@@ -55,8 +71,4 @@ public class Mouse extends Product {
 			return false;
 		}
 	}
-    @Override
-    public int hashCode() {
-        return Objects.hash(id, name, quantity, price, imageURL, Objects.hashCode(colors));
-    }
 }
@@ -3,8 +3,8 @@ package com.estore.api.estoreapi.model;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 
@@ -20,29 +20,32 @@ import com.fasterxml.jackson.annotation.JsonSubTypes;
 })
 
 
+/**
+ * An immutable product. Instances are shared freely between the DAO, the
+ * controllers and Jackson, so updates go through the {@code with...} methods,
+ * which return a new product of the same type and leave this one untouched.
+ * 
+ * @author Team H
+ */
 public abstract class Product {
-    protected List<Color> colors;
-    protected int id;
-    public String name;
-    protected int quantity;
-    protected double price;
-    private String description;
-    protected String imageURL;
-    private List<Review> reviews;
+    private final List<Color> colors;
+    private final int id;
+    private final String name;
+    private final int quantity;
+    private final double price;
+    private final String description;
+    private final String imageURL;
+    private final List<Review> reviews;
+    private final long version;
+    private final int hash;
 
     public Product() {
-        this.id = 0;
-        this.name = "";
-        this.quantity = 0;
-        this.price = 0.0;
-        this.description = "";
-        this.imageURL = "";
-        this.reviews = new ArrayList<>();
-        this.colors = new ArrayList<>();
+        this(0, null, "", 0, 0.0, null, "", "", null, 0);
     }
 
     /**
      * Create a product with an id, color, name, quantity, price, productType, description and imageUrl 
+     * The colors are not kept; use {@link #withColors(List)} to give the product colors
      * @param id  the id of the product
      * @param color  the color of the product
      * @param name  the name of the product
@@ -54,43 +57,54 @@ public abstract class Product {
      */
     public Product(int id, List<Color> colors, String name, int quantity, double price, ProductType productType,
             String description, String imageURL) {
+        this(id, null, name, quantity, price, productType, description, imageURL, null, 0);
+    }
+
+    /**
+     * Create a product with every field, including its reviews. The color and
+     * review lists are copied, so later changes to the arguments are not seen
+     * @param id  the id of the product
+     * @param colors  the colors of the product, null for none
+     * @param name  the name of the product
+     * @param quantity  the quantity of the product
+     * @param price  the price of the product
+     * @param productType  the productType of the product
+     * @param description  the description of the product
+     * @param imageURL  the imageUrl of the product
+     * @param reviews  the reviews of the product, null for none
+     * @param version  the version of the product, bumped by the DAO on every change
+     */
+    protected Product(int id, List<Color> colors, String name, int quantity, double price, ProductType productType,
+            String description, String imageURL, List<Review> reviews, long version) {
         this.id = id;
-        this.name = name;
-        this.colors = colors;
+        this.name = name == null ? "" : name;
+        this.colors = colors == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(colors));
         this.quantity = quantity;
         this.price = price;
-        this.description = description;
-        this.imageURL = imageURL;
-        this.reviews = new ArrayList<>();
-        this.colors = new ArrayList<>();
-        this.reviews = new ArrayList<>();
+        this.description = description == null ? "" : description;
+        this.imageURL = imageURL == null ? "" : imageURL;
+        this.reviews = reviews == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(reviews));
+        this.version = version;
+        // equals only looks at the name, so the hash must not depend on anything else
+        this.hash = this.name.hashCode();
     }
 
+    /**
+     * Build a product of this same type from the given fields. The {@code with...}
+     * methods all funnel through here, so every concrete product type implements it
+     */
+    protected abstract Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+            String description, String imageURL, List<Review> reviews, long version);
+
     public int getId() {
         return this.id;
     }
 
-    public List<Color> getAllColors() {
-        return colors;
-    }
-
     /**
-     * setting up all of the colors 
-     * @param colors list of Color 
+     * @return an unmodifiable view of the colors of this product
      */
-    public void setAllColors(Color[] colors) {
-        this.colors.clear();
-        for (Color c : colors) {
-            this.colors.add(c);
-        }
-    }
-
-    public void addColor(Color color) {
-        this.colors.add(color);
-    }
-
-    public void removeColor(Color color) {
-        this.colors.remove(color);
+    public List<Color> getAllColors() {
+        return colors;
     }
 
     /**
@@ -111,10 +125,6 @@ public abstract class Product {
         return name;
     }
 
-    public void setName(String name) {
-        this.name = name;
-    }
-
     public double getPrice() {
         return this.price;
     }
@@ -123,46 +133,92 @@ public abstract class Product {
         return this.quantity;
     }
 
-    public void setQuantity(int quantity) {
-        this.quantity = quantity;
+    public String getImageURL() {
+        return this.imageURL;
     }
 
-    public void setDescription(String description) {
-        this.description = description;
+    public String getDescription() {
+        return this.description;
     }
 
-    public String getImageURL() {
-        return this.imageURL;
+    /**
+     * @return an unmodifiable view of the reviews of this product
+     */
+    public List<Review> getReviews() {
+        return this.reviews;
     }
 
-    public void setImageURL(String imageURL) {
-        this.imageURL = imageURL;
+    /**
+     * @return the version of this product, used as its ETag
+     */
+    public long getVersion() {
+        return this.version;
     }
 
-    public String getDescription() {
-        return this.description;
+    public Product withName(String name) {
+        return rebuild(id, colors, name, quantity, price, description, imageURL, reviews, version);
     }
 
-    public void addReview(Review review) {
-        this.reviews.add(review);
+    public Product withQuantity(int quantity) {
+        return rebuild(id, colors, name, quantity, price, description, imageURL, reviews, version);
     }
 
-    // public void removeReview(Review review) {
-    //     for (Review r : this.reviews) {
-    //         if (r.userid == review.userid && r.productid == review.productid && r.rating == review.rating
-    //                 && r.review.equals(review.review)) {
-    //             this.reviews.remove(r);
-    //             return;
-    //         }
-    //     }
-    // }
+    public Product withDescription(String description) {
+        return rebuild(id, colors, name, quantity, price, description, imageURL, reviews, version);
+    }
 
-    public List<Review> getReviews() {
-        return this.reviews;
+    public Product withImageURL(String imageURL) {
+        return rebuild(id, colors, name, quantity, price, description, imageURL, reviews, version);
+    }
+
+    /**
+     * @param colors the colors the new product should have
+     * @return a copy of this product with exactly the given colors
+     */
+    public Product withColors(List<Color> colors) {
+        return rebuild(id, colors, name, quantity, price, description, imageURL, reviews, version);
     }
 
-    public void setReviews(List<Review> reviews) {
-        this.reviews = reviews;
+    /**
+     * @param color the color to add
+     * @return a copy of this product with the color appended
+     */
+    public Product withColor(Color color) {
+        List<Color> newColors = new ArrayList<>(colors);
+        newColors.add(color);
+        return withColors(newColors);
+    }
+
+    /**
+     * @param color the color to remove
+     * @return a copy of this product without the first matching color
+     */
+    public Product withoutColor(Color color) {
+        List<Color> newColors = new ArrayList<>(colors);
+        newColors.remove(color);
+        return withColors(newColors);
+    }
+
+    /**
+     * @param review the review to add
+     * @return a copy of this product with the review appended
+     */
+    public Product withReview(Review review) {
+        List<Review> newReviews = new ArrayList<>(reviews);
+        newReviews.add(review);
+        return rebuild(id, colors, name, quantity, price, description, imageURL, newReviews, version);
+    }
+
+    public Product withReviews(List<Review> reviews) {
+        return rebuild(id, colors, name, quantity, price, description, imageURL, reviews, version);
+    }
+
+    /**
+     * @param version the version the new product should have
+     * @return a copy of this product with the given version
+     */
+    public Product withVersion(long version) {
+        return rebuild(id, colors, name, quantity, price, description, imageURL, reviews, version);
     }
 
     /**
@@ -184,7 +240,7 @@ public abstract class Product {
     public boolean equals(Object other) {
         if (other instanceof Product) {
             Product o = (Product) other;
-            return o.name.equals(this.name);
+            return o.hash == this.hash && o.name.equals(this.name);
         } else {
             return false;
         }
@@ -192,7 +248,7 @@ public abstract class Product {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, quantity, price, imageURL, Objects.hashCode(colors));
+        return hash;
     }
     
 }
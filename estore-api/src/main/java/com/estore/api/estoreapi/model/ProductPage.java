@@ -0,0 +1,42 @@
+package com.estore.api.estoreapi.model;
+
+/**
+ * One page of a product listing
+ *
+ * @author Team H
+ */
+public class ProductPage {
+    private Product[] products;
+    private int total;
+    private int page;
+    private int size;
+
+    /**
+     * @param products the products on this page
+     * @param total    the number of products on all pages
+     * @param page     the number of the page, starting at 0
+     * @param size     the most products on a page
+     */
+    public ProductPage(Product[] products, int total, int page, int size) {
+        this.products = products;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+    }
+
+    public Product[] getProducts() {
+        return products;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -1,13 +1,19 @@
 package com.estore.api.estoreapi.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An immutable review, shared by the immutable products that carry it
+ *
+ * @author Team H
+ */
 public class Review {
 
-    public int productid;
-    public int userid;
-    public String review;
-    public int rating;
-
-    public Review() {}
+    private final int productid;
+    private final int userid;
+    private final String review;
+    private final int rating;
 
     /**
      * Create a review with productid, userid, review and rating 
@@ -16,7 +22,9 @@ public class Review {
      * @param review  the review of the review
      * @param rating  the rating of the review
      */
-    public Review(int productid, int userid, int ratingoutof5, String review) {
+    @JsonCreator
+    public Review(@JsonProperty("productid") int productid, @JsonProperty("userid") int userid,
+            @JsonProperty("rating") int ratingoutof5, @JsonProperty("review") String review) {
         this.productid = productid;
         this.userid = userid;
         this.review = review;
@@ -38,20 +46,4 @@ public class Review {
     public int getUserid() {
         return userid;
     }
-
-    public void setProductid(int productid) {
-        this.productid = productid;
-    }
-
-    public void setRating(int rating) {
-        this.rating = rating;
-    }
-
-    public void setReview(String review) {
-        this.review = review;
-    }
-
-    public void setUserid(int userid) {
-        this.userid = userid;
-    }
 }
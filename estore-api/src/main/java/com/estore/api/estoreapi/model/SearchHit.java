@@ -0,0 +1,28 @@
+package com.estore.api.estoreapi.model;
+
+/**
+ * A product found by a full-text search with its relevance score
+ *
+ * @author Team H
+ */
+public class SearchHit {
+    private Product product;
+    private double score;
+
+    /**
+     * @param product the product that matched
+     * @param score   how well it matched, higher is better
+     */
+    public SearchHit(Product product, double score) {
+        this.product = product;
+        this.score = score;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
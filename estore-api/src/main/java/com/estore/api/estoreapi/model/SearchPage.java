@@ -0,0 +1,42 @@
+package com.estore.api.estoreapi.model;
+
+/**
+ * One page of full-text search hits, best match first
+ *
+ * @author Team H
+ */
+public class SearchPage {
+    private SearchHit[] hits;
+    private int total;
+    private int page;
+    private int size;
+
+    /**
+     * @param hits  the hits on this page
+     * @param total the number of hits on all pages
+     * @param page  the number of the page, starting at 0
+     * @param size  the most hits on a page
+     */
+    public SearchPage(SearchHit[] hits, int total, int page, int size) {
+        this.hits = hits;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+    }
+
+    public SearchHit[] getHits() {
+        return hits;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
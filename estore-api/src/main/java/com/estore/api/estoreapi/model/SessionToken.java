@@ -0,0 +1,59 @@
+package com.estore.api.estoreapi.model;
+
+/**
+ * The contents of a verified session token
+ *
+ * @author Team H
+ */
+public class SessionToken {
+    private final int accountID;
+    private final int sessionID;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    /**
+     * Session token contents
+     * @param accountID the id of the logged in account
+     * @param sessionID the id of the session
+     * @param issuedAt the time the token was issued, in milliseconds since the epoch
+     * @param expiresAt the time the token stops being valid, in seconds since the epoch
+     */
+    public SessionToken(int accountID, int sessionID, long issuedAt, long expiresAt) {
+        this.accountID = accountID;
+        this.sessionID = sessionID;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * gets account id
+     * @return an account int id
+     */
+    public int getAccountID() {
+        return accountID;
+    }
+
+    /**
+     * gets session id
+     * @return an int id
+     */
+    public int getSessionID() {
+        return sessionID;
+    }
+
+    /**
+     * gets the time the token was issued, which orders the logins of an account
+     * @return milliseconds since the epoch
+     */
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    /**
+     * gets the time the token stops being valid
+     * @return seconds since the epoch
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -26,6 +26,22 @@ public class ShoppingCart {
         this.productHistoryQuan = new ArrayList<>();
     }
 
+    /**
+     * Copy the cart, its products and colors are shared as they never change
+     * 
+     * @return a cart that later changes to this one do not reach
+     */
+    public ShoppingCart copy() {
+        ShoppingCart copy = new ShoppingCart();
+        copy.productsInCart = productsInCart.clone();
+        copy.listofColors = listofColors.clone();
+        copy.productQuan = productQuan.clone();
+        copy.mostRecentProduct = mostRecentProduct;
+        copy.productHistory = new ArrayList<>(productHistory);
+        copy.productHistoryQuan = new ArrayList<>(productHistoryQuan);
+        return copy;
+    }
+
     /**
      * get the quantity of the product history
      * 
@@ -1,7 +1,6 @@
 package com.estore.api.estoreapi.model;
 
 import java.util.List;
-import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -15,11 +14,22 @@ public class Speaker extends Product {
         super(id, colors, name, quantity, price, ProductType.KEYBOARD, "This is a description of the product", imageURL);
     }
     
+    public Speaker(List<Color> colors, String name) {
+        this(-1, colors, name, 0, 0, "");
+    }
+
     @JsonCreator
     public Speaker(
-            @JsonProperty("color") List<Color> colors,
-            @JsonProperty("name") String name) {
-        this(-1, colors, name, 0, 0, "");
+            @JsonProperty("id") int id,
+            @JsonProperty("allColors") List<Color> colors,
+            @JsonProperty("name") String name,
+            @JsonProperty("quantity") int quantity,
+            @JsonProperty("price") double price,
+            @JsonProperty("description") String description,
+            @JsonProperty("imageURL") String imageURL,
+            @JsonProperty("reviews") List<Review> reviews,
+            @JsonProperty("version") long version) {
+        super(id, colors, name, quantity, price, ProductType.SPEAKER, description, imageURL, reviews, version);
     }
     
     /**
@@ -40,6 +50,12 @@ public class Speaker extends Product {
 		return new Speaker(this, id);
 	}
 
+    @Override
+    protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+            String description, String imageURL, List<Review> reviews, long version) {
+        return new Speaker(id, colors, name, quantity, price, description, imageURL, reviews, version);
+    }
+
 	@Override
 	public boolean equals(Object other) {
 		if (other instanceof Speaker) {
@@ -49,9 +65,4 @@ public class Speaker extends Product {
 			return false;
 		}
 	}
-    
-    @Override
-    public int hashCode() {
-        return Objects.hash(id, name, quantity, price, imageURL, Objects.hashCode(colors));
-    }
 }
@@ -0,0 +1,29 @@
+package com.estore.api.estoreapi.model;
+
+/**
+ * A product offered while a name is typed into the search box, only the id
+ * and name so the response stays small
+ *
+ * @author Team H
+ */
+public class Suggestion {
+    private int id;
+    private String name;
+
+    /**
+     * @param id   the id of the product
+     * @param name its name
+     */
+    public Suggestion(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
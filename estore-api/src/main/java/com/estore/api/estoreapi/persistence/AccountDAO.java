@@ -8,8 +8,12 @@ import com.estore.api.estoreapi.model.Color;
 import com.estore.api.estoreapi.model.ShoppingCart;
 import com.estore.api.estoreapi.model.Payment;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.SessionToken;
 
 public interface AccountDAO {
+    /** The expected version of an update that does not care which version it replaces */
+    long ANY_VERSION = ProductDAO.ANY_VERSION;
+
     Account[] getAllAccounts() throws IOException;
 
     Account createAccount(Account account) throws IOException;
@@ -18,6 +22,20 @@ public interface AccountDAO {
 
     Account updateAccount(Account account) throws IOException;
 
+    /**
+     * Update an account only if it is still at the version the caller last read
+     *
+     * @param account         the new state of the account
+     * @param expectedVersion the version the update is based on, or
+     *                        {@link #ANY_VERSION}
+     *
+     * @return the stored account with its new version, null if the caller may
+     *         not change it
+     *
+     * @throws VersionConflictException if the account changed in the meantime
+     */
+    Account updateAccount(Account account, long expectedVersion) throws IOException;
+
     Account deleteAccount(int userid) throws IOException;
 
     Account logoutAccount(String usernameString) throws IOException;
@@ -53,4 +71,15 @@ public interface AccountDAO {
     int[] productsAllowedToReviewQuantities(int userid) throws IOException;
 
     Account getAccountById(int id) throws IOException;
+
+    /**
+     * Make the session of a verified session token active on this node,
+     * trusting the token's claims rather than any stored login state
+     *
+     * @param token the verified token
+     *
+     * @return false if the account is gone, the token was revoked on this node
+     *         or a later login of the account is active here
+     */
+    boolean resumeSession(SessionToken token) throws IOException;
 }
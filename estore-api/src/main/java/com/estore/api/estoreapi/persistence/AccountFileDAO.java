@@ -3,15 +3,14 @@ package com.estore.api.estoreapi.persistence;
 import java.io.File;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.io.IOException;
-import java.util.logging.Level;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.logging.Logger;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
-
 import com.estore.api.estoreapi.model.Account;
 import com.estore.api.estoreapi.model.AccountAuthentication;
 import com.estore.api.estoreapi.model.AccountSession;
@@ -20,28 +19,120 @@ import com.estore.api.estoreapi.model.Address;
 import com.estore.api.estoreapi.model.Color;
 import com.estore.api.estoreapi.model.Payment;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.SessionToken;
 import com.estore.api.estoreapi.model.ShoppingCart;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-@Component
 public class AccountFileDAO implements AccountDAO {
     private static final Logger LOG = Logger.getLogger(AccountFileDAO.class.getName());
     private Map<Integer, Account> accounts = null;
 
     private ObjectMapper mapper;
     private String filename;
+    private int loadThreads;
 
     private ActiveAccountSessions activeSessions = new ActiveAccountSessions();
-    private AccountSession accountSession;
     private AccountAuthentication accountAuth = new AccountAuthentication();
+    private CredentialIndex credentials = new CredentialIndex();
+    // the accounts lock is only taken for adding and removing accounts, changes
+    // to one account lock that account's stripe
+    private StripedLock locks = new StripedLock(64);
+    // only one thread writes the account files at a time
+    private final Object writeLock = new Object();
+    // the copies the account files are written from. save takes them under the
+    // stripe lock its caller holds, so a writer never sees an account mid-change
+    // and never has to lock an account itself
+    private final Map<Integer, Account> stored = new ConcurrentSkipListMap<>();
+
+    // Only set when account.write-behind.enabled is true
+    private WriteBehindFlusher flusher;
+    // Only set when account.shards is greater than 0
+    private AccountShards shards;
+    // Only set when storage.incremental-save is true
+    private FragmentCache<Account> accountFragments;
+    // Only set when storage.compression.enabled is true
+    private DictionaryCompression compression;
+    // Only set when a session timeout is configured
+    private SessionSweeper sweeper;
+
+    // leases new account ids, reset whenever the accounts are (re)loaded
+    private IdAllocator ids;
+
+    public AccountFileDAO(String filename, ObjectMapper mapper) throws IOException {
+        this(filename, mapper, new StorageProperties());
+    }
 
-    private static int nextId;
-
-    public AccountFileDAO(@Value("${account.file}") String filename, ObjectMapper mapper) throws IOException {
+    public AccountFileDAO(String filename, ObjectMapper mapper, StorageProperties properties) throws IOException {
         LOG.info(filename);
-        this.filename = filename;
-        this.mapper = mapper;
+        StorageFormat format = properties.getStorageFormat();
+        this.filename = format.file(filename);
+        this.mapper = format.mapper(mapper);
+        this.loadThreads = properties.getLoadThreads();
+        this.compression = properties.getCompression();
+        if (format != StorageFormat.JSON && !new File(this.filename).exists()) {
+            StorageFormatConverter.convert(new File(filename), StorageFormat.JSON, new File(this.filename), format,
+                    mapper);
+        }
+        if (properties.getAccountShards() > 0) {
+            shards = new AccountShards(new File(this.filename + ".shards"), properties.getAccountShards(),
+                    this.mapper, format.getExtension());
+        }
+        if (properties.isIncrementalSave() && format == StorageFormat.JSON) {
+            accountFragments = new FragmentCache<>(mapper, Account::getId);
+        }
+        ids = properties.newIdAllocator(this.filename, 1);
         load();
+        if (properties.isAccountWriteBehindEnabled()) {
+            flusher = new WriteBehindFlusher("account-write-behind", this::writeAccounts,
+                    properties.getAccountWriteBehindInterval(), properties.getAccountWriteBehindMaxChanges(),
+                    properties.getAccountWriteBehindMaxStaleness());
+        }
+        sweeper = properties.newSessionSweeper(activeSessions, this::expireSession);
+        if (sweeper != null) {
+            sweeper.start();
+        }
+    }
+
+    /**
+     * Persist a changed account, either right away or through the write-behind
+     * flusher. Every saved change moves the account on to its next version, so
+     * callers must hold the stripe lock of the account
+     *
+     * @param id the id of the account that changed
+     *
+     * @return true if the accounts were written or queued to be written
+     */
+    private boolean save(int id) throws IOException {
+        Account account = accounts.get(id);
+        if (account != null) {
+            account.setVersion(account.getVersion() + 1);
+            stored.put(id, account.withoutSession());
+        } else {
+            stored.remove(id);
+        }
+        if (accountFragments != null) {
+            accountFragments.markDirty(id);
+        }
+        if (shards != null) {
+            shards.markDirty(id);
+        }
+        if (flusher != null) {
+            flusher.markDirty();
+            return true;
+        }
+        return writeAccounts();
+    }
+
+    /**
+     * Write pending account changes and stop the flusher on shutdown
+     */
+    public void close() throws IOException {
+        if (sweeper != null) {
+            sweeper.close();
+        }
+        if (flusher != null) {
+            flusher.close();
+        }
     }
 
     /**
@@ -50,64 +141,178 @@ public class AccountFileDAO implements AccountDAO {
      * @return true if the accounts were successfully serialized and written to the
      *         disk
      */
-    private boolean save() throws IOException {
-        Account[] accountArray = getAllAccountsArray(null);
-    
-        String filePath = new File(filename).getAbsolutePath();
-        LOG.info("Saving accounts to file: " + filePath);
-    
-        mapper.writeValue(new File(filename), accountArray);
-        return true;
+    private boolean writeAccounts() throws IOException {
+        synchronized (writeLock) {
+            if (shards != null) {
+                shards.writeDirty(this::getBucket);
+                return true;
+            }
+            List<Account> accountList = new ArrayList<>(stored.values());
+            Account[] accountArray = accountList.toArray(new Account[0]);
+            String filePath = new File(filename).getAbsolutePath();
+            LOG.info("Saving accounts to file: " + filePath);
+
+            if (compression != null) {
+                try (OutputStream out = compression.openOutput(new File(filename))) {
+                    if (accountFragments != null) {
+                        accountFragments.writeArray(out, accountList);
+                    } else {
+                        mapper.writeValue(out, accountArray);
+                    }
+                }
+            } else if (accountFragments != null) {
+                accountFragments.writeArray(new File(filename), accountList);
+            } else {
+                mapper.writeValue(new File(filename), accountArray);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Rewrite the whole account file, for example after the compression
+     * dictionary was retrained
+     */
+    public void rewriteAccounts() throws IOException {
+        if (shards != null) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.markDirty();
+            flusher.flush();
+        } else {
+            writeAccounts();
+        }
+    }
+
+    /**
+     * Replace every account, keeping their ids, for example when migrating
+     * from another storage engine
+     *
+     * @param newAccounts the accounts to store
+     */
+    public void replaceAll(Collection<Account> newAccounts) throws IOException {
+        synchronized (accounts) {
+            accounts.clear();
+            credentials.clear();
+            for (Account account : newAccounts) {
+                accounts.put(account.getId(), account);
+                credentials.add(account);
+                if (accountFragments != null) {
+                    accountFragments.markDirty(account.getId());
+                }
+            }
+            resetIds();
+            storeAll();
+            if (shards != null) {
+                shards.writeAll(new ArrayList<>(stored.values()));
+            } else {
+                writeAccounts();
+            }
+        }
+    }
+
+    /**
+     * Take the stored copy of every account, only while nothing else can change
+     * them, after loading or replacing all accounts
+     */
+    private void storeAll() {
+        stored.clear();
+        for (Account account : accounts.values()) {
+            stored.put(account.getId(), account.withoutSession());
+        }
+    }
+
+    /**
+     * @param bucket a shard bucket
+     *
+     * @return the accounts stored in the bucket
+     */
+    private List<Account> getBucket(int bucket) {
+        List<Account> accountList = new ArrayList<>();
+        for (Account account : stored.values()) {
+            if (shards.bucketOf(account.getId()) == bucket) {
+                accountList.add(account);
+            }
+        }
+        return accountList;
     }
-    
-    
 
     /**
      * Deserialize all accounts from the disk
      *
+     * With shards enabled the bucket files are read in parallel. The first
+     * start with shards splits the single account file into buckets. With
+     * storage.load-threads set the single file is streamed instead of read as
+     * one array.
+     *
      * @return true if the accounts were successfully deserialized and read from the
      *         disk
      */
     private boolean load() throws IOException {
-        accounts = new TreeMap<>();
-        nextId = 0;
+        accounts = new ConcurrentSkipListMap<>();
+        credentials.clear();
         LOG.info(filename);
 
-        Account[] accountArray = mapper.readValue(new File(filename), Account[].class);
-        for (Account account : accountArray) {
-            int id = account.getId();
-            accounts.put(id, account);
-            if (id > nextId) {
-                nextId = id;
+        if (shards != null && shards.exists()) {
+            for (Account account : shards.readAll()) {
+                accounts.put(account.getId(), account);
+            }
+        } else if (compression != null) {
+            try (InputStream in = compression.openInput(new File(filename))) {
+                StreamingLoader.load(mapper, in, filename, Account.class, Math.max(1, loadThreads),
+                        this::loadAccount);
+            }
+        } else if (loadThreads > 0) {
+            StreamingLoader.load(mapper, new File(filename), Account.class, loadThreads, this::loadAccount);
+        } else {
+            Account[] accountArray = mapper.readValue(new File(filename), Account[].class);
+            for (Account account : accountArray) {
+                accounts.put(account.getId(), account);
             }
         }
-        nextId++;
+        for (Account account : accounts.values()) {
+            // nobody is logged in after a restart, whatever older files say
+            account.setIsLoggedIn(false);
+            account.setSessionID(0);
+            credentials.add(account);
+        }
+        resetIds();
+        storeAll();
+        if (shards != null && (!shards.exists() || shards.isMisplaced())) {
+            shards.writeAll(new ArrayList<>(stored.values()));
+        }
         return true;
     }
 
+    private void loadAccount(Account account) {
+        synchronized (accounts) {
+            accounts.put(account.getId(), account);
+        }
+    }
+
     /**
-     * Get the next available account id
-     * 
-     * @return the next id
+     * Make new ids start above every stored account id
      */
-    private synchronized static int getNextId() {
-        int id = nextId++;
-        return id;
+    private void resetIds() {
+        int highest = 0;
+        for (int id : accounts.keySet()) {
+            highest = Math.max(highest, id);
+        }
+        ids.reset(highest + 1L);
     }
 
     /**
      * @return all the accounts in the list
      */
     private Account[] getAllAccountsArray(String containsText) {
-        synchronized (accounts) {
-            List<Account> accountList = new ArrayList<>();
-            for (Account account : accounts.values()) {
-                if (containsText == null || account.getUsername().contains(containsText)) {
-                    accountList.add(account);
-                }
+        List<Account> accountList = new ArrayList<>();
+        for (Account account : accounts.values()) {
+            if (containsText == null || account.getUsername().contains(containsText)) {
+                accountList.add(account);
             }
-            return accountList.toArray(new Account[0]);
         }
+        return accountList.toArray(new Account[0]);
     }
 
     /**
@@ -115,17 +320,13 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Account[] getAllAccounts() {
-        synchronized (accounts) {
-            return getAllAccountsArray(null);
-        }
+        return getAllAccountsArray(null);
     }
 
     
     @Override
     public Account getAccountById(int id) {
-        synchronized (accounts) {
-            return accounts.get(id);
-        }
+        return accounts.get(id);
     }
 
     /**
@@ -137,28 +338,52 @@ public class AccountFileDAO implements AccountDAO {
     public Account createAccount(Account account) throws IOException {
         synchronized (accounts) {
             // Check if the username or email already exists
-            for (Account a : accounts.values()) {
-                if (a.getUsername().equals(account.getUsername()) || a.getEmail().equals(account.getEmail())) {
-                    return null; // Return null if username or email already exists
-                }
+            if (credentials.isTaken(account.getUsername(), account.getEmail())) {
+                return null; // Return null if username or email already exists
             }
 
             // Generate a new ID and set it to the account
-            int id = getNextId();
+            int id = ids.next();
             account.setId(id);
 
-            // Add the account to the accounts map
-            accounts.put(id, account);
+            // Same order as deleteAccount: the accounts, then the stripe save needs
+            synchronized (locks.of(id)) {
+                // Add the account to the accounts map
+                accounts.put(id, account);
+                credentials.add(account);
+
+                // Log in the account
+                Account loggedAccount = loginAccount(account.getUsername(), account.getPassword());
 
-            // Log in the account
-            Account loggedAccount = loginAccount(account.getUsername(), account.getPassword());
+                // Save the changes
+                save(id);
 
-            // Save the changes
-            save();
+                // Return the logged-in account
+                return loggedAccount;
+            }
+        }
+    }
 
-            // Return the logged-in account
-            return loggedAccount;
+    /**
+     * Find a session that may change an account, the account's own session or
+     * else an admin session
+     *
+     * @param account the account to change
+     *
+     * @return the session, or null if no session may change the account
+     */
+    private AccountSession authorizingSession(Account account) {
+        AccountSession session = activeSessions.getByAccountId(account.getId());
+        if (session != null) {
+            return session;
         }
+        // only admin sessions are left to check, which is the rare case
+        for (AccountSession other : activeSessions.getSessions()) {
+            if (accountAuth.accountAuthentication(other, account)) {
+                return other;
+            }
+        }
+        return null;
     }
 
     /**
@@ -172,24 +397,56 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Account loginAccount(String username, String password) throws IOException {
-        for (Account account : accounts.values()) {
-            if (account.getUsername().equals(username) && account.getPassword().equals(password)) {
-                try {
-                    accountSession = new AccountSession(account, activeSessions);
-                } catch (Exception e) {
-                    return null;
-                }
-                activeSessions.addSession(accountSession);
-                account.setIsLoggedIn(true);
-                account.setSessionID(accountSession.getSessionID());
-                save();
-                return account;
+        Account account = findByUsername(username);
+        if (account != null && account.getPassword().equals(password)) {
+            AccountSession accountSession;
+            try {
+                accountSession = new AccountSession(account, activeSessions);
+            } catch (Exception e) {
+                return null;
+            }
+            // a concurrent login of the same account may have won the race
+            if (!activeSessions.addSession(accountSession)) {
+                return null;
+            }
+            if (sweeper != null) {
+                sweeper.register(accountSession);
             }
+            // login state is kept in memory only, so logging in writes nothing
+            account.setIsLoggedIn(true);
+            account.setSessionID(accountSession.getSessionID());
+            return account;
         }
         return null;
 
     }
 
+    /**
+     * @param username a username, matched exactly
+     *
+     * @return the account with the username, or null if there is none
+     */
+    private Account findByUsername(String username) {
+        Integer id = credentials.findByUsername(username);
+        Account account = id == null ? null : getAccountById(id);
+        return account != null && account.getUsername().equals(username) ? account : null;
+    }
+
+    /**
+     * Log out the account of a session the sweeper expired
+     *
+     * @param session the expired session, already removed from the registry
+     */
+    private void expireSession(AccountSession session) {
+        Account account = accounts.get(session.getLoggedAccountID());
+        if (account == null || account.getSessionID() != session.getSessionID()) {
+            return;
+        }
+        account.setIsLoggedIn(false);
+        account.setSessionID(0);
+        LOG.info("FileDAO: session of " + account.getUsername() + " expired");
+    }
+
     /**
      * @param username the username of the account to login
      * 
@@ -199,20 +456,14 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Account logoutAccount(String username) throws IOException {
-        for (Account account : accounts.values()) {
-            if (account.getUsername().equals(username)) {
-                for (AccountSession session : activeSessions.getSessions()) {
-                    if (accountAuth.accountAuthentication(session, account)) {
-                        activeSessions.removeSession(accountSession); // remove session
-                        accountSession = null; // delete session
-                        account.setIsLoggedIn(false);
-                        account.setSessionID(0);
-                        save();
-                        LOG.info("FileDAO: " + account.getUsername() + " logged out");
-                        return account;
-                    }
-                }
-            }
+        Account account = findByUsername(username);
+        if (account != null && authorizingSession(account) != null) {
+            activeSessions.removeSession(activeSessions.getByAccountId(account.getId()));
+            activeSessions.revoke(account.getId(), System.currentTimeMillis());
+            account.setIsLoggedIn(false);
+            account.setSessionID(0);
+            LOG.info("FileDAO: " + account.getUsername() + " logged out");
+            return account;
         }
         return null;
     }
@@ -228,14 +479,13 @@ public class AccountFileDAO implements AccountDAO {
     public Account deleteAccount(int id) throws IOException {
         synchronized (accounts) {
             if (accounts.containsKey(id)) {
-                for (AccountSession session : activeSessions.getSessions()) {
-                    if (accountAuth.accountAuthentication(session, accounts.get(id))) {
-                        activeSessions.removeSession(accountSession); // remove
-                        accountSession = null; // delete session
-                        accounts.remove(id);
-                        save();
-                        return null;
+                if (authorizingSession(accounts.get(id)) != null) {
+                    synchronized (locks.of(id)) {
+                        activeSessions.removeSession(activeSessions.getByAccountId(id));
+                        credentials.remove(accounts.remove(id));
+                        save(id);
                     }
+                    return null;
                 }
             }
             return accounts.get(id);
@@ -251,16 +501,82 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Account updateAccount(Account account) throws IOException {
-        synchronized (accounts) {
-            for (AccountSession session : activeSessions.getSessions()) {
-                if (accountAuth.accountAuthentication(session, account)) {
-                    accounts.put(account.getId(), account);
-                    save();
-                    return account;
-                }
-            }
+        return updateAccount(account, ANY_VERSION);
+    }
+
+    /**
+     * Replace an existing account if it is still at the expected version. Only
+     * the stripe lock of the account is held, so updates of different accounts
+     * run side by side
+     * 
+     * @param account         the account to update
+     * @param expectedVersion the version the update is based on
+     * 
+     * @return the updated account with its new version, null if it is not found,
+     *         no session may change it or its username or email belongs to
+     *         another account
+     */
+    @Override
+    public Account updateAccount(Account account, long expectedVersion) throws IOException {
+        if (authorizingSession(account) == null) {
             return null;
         }
+        synchronized (locks.of(account.getId())) {
+            Account old = accounts.get(account.getId());
+            if (old == null) {
+                return null;
+            }
+            long current = old.getVersion();
+            if (expectedVersion != ANY_VERSION && current != expectedVersion) {
+                throw new VersionConflictException(expectedVersion, current);
+            }
+            if (!credentials.replace(old, account)) {
+                return null;
+            }
+            // the login state is the DAO's, not the client's
+            account.setSessionID(old.getSessionID());
+            account.setIsLoggedIn(old.getIsLoggedIn());
+            account.setVersion(current);
+            accounts.put(account.getId(), account);
+            // later cart changes go to the object that is stored, not the replaced one
+            AccountSession session = activeSessions.getByAccountId(account.getId());
+            if (session != null) {
+                session.setLoggedAccount(account);
+            }
+            save(account.getId());
+        }
+        return account;
+    }
+
+    /**
+     * Make sure the session of a verified session token is active on this
+     * node, starting it from the token if another node handled the login
+     *
+     * @param token the verified token
+     *
+     * @return true if the session is active, false if the account is gone, the
+     *         token was revoked here or a later login is active here
+     */
+    @Override
+    public boolean resumeSession(SessionToken token) {
+        AccountSession session = activeSessions.getByAccountId(token.getAccountID());
+        if (session != null && session.getSessionID() == token.getSessionID()) {
+            return true;
+        }
+        Account account = accounts.get(token.getAccountID());
+        if (account == null) {
+            return false;
+        }
+        session = activeSessions.resume(account, token.getSessionID(), token.getIssuedAt());
+        if (session == null) {
+            return false;
+        }
+        if (sweeper != null) {
+            sweeper.register(session);
+        }
+        account.setIsLoggedIn(true);
+        account.setSessionID(session.getSessionID());
+        return true;
     }
 
     /**
@@ -272,10 +588,9 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Account getCurrentAccount(int id) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getSessionID() == id) {
-                return session.getLoggedAccount();
-            }
+        AccountSession session = activeSessions.getBySessionId(id);
+        if (session != null) {
+            return session.getLoggedAccount();
         }
         return null;
     }
@@ -288,18 +603,14 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public ShoppingCart getShoppingCart(int id) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == id) {
-                System.out.println("getting shopping cart from user: " + session.getLoggedAccount().getUsername()
-                        + " , shopping cart" + session.getLoggedAccount().getShoppingCart()
-                        + ".");
-                return session.getLoggedAccount().getShoppingCart();
-            }
+        AccountSession session = activeSessions.getByAccountId(id);
+        if (session != null) {
+            LOG.fine(() -> "FileDAO: shopping cart of " + session.getLoggedAccount().getUsername());
+            return session.getLoggedAccount().getShoppingCart();
         }
         return new ShoppingCart();
     }
 
-
     /**
      * add product to cart 
      * 
@@ -315,12 +626,13 @@ public class AccountFileDAO implements AccountDAO {
             return new ShoppingCart();
         }
 
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == userid) {
+        AccountSession session = activeSessions.getByAccountId(userid);
+        if (session != null) {
+            synchronized (locks.of(userid)) {
                 try {
                     ShoppingCart cart = session.getLoggedAccount().getShoppingCart().addProductToShoppingCart(product);
                     session.getLoggedAccount().setShoppingCart(cart);
-                    save();
+                    save(userid);
                     return session.getLoggedAccount().getShoppingCart();
                 } catch (Exception e) {
                     return session.getLoggedAccount().getShoppingCart();
@@ -346,12 +658,13 @@ public class AccountFileDAO implements AccountDAO {
             return new ShoppingCart();
         }
 
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == userid) {
+        AccountSession session = activeSessions.getByAccountId(userid);
+        if (session != null) {
+            synchronized (locks.of(userid)) {
                 try {
                     ShoppingCart cart = session.getLoggedAccount().getShoppingCart().addColorToShoppingCart(c);
                     session.getLoggedAccount().setShoppingCart(cart);
-                    save();
+                    save(userid);
                     return session.getLoggedAccount().getShoppingCart();
                 } catch (Exception e) {
                     return session.getLoggedAccount().getShoppingCart();
@@ -370,11 +683,12 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public ShoppingCart removeProductFromShoppingCart(int userid, int index) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == userid) {
+        AccountSession session = activeSessions.getByAccountId(userid);
+        if (session != null) {
+            synchronized (locks.of(userid)) {
                 try {
                     session.getLoggedAccount().getShoppingCart().removeProductFromShoppingCart(index);
-                    save();
+                    save(userid);
                     return session.getLoggedAccount().getShoppingCart();
                 } catch (Exception e) {
                     return session.getLoggedAccount().getShoppingCart();
@@ -393,11 +707,12 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public ShoppingCart incrementQuantity(int userid, int index) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == userid) {
+        AccountSession session = activeSessions.getByAccountId(userid);
+        if (session != null) {
+            synchronized (locks.of(userid)) {
                 try {
                     session.getLoggedAccount().getShoppingCart().incrementQuantity(index);
-                    save();
+                    save(userid);
                     return session.getLoggedAccount().getShoppingCart();
                 } catch (Exception e) {
                     return session.getLoggedAccount().getShoppingCart();
@@ -416,11 +731,12 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public ShoppingCart decrementQuantity(int userid, int index) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == userid) {
+        AccountSession session = activeSessions.getByAccountId(userid);
+        if (session != null) {
+            synchronized (locks.of(userid)) {
                 try {
                     session.getLoggedAccount().getShoppingCart().decrementQuantity(index);
-                    save();
+                    save(userid);
                     return session.getLoggedAccount().getShoppingCart();
                 } catch (Exception e) {
                     return session.getLoggedAccount().getShoppingCart();
@@ -438,11 +754,12 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public ShoppingCart clearShoppingCart(int userid) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == userid) {
+        AccountSession session = activeSessions.getByAccountId(userid);
+        if (session != null) {
+            synchronized (locks.of(userid)) {
                 try {
                     session.getLoggedAccount().getShoppingCart().clearCart();
-                    save();
+                    save(userid);
                     return session.getLoggedAccount().getShoppingCart();
                 } catch (Exception e) {
                     return session.getLoggedAccount().getShoppingCart();
@@ -454,11 +771,12 @@ public class AccountFileDAO implements AccountDAO {
 
     @Override
     public ShoppingCart updateShoppingCart(int userid, ShoppingCart cart) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == userid) {
+        AccountSession session = activeSessions.getByAccountId(userid);
+        if (session != null) {
+            synchronized (locks.of(userid)) {
                 try {
                     session.getLoggedAccount().setShoppingCart(cart);
-                    save();
+                    save(userid);
                     return session.getLoggedAccount().getShoppingCart();
                 } catch (Exception e) {
                     return session.getLoggedAccount().getShoppingCart();
@@ -476,10 +794,9 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Payment getPayment(int id) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == id) {
-                return session.getLoggedAccount().getPayment();
-            }
+        AccountSession session = activeSessions.getByAccountId(id);
+        if (session != null) {
+            return session.getLoggedAccount().getPayment();
         }
         return null;
     }
@@ -492,11 +809,12 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Payment updatePayment(int id, Payment payment) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == id) {
+        AccountSession session = activeSessions.getByAccountId(id);
+        if (session != null) {
+            synchronized (locks.of(id)) {
                 session.getLoggedAccount().updatePaymentInfo(payment.getCardHolder(), payment.getCardNumber(),
                         payment.getCvv(), payment.getExpDate());
-                save();
+                save(id);
                 return session.getLoggedAccount().getPayment();
             }
         }
@@ -511,10 +829,9 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Address getAddress(int id) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getSessionID() == id) {
-                return session.getLoggedAccount().getAddress();
-            }
+        AccountSession session = activeSessions.getBySessionId(id);
+        if (session != null) {
+            return session.getLoggedAccount().getAddress();
         }
         return null;
     }
@@ -528,11 +845,12 @@ public class AccountFileDAO implements AccountDAO {
     @Override
     public Address updateAddress(int id, Address address)
             throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == id) {
+        AccountSession session = activeSessions.getByAccountId(id);
+        if (session != null) {
+            synchronized (locks.of(id)) {
                 session.getLoggedAccount().updateAddressInfo(address.getCity(), address.getStreet(),
                         address.getHouseNumber(), address.getState(), address.getZip());
-                save();
+                save(id);
                 return session.getLoggedAccount().getAddress();
             }
         }
@@ -547,10 +865,9 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public Product[] productsAllowedToReview(int id) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == id) {
-                return session.getLoggedAccount().getShoppingCart().getProductHistory().toArray(new Product[0]);
-            }
+        AccountSession session = activeSessions.getByAccountId(id);
+        if (session != null) {
+            return session.getLoggedAccount().getShoppingCart().getProductHistory().toArray(new Product[0]);
         }
         return new Product[0];
     }
@@ -563,10 +880,9 @@ public class AccountFileDAO implements AccountDAO {
      */
     @Override
     public int[] productsAllowedToReviewQuantities(int id) throws IOException {
-        for (AccountSession session : activeSessions.getSessions()) {
-            if (session.getLoggedAccountID() == id) {
-                return session.getLoggedAccount().getShoppingCart().getProductHistoryQuan();
-            }
+        AccountSession session = activeSessions.getByAccountId(id);
+        if (session != null) {
+            return session.getLoggedAccount().getShoppingCart().getProductHistoryQuan();
         }
         return new int[0];
     }
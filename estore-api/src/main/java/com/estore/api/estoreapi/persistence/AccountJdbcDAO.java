@@ -0,0 +1,818 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.AccountAuthentication;
+import com.estore.api.estoreapi.model.AccountSession;
+import com.estore.api.estoreapi.model.ActiveAccountSessions;
+import com.estore.api.estoreapi.model.Address;
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Payment;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.SessionToken;
+import com.estore.api.estoreapi.model.ShoppingCart;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Stores accounts, their carts and order history in the embedded database
+ *
+ * Sessions are kept in memory like in {@link AccountFileDAO}. Every change
+ * only writes the rows of the account it touches: logging in or out updates a
+ * single row and a cart change rewrites the cart lines of that account. On
+ * the first start with an empty database the accounts are imported from
+ * account.file.
+ *
+ * @author Team H
+ */
+public class AccountJdbcDAO implements AccountDAO {
+    private static final Logger LOG = Logger.getLogger(AccountJdbcDAO.class.getName());
+    private static final String SELECT_ACCOUNTS = "SELECT * FROM accounts";
+
+    private JdbcStorage storage;
+    private ObjectMapper mapper;
+    private IdAllocator ids;
+
+    private ActiveAccountSessions activeSessions = new ActiveAccountSessions();
+    private AccountAuthentication accountAuth = new AccountAuthentication();
+    // Only set when a session timeout is configured
+    private SessionSweeper sweeper;
+
+    public AccountJdbcDAO(JdbcStorage storage, ObjectMapper mapper, String filename) throws IOException {
+        this(storage, mapper, filename, new StorageProperties());
+    }
+
+    public AccountJdbcDAO(JdbcStorage storage, ObjectMapper mapper, String filename, StorageProperties properties)
+            throws IOException {
+        this.storage = storage;
+        this.mapper = mapper;
+        this.ids = new IdAllocator((floor, size) -> storage.leaseIds("accounts", size), properties.getIdBlockSize(),
+                1);
+        storage.inTransaction(connection -> {
+            File file = new File(filename);
+            if (count(connection) == 0 && file.exists()) {
+                Account[] accountArray = mapper.readValue(file, Account[].class);
+                for (Account account : accountArray) {
+                    writeAccount(connection, account);
+                }
+                LOG.info("Imported " + accountArray.length + " accounts from " + filename);
+            }
+            return null;
+        });
+        sweeper = properties.newSessionSweeper(activeSessions, this::expireSession);
+        if (sweeper != null) {
+            sweeper.start();
+        }
+    }
+
+    /**
+     * Stop expiring sessions, the database itself is closed by the engine
+     */
+    public void close() {
+        if (sweeper != null) {
+            sweeper.close();
+        }
+    }
+
+    /**
+     * Log out the account of a session the sweeper expired
+     *
+     * @param session the expired session, already removed from the registry
+     */
+    private synchronized void expireSession(AccountSession session) {
+        Account account = session.getLoggedAccount();
+        account.setIsLoggedIn(false);
+        account.setSessionID(0);
+        try {
+            writeLogin(account);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not save expired session of " + account.getUsername(), e);
+        }
+        LOG.info("JdbcDAO: session of " + account.getUsername() + " expired");
+    }
+
+    private static int count(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM accounts");
+                ResultSet result = statement.executeQuery()) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+    }
+
+    /**
+     * @return the stored version of an account, -1 if there is no such account
+     */
+    private static long readVersion(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT version FROM accounts WHERE id = ?")) {
+            statement.setInt(1, id);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Move an account on to its next version. With an expected version this is
+     * a compare-and-swap: the row is only touched if nobody else moved it first
+     *
+     * @return true if the version was bumped
+     */
+    private static boolean bumpVersion(Connection connection, int id, long expectedVersion) throws SQLException {
+        String sql = "UPDATE accounts SET version = version + 1 WHERE id = ?";
+        if (expectedVersion != ANY_VERSION) {
+            sql += " AND version = ?";
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, id);
+            if (expectedVersion != ANY_VERSION) {
+                statement.setLong(2, expectedVersion);
+            }
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Read accounts with their carts and order history
+     *
+     * @param connection the connection of the transaction
+     * @param where      an optional where clause on the accounts table
+     * @param parameters the parameters of the where clause
+     *
+     * @return the accounts in id order
+     */
+    private List<Account> readAccounts(Connection connection, String where, Object... parameters)
+            throws SQLException, IOException {
+        Map<Integer, Account> accounts = new LinkedHashMap<>();
+        Map<Integer, ObjectNode> carts = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ACCOUNTS + where + " ORDER BY id")) {
+            bind(statement, parameters);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    int id = result.getInt("id");
+                    Account account = new Account(result.getString("username"), result.getString("email"),
+                            result.getString("password"), result.getString("first_name"),
+                            result.getString("last_name"), id, result.getString("profile_picture"));
+                    account.setIsLoggedIn(result.getBoolean("logged_in"));
+                    account.setSessionID(result.getInt("session_id"));
+                    account.setVersion(result.getLong("version"));
+                    account.setAddress(new Address(result.getString("city"), result.getString("street"),
+                            result.getString("state"), result.getString("house_number"), result.getInt("zip")));
+                    account.setPayment(new Payment(result.getString("card_holder"),
+                            result.getString("card_number"), result.getString("exp_date"), result.getInt("cvv")));
+                    accounts.put(id, account);
+
+                    ObjectNode cart = mapper.createObjectNode();
+                    cart.putArray("productsInCart");
+                    cart.putArray("listofColors");
+                    cart.putArray("productQuan");
+                    String recent = result.getString("recent_product");
+                    cart.set("mostRecentProduct", recent == null ? null : mapper.readTree(recent));
+                    cart.putArray("productHistory");
+                    cart.putArray("productHistoryQuan");
+                    carts.put(id, cart);
+                }
+            }
+        }
+        if (accounts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String owners = " WHERE account_id IN (SELECT id FROM accounts" + where + ") ORDER BY account_id, line_no";
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT account_id, product, color, quantity FROM cart_lines" + owners)) {
+            bind(statement, parameters);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    ObjectNode cart = carts.get(result.getInt("account_id"));
+                    String product = result.getString("product");
+                    if (product != null) {
+                        ((ArrayNode) cart.get("productsInCart")).add(mapper.readTree(product));
+                    }
+                    String color = result.getString("color");
+                    if (color != null) {
+                        ((ArrayNode) cart.get("listofColors")).addObject().put("name", color);
+                    }
+                    int quantity = result.getInt("quantity");
+                    if (!result.wasNull()) {
+                        ((ArrayNode) cart.get("productQuan")).add(quantity);
+                    }
+                }
+            }
+        }
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT account_id, product, quantity FROM order_history" + owners)) {
+            bind(statement, parameters);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    ObjectNode cart = carts.get(result.getInt("account_id"));
+                    String product = result.getString("product");
+                    if (product != null) {
+                        ((ArrayNode) cart.get("productHistory")).add(mapper.readTree(product));
+                    }
+                    int quantity = result.getInt("quantity");
+                    if (!result.wasNull()) {
+                        ((ArrayNode) cart.get("productHistoryQuan")).add(quantity);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Account> entry : accounts.entrySet()) {
+            entry.getValue().setShoppingCart(mapper.treeToValue(carts.get(entry.getKey()), ShoppingCart.class));
+        }
+        return new ArrayList<>(accounts.values());
+    }
+
+    private Account readAccount(Connection connection, String where, Object... parameters)
+            throws SQLException, IOException {
+        List<Account> accounts = readAccounts(connection, where, parameters);
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    /**
+     * Insert or replace an account with its cart and order history
+     */
+    private void writeAccount(Connection connection, Account account) throws SQLException, IOException {
+        writeAccountRow(connection, account);
+        writeCart(connection, account);
+        writeHistory(connection, account);
+    }
+
+    private void writeAccountRow(Connection connection, Account account) throws SQLException {
+        Address address = account.getAddress() != null ? account.getAddress() : new Address();
+        Payment payment = account.getPayment() != null ? account.getPayment() : new Payment();
+        try (PreparedStatement statement = connection.prepareStatement("MERGE INTO accounts (id, username, email,"
+                + " password, first_name, last_name, profile_picture, logged_in, session_id, city, street,"
+                + " house_number, state, zip, card_holder, card_number, cvv, exp_date) KEY (id)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            bind(statement, account.getId(), account.getUsername(), account.getEmail(), account.getPassword(),
+                    account.getFirstName(), account.getLastName(), account.getProfilePicture(),
+                    account.getIsLoggedIn(), account.getSessionID(), address.getCity(), address.getStreet(),
+                    address.getHouseNumber(), address.getState(), address.getZip(), payment.getCardHolder(),
+                    payment.getCardNumber(), payment.getCvv(), payment.getExpDate());
+            statement.executeUpdate();
+        }
+    }
+
+    private void deleteLines(Connection connection, String table, int id) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("DELETE FROM " + table + " WHERE account_id = ?")) {
+            statement.setInt(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void setProduct(PreparedStatement statement, int index, Product product) throws SQLException {
+        if (product == null) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setInt(index, product.getId());
+        }
+    }
+
+    private String toJson(Product product) throws IOException {
+        return product == null ? null : mapper.writeValueAsString(product);
+    }
+
+    /**
+     * Rewrite the cart lines and the most recent product of an account
+     */
+    private void writeCart(Connection connection, Account account) throws SQLException, IOException {
+        ShoppingCart cart = account.getShoppingCart() != null ? account.getShoppingCart() : new ShoppingCart();
+        try (PreparedStatement statement = connection
+                .prepareStatement("UPDATE accounts SET recent_product = ? WHERE id = ?")) {
+            bind(statement, toJson(cart.getMostRecentProduct()), account.getId());
+            statement.executeUpdate();
+        }
+        deleteLines(connection, "cart_lines", account.getId());
+        Product[] products = cart.getProductsInCart();
+        Color[] colors = cart.getListofColors();
+        int[] quantities = cart.getProductQuan();
+        int lines = Math.max(products.length, Math.max(colors.length, quantities.length));
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO cart_lines"
+                + " (account_id, line_no, product_id, product, color, quantity) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int line = 0; line < lines; line++) {
+                Product product = line < products.length ? products[line] : null;
+                statement.setInt(1, account.getId());
+                statement.setInt(2, line);
+                setProduct(statement, 3, product);
+                statement.setString(4, toJson(product));
+                statement.setString(5, line < colors.length && colors[line] != null ? colors[line].getName() : null);
+                if (line < quantities.length) {
+                    statement.setInt(6, quantities[line]);
+                } else {
+                    statement.setNull(6, Types.INTEGER);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Rewrite the order history of an account
+     */
+    private void writeHistory(Connection connection, Account account) throws SQLException, IOException {
+        deleteLines(connection, "order_history", account.getId());
+        if (account.getShoppingCart() == null) {
+            return;
+        }
+        List<Product> products = account.getShoppingCart().getProductHistory();
+        int[] quantities = account.getShoppingCart().getProductHistoryQuan();
+        int lines = Math.max(products.size(), quantities.length);
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO order_history"
+                + " (account_id, line_no, product_id, product, quantity) VALUES (?, ?, ?, ?, ?)")) {
+            for (int line = 0; line < lines; line++) {
+                Product product = line < products.size() ? products.get(line) : null;
+                statement.setInt(1, account.getId());
+                statement.setInt(2, line);
+                setProduct(statement, 3, product);
+                statement.setString(4, toJson(product));
+                if (line < quantities.length) {
+                    statement.setInt(5, quantities[line]);
+                } else {
+                    statement.setNull(5, Types.INTEGER);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void writeLogin(Account account) throws IOException {
+        storage.inTransaction(connection -> {
+            try (PreparedStatement statement = connection
+                    .prepareStatement("UPDATE accounts SET logged_in = ?, session_id = ? WHERE id = ?")) {
+                bind(statement, account.getIsLoggedIn(), account.getSessionID(), account.getId());
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @param userid the id of a logged in account
+     *
+     * @return the session of the account, null if it is not logged in
+     */
+    private AccountSession findSession(int userid) {
+        return activeSessions.getByAccountId(userid);
+    }
+
+    /**
+     * Make sure the session of a verified session token is active on this
+     * node, starting it from the token if another node handled the login. The
+     * stored login state is not consulted, the account row is only read to
+     * give the new session its account
+     *
+     * @param token the verified token
+     *
+     * @return true if the session is active, false if the account is gone, the
+     *         token was revoked here or a later login is active here
+     */
+    @Override
+    public synchronized boolean resumeSession(SessionToken token) throws IOException {
+        AccountSession session = activeSessions.getByAccountId(token.getAccountID());
+        if (session != null && session.getSessionID() == token.getSessionID()) {
+            return true;
+        }
+        Account account = getAccountById(token.getAccountID());
+        if (account == null) {
+            return false;
+        }
+        session = activeSessions.resume(account, token.getSessionID(), token.getIssuedAt());
+        if (session == null) {
+            return false;
+        }
+        if (sweeper != null) {
+            sweeper.register(session);
+        }
+        account.setIsLoggedIn(true);
+        account.setSessionID(session.getSessionID());
+        return true;
+    }
+
+    /**
+     * Find a session that may change an account, the account's own session or
+     * else an admin session
+     *
+     * @param account the account to change
+     *
+     * @return the session, or null if no session may change the account
+     */
+    private AccountSession authorizingSession(Account account) {
+        AccountSession session = activeSessions.getByAccountId(account.getId());
+        if (session != null) {
+            return session;
+        }
+        // only admin sessions are left to check, which is the rare case
+        for (AccountSession other : activeSessions.getSessions()) {
+            if (accountAuth.accountAuthentication(other, account)) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace every account with its cart and order history, keeping their
+     * ids
+     *
+     * @param accounts the accounts to store
+     */
+    public void replaceAll(Collection<Account> accounts) throws IOException {
+        storage.inTransaction(connection -> {
+            for (String table : new String[] { "cart_lines", "order_history", "accounts" }) {
+                try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table)) {
+                    statement.executeUpdate();
+                }
+            }
+            for (Account account : accounts) {
+                writeAccount(connection, account);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return list of all the accounts in id order
+     */
+    @Override
+    public Account[] getAllAccounts() throws IOException {
+        return storage.inTransaction(connection -> readAccounts(connection, "").toArray(new Account[0]));
+    }
+
+    @Override
+    public Account getAccountById(int id) throws IOException {
+        return storage.inTransaction(connection -> readAccount(connection, " WHERE id = ?", id));
+    }
+
+    /**
+     * @param account is the account to create and add to the list
+     *
+     * @return the account that was created and logged in, null if the username
+     *         or email is taken
+     */
+    @Override
+    public synchronized Account createAccount(Account account) throws IOException {
+        boolean created = storage.inTransaction(connection -> {
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT 1 FROM accounts WHERE username = ? OR email = ?")) {
+                bind(statement, account.getUsername(), account.getEmail());
+                try (ResultSet result = statement.executeQuery()) {
+                    if (result.next()) {
+                        return false;
+                    }
+                }
+            }
+            account.setId(ids.next());
+            writeAccount(connection, account);
+            return true;
+        });
+        return created ? loginAccount(account.getUsername(), account.getPassword()) : null;
+    }
+
+    /**
+     * log in to an account given the username and password
+     *
+     * @param username the username of the account to login
+     * @param password the password of the account to login
+     *
+     * @return the logged in account, null if the credentials are wrong or it
+     *         is already logged in
+     */
+    @Override
+    public synchronized Account loginAccount(String username, String password) throws IOException {
+        Account account = storage.inTransaction(
+                connection -> readAccount(connection, " WHERE username = ? AND password = ?", username, password));
+        if (account == null) {
+            return null;
+        }
+        AccountSession accountSession;
+        try {
+            accountSession = new AccountSession(account, activeSessions);
+        } catch (Exception e) {
+            return null;
+        }
+        if (!activeSessions.addSession(accountSession)) {
+            return null;
+        }
+        if (sweeper != null) {
+            sweeper.register(accountSession);
+        }
+        account.setIsLoggedIn(true);
+        account.setSessionID(accountSession.getSessionID());
+        writeLogin(account);
+        return account;
+    }
+
+    /**
+     * @param username the username of the account to log out
+     *
+     * @return the account that was logged out, null if it was not logged in
+     */
+    @Override
+    public synchronized Account logoutAccount(String username) throws IOException {
+        Integer id = storage.inTransaction(connection -> {
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT id FROM accounts WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next() ? result.getInt(1) : null;
+                }
+            }
+        });
+        AccountSession session = id == null ? null : activeSessions.getByAccountId(id);
+        if (session == null) {
+            return null;
+        }
+        Account account = session.getLoggedAccount();
+        activeSessions.removeSession(session);
+        activeSessions.revoke(account.getId(), System.currentTimeMillis());
+        account.setIsLoggedIn(false);
+        account.setSessionID(0);
+        writeLogin(account);
+        LOG.info("JdbcDAO: " + account.getUsername() + " logged out");
+        return account;
+    }
+
+    /**
+     * @param id the id of the account to delete
+     *
+     * @return null if the account was deleted, else the account
+     */
+    @Override
+    public synchronized Account deleteAccount(int id) throws IOException {
+        Account account = getAccountById(id);
+        if (account == null) {
+            return null;
+        }
+        if (authorizingSession(account) == null) {
+            return account;
+        }
+        activeSessions.removeSession(activeSessions.getByAccountId(id));
+        storage.inTransaction(connection -> {
+            deleteLines(connection, "cart_lines", id);
+            deleteLines(connection, "order_history", id);
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM accounts WHERE id = ?")) {
+                statement.setInt(1, id);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+        return null;
+    }
+
+    /**
+     * Replace existing account with the new updated account
+     *
+     * @param account the account to update
+     *
+     * @return the updated account, null if no session may change it
+     */
+    @Override
+    public Account updateAccount(Account account) throws IOException {
+        return updateAccount(account, ANY_VERSION);
+    }
+
+    /**
+     * Replace an existing account if it is still at the expected version. The
+     * version column does the locking, so concurrent updates of different
+     * accounts do not wait for each other
+     *
+     * @param account         the account to update
+     * @param expectedVersion the version the update is based on
+     *
+     * @return the updated account with its new version, null if it is not found,
+     *         no session may change it or its username or email belongs to
+     *         another account
+     */
+    @Override
+    public Account updateAccount(Account account, long expectedVersion) throws IOException {
+        if (authorizingSession(account) == null) {
+            return null;
+        }
+        AccountSession session = activeSessions.getByAccountId(account.getId());
+        if (session != null) {
+            // the login state is the DAO's, not the client's
+            account.setSessionID(session.getLoggedAccount().getSessionID());
+            account.setIsLoggedIn(session.getLoggedAccount().getIsLoggedIn());
+        }
+        Long version = storage.inTransaction(connection -> {
+            long current = readVersion(connection, account.getId());
+            if (current < 0) {
+                return null;
+            }
+            if (expectedVersion != ANY_VERSION && current != expectedVersion) {
+                throw new VersionConflictException(expectedVersion, current);
+            }
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT 1 FROM accounts WHERE (username = ? OR email = ?) AND id <> ?")) {
+                bind(statement, account.getUsername(), account.getEmail(), account.getId());
+                try (ResultSet result = statement.executeQuery()) {
+                    if (result.next()) {
+                        return null;
+                    }
+                }
+            }
+            writeAccount(connection, account);
+            if (!bumpVersion(connection, account.getId(), current)) {
+                // another transaction committed a change between the read and the swap
+                throw new VersionConflictException(current, readVersion(connection, account.getId()));
+            }
+            return current + 1;
+        });
+        if (version == null) {
+            return null;
+        }
+        account.setVersion(version);
+        if (session != null) {
+            // later cart changes go to the object that is stored, not the replaced one
+            session.setLoggedAccount(account);
+        }
+        return account;
+    }
+
+    @Override
+    public Account getCurrentAccount(int id) throws IOException {
+        AccountSession session = activeSessions.getBySessionId(id);
+        return session == null ? null : session.getLoggedAccount();
+    }
+
+    @Override
+    public ShoppingCart getShoppingCart(int id) throws IOException {
+        AccountSession session = findSession(id);
+        return session == null ? new ShoppingCart() : session.getLoggedAccount().getShoppingCart();
+    }
+
+    /**
+     * A change to the cart of a logged in account
+     */
+    private interface CartChange {
+        void apply(Account account);
+    }
+
+    /**
+     * Apply a change to the cart of a logged in account and write its cart
+     * lines, a change the cart rejects leaves it as it was
+     *
+     * @param userid  the id of the account
+     * @param history true if the change adds to the order history
+     * @param change  the change
+     *
+     * @return the cart of the account, an empty cart if it is not logged in
+     */
+    private ShoppingCart changeCart(int userid, boolean history, CartChange change) throws IOException {
+        AccountSession session = findSession(userid);
+        if (session == null) {
+            return new ShoppingCart();
+        }
+        Account account = session.getLoggedAccount();
+        synchronized (account) {
+            try {
+                change.apply(account);
+            } catch (Exception e) {
+                return account.getShoppingCart();
+            }
+            storage.inTransaction(connection -> {
+                writeCart(connection, account);
+                if (history) {
+                    writeHistory(connection, account);
+                }
+                bumpVersion(connection, userid, ANY_VERSION);
+                return null;
+            });
+            return account.getShoppingCart();
+        }
+    }
+
+    @Override
+    public ShoppingCart addProductToShoppingCart(int userid, Product product) throws IOException {
+        if (product == null) {
+            return new ShoppingCart();
+        }
+        return changeCart(userid, false,
+                account -> account.setShoppingCart(account.getShoppingCart().addProductToShoppingCart(product)));
+    }
+
+    @Override
+    public ShoppingCart addColorToShoppingCart(int userid, Color color) throws IOException {
+        if (color == null) {
+            return new ShoppingCart();
+        }
+        return changeCart(userid, false,
+                account -> account.setShoppingCart(account.getShoppingCart().addColorToShoppingCart(color)));
+    }
+
+    @Override
+    public ShoppingCart removeProductFromShoppingCart(int userid, int index) throws IOException {
+        return changeCart(userid, false, account -> account.getShoppingCart().removeProductFromShoppingCart(index));
+    }
+
+    @Override
+    public ShoppingCart incrementQuantity(int userid, int index) throws IOException {
+        return changeCart(userid, false, account -> account.getShoppingCart().incrementQuantity(index));
+    }
+
+    @Override
+    public ShoppingCart decrementQuantity(int userid, int index) throws IOException {
+        return changeCart(userid, false, account -> account.getShoppingCart().decrementQuantity(index));
+    }
+
+    @Override
+    public ShoppingCart clearShoppingCart(int userid) throws IOException {
+        return changeCart(userid, true, account -> account.getShoppingCart().clearCart());
+    }
+
+    @Override
+    public ShoppingCart updateShoppingCart(int userid, ShoppingCart cart) throws IOException {
+        return changeCart(userid, true, account -> account.setShoppingCart(cart));
+    }
+
+    @Override
+    public Payment getPayment(int id) throws IOException {
+        AccountSession session = findSession(id);
+        return session == null ? null : session.getLoggedAccount().getPayment();
+    }
+
+    @Override
+    public Payment updatePayment(int id, Payment payment) throws IOException {
+        AccountSession session = findSession(id);
+        if (session == null) {
+            return null;
+        }
+        Account account = session.getLoggedAccount();
+        account.updatePaymentInfo(payment.getCardHolder(), payment.getCardNumber(), payment.getCvv(),
+                payment.getExpDate());
+        storage.inTransaction(connection -> {
+            writeAccountRow(connection, account);
+            bumpVersion(connection, account.getId(), ANY_VERSION);
+            return null;
+        });
+        return account.getPayment();
+    }
+
+    /**
+     * get address info of the active session
+     *
+     * @param id the id of the session, not of the account
+     *
+     * @return address info
+     */
+    @Override
+    public Address getAddress(int id) throws IOException {
+        AccountSession session = activeSessions.getBySessionId(id);
+        return session == null ? null : session.getLoggedAccount().getAddress();
+    }
+
+    @Override
+    public Address updateAddress(int id, Address address) throws IOException {
+        AccountSession session = findSession(id);
+        if (session == null) {
+            return null;
+        }
+        Account account = session.getLoggedAccount();
+        account.updateAddressInfo(address.getCity(), address.getStreet(), address.getHouseNumber(),
+                address.getState(), address.getZip());
+        storage.inTransaction(connection -> {
+            writeAccountRow(connection, account);
+            bumpVersion(connection, account.getId(), ANY_VERSION);
+            return null;
+        });
+        return account.getAddress();
+    }
+
+    @Override
+    public Product[] productsAllowedToReview(int id) throws IOException {
+        AccountSession session = findSession(id);
+        return session == null ? new Product[0]
+                : session.getLoggedAccount().getShoppingCart().getProductHistory().toArray(new Product[0]);
+    }
+
+    @Override
+    public int[] productsAllowedToReviewQuantities(int id) throws IOException {
+        AccountSession session = findSession(id);
+        return session == null ? new int[0] : session.getLoggedAccount().getShoppingCart().getProductHistoryQuan();
+    }
+}
@@ -0,0 +1,203 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.estore.api.estoreapi.model.Account;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores accounts in a directory of hash bucket files instead of one file
+ *
+ * An account with id n lives in the file account-(n mod count).json (or the
+ * extension of the storage format), so a
+ * change to one account only rewrites the accounts that share its bucket.
+ *
+ * @author Team H
+ */
+public class AccountShards {
+    private static final Logger LOG = Logger.getLogger(AccountShards.class.getName());
+    private File directory;
+    private Pattern shardName;
+    private String extension;
+    private int count;
+    private ObjectMapper mapper;
+    private Set<Integer> dirtyBuckets = ConcurrentHashMap.newKeySet();
+    private volatile boolean misplaced;
+
+    /**
+     * Create the shard layout
+     *
+     * @param directory the directory holding the bucket files
+     * @param count     the number of buckets
+     * @param mapper    the mapper used to read and write the buckets
+     * @param extension the file extension of the mapper's format
+     */
+    public AccountShards(File directory, int count, ObjectMapper mapper, String extension) {
+        this.directory = directory;
+        this.count = count;
+        this.mapper = mapper;
+        this.extension = extension;
+        this.shardName = Pattern.compile("account-(\\d+)" + Pattern.quote(extension));
+    }
+
+    /**
+     * @param id the id of an account
+     *
+     * @return the bucket the account is stored in
+     */
+    public int bucketOf(int id) {
+        return Math.floorMod(id, count);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return true if the shard directory has been written before
+     */
+    public boolean exists() {
+        return directory.isDirectory();
+    }
+
+    /**
+     * Read every bucket file in parallel
+     *
+     * Files written with a different bucket count are read as well, in that
+     * case {@link #isMisplaced()} reports that the buckets need a rewrite.
+     *
+     * @return all stored accounts
+     */
+    public List<Account> readAll() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> shardName.matcher(name).matches());
+        if (files == null) {
+            throw new IOException("Cannot list " + directory);
+        }
+        misplaced = false;
+        try {
+            List<Account> result = new ArrayList<>();
+            Arrays.stream(files).parallel().map(this::readBucket).forEachOrdered(result::addAll);
+            return result;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<Account> readBucket(File file) {
+        Matcher matcher = shardName.matcher(file.getName());
+        matcher.matches();
+        int bucket = Integer.parseInt(matcher.group(1));
+        try {
+            Account[] accounts = mapper.readValue(file, Account[].class);
+            for (Account account : accounts) {
+                if (bucketOf(account.getId()) != bucket) {
+                    misplaced = true;
+                }
+            }
+            return Arrays.asList(accounts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return true if the last {@link #readAll()} found accounts outside their
+     *         bucket, for example after the bucket count was changed
+     */
+    public boolean isMisplaced() {
+        return misplaced;
+    }
+
+    /**
+     * Remember that the bucket of this account has to be written
+     *
+     * @param id the id of the changed account
+     */
+    public void markDirty(int id) {
+        dirtyBuckets.add(bucketOf(id));
+    }
+
+    /**
+     * Write every bucket marked as dirty since the last call
+     *
+     * Buckets that could not be written stay dirty for the next call.
+     *
+     * @param bucketContents gives the accounts that belong to a bucket
+     */
+    public void writeDirty(IntFunction<Collection<Account>> bucketContents) throws IOException {
+        List<Integer> buckets = new ArrayList<>();
+        for (Integer bucket : dirtyBuckets) {
+            if (dirtyBuckets.remove(bucket)) {
+                buckets.add(bucket);
+            }
+        }
+        for (int i = 0; i < buckets.size(); i++) {
+            try {
+                write(buckets.get(i), bucketContents.apply(buckets.get(i)));
+            } catch (IOException e) {
+                dirtyBuckets.addAll(buckets.subList(i, buckets.size()));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Write one bucket, replacing the old file atomically
+     *
+     * @param bucket   the bucket to write
+     * @param accounts every account that belongs to the bucket
+     */
+    public void write(int bucket, Collection<Account> accounts) throws IOException {
+        File target = new File(directory, "account-" + bucket + extension);
+        File temp = new File(directory, "account-" + bucket + extension + ".tmp");
+        mapper.writeValue(temp, accounts.toArray(new Account[0]));
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write every bucket and remove bucket files left over from a larger count
+     *
+     * @param accounts every stored account
+     */
+    public void writeAll(Collection<Account> accounts) throws IOException {
+        Files.createDirectories(directory.toPath());
+        List<List<Account>> buckets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Account account : accounts) {
+            buckets.get(bucketOf(account.getId())).add(account);
+        }
+        for (int i = 0; i < count; i++) {
+            write(i, buckets.get(i));
+        }
+        File[] files = directory.listFiles((dir, name) -> shardName.matcher(name).matches());
+        for (File file : files) {
+            Matcher matcher = shardName.matcher(file.getName());
+            if (matcher.matches() && Integer.parseInt(matcher.group(1)) >= count) {
+                Files.delete(file.toPath());
+            }
+        }
+        misplaced = false;
+        LOG.info("Wrote " + accounts.size() + " accounts to " + count + " shards in " + directory);
+    }
+}
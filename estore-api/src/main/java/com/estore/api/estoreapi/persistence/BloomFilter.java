@@ -0,0 +1,76 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bloom filter over strings
+ *
+ * Answers "definitely not added" or "maybe added" from a bit array, without
+ * holding the strings. Strings cannot be removed, a removed string only turns
+ * into a false positive until the filter is rebuilt.
+ *
+ * @author Team H
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Create an empty filter
+     *
+     * @param expected           the number of strings the filter is sized for
+     * @param falsePositiveRate  the rate of false positives once that many
+     *                           strings were added, for example 0.01
+     */
+    public BloomFilter(int expected, double falsePositiveRate) {
+        int n = Math.max(1, expected);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, m);
+        this.bits = new long[(int) ((bitCount + 63) / 64)];
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    // 64 bit FNV-1a of the UTF-8 bytes, split into the two hashes of double hashing
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private long bitOf(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + (long) i * h2, bitCount);
+    }
+
+    /**
+     * @param key the string to add
+     */
+    public void add(String key) {
+        long hash = hash(key);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitOf(hash, i);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @param key the string to look for
+     *
+     * @return false if the string was never added, true if it may have been
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitOf(hash, i);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
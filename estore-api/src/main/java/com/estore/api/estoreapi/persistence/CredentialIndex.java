@@ -0,0 +1,174 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.estore.api.estoreapi.model.Account;
+
+/**
+ * Finds accounts by username or email without scanning every account
+ *
+ * Usernames stay case sensitive, as logins always were, and are only Unicode
+ * normalized. Emails are also trimmed and lower cased. Signup first asks a
+ * Bloom filter of both, so a new username and email never touch the maps. The
+ * filters are rebuilt with twice the room whenever the accounts outgrow them,
+ * which also clears out the keys of deleted accounts.
+ *
+ * @author Team H
+ */
+public class CredentialIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final Map<String, Integer> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, Integer> byEmail = new ConcurrentHashMap<>();
+    private int capacity = INITIAL_CAPACITY;
+    private BloomFilter usernames = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+    private BloomFilter emails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+
+    static String usernameKey(String username) {
+        return username == null ? null : Normalizer.normalize(username, Normalizer.Form.NFC);
+    }
+
+    static String emailKey(String email) {
+        return email == null ? null
+                : Normalizer.normalize(email.trim(), Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param username the username to look up
+     *
+     * @return the id of the account with the username, or null if there is none
+     */
+    public Integer findByUsername(String username) {
+        return username == null ? null : byUsername.get(usernameKey(username));
+    }
+
+    /**
+     * @param email the email to look up
+     *
+     * @return the id of the account with the email, or null if there is none
+     */
+    public Integer findByEmail(String email) {
+        return email == null ? null : byEmail.get(emailKey(email));
+    }
+
+    /**
+     * Check whether a new account would clash with an existing one
+     *
+     * @param username the username of the new account
+     * @param email    the email of the new account
+     *
+     * @return true if the username or the email is in use
+     */
+    public synchronized boolean isTaken(String username, String email) {
+        String usernameKey = usernameKey(username);
+        String emailKey = emailKey(email);
+        boolean maybeUsername = usernameKey != null && usernames.mightContain(usernameKey);
+        boolean maybeEmail = emailKey != null && emails.mightContain(emailKey);
+        return (maybeUsername && byUsername.containsKey(usernameKey))
+                || (maybeEmail && byEmail.containsKey(emailKey));
+    }
+
+    /**
+     * Check whether a changed account would take the username or email of
+     * another account
+     *
+     * @param username the username of the changed account
+     * @param email    the email of the changed account
+     * @param id       the id of the changed account, whose own keys are free
+     *
+     * @return true if the username or the email is in use by another account
+     */
+    public synchronized boolean isTaken(String username, String email, int id) {
+        if (!isTaken(username, email)) {
+            return false;
+        }
+        Integer usernameOwner = findByUsername(username);
+        Integer emailOwner = findByEmail(email);
+        return (usernameOwner != null && usernameOwner != id) || (emailOwner != null && emailOwner != id);
+    }
+
+    /**
+     * Move the keys of a changed account over to its new version, unless the
+     * new username or email belongs to another account
+     *
+     * @param old     the old version of the account, null if there is none
+     * @param account the new version of the account
+     *
+     * @return false if nothing changed because the username or the email is
+     *         in use by another account
+     */
+    public synchronized boolean replace(Account old, Account account) {
+        if (isTaken(account.getUsername(), account.getEmail(), account.getId())) {
+            return false;
+        }
+        if (old != null) {
+            remove(old);
+        }
+        add(account);
+        return true;
+    }
+
+    /**
+     * @param account an account that was added or changed
+     */
+    public synchronized void add(Account account) {
+        String usernameKey = usernameKey(account.getUsername());
+        String emailKey = emailKey(account.getEmail());
+        if (usernameKey != null) {
+            byUsername.put(usernameKey, account.getId());
+            usernames.add(usernameKey);
+        }
+        if (emailKey != null) {
+            byEmail.put(emailKey, account.getId());
+            emails.add(emailKey);
+        }
+        if (Math.max(byUsername.size(), byEmail.size()) > capacity) {
+            capacity *= 2;
+            rebuildFilters();
+        }
+    }
+
+    /**
+     * @param account an account that was deleted, or the old version of a
+     *                changed account
+     */
+    public synchronized void remove(Account account) {
+        String usernameKey = usernameKey(account.getUsername());
+        String emailKey = emailKey(account.getEmail());
+        // only drop the keys if they still point at this account
+        if (usernameKey != null) {
+            byUsername.remove(usernameKey, account.getId());
+        }
+        if (emailKey != null) {
+            byEmail.remove(emailKey, account.getId());
+        }
+    }
+
+    /**
+     * Forget every account
+     */
+    public synchronized void clear() {
+        byUsername.clear();
+        byEmail.clear();
+        capacity = INITIAL_CAPACITY;
+        rebuildFilters();
+    }
+
+    private void rebuildFilters() {
+        usernames = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        emails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        byUsername.keySet().forEach(usernames::add);
+        byEmail.keySet().forEach(emails::add);
+    }
+
+    /**
+     * @return the number of usernames indexed
+     */
+    public int size() {
+        return byUsername.size();
+    }
+}
@@ -0,0 +1,239 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Deflate compression of the data files with a preset dictionary trained from
+ * the catalog
+ *
+ * A compressed file starts with a magic number and the id of the dictionary it
+ * was written with, followed by a raw deflate stream. Files without the magic
+ * number are read as they are, so turning compression on or off needs no
+ * conversion. Every dictionary that was ever trained is kept in the dictionary
+ * directory as (id).dict, so a file written before a retrain can still be
+ * read.
+ *
+ * @author Team H
+ */
+public class DictionaryCompression {
+    private static final Logger LOG = Logger.getLogger(DictionaryCompression.class.getName());
+    static final int MAGIC = 0x45445A31; // "EDZ1"
+    // deflate only looks back 32KB, a larger dictionary is never used
+    static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+    private static final String CURRENT = "current";
+
+    private File directory;
+    private int level;
+    private Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private volatile int currentId;
+
+    /**
+     * Use the dictionaries in a directory, the current one is picked up if it
+     * was trained before
+     *
+     * @param directory the directory holding the dictionaries
+     * @param level     the deflate level, 1 (fast) to 9 (small)
+     */
+    public DictionaryCompression(File directory, int level) throws IOException {
+        this.directory = directory;
+        this.level = level;
+        File current = new File(directory, CURRENT);
+        if (current.exists()) {
+            currentId = Integer.parseUnsignedInt(
+                    new String(Files.readAllBytes(current.toPath()), StandardCharsets.UTF_8).trim(), 16);
+            getDictionary(currentId);
+        }
+    }
+
+    /**
+     * @return the id of the dictionary new files are written with, 0 if no
+     *         dictionary was trained yet
+     */
+    public int getDictionaryId() {
+        return currentId;
+    }
+
+    /**
+     * Open a file for writing, everything written is compressed
+     *
+     * @param file the file to write
+     *
+     * @return the stream to write to, closing it finishes the file
+     */
+    public OutputStream openOutput(File file) throws IOException {
+        int id = currentId;
+        byte[] dictionary = id == 0 ? null : getDictionary(id);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(id);
+        Deflater deflater = new Deflater(level, true);
+        if (dictionary != null && dictionary.length > 0) {
+            deflater.setDictionary(dictionary);
+        }
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Open a file for reading, a compressed file is inflated and any other
+     * file is read as it is
+     *
+     * @param file the file to read
+     *
+     * @return the stream of the uncompressed content
+     */
+    public InputStream openInput(File file) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(new FileInputStream(file));
+        in.mark(4);
+        DataInputStream header = new DataInputStream(in);
+        if (file.length() < 8 || header.readInt() != MAGIC) {
+            in.reset();
+            return in;
+        }
+        int id = header.readInt();
+        Inflater inflater = new Inflater(true);
+        byte[] dictionary = id == 0 ? null : getDictionary(id);
+        if (dictionary != null && dictionary.length > 0) {
+            inflater.setDictionary(dictionary);
+        }
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Train a new dictionary and use it for every file written from now on
+     *
+     * @param samples typical content of the data files, for example product
+     *                descriptions and the JSON of single products
+     *
+     * @return the id of the new dictionary
+     */
+    public synchronized int train(Collection<byte[]> samples) throws IOException {
+        byte[] dictionary = buildDictionary(samples);
+        int id = idOf(dictionary);
+        directory.mkdirs();
+        File file = new File(directory, Integer.toHexString(id) + ".dict");
+        if (!file.exists()) {
+            Files.write(file.toPath(), dictionary);
+        }
+        dictionaries.put(id, dictionary);
+        File temp = new File(directory, CURRENT + ".tmp");
+        Files.write(temp.toPath(), Integer.toHexString(id).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), new File(directory, CURRENT).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        currentId = id;
+        LOG.info("Trained compression dictionary " + Integer.toHexString(id) + " of " + dictionary.length
+                + " bytes from " + samples.size() + " samples");
+        return id;
+    }
+
+    /**
+     * Build a dictionary from samples
+     *
+     * Samples that repeat are worth the most, so every distinct sample is
+     * scored by how many bytes it covers in total. Deflate reaches the end of
+     * the dictionary with the shortest distances, so the best samples go last
+     * and the weakest are cut from the front when the dictionary is full.
+     *
+     * @param samples typical content of the data files
+     *
+     * @return the dictionary, at most 32KB
+     */
+    static byte[] buildDictionary(Collection<byte[]> samples) {
+        Map<ByteBuffer, Integer> counts = new HashMap<>();
+        for (byte[] sample : samples) {
+            if (sample.length > 0) {
+                counts.merge(ByteBuffer.wrap(sample), 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<ByteBuffer, Integer>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.sort((a, b) -> Long.compare((long) b.getValue() * b.getKey().remaining(),
+                (long) a.getValue() * a.getKey().remaining()));
+
+        List<ByteBuffer> chosen = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<ByteBuffer, Integer> entry : ranked) {
+            int length = entry.getKey().remaining();
+            if (size + length > MAX_DICTIONARY_SIZE) {
+                continue;
+            }
+            chosen.add(entry.getKey());
+            size += length;
+        }
+
+        byte[] dictionary = new byte[size];
+        int offset = size;
+        // the best sample ends up at the end of the dictionary
+        for (ByteBuffer sample : chosen) {
+            offset -= sample.remaining();
+            sample.duplicate().get(dictionary, offset, sample.remaining());
+        }
+        return dictionary;
+    }
+
+    private static int idOf(byte[] dictionary) {
+        Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        // 0 is reserved for files written without a dictionary
+        return adler.getValue() == 0 ? 1 : (int) adler.getValue();
+    }
+
+    private byte[] getDictionary(int id) throws IOException {
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            File file = new File(directory, Integer.toHexString(id) + ".dict");
+            if (!file.exists()) {
+                throw new FileNotFoundException("Compression dictionary " + file + " is missing");
+            }
+            dictionary = Files.readAllBytes(file.toPath());
+            if (idOf(dictionary) != id) {
+                throw new IOException("Compression dictionary " + file + " is damaged");
+            }
+            dictionaries.put(id, dictionary);
+        }
+        return dictionary;
+    }
+}
@@ -0,0 +1,248 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductType;
+
+/**
+ * Bitmap indexes over the product type, colors and stock of every product
+ *
+ * Each facet value has a bitmap with the bit of a product id set if the
+ * product has that value. Product ids are small and dense, so a plain
+ * {@link BitSet} holds a whole catalog in a few words per value. A filter
+ * ORs the selected values of a facet and ANDs the facets; the count of a
+ * facet value applies every filter except the one on its own facet, so the
+ * counts tell how many products a click on another value would show.
+ *
+ * The index is changed one product at a time by the DAO that owns it.
+ *
+ * @author Team H
+ */
+public class FacetIndex {
+    /**
+     * The products matching a filter with the counts of every facet value
+     */
+    public static final class Result {
+        private final int[] ids;
+        private final Map<ProductType, Integer> types;
+        private final Map<String, Integer> colors;
+        private final int inStock;
+        private final int outOfStock;
+
+        private Result(int[] ids, Map<ProductType, Integer> types, Map<String, Integer> colors, int inStock,
+                int outOfStock) {
+            this.ids = ids;
+            this.types = types;
+            this.colors = colors;
+            this.inStock = inStock;
+            this.outOfStock = outOfStock;
+        }
+
+        /**
+         * @return the ids of the matching products in ascending order
+         */
+        public int[] getIds() {
+            return ids;
+        }
+
+        /**
+         * @return the products of each type passing the color and stock filters
+         */
+        public Map<ProductType, Integer> getTypes() {
+            return types;
+        }
+
+        /**
+         * @return the products of each color passing the type and stock filters
+         */
+        public Map<String, Integer> getColors() {
+            return colors;
+        }
+
+        /**
+         * @return the products in stock passing the type and color filters
+         */
+        public int getInStock() {
+            return inStock;
+        }
+
+        /**
+         * @return the products out of stock passing the type and color filters
+         */
+        public int getOutOfStock() {
+            return outOfStock;
+        }
+    }
+
+    private final BitSet all = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<ProductType, BitSet> types = new EnumMap<>(ProductType.class);
+    // by color name, a color is dropped once no product has it
+    private final Map<String, BitSet> colors = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replace the whole content of the index
+     *
+     * @param products the products to index
+     */
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            all.clear();
+            inStock.clear();
+            types.clear();
+            colors.clear();
+            for (Product product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index a new or changed product
+     *
+     * @param product the product, replacing any product with the same id
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            clear(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id of a removed product
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            clear(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Filter the products, an empty or null selection lets every product pass
+     *
+     * @param selectedTypes  the types to show
+     * @param selectedColors the names of the colors to show
+     * @param stock          true for products in stock, false for products out
+     *                       of stock, null for both
+     *
+     * @return the matching ids and the facet counts
+     */
+    public Result filter(Collection<ProductType> selectedTypes, Collection<String> selectedColors, Boolean stock) {
+        lock.readLock().lock();
+        try {
+            BitSet typeMask = union(types, selectedTypes);
+            BitSet colorMask = union(colors, selectedColors);
+            BitSet stockMask = all;
+            if (stock != null) {
+                stockMask = (BitSet) all.clone();
+                if (stock) {
+                    stockMask.and(inStock);
+                } else {
+                    stockMask.andNot(inStock);
+                }
+            }
+
+            BitSet matches = and(typeMask, colorMask, stockMask);
+            Map<ProductType, Integer> typeCounts = new EnumMap<>(ProductType.class);
+            BitSet colorAndStock = and(colorMask, stockMask, all);
+            for (Map.Entry<ProductType, BitSet> entry : types.entrySet()) {
+                typeCounts.put(entry.getKey(), and(entry.getValue(), colorAndStock, all).cardinality());
+            }
+            Map<String, Integer> colorCounts = new TreeMap<>();
+            BitSet typeAndStock = and(typeMask, stockMask, all);
+            for (Map.Entry<String, BitSet> entry : colors.entrySet()) {
+                colorCounts.put(entry.getKey(), and(entry.getValue(), typeAndStock, all).cardinality());
+            }
+            BitSet typeAndColor = and(typeMask, colorMask, all);
+            int inStockCount = and(typeAndColor, inStock, all).cardinality();
+            int outOfStockCount = typeAndColor.cardinality() - inStockCount;
+
+            return new Result(matches.stream().toArray(), typeCounts, colorCounts, inStockCount, outOfStockCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the OR of the bitmaps of the selected values, every product if
+     *         nothing is selected
+     */
+    private <K> BitSet union(Map<K, BitSet> bitmaps, Collection<K> selected) {
+        if (selected == null || selected.isEmpty()) {
+            return all;
+        }
+        BitSet union = new BitSet();
+        for (K value : selected) {
+            BitSet bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static BitSet and(BitSet a, BitSet b, BitSet c) {
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        result.and(c);
+        return result;
+    }
+
+    private void add(Product product) {
+        int id = product.getId();
+        if (id < 0) {
+            // never stored, and a bitmap has no place for it
+            return;
+        }
+        all.set(id);
+        if (product.getQuantity() > 0) {
+            inStock.set(id);
+        }
+        if (product.getProductType() != null) {
+            types.computeIfAbsent(product.getProductType(), type -> new BitSet()).set(id);
+        }
+        for (Color color : product.getAllColors()) {
+            colors.computeIfAbsent(color.getName(), name -> new BitSet()).set(id);
+        }
+    }
+
+    private void clear(int id) {
+        if (id < 0) {
+            return;
+        }
+        all.clear(id);
+        inStock.clear(id);
+        clear(types.values().iterator(), id);
+        clear(colors.values().iterator(), id);
+    }
+
+    private static void clear(Iterator<BitSet> bitmaps, int id) {
+        while (bitmaps.hasNext()) {
+            BitSet bitmap = bitmaps.next();
+            bitmap.clear(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove();
+            }
+        }
+    }
+}
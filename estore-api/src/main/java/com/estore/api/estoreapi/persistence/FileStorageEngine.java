@@ -0,0 +1,63 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.Product;
+
+/**
+ * Storage engine keeping products and accounts in the data files
+ *
+ * @author Team H
+ */
+public class FileStorageEngine implements StorageEngine {
+    private StorageEngineType type;
+    private ProductFileDAO productDAO;
+    private AccountFileDAO accountDAO;
+
+    /**
+     * @param type       JSON, LOG or MMAP
+     * @param productDAO the product DAO
+     * @param accountDAO the account DAO
+     */
+    public FileStorageEngine(StorageEngineType type, ProductFileDAO productDAO, AccountFileDAO accountDAO) {
+        this.type = type;
+        this.productDAO = productDAO;
+        this.accountDAO = accountDAO;
+    }
+
+    @Override
+    public StorageEngineType getType() {
+        return type;
+    }
+
+    @Override
+    public ProductFileDAO getProductDAO() {
+        return productDAO;
+    }
+
+    @Override
+    public AccountFileDAO getAccountDAO() {
+        return accountDAO;
+    }
+
+    @Override
+    public void replaceProducts(Collection<Product> products) throws IOException {
+        productDAO.replaceAll(products);
+    }
+
+    @Override
+    public void replaceAccounts(Collection<Account> accounts) throws IOException {
+        accountDAO.replaceAll(accounts);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            productDAO.close();
+        } finally {
+            accountDAO.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Caches the serialized JSON of every entity so a save only runs Jackson over
+ * the entities that changed since the last save
+ *
+ * The cached fragments are joined into the same JSON array that
+ * {@link ObjectMapper#writeValue(File, Object)} would have written.
+ *
+ * @param <T> the entity type, Product or Account
+ *
+ * @author Team H
+ */
+public class FragmentCache<T> {
+    private ObjectMapper mapper;
+    private ToIntFunction<T> idOf;
+    private Map<Integer, byte[]> fragments = new ConcurrentHashMap<>();
+    private Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create an empty cache, every entity is serialized on the first save
+     *
+     * @param mapper the mapper used to serialize single entities
+     * @param idOf   gives the id of an entity
+     */
+    public FragmentCache(ObjectMapper mapper, ToIntFunction<T> idOf) {
+        this.mapper = mapper;
+        this.idOf = idOf;
+    }
+
+    /**
+     * Drop the cached fragment of a changed entity
+     *
+     * @param id the id of the entity that changed
+     */
+    public void markDirty(int id) {
+        dirty.add(id);
+    }
+
+    /**
+     * Write the entities as a JSON array to the file
+     *
+     * @param file     the file to write
+     * @param entities every entity, in the order they are written
+     */
+    public void writeArray(File file, Collection<T> entities) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeArray(out, entities);
+        }
+    }
+
+    /**
+     * Write the entities as a JSON array to the stream
+     *
+     * @param out      the stream to write, it is not closed
+     * @param entities every entity, in the order they are written
+     */
+    public void writeArray(OutputStream out, Collection<T> entities) throws IOException {
+        Set<Integer> written = new HashSet<>();
+        out.write('[');
+        for (T entity : entities) {
+            int id = idOf.applyAsInt(entity);
+            byte[] fragment = fragments.get(id);
+            // clear the flag before serializing, a change made meanwhile marks it again
+            if (dirty.remove(id) || fragment == null) {
+                fragment = mapper.writeValueAsBytes(entity);
+                fragments.put(id, fragment);
+            }
+            if (!written.isEmpty()) {
+                out.write(',');
+            }
+            out.write(fragment);
+            written.add(id);
+        }
+        out.write(']');
+        // forget entities that were deleted
+        fragments.keySet().retainAll(written);
+    }
+
+    /**
+     * @return the number of cached fragments
+     */
+    public int size() {
+        return fragments.size();
+    }
+}
@@ -0,0 +1,160 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out ids for new products and accounts without a lock on the common path
+ *
+ * Ids are leased from a {@link LeaseStore} in blocks. Taking an id is one atomic
+ * increment on the current block; only the thread that runs off the end of a
+ * block leases the next one. A store that persists its high-water mark never
+ * hands out a range twice, so after a restart, or to another instance sharing
+ * the store, the ids continue above every block leased before. The unused rest
+ * of a block is skipped, ids stay unique but may have gaps.
+ *
+ * @author Team H
+ */
+public class IdAllocator {
+    /**
+     * Where the blocks come from. A store must never hand out overlapping
+     * blocks, even to another process using the same store
+     */
+    public interface LeaseStore {
+        /**
+         * Lease the next block
+         *
+         * @param floor the lowest id the block may start at
+         * @param size  the number of ids in the block
+         *
+         * @return the first id of the block
+         */
+        long lease(long floor, int size) throws IOException;
+    }
+
+    /**
+     * One leased block, ids from next up to but excluding end
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private static final Block EXHAUSTED = new Block(0, 0);
+
+    private final LeaseStore store;
+    private final int blockSize;
+    private volatile long floor;
+    private volatile Block block = EXHAUSTED;
+
+    /**
+     * @param store     where blocks are leased from
+     * @param blockSize the number of ids in a block
+     * @param floor     the lowest id to hand out, one above the highest stored id
+     */
+    public IdAllocator(LeaseStore store, int blockSize, long floor) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be positive: " + blockSize);
+        }
+        this.store = store;
+        this.blockSize = blockSize;
+        this.floor = floor;
+    }
+
+    /**
+     * Take the next id
+     *
+     * @return an id no other caller of this allocator or of its store gets
+     */
+    public int next() throws IOException {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return Math.toIntExact(id);
+            }
+            synchronized (this) {
+                // another thread may have leased the next block while this one waited
+                if (block == current) {
+                    long start = store.lease(floor, blockSize);
+                    block = new Block(start, start + blockSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the current block and hand out ids from at least floor on, for
+     * example after the stored data was reloaded or replaced
+     *
+     * @param floor one above the highest stored id
+     */
+    public synchronized void reset(long floor) {
+        this.floor = floor;
+        this.block = EXHAUSTED;
+    }
+
+    /**
+     * @return the number of ids in a block
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * A store that only lives as long as the allocator, enough for a single
+     * instance that does not mind ids moving back to one above the highest
+     * stored id after a restart
+     *
+     * @return the store
+     */
+    public static LeaseStore inMemory() {
+        AtomicLong highWater = new AtomicLong();
+        return (floor, size) -> highWater.updateAndGet(mark -> Math.max(mark, floor) + size) - size;
+    }
+
+    /**
+     * A store that keeps its high-water mark in a text file. Every lease locks
+     * the file, so instances sharing the data directory lease disjoint blocks
+     *
+     * @param file the file holding the high-water mark, created on first use
+     *
+     * @return the store
+     */
+    public static LeaseStore file(File file) {
+        return (floor, size) -> {
+            // a FileLock is held per JVM, threads of this one queue up here first
+            synchronized (IdAllocator.class) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                        FileLock lock = channel.lock()) {
+                    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 64));
+                    channel.read(buffer, 0);
+                    String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).trim();
+                    long highWater;
+                    try {
+                        highWater = text.isEmpty() ? 0 : Long.parseLong(text);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Unreadable id high-water mark in " + file + ": " + text, e);
+                    }
+                    long start = Math.max(highWater, floor);
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap((start + size + "\n").getBytes(StandardCharsets.US_ASCII)), 0);
+                    channel.force(true);
+                    return start;
+                }
+            }
+        };
+    }
+}
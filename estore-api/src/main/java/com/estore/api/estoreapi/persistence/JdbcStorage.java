@@ -0,0 +1,226 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+/**
+ * Embedded H2 database shared by the JDBC DAOs
+ *
+ * Owns the connection pool and creates the tables and indexes on startup. Every
+ * DAO call runs as one transaction through {@link #inTransaction(Work)}.
+ *
+ * @author Team H
+ */
+public class JdbcStorage {
+    private static final Logger LOG = Logger.getLogger(JdbcStorage.class.getName());
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS products (id INT PRIMARY KEY, product_type VARCHAR(20) NOT NULL,"
+                    + " name VARCHAR(255) NOT NULL, quantity INT NOT NULL, price DOUBLE NOT NULL,"
+                    + " description VARCHAR(4000), image_url VARCHAR(2000))",
+            "CREATE INDEX IF NOT EXISTS products_name ON products(name)",
+            "CREATE INDEX IF NOT EXISTS products_price ON products(price)",
+            "CREATE INDEX IF NOT EXISTS products_type_price ON products(product_type, price)",
+            // the primary key starts with product_id, so it doubles as the product id index
+            "CREATE TABLE IF NOT EXISTS product_colors (product_id INT NOT NULL, line_no INT NOT NULL,"
+                    + " name VARCHAR(100) NOT NULL, PRIMARY KEY (product_id, line_no))",
+            "CREATE TABLE IF NOT EXISTS reviews (id INT AUTO_INCREMENT PRIMARY KEY, product_id INT NOT NULL,"
+                    + " user_id INT NOT NULL, rating INT NOT NULL, review VARCHAR(4000))",
+            "CREATE INDEX IF NOT EXISTS reviews_product ON reviews(product_id)",
+            "CREATE INDEX IF NOT EXISTS reviews_user ON reviews(user_id)",
+            "CREATE TABLE IF NOT EXISTS available_colors (line_no INT PRIMARY KEY, name VARCHAR(100) NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS accounts (id INT PRIMARY KEY, username VARCHAR(255) NOT NULL,"
+                    + " email VARCHAR(255), password VARCHAR(255), first_name VARCHAR(255), last_name VARCHAR(255),"
+                    + " profile_picture VARCHAR(2000), logged_in BOOLEAN NOT NULL, session_id INT NOT NULL,"
+                    + " city VARCHAR(255), street VARCHAR(255), house_number VARCHAR(50), state VARCHAR(50),"
+                    + " zip INT, card_holder VARCHAR(255), card_number VARCHAR(50), cvv INT, exp_date VARCHAR(20),"
+                    + " recent_product CLOB)",
+            "CREATE INDEX IF NOT EXISTS accounts_username ON accounts(username)",
+            "CREATE INDEX IF NOT EXISTS accounts_email ON accounts(email)",
+            // the cart arrays can have different lengths, a missing entry is a null column
+            "CREATE TABLE IF NOT EXISTS cart_lines (account_id INT NOT NULL, line_no INT NOT NULL,"
+                    + " product_id INT, product CLOB, color VARCHAR(100), quantity INT,"
+                    + " PRIMARY KEY (account_id, line_no))",
+            "CREATE TABLE IF NOT EXISTS order_history (account_id INT NOT NULL, line_no INT NOT NULL,"
+                    + " product_id INT, product CLOB, quantity INT, PRIMARY KEY (account_id, line_no))",
+            "CREATE INDEX IF NOT EXISTS order_history_product ON order_history(product_id)",
+            // added after the first release, so older databases get the columns too
+            "ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL",
+            "CREATE TABLE IF NOT EXISTS id_leases (name VARCHAR(50) PRIMARY KEY, high_water BIGINT NOT NULL)",
+            "ALTER TABLE accounts ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL",
+            "CREATE TABLE IF NOT EXISTS change_counters (name VARCHAR(50) PRIMARY KEY, changes BIGINT NOT NULL)",
+    };
+
+    private JdbcConnectionPool pool;
+
+    /**
+     * Open the database and create any missing tables
+     *
+     * @param url      the JDBC url, for example jdbc:h2:file:./data/estore
+     * @param user     the database user
+     * @param password the database password
+     */
+    public JdbcStorage(String url, String user, String password) throws IOException {
+        LOG.info(url);
+        pool = JdbcConnectionPool.create(url, user, password);
+        inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * A unit of work run inside a transaction
+     *
+     * @param <T> the result of the work
+     */
+    public interface Work<T> {
+        T run(Connection connection) throws SQLException, IOException;
+    }
+
+    /**
+     * Run work in a transaction, it is committed if the work returns and
+     * rolled back if it throws
+     *
+     * @param work the work
+     * @param <T>  the result of the work
+     *
+     * @return the result of the work
+     */
+    public <T> T inTransaction(Work<T> work) throws IOException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Lease a block of ids for new rows of a table. The highest leased id is
+     * kept in id_leases and only moved by an UPDATE, which locks the row, so
+     * every DAO sharing the database leases disjoint blocks. A block never
+     * starts below the highest id already in the table
+     *
+     * @param table the table the ids are for, products or accounts
+     * @param size  the number of ids in the block
+     *
+     * @return the first id of the block
+     */
+    public long leaseIds(String table, int size) throws IOException {
+        String floor = "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + ")";
+        return inTransaction(connection -> {
+            if (moveHighWater(connection, table, floor, size) == 0) {
+                try (PreparedStatement statement = connection
+                        .prepareStatement("INSERT INTO id_leases (name, high_water) SELECT ?, " + floor + " + ?")) {
+                    statement.setString(1, table);
+                    statement.setInt(2, size);
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    // another instance inserted the row first, lease from it instead
+                    if (moveHighWater(connection, table, floor, size) == 0) {
+                        throw e;
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT high_water FROM id_leases WHERE name = ?")) {
+                statement.setString(1, table);
+                try (ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    return result.getLong(1) - size;
+                }
+            }
+        });
+    }
+
+    private static int moveHighWater(Connection connection, String table, String floor, int size)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE id_leases SET high_water = GREATEST(high_water, " + floor + ") + ? WHERE name = ?")) {
+            statement.setInt(1, size);
+            statement.setString(2, table);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Count one more committed change to a table in change_counters, so every
+     * DAO sharing the database can tell that its in-memory indexes are behind.
+     * Runs in its own short transaction after the change committed, the row is
+     * locked only for the increment
+     *
+     * @param table the changed table
+     *
+     * @return the count including this change
+     */
+    public long countChange(String table) throws IOException {
+        return inTransaction(connection -> {
+            if (addChange(connection, table) == 0) {
+                try (PreparedStatement statement = connection
+                        .prepareStatement("INSERT INTO change_counters (name, changes) VALUES (?, 1)")) {
+                    statement.setString(1, table);
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    // another instance inserted the row first, count on it instead
+                    if (addChange(connection, table) == 0) {
+                        throw e;
+                    }
+                }
+            }
+            return readChanges(connection, table);
+        });
+    }
+
+    /**
+     * @param table the table
+     *
+     * @return the number of committed changes counted for the table, 0 if none
+     */
+    public long readChanges(String table) throws IOException {
+        return inTransaction(connection -> readChanges(connection, table));
+    }
+
+    private static int addChange(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("UPDATE change_counters SET changes = changes + 1 WHERE name = ?")) {
+            statement.setString(1, table);
+            return statement.executeUpdate();
+        }
+    }
+
+    private static long readChanges(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT changes FROM change_counters WHERE name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Close every pooled connection on shutdown
+     */
+    public void close() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,64 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.Product;
+
+/**
+ * Storage engine keeping products and accounts in an embedded database
+ *
+ * @author Team H
+ */
+public class JdbcStorageEngine implements StorageEngine {
+    private StorageEngineType type;
+    private JdbcStorage storage;
+    private ProductJdbcDAO productDAO;
+    private AccountJdbcDAO accountDAO;
+
+    /**
+     * @param type       JDBC or MEMORY
+     * @param storage    the database, closed with the engine
+     * @param productDAO the product DAO
+     * @param accountDAO the account DAO
+     */
+    public JdbcStorageEngine(StorageEngineType type, JdbcStorage storage, ProductJdbcDAO productDAO,
+            AccountJdbcDAO accountDAO) {
+        this.type = type;
+        this.storage = storage;
+        this.productDAO = productDAO;
+        this.accountDAO = accountDAO;
+    }
+
+    @Override
+    public StorageEngineType getType() {
+        return type;
+    }
+
+    @Override
+    public ProductJdbcDAO getProductDAO() {
+        return productDAO;
+    }
+
+    @Override
+    public AccountJdbcDAO getAccountDAO() {
+        return accountDAO;
+    }
+
+    @Override
+    public void replaceProducts(Collection<Product> products) throws IOException {
+        productDAO.replaceAll(products);
+    }
+
+    @Override
+    public void replaceAccounts(Collection<Account> accounts) throws IOException {
+        accountDAO.replaceAll(accounts);
+    }
+
+    @Override
+    public void close() {
+        accountDAO.close();
+        storage.close();
+    }
+}
@@ -0,0 +1,241 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Product map backed by a {@link ProductSnapshot}, a product is only built
+ * from the snapshot the first time it is read
+ *
+ * Every id is known up front, so size, key lookups and iteration over the keys
+ * never parse a product. Products that are put into the map replace their
+ * snapshot entry. The map iterates in id order like the TreeMap it replaces.
+ *
+ * Like every map of a {@link ProductCatalog}, the entries are only changed
+ * before the map is published, so readers never take a lock. Products that
+ * readers build go into a concurrent cache by snapshot slot, which every copy
+ * of the map shares, so a product is built once however many versions of the
+ * catalog read it.
+ *
+ * @author Team H
+ */
+public class LazyProductMap extends AbstractMap<Integer, Product> {
+    private final ProductSnapshot snapshot;
+    private final ObjectMapper mapper;
+    // the value is the Product that was put, or the Integer slot in the snapshot
+    private final TreeMap<Integer, Object> entries;
+    // the products built from the snapshot, by slot
+    private final ConcurrentMap<Integer, Product> built;
+
+    /**
+     * Create a map holding every product of the snapshot, none of them built
+     *
+     * @param snapshot the mapped snapshot
+     * @param mapper   the JSON mapper the snapshot was written with
+     */
+    public LazyProductMap(ProductSnapshot snapshot, ObjectMapper mapper) {
+        this.snapshot = snapshot;
+        this.mapper = mapper;
+        this.entries = new TreeMap<>();
+        this.built = new ConcurrentHashMap<>();
+        for (int slot = 0; slot < snapshot.size(); slot++) {
+            entries.put(snapshot.getId(slot), slot);
+        }
+    }
+
+    private LazyProductMap(LazyProductMap other) {
+        this.snapshot = other.snapshot;
+        this.mapper = other.mapper;
+        this.entries = new TreeMap<>(other.entries);
+        this.built = other.built;
+    }
+
+    /**
+     * Copy the map without building any product, the copy shares the snapshot
+     * and the products built from it
+     *
+     * @return a map with the same entries
+     */
+    public LazyProductMap copy() {
+        return new LazyProductMap(this);
+    }
+
+    private Product build(Object value) {
+        if (value == null || value instanceof Product) {
+            return (Product) value;
+        }
+        return built.computeIfAbsent((Integer) value, this::read);
+    }
+
+    /**
+     * @return the replaced or removed product, which is not worth caching
+     */
+    private Product dropped(Object value) {
+        if (value == null || value instanceof Product) {
+            return (Product) value;
+        }
+        Product product = built.get(value);
+        return product != null ? product : read((Integer) value);
+    }
+
+    private Product read(int slot) {
+        try {
+            return snapshot.readProduct(slot, mapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * get the name of a product without building it
+     *
+     * @param id the id of the product
+     *
+     * @return the name, or null if there is no such product
+     */
+    public String getName(int id) {
+        Object value = entries.get(id);
+        if (value instanceof Integer) {
+            return snapshot.getName((Integer) value);
+        }
+        return value == null ? null : ((Product) value).getName();
+    }
+
+    /**
+     * get the price of a product without building it
+     *
+     * @param id the id of the product
+     *
+     * @return the price, 0 if there is no such product
+     */
+    public double getPrice(int id) {
+        Object value = entries.get(id);
+        if (value instanceof Integer) {
+            return snapshot.getPrice((Integer) value);
+        }
+        return value == null ? 0 : ((Product) value).getPrice();
+    }
+
+    /**
+     * get the type of a product without building it
+     *
+     * @param id the id of the product
+     *
+     * @return the type, or null if there is no such product
+     */
+    public ProductType getProductType(int id) {
+        Object value = entries.get(id);
+        if (value instanceof Integer) {
+            return snapshot.getProductType((Integer) value);
+        }
+        return value == null ? null : ((Product) value).getProductType();
+    }
+
+    /**
+     * @return the number of products that were built from the snapshot or put
+     */
+    public int getBuiltCount() {
+        int count = 0;
+        for (Object value : entries.values()) {
+            if (value instanceof Product || built.containsKey(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add every product to a snapshot writer, products that were not put are
+     * copied from the mapped snapshot as they are
+     *
+     * @param writer the writer of the next snapshot
+     */
+    public void writeTo(ProductSnapshot.Writer writer) throws IOException {
+        for (Object value : entries.values()) {
+            if (value instanceof Product) {
+                writer.add((Product) value);
+            } else {
+                writer.copy(snapshot, (Integer) value);
+            }
+        }
+    }
+
+    @Override
+    public Product get(Object key) {
+        return build(entries.get(key));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public Product put(Integer key, Product value) {
+        return dropped(entries.put(key, value));
+    }
+
+    @Override
+    public Product remove(Object key) {
+        return dropped(entries.remove(key));
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return entries.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Product>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, Product>>() {
+            @Override
+            public Iterator<Map.Entry<Integer, Product>> iterator() {
+                Iterator<Map.Entry<Integer, Object>> iterator = entries.entrySet().iterator();
+                return new Iterator<Map.Entry<Integer, Product>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<Integer, Product> next() {
+                        Map.Entry<Integer, Object> entry = iterator.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), build(entry.getValue()));
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,217 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Trigram inverted index over product names for case-insensitive substring
+ * search
+ *
+ * Every upper-cased name is cut into its overlapping three character
+ * trigrams, and each trigram maps to the sorted ids of the names containing
+ * it. A query of three or more characters only looks at the ids in the
+ * intersection of its trigrams' posting lists and checks those few for the
+ * actual substring, so its cost depends on how many names share its rarest
+ * trigram rather than on the size of the catalog. Shorter queries have no
+ * trigram and fall back to a scan of the upper-cased names.
+ *
+ * Like {@link ProductCatalog} an index never changes once built. Adding or
+ * removing a name returns a new index that shares every posting list the
+ * change did not touch.
+ *
+ * @author Team H
+ */
+public final class NameIndex {
+    private static final int GRAM = 3;
+    private static final int[] NONE = new int[0];
+
+    // upper-cased names by id
+    private final Map<Integer, String> names;
+    // packed trigram to the ascending ids of the names containing it
+    private final Map<Long, int[]> postings;
+
+    private NameIndex(Map<Integer, String> names, Map<Long, int[]> postings) {
+        this.names = names;
+        this.postings = postings;
+    }
+
+    /**
+     * Build the index for a set of names
+     *
+     * @param names the product names by id, null names are left out
+     *
+     * @return the index
+     */
+    public static NameIndex of(Map<Integer, String> names) {
+        Map<Integer, String> upper = new TreeMap<>();
+        Map<Long, List<Integer>> lists = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : new TreeMap<>(names).entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            String name = entry.getValue().toUpperCase();
+            upper.put(entry.getKey(), name);
+            for (long gram : trigrams(name)) {
+                lists.computeIfAbsent(gram, g -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        Map<Long, int[]> postings = new HashMap<>(lists.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, List<Integer>> entry : lists.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return new NameIndex(upper, postings);
+    }
+
+    /**
+     * @return the number of indexed names
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * @param id   the id of a new or renamed product
+     * @param name its name, null to leave it out of the index
+     *
+     * @return the index with the name, this index if the name did not change
+     */
+    public NameIndex with(int id, String name) {
+        String upper = name == null ? null : name.toUpperCase();
+        String old = names.get(id);
+        if (upper == null ? old == null : upper.equals(old)) {
+            return this;
+        }
+        Map<Integer, String> nextNames = new TreeMap<>(names);
+        Map<Long, int[]> nextPostings = new HashMap<>(postings);
+        Set<Long> oldGrams = old == null ? Collections.emptySet() : trigrams(old);
+        Set<Long> newGrams = upper == null ? Collections.emptySet() : trigrams(upper);
+        for (long gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                int[] ids = remove(nextPostings.get(gram), id);
+                if (ids.length == 0) {
+                    nextPostings.remove(gram);
+                } else {
+                    nextPostings.put(gram, ids);
+                }
+            }
+        }
+        for (long gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                nextPostings.put(gram, insert(nextPostings.getOrDefault(gram, NONE), id));
+            }
+        }
+        if (upper == null) {
+            nextNames.remove(id);
+        } else {
+            nextNames.put(id, upper);
+        }
+        return new NameIndex(nextNames, nextPostings);
+    }
+
+    /**
+     * @param id the id of a removed product
+     *
+     * @return the index without its name
+     */
+    public NameIndex without(int id) {
+        return with(id, null);
+    }
+
+    /**
+     * Find the names containing some text, ignoring case
+     *
+     * @param text the text to look for
+     *
+     * @return the ids of the matching names in ascending order
+     */
+    public int[] search(String text) {
+        String query = text.toUpperCase();
+        if (query.length() < GRAM) {
+            return scan(query);
+        }
+        Set<Long> grams = trigrams(query);
+        int[][] lists = new int[grams.size()][];
+        int i = 0;
+        for (long gram : grams) {
+            int[] ids = postings.get(gram);
+            if (ids == null) {
+                return NONE;
+            }
+            lists[i++] = ids;
+        }
+        // start from the rarest trigram, every other list can only shrink it
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] found = new int[lists[0].length];
+        int count = 0;
+        for (int id : lists[0]) {
+            if (inAll(lists, id) && names.get(id).contains(query)) {
+                found[count++] = id;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private int[] scan(String query) {
+        int[] found = new int[names.size()];
+        int count = 0;
+        for (Map.Entry<Integer, String> entry : names.entrySet()) {
+            if (entry.getValue().contains(query)) {
+                found[count++] = entry.getKey();
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private static boolean inAll(int[][] lists, int id) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i], id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name an upper-cased name
+     *
+     * @return its distinct trigrams, three UTF-16 chars packed into a long
+     */
+    private static Set<Long> trigrams(String name) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            grams.add(((long) name.charAt(i) << 32) | ((long) name.charAt(i + 1) << 16) | name.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private static int[] insert(int[] ids, int id) {
+        int at = Arrays.binarySearch(ids, id);
+        if (at >= 0) {
+            return ids;
+        }
+        at = -at - 1;
+        int[] next = new int[ids.length + 1];
+        System.arraycopy(ids, 0, next, 0, at);
+        next[at] = id;
+        System.arraycopy(ids, at, next, at + 1, ids.length - at);
+        return next;
+    }
+
+    private static int[] remove(int[] ids, int id) {
+        int at = Arrays.binarySearch(ids, id);
+        if (at < 0) {
+            return ids;
+        }
+        int[] next = new int[ids.length - 1];
+        System.arraycopy(ids, 0, next, 0, at);
+        System.arraycopy(ids, at + 1, next, at, ids.length - at - 1);
+        return next;
+    }
+}
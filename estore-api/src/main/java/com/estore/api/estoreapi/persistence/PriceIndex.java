@@ -0,0 +1,272 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.estore.api.estoreapi.model.ProductType;
+
+/**
+ * Product ids sorted by price, for the whole catalog and for each product type
+ *
+ * Each list is a pair of parallel arrays ordered by price and then id, so a
+ * price range is found with two binary searches and a page of it is read
+ * straight from the arrays: a query costs O(log n + page size) and counting a
+ * range costs O(log n).
+ *
+ * Like {@link ProductCatalog} an index never changes once built. A change
+ * copies the arrays of the lists it touches, which costs no more than the
+ * copy of the catalog map that goes with it; the lists of other product
+ * types are shared.
+ *
+ * @author Team H
+ */
+public final class PriceIndex {
+    // the list of a product type nothing has
+    private static final Column EMPTY = new Column(new double[0], new int[0], null);
+
+    /**
+     * Ids with their prices, ordered by price and then id
+     */
+    private static final class Column {
+        private final double[] prices;
+        private final int[] ids;
+        // the type of each id, only kept in the column of the whole catalog
+        private final ProductType[] types;
+
+        private Column(double[] prices, int[] ids, ProductType[] types) {
+            this.prices = prices;
+            this.ids = ids;
+            this.types = types;
+        }
+
+        /**
+         * @return the first position whose price and id are not below the
+         *         given ones
+         */
+        private int lowerBound(double price, int id) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(prices[middle], ids[middle], price, id) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private Column insert(double price, int id, ProductType type) {
+            int at = lowerBound(price, id);
+            double[] nextPrices = new double[ids.length + 1];
+            int[] nextIds = new int[ids.length + 1];
+            System.arraycopy(prices, 0, nextPrices, 0, at);
+            System.arraycopy(ids, 0, nextIds, 0, at);
+            nextPrices[at] = price;
+            nextIds[at] = id;
+            System.arraycopy(prices, at, nextPrices, at + 1, ids.length - at);
+            System.arraycopy(ids, at, nextIds, at + 1, ids.length - at);
+            ProductType[] nextTypes = null;
+            if (types != null) {
+                nextTypes = new ProductType[ids.length + 1];
+                System.arraycopy(types, 0, nextTypes, 0, at);
+                nextTypes[at] = type;
+                System.arraycopy(types, at, nextTypes, at + 1, ids.length - at);
+            }
+            return new Column(nextPrices, nextIds, nextTypes);
+        }
+
+        private Column delete(int at) {
+            double[] nextPrices = new double[ids.length - 1];
+            int[] nextIds = new int[ids.length - 1];
+            System.arraycopy(prices, 0, nextPrices, 0, at);
+            System.arraycopy(ids, 0, nextIds, 0, at);
+            System.arraycopy(prices, at + 1, nextPrices, at, ids.length - at - 1);
+            System.arraycopy(ids, at + 1, nextIds, at, ids.length - at - 1);
+            ProductType[] nextTypes = null;
+            if (types != null) {
+                nextTypes = new ProductType[ids.length - 1];
+                System.arraycopy(types, 0, nextTypes, 0, at);
+                System.arraycopy(types, at + 1, nextTypes, at, ids.length - at - 1);
+            }
+            return new Column(nextPrices, nextIds, nextTypes);
+        }
+    }
+
+    private final Column all;
+    private final Map<ProductType, Column> byType;
+
+    private PriceIndex(Column all, Map<ProductType, Column> byType) {
+        this.all = all;
+        this.byType = byType;
+    }
+
+    /**
+     * Build the index from parallel arrays in any order
+     *
+     * @param ids    the product ids
+     * @param prices the price of each product
+     * @param types  the type of each product, null types are only in the list
+     *               of the whole catalog
+     *
+     * @return the index
+     */
+    public static PriceIndex of(int[] ids, double[] prices, ProductType[] types) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(prices[a], ids[a], prices[b], ids[b]));
+        double[] sortedPrices = new double[ids.length];
+        int[] sortedIds = new int[ids.length];
+        ProductType[] sortedTypes = new ProductType[ids.length];
+        Map<ProductType, int[]> counts = new EnumMap<>(ProductType.class);
+        for (int i = 0; i < order.length; i++) {
+            sortedPrices[i] = prices[order[i]];
+            sortedIds[i] = ids[order[i]];
+            sortedTypes[i] = types[order[i]];
+            if (sortedTypes[i] != null) {
+                counts.computeIfAbsent(sortedTypes[i], type -> new int[1])[0]++;
+            }
+        }
+        Map<ProductType, Column> byType = new EnumMap<>(ProductType.class);
+        for (Map.Entry<ProductType, int[]> count : counts.entrySet()) {
+            double[] typePrices = new double[count.getValue()[0]];
+            int[] typeIds = new int[typePrices.length];
+            int next = 0;
+            for (int i = 0; i < sortedIds.length; i++) {
+                if (sortedTypes[i] == count.getKey()) {
+                    typePrices[next] = sortedPrices[i];
+                    typeIds[next++] = sortedIds[i];
+                }
+            }
+            byType.put(count.getKey(), new Column(typePrices, typeIds, null));
+        }
+        return new PriceIndex(new Column(sortedPrices, sortedIds, sortedTypes), byType);
+    }
+
+    /**
+     * @param id    the id of a new or changed product
+     * @param price its price
+     * @param type  its type
+     *
+     * @return the index with the product at that price, this index if neither
+     *         its price nor its type changed
+     */
+    public PriceIndex with(int id, double price, ProductType type) {
+        int at = find(id);
+        if (at >= 0 && Double.compare(all.prices[at], price) == 0 && all.types[at] == type) {
+            return this;
+        }
+        PriceIndex index = at >= 0 ? withoutAt(at) : this;
+        Map<ProductType, Column> nextByType = new EnumMap<>(ProductType.class);
+        nextByType.putAll(index.byType);
+        if (type != null) {
+            nextByType.put(type, nextByType.getOrDefault(type, EMPTY).insert(price, id, null));
+        }
+        return new PriceIndex(index.all.insert(price, id, type), nextByType);
+    }
+
+    /**
+     * @param id the id of a removed product
+     *
+     * @return the index without the product
+     */
+    public PriceIndex without(int id) {
+        int at = find(id);
+        return at < 0 ? this : withoutAt(at);
+    }
+
+    private PriceIndex withoutAt(int at) {
+        ProductType type = all.types[at];
+        Map<ProductType, Column> nextByType = new EnumMap<>(ProductType.class);
+        nextByType.putAll(byType);
+        if (type != null) {
+            Column column = byType.get(type);
+            Column shrunk = column.delete(column.lowerBound(all.prices[at], all.ids[at]));
+            if (shrunk.ids.length == 0) {
+                nextByType.remove(type);
+            } else {
+                nextByType.put(type, shrunk);
+            }
+        }
+        return new PriceIndex(all.delete(at), nextByType);
+    }
+
+    /**
+     * @return the position of the id in the list of the whole catalog, -1 if
+     *         it is not there
+     */
+    private int find(int id) {
+        // the list is ordered by price, the id alone can only be scanned for;
+        // the arrays are copied on every change anyway
+        for (int i = 0; i < all.ids.length; i++) {
+            if (all.ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param type the product type, null for every product
+     * @param min  the lowest price, inclusive
+     * @param max  the highest price, inclusive
+     *
+     * @return the number of products in the price range
+     */
+    public int count(ProductType type, double min, double max) {
+        Column column = column(type);
+        return Math.max(0, upperBound(column, max) - lowerBound(column, min));
+    }
+
+    /**
+     * Read a page of the products in a price range
+     *
+     * @param type       the product type, null for every product
+     * @param min        the lowest price, inclusive
+     * @param max        the highest price, inclusive
+     * @param descending true for the most expensive first
+     * @param offset     the number of products to skip
+     * @param limit      the most products to return
+     *
+     * @return the ids on the page, ordered by price and then id, none if the
+     *         offset is negative
+     */
+    public int[] range(ProductType type, double min, double max, boolean descending, int offset, int limit) {
+        if (offset < 0) {
+            return new int[0];
+        }
+        Column column = column(type);
+        int low = lowerBound(column, min);
+        int high = upperBound(column, max);
+        int size = (int) Math.max(0, Math.min((long) high - low - offset, limit));
+        int[] page = new int[size];
+        for (int i = 0; i < size; i++) {
+            page[i] = descending ? column.ids[high - 1 - offset - i] : column.ids[low + offset + i];
+        }
+        return page;
+    }
+
+    private Column column(ProductType type) {
+        return type == null ? all : byType.getOrDefault(type, EMPTY);
+    }
+
+    private static int lowerBound(Column column, double min) {
+        return column.lowerBound(min, Integer.MIN_VALUE);
+    }
+
+    private static int upperBound(Column column, double max) {
+        if (Double.isInfinite(max) && max > 0) {
+            return column.ids.length;
+        }
+        return column.lowerBound(Math.nextUp(max), Integer.MIN_VALUE);
+    }
+
+    private static int compare(double priceA, int idA, double priceB, int idB) {
+        int byPrice = Double.compare(priceA, priceB);
+        return byPrice != 0 ? byPrice : Integer.compare(idA, idB);
+    }
+}
@@ -0,0 +1,240 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductType;
+
+/**
+ * One published version of the product catalog
+ *
+ * The map of a catalog never changes once it was published. A writer copies
+ * it, changes the copy and publishes that as the next version, so readers
+ * holding an older version carry on undisturbed and never take a lock.
+ * Copying a {@link LazyProductMap} only copies its entries, products that were
+ * never read stay unbuilt.
+ *
+ * Each version carries a {@link NameIndex} of the product names and a
+ * {@link PriceIndex} of their prices, updated along with the map, so name
+ * searches and price ranges never scan the catalog.
+ *
+ * @author Team H
+ */
+public class ProductCatalog {
+    private final Map<Integer, Product> products;
+    private final NameIndex names;
+    private final PriceIndex prices;
+    private final long version;
+
+    /**
+     * @param products the products by id, not changed after this call
+     * @param version  the version of the catalog
+     */
+    public ProductCatalog(Map<Integer, Product> products, long version) {
+        this.products = products;
+        this.version = version;
+        Map<Integer, String> byId = new TreeMap<>();
+        int[] ids = new int[products.size()];
+        double[] priceById = new double[ids.length];
+        ProductType[] typeById = new ProductType[ids.length];
+        int i = 0;
+        for (int id : products.keySet()) {
+            byId.put(id, nameOf(id));
+            ids[i] = id;
+            priceById[i] = priceOf(id);
+            typeById[i++] = typeOf(id);
+        }
+        this.names = NameIndex.of(byId);
+        this.prices = PriceIndex.of(ids, priceById, typeById);
+    }
+
+    private ProductCatalog(Map<Integer, Product> products, NameIndex names, PriceIndex prices, long version) {
+        this.products = products;
+        this.names = names;
+        this.prices = prices;
+        this.version = version;
+    }
+
+    /**
+     * @return the version, one higher for every change since startup
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param id the id of a product
+     *
+     * @return the product, or null if there is none
+     */
+    public Product get(int id) {
+        return products.get(id);
+    }
+
+    /**
+     * @param id the id of a product
+     *
+     * @return true if the catalog has the product
+     */
+    public boolean contains(int id) {
+        return products.containsKey(id);
+    }
+
+    /**
+     * @return the number of products
+     */
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * @return the ids in ascending order
+     */
+    public Set<Integer> ids() {
+        return Collections.unmodifiableSet(products.keySet());
+    }
+
+    /**
+     * @return the products in id order
+     */
+    public Collection<Product> values() {
+        return Collections.unmodifiableCollection(products.values());
+    }
+
+    /**
+     * get the name of a product without building it from a mapped snapshot
+     *
+     * @param id the id of the product
+     *
+     * @return the name of the product, or null if there is none
+     */
+    public String nameOf(int id) {
+        if (products instanceof LazyProductMap) {
+            return ((LazyProductMap) products).getName(id);
+        }
+        Product product = products.get(id);
+        return product == null ? null : product.getName();
+    }
+
+    private double priceOf(int id) {
+        if (products instanceof LazyProductMap) {
+            return ((LazyProductMap) products).getPrice(id);
+        }
+        return products.get(id).getPrice();
+    }
+
+    private ProductType typeOf(int id) {
+        if (products instanceof LazyProductMap) {
+            return ((LazyProductMap) products).getProductType(id);
+        }
+        return products.get(id).getProductType();
+    }
+
+    /**
+     * @param type the product type, null for every product
+     * @param min  the lowest price, inclusive
+     * @param max  the highest price, inclusive
+     *
+     * @return the number of products in the price range
+     */
+    public int countByPrice(ProductType type, double min, double max) {
+        return prices.count(type, min, max);
+    }
+
+    /**
+     * Read a page of the products in a price range without sorting
+     *
+     * @param type       the product type, null for every product
+     * @param min        the lowest price, inclusive
+     * @param max        the highest price, inclusive
+     * @param descending true for the most expensive first
+     * @param offset     the number of products to skip
+     * @param limit      the most products to return
+     *
+     * @return the products on the page, ordered by price and then id
+     */
+    public List<Product> byPrice(ProductType type, double min, double max, boolean descending, int offset,
+            int limit) {
+        int[] ids = prices.range(type, min, max, descending, offset, limit);
+        List<Product> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            found.add(products.get(id));
+        }
+        return found;
+    }
+
+    /**
+     * Find the products whose name contains some text, ignoring case
+     *
+     * @param text the text to look for
+     *
+     * @return the matching products in id order
+     */
+    public List<Product> search(String text) {
+        int[] ids = names.search(text);
+        List<Product> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            found.add(products.get(id));
+        }
+        return found;
+    }
+
+    /**
+     * Check for a product with exactly this name through the name index
+     *
+     * @param name the name, case sensitive
+     *
+     * @return true if a product has the name
+     */
+    public boolean hasName(String name) {
+        for (int id : names.search(name)) {
+            if (name.equals(nameOf(id))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the map itself, only for writing it out
+     */
+    Map<Integer, Product> map() {
+        return products;
+    }
+
+    /**
+     * @param product a new or changed product
+     *
+     * @return the next version, holding the product
+     */
+    public ProductCatalog with(Product product) {
+        Map<Integer, Product> next = copy();
+        next.put(product.getId(), product);
+        return new ProductCatalog(next, names.with(product.getId(), product.getName()),
+                prices.with(product.getId(), product.getPrice(), product.getProductType()), version + 1);
+    }
+
+    /**
+     * @param id the id of a removed product
+     *
+     * @return the next version, without the product
+     */
+    public ProductCatalog without(int id) {
+        Map<Integer, Product> next = copy();
+        next.remove(id);
+        return new ProductCatalog(next, names.without(id), prices.without(id), version + 1);
+    }
+
+    private Map<Integer, Product> copy() {
+        if (products instanceof LazyProductMap) {
+            return ((LazyProductMap) products).copy();
+        }
+        return new TreeMap<>(products);
+    }
+}
@@ -1,22 +1,107 @@
 package com.estore.api.estoreapi.persistence;
 
 import java.io.IOException;
+import java.util.Collection;
 
 import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.FacetResult;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductPage;
+import com.estore.api.estoreapi.model.ProductType;
 import com.estore.api.estoreapi.model.Review;
+import com.estore.api.estoreapi.model.SearchPage;
+import com.estore.api.estoreapi.model.Suggestion;
 
 public interface ProductDAO {
+    /** The expected version of an update that does not care which version it replaces */
+    long ANY_VERSION = -1;
+
+    /**
+     * @param page the page, starting at 0
+     * @param size the most items on a page
+     *
+     * @return the number of items before the page, capped at
+     *         Integer.MAX_VALUE, which is past the end of any catalog
+     */
+    static int offset(int page, int size) {
+        return (int) Math.min((long) page * size, Integer.MAX_VALUE);
+    }
+
     Product[] getProducts() throws IOException;
 
     Product getProductById(int id) throws IOException;
 
     Product[] searchForProduct(String name) throws IOException;
 
+    /**
+     * Rank the products by how well their name and description match the
+     * query, tolerating small typos
+     *
+     * @param query the words to look for
+     * @param page  the page to return, starting at 0
+     * @param size  the most hits on a page
+     *
+     * @return the page of hits, best match first
+     */
+    SearchPage searchProducts(String query, int page, int size) throws IOException;
+
+    /**
+     * Filter the products by type, color and stock and count the products of
+     * every facet value
+     *
+     * @param types   the product types to show, all if empty
+     * @param colors  the names of the colors to show, all if empty
+     * @param inStock true for products in stock, false for sold out ones, null
+     *                for both
+     *
+     * @return the matching products in id order with the facet counts
+     */
+    FacetResult filterProducts(Collection<ProductType> types, Collection<String> colors, Boolean inStock)
+            throws IOException;
+
+    /**
+     * List the products in a price range ordered by price, ties by id
+     *
+     * @param type       the product type, null for every product
+     * @param min        the lowest price, inclusive
+     * @param max        the highest price, inclusive
+     * @param descending true for the most expensive first
+     * @param page       the page to return, starting at 0
+     * @param size       the most products on a page
+     *
+     * @return the page of products
+     */
+    ProductPage getProductsByPrice(ProductType type, double min, double max, boolean descending, int page,
+            int size) throws IOException;
+
+    /**
+     * Complete what was typed into the search box
+     *
+     * @param prefix the start of a product name or of any word in it
+     * @param limit  the most suggestions, at most
+     *               {@link SuggestIndex#MAX_SUGGESTIONS}
+     *
+     * @return the most reviewed matching products, best first
+     */
+    Suggestion[] suggestProducts(String prefix, int limit) throws IOException;
+
     Product createProduct(Product product) throws IOException;
 
     Product updateProduct(Product product) throws IOException;
 
+    /**
+     * Update a product only if it is still at the version the caller last read
+     *
+     * @param product         the new state of the product
+     * @param expectedVersion the version the update is based on, or
+     *                        {@link #ANY_VERSION}
+     *
+     * @return the stored product with its new version, null if not found
+     *
+     * @throws VersionConflictException if the product changed in the meantime
+     */
+    Product updateProduct(Product product, long expectedVersion) throws IOException;
+
     boolean deleteProduct(int id) throws IOException;
 
     Color[] getAllColors() throws IOException;
@@ -4,37 +4,102 @@ import java.io.File;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
-
 import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.FacetResult;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductPage;
+import com.estore.api.estoreapi.model.ProductType;
 import com.estore.api.estoreapi.model.Review;
+import com.estore.api.estoreapi.model.SearchHit;
+import com.estore.api.estoreapi.model.SearchPage;
+import com.estore.api.estoreapi.model.Suggestion;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-@Component
 public class ProductFileDAO implements ProductDAO {
     private static final Logger LOG = Logger.getLogger(ProductFileDAO.class.getName());
-    private Map<Integer, Product> products = null;
+    // readers take whatever version is current, writers publish a new one
+    // while holding writeLock
+    private volatile ProductCatalog catalog;
+    private final Object writeLock = new Object();
     static Color[] availableColors = { new Color("Red"), new Color("Blue"), new Color("Green"), new Color("Yellow"),
             new Color("Orange"), new Color("Purple"), new Color("Black"), new Color("White"), new Color("Pink"),
             new Color("Brown"), new Color("Gray"), new Color("Gold"), new Color("Silver") };
 
     private ObjectMapper mapper;
+    private ObjectMapper jsonMapper;
     private String filename;
+    private StorageProperties properties;
+
+    // Only set when product.log.enabled is true
+    private ProductLog productLog;
+    private ScheduledExecutorService compactor;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean(false);
+    // Only set when storage.incremental-save is true
+    private FragmentCache<Product> productFragments;
+    // Only set when product.snapshot.enabled is true
+    private File snapshotFile;
+    private boolean snapshotCurrent;
+    // Only set when storage.compression.enabled is true
+    private DictionaryCompression compression;
+
+    // leases new product ids, reset whenever the products are (re)loaded
+    private IdAllocator ids;
+    // kept up to date by every writer; null until the first search, filter or
+    // suggestion when the products come from a mapped snapshot, so startup
+    // does not build them all
+    private volatile ProductSearchIndex searchIndex;
+    private volatile FacetIndex facetIndex;
+    private volatile SuggestIndex suggestIndex;
+
+    public ProductFileDAO(String filename, ObjectMapper mapper) throws IOException {
+        this(filename, mapper, new StorageProperties());
+    }
 
-    private static int nextId;
-
-    public ProductFileDAO(@Value("${product.file}") String filename, ObjectMapper mapper) throws IOException {
+    public ProductFileDAO(String filename, ObjectMapper mapper, StorageProperties properties) throws IOException {
         LOG.info(filename);
-        this.filename = filename;
-        this.mapper = mapper;
+        StorageFormat format = properties.getStorageFormat();
+        this.filename = format.file(filename);
+        this.mapper = format.mapper(mapper);
+        this.jsonMapper = mapper;
+        this.properties = properties;
+        this.compression = properties.getCompression();
+        if (format != StorageFormat.JSON && !new File(this.filename).exists()) {
+            StorageFormatConverter.convert(new File(filename), StorageFormat.JSON, new File(this.filename), format,
+                    mapper);
+        }
+        if (properties.isProductLogEnabled()) {
+            // log records are text lines, so they stay JSON whatever the snapshot format
+            productLog = new ProductLog(new File(this.filename + ".log"), mapper);
+        }
+        if (properties.isIncrementalSave() && format == StorageFormat.JSON) {
+            productFragments = new FragmentCache<>(mapper, Product::getId);
+        }
+        if (properties.isProductSnapshotEnabled()) {
+            snapshotFile = new File(this.filename + ".snap");
+        }
+        ids = properties.newIdAllocator(this.filename, 1);
         load();
+        if (productLog != null) {
+            startCompactor();
+        }
     }
 
     /**
@@ -47,7 +112,7 @@ public class ProductFileDAO implements ProductDAO {
     private Product[] getProductsArray(String containsText) {
         ArrayList<Product> productsArrayList = new ArrayList<>();
 
-        for (Product product : products.values()) {
+        for (Product product : catalog.values()) {
             if (containsText == null || product.getName().contains(containsText)) {
                 productsArrayList.add(product);
             }
@@ -64,10 +129,33 @@ public class ProductFileDAO implements ProductDAO {
      *         disk
      */
     boolean save() throws IOException {
+        invalidateMappedSnapshot();
+        writeSnapshot(new File(filename));
+        return true;
+    }
+
+    /**
+     * Write every product to the file, reusing the cached JSON of unchanged
+     * products when incremental saves are enabled
+     *
+     * @param file the file to write
+     */
+    private void writeSnapshot(File file) throws IOException {
         Product[] productArray = getProductsArray(null);
 
-        mapper.writeValue(new File(filename), productArray);
-        return true;
+        if (compression != null) {
+            try (OutputStream out = compression.openOutput(file)) {
+                if (productFragments != null) {
+                    productFragments.writeArray(out, Arrays.asList(productArray));
+                } else {
+                    mapper.writeValue(out, productArray);
+                }
+            }
+        } else if (productFragments != null) {
+            productFragments.writeArray(file, Arrays.asList(productArray));
+        } else {
+            mapper.writeValue(file, productArray);
+        }
     }
 
     /**
@@ -77,34 +165,280 @@ public class ProductFileDAO implements ProductDAO {
      *         disk
      */
     boolean load() throws IOException {
-        products = new TreeMap<>();
-        nextId = 0;
         LOG.info(filename);
 
-        Product[] productArray = mapper.readValue(new File(filename), Product[].class);
-        for (Product product : productArray) {
-            int id = product.getId();
-            products.put(id, product);
-            if (id > nextId) {
-                nextId = id;
+        ProductSnapshot snapshot = null;
+        if (snapshotFile != null) {
+            snapshot = ProductSnapshot.open(snapshotFile, new File(filename));
+        }
+        Map<Integer, Product> products;
+        if (snapshot != null) {
+            products = new LazyProductMap(snapshot, jsonMapper);
+            snapshotCurrent = true;
+        } else {
+            Map<Integer, Product> loaded = new TreeMap<>();
+            Consumer<Product> loadProduct = product -> {
+                synchronized (loaded) {
+                    loaded.put(product.getId(), product);
+                }
+            };
+            if (compression != null) {
+                try (InputStream in = compression.openInput(new File(filename))) {
+                    StreamingLoader.load(mapper, in, filename, Product.class,
+                            Math.max(1, properties.getLoadThreads()), loadProduct);
+                }
+            } else if (properties.getLoadThreads() > 0) {
+                StreamingLoader.load(mapper, new File(filename), Product.class, properties.getLoadThreads(),
+                        loadProduct);
+            } else {
+                Product[] productArray = mapper.readValue(new File(filename), Product[].class);
+                for (Product product : productArray) {
+                    loaded.put(product.getId(), product);
+                }
+            }
+            products = loaded;
+        }
+        catalog = new ProductCatalog(products, 1);
+        if (snapshot == null && snapshotFile != null) {
+            writeMappedSnapshot();
+        }
+        if (productLog != null) {
+            int replayed = productLog.replay(products);
+            LOG.info("Replayed " + replayed + " records from " + productLog.getFile());
+            if (replayed > 0) {
+                // replay changed the map behind the catalog, its name index must be rebuilt
+                catalog = new ProductCatalog(products, 1);
             }
         }
-        nextId++;
+        resetIds(products.keySet());
+        searchIndex = null;
+        facetIndex = null;
+        suggestIndex = null;
+        if (!(products instanceof LazyProductMap)) {
+            buildIndexes();
+        }
         return true;
     }
 
     /**
-     * Get the next available product id
-     * 
-     * @return the next id
+     * Train a new compression dictionary from the current catalog and rewrite
+     * the product file with it
+     *
+     * @return the id of the new dictionary
      */
-    private synchronized static int getNextId() {
-        int id = nextId++;
-        return id;
+    public int retrainDictionary() throws IOException {
+        if (compression == null) {
+            throw new IllegalStateException("storage compression is disabled");
+        }
+        synchronized (writeLock) {
+            List<byte[]> samples = new ArrayList<>();
+            for (Product product : catalog.values()) {
+                if (product.getDescription() != null) {
+                    samples.add(product.getDescription().getBytes(StandardCharsets.UTF_8));
+                }
+                samples.add(mapper.writeValueAsBytes(product));
+            }
+            int id = compression.train(samples);
+            save();
+            return id;
+        }
     }
 
-    public int getNext() {
-        return nextId++;
+    /**
+     * Persist a single created or changed product
+     *
+     * With the product log enabled this appends one record instead of
+     * rewriting the whole file
+     *
+     * @param product the product that changed
+     *
+     * @return true if the change was persisted
+     */
+    private boolean saveProduct(Product product) throws IOException {
+        if (productFragments != null) {
+            productFragments.markDirty(product.getId());
+        }
+        if (productLog == null) {
+            return save();
+        }
+        synchronized (writeLock) {
+            productLog.put(product);
+        }
+        requestCompaction();
+        return true;
+    }
+
+    /**
+     * Persist the removal of a single product
+     *
+     * @param id the id of the removed product
+     *
+     * @return true if the removal was persisted
+     */
+    private boolean saveDeletion(int id) throws IOException {
+        if (productLog == null) {
+            return save();
+        }
+        synchronized (writeLock) {
+            productLog.delete(id);
+        }
+        requestCompaction();
+        return true;
+    }
+
+    /**
+     * Fold the product log into a fresh snapshot and empty the log
+     *
+     * The snapshot is written to a temporary file and moved over the old one,
+     * so a crash leaves either the old snapshot plus the full log or the new
+     * snapshot. Replaying records onto a snapshot that already has them is
+     * harmless.
+     */
+    void compact() throws IOException {
+        synchronized (writeLock) {
+            if (productLog == null || productLog.size() == 0) {
+                return;
+            }
+            invalidateMappedSnapshot();
+            File snapshot = new File(filename + ".tmp");
+            writeSnapshot(snapshot);
+            Files.move(snapshot.toPath(), new File(filename).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("Compacted " + productLog.size() + " log records into " + filename);
+            productLog.truncate();
+            if (snapshotFile != null) {
+                writeMappedSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Write the memory mapped snapshot of the product file
+     *
+     * Products that were never read since startup are copied from the current
+     * snapshot without being built.
+     */
+    private void writeMappedSnapshot() throws IOException {
+        ProductSnapshot.Writer writer = new ProductSnapshot.Writer(jsonMapper);
+        Map<Integer, Product> products = catalog.map();
+        if (products instanceof LazyProductMap) {
+            ((LazyProductMap) products).writeTo(writer);
+        } else {
+            for (Product product : products.values()) {
+                writer.add(product);
+            }
+        }
+        writer.write(snapshotFile, new File(filename));
+        snapshotCurrent = true;
+    }
+
+    /**
+     * Remove the mapped snapshot before the product file changes, so a crash
+     * before the next snapshot can never leave an outdated one behind
+     */
+    private void invalidateMappedSnapshot() throws IOException {
+        if (snapshotCurrent) {
+            Files.deleteIfExists(snapshotFile.toPath());
+            snapshotCurrent = false;
+        }
+    }
+
+    /**
+     * Compact in the background once the log passes the configured threshold
+     */
+    private void requestCompaction() {
+        if (productLog.size() >= properties.getProductLogCompactThreshold()
+                && compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(this::compactQuietly);
+        }
+    }
+
+    private void compactQuietly() {
+        compactionQueued.set(false);
+        try {
+            compact();
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Product log compaction failed", e);
+        }
+    }
+
+    private void startCompactor() {
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getProductLogCompactInterval();
+        compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the compactor and fold the remaining log into the snapshot on
+     * shutdown, then bring the mapped snapshot up to date for the next start
+     */
+    public void close() throws IOException {
+        if (productLog != null) {
+            compactor.shutdown();
+            compact();
+            productLog.close();
+        }
+        if (snapshotFile != null) {
+            synchronized (writeLock) {
+                if (!snapshotCurrent) {
+                    writeMappedSnapshot();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace every product, keeping their ids, for example when migrating
+     * from another storage engine
+     *
+     * @param newProducts the products to store
+     */
+    public void replaceAll(Collection<Product> newProducts) throws IOException {
+        synchronized (writeLock) {
+            Map<Integer, Product> products = new TreeMap<>();
+            for (Product product : newProducts) {
+                products.put(product.getId(), product);
+                if (productFragments != null) {
+                    productFragments.markDirty(product.getId());
+                }
+            }
+            resetIds(products.keySet());
+            catalog = new ProductCatalog(products, catalog.getVersion() + 1);
+            if (searchIndex != null) {
+                searchIndex.rebuild(products.values());
+                facetIndex.rebuild(products.values());
+                suggestIndex.rebuild(products.values());
+            }
+            save();
+            // the file now holds everything, older log records must not be replayed onto it
+            if (productLog != null) {
+                productLog.truncate();
+            }
+        }
+    }
+
+    /**
+     * Make new ids start above every stored product id
+     *
+     * @param storedIds - The ids of the stored products
+     */
+    private void resetIds(Collection<Integer> storedIds) {
+        int highest = 0;
+        for (int id : storedIds) {
+            highest = Math.max(highest, id);
+        }
+        ids.reset(highest + 1L);
+    }
+
+    /**
+     * @return the current version of the catalog, it never changes
+     */
+    public ProductCatalog getCatalog() {
+        return catalog;
     }
 
     /**
@@ -112,9 +446,7 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Product[] getProducts() {
-        synchronized (products) {
-            return (new ArrayList<>(products.values())).toArray(new Product[0]);
-        }
+        return catalog.values().toArray(new Product[0]);
     }
 
     /**
@@ -124,9 +456,7 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Product getProductById(int id) {
-        synchronized (products) {
-            return products.get(id);
-        }
+        return catalog.get(id);
     }
 
     /**
@@ -136,14 +466,147 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Product[] searchForProduct(String name) {
-        synchronized (products) {
-            List<Product> searches = new ArrayList<>();
-            for (Product product : products.values()) {
-                if (product.getName().toUpperCase().contains(name.toUpperCase())) {
-                    searches.add(product);
-                }
+        return catalog.search(name).toArray(new Product[0]);
+    }
+
+    /**
+     * @param query - the words to look for in product names and descriptions
+     * @param page  - the page to return, starting at 0
+     * @param size  - the most hits on a page
+     *
+     * @return the page of hits, best match first
+     */
+    @Override
+    public SearchPage searchProducts(String query, int page, int size) {
+        ProductSearchIndex.Result result = indexForSearch().search(query,
+                ProductDAO.offset(page, size), size);
+        ProductCatalog current = catalog;
+        List<SearchHit> hits = new ArrayList<>();
+        for (int i = 0; i < result.getIds().length; i++) {
+            Product product = current.get(result.getIds()[i]);
+            // a product deleted after the index was read is left out
+            if (product != null) {
+                hits.add(new SearchHit(product, result.getScores()[i]));
+            }
+        }
+        return new SearchPage(hits.toArray(new SearchHit[0]), result.getTotal(), page, size);
+    }
+
+    /**
+     * @param types   - the product types to show, all if empty
+     * @param colors  - the names of the colors to show, all if empty
+     * @param inStock - true for products in stock, false for sold out ones,
+     *                null for both
+     *
+     * @return the matching products in id order with the facet counts
+     */
+    @Override
+    public FacetResult filterProducts(Collection<ProductType> types, Collection<String> colors, Boolean inStock) {
+        FacetIndex.Result result = indexForFacets().filter(types, colors, inStock);
+        ProductCatalog current = catalog;
+        List<Product> products = new ArrayList<>();
+        for (int id : result.getIds()) {
+            Product product = current.get(id);
+            // a product deleted after the index was read is left out
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return new FacetResult(products.toArray(new Product[0]), result.getTypes(), result.getColors(),
+                result.getInStock(), result.getOutOfStock());
+    }
+
+    /**
+     * @param type       - the product type, null for every product
+     * @param min        - the lowest price, inclusive
+     * @param max        - the highest price, inclusive
+     * @param descending - true for the most expensive first
+     * @param page       - the page to return, starting at 0
+     * @param size       - the most products on a page
+     *
+     * @return the page of products ordered by price, ties by id
+     */
+    @Override
+    public ProductPage getProductsByPrice(ProductType type, double min, double max, boolean descending, int page,
+            int size) {
+        ProductCatalog current = catalog;
+        List<Product> products = current.byPrice(type, min, max, descending,
+                ProductDAO.offset(page, size), size);
+        return new ProductPage(products.toArray(new Product[0]), current.countByPrice(type, min, max), page, size);
+    }
+
+    /**
+     * @param prefix - the start of a product name or of any word in it
+     * @param limit  - the most suggestions
+     *
+     * @return the most reviewed matching products, best first
+     */
+    @Override
+    public Suggestion[] suggestProducts(String prefix, int limit) {
+        if (searchIndex == null) {
+            buildIndexes();
+        }
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * @return the search index, built from the catalog on first use
+     */
+    private ProductSearchIndex indexForSearch() {
+        ProductSearchIndex index = searchIndex;
+        if (index == null) {
+            buildIndexes();
+            index = searchIndex;
+        }
+        return index;
+    }
+
+    /**
+     * @return the facet index, built from the catalog on first use
+     */
+    private FacetIndex indexForFacets() {
+        if (searchIndex == null) {
+            buildIndexes();
+        }
+        return facetIndex;
+    }
+
+    /**
+     * Build the search, facet and suggestion indexes from the catalog unless
+     * they are built already. The search index is published last, so a search
+     * index that is not null means all of them are there
+     */
+    private void buildIndexes() {
+        synchronized (writeLock) {
+            if (searchIndex == null) {
+                FacetIndex facets = new FacetIndex();
+                facets.rebuild(catalog.values());
+                SuggestIndex suggestions = new SuggestIndex();
+                suggestions.rebuild(catalog.values());
+                ProductSearchIndex search = new ProductSearchIndex();
+                search.rebuild(catalog.values());
+                facetIndex = facets;
+                suggestIndex = suggestions;
+                searchIndex = search;
             }
-            return searches.toArray(new Product[0]);
+        }
+    }
+
+    /**
+     * Keep the indexes in step with a new or changed product. The caller must
+     * hold the write lock
+     *
+     * @param product     - The product as it is now stored
+     * @param textChanged - Whether its name or description changed
+     */
+    private void indexProduct(Product product, boolean textChanged) {
+        if (searchIndex != null) {
+            if (textChanged) {
+                searchIndex.put(product);
+            }
+            facetIndex.put(product);
+            // only touches the trie when the name or review count changed
+            suggestIndex.put(product);
         }
     }
 
@@ -157,19 +620,16 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Product createProduct(Product product) throws IOException {
-        synchronized (products) {
-            int i = getNextId();
-            Color black = ProductFileDAO.availableColors[6];
-            Product newProduct = product.copy(i);
-            newProduct.addColor(black);
-            for (Product p : products.values()) {
-                LOG.info(p.getName() + " " + newProduct.getName() + " " + newProduct.getId() + " " + i);
-                if (p.getName().equals(product.getName())) {
-                    return null;
-                }
+        synchronized (writeLock) {
+            // a rejected duplicate must not use up an id
+            if (catalog.hasName(product.getName())) {
+                return null;
             }
-            products.put(newProduct.getId(), newProduct);
-            save();
+            Color black = ProductFileDAO.availableColors[6];
+            Product newProduct = product.copy(ids.next()).withColor(black);
+            catalog = catalog.with(newProduct);
+            indexProduct(newProduct, true);
+            saveProduct(newProduct);
             return product;
         }
     }
@@ -183,16 +643,55 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Product updateProduct(Product product) throws IOException {
-        synchronized (products) {
-            if (products.containsKey(product.getId()) == false) {
+        return updateProduct(product, ANY_VERSION);
+    }
+
+    /**
+     * Updates a product if found and still at the expected version
+     *
+     * @param product         - The product to be updated
+     * @param expectedVersion - The version the update is based on
+     *
+     * @return product - the updated product with its new version, null if it is
+     *         not found
+     */
+    @Override
+    public Product updateProduct(Product product, long expectedVersion) throws IOException {
+        synchronized (writeLock) {
+            Product current = catalog.get(product.getId());
+            if (current == null) {
                 return null;
             }
-            products.put(product.getId(), product);
-            save();
-            return product;
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                throw new VersionConflictException(expectedVersion, current.getVersion());
+            }
+            Product updated = publish(current, product);
+            saveProduct(updated);
+            return updated;
         }
     }
 
+    /**
+     * Publish the replacement for a product as the next version of both the
+     * product and the catalog. The caller must hold the write lock
+     *
+     * @param current - The product as it is stored now
+     * @param updated - Its replacement
+     *
+     * @return the replacement, carrying the next version number
+     */
+    private Product publish(Product current, Product updated) {
+        Product next = updated.withVersion(current.getVersion() + 1);
+        catalog = catalog.with(next);
+        indexProduct(next, !equalText(current, next));
+        return next;
+    }
+
+    private static boolean equalText(Product a, Product b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDescription(), b.getDescription());
+    }
+
     /**
      * Deletes a product if found
      *
@@ -202,10 +701,15 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public boolean deleteProduct(int id) throws IOException {
-        synchronized (products) {
-            if (products.containsKey(id)) {
-                products.remove(id);
-                return save();
+        synchronized (writeLock) {
+            if (catalog.contains(id)) {
+                catalog = catalog.without(id);
+                if (searchIndex != null) {
+                    searchIndex.remove(id);
+                    facetIndex.remove(id);
+                    suggestIndex.remove(id);
+                }
+                return saveDeletion(id);
             } else
                 return false;
         }
@@ -217,15 +721,13 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Review[] getAllReviews() {
-        synchronized (products) {
-            ArrayList<Review> reviews = new ArrayList<>();
-            for (Product product : products.values()) {
-                for (Review review : product.getReviews()) {
-                    reviews.add(review);
-                }
+        ArrayList<Review> reviews = new ArrayList<>();
+        for (Product product : catalog.values()) {
+            for (Review review : product.getReviews()) {
+                reviews.add(review);
             }
-            return reviews.toArray(new Review[0]);
         }
+        return reviews.toArray(new Review[0]);
     }
 
     /**
@@ -256,7 +758,7 @@ public class ProductFileDAO implements ProductDAO {
     @Override
     public Review[] getReviewsByUser(int userid) throws IOException {
         ArrayList<Review> reviews = new ArrayList<>();
-        for (Product product : products.values()) {
+        for (Product product : catalog.values()) {
             for (Review review : product.getReviews()) {
                 if (review.getUserid() == userid) {
                     reviews.add(review);
@@ -276,13 +778,12 @@ public class ProductFileDAO implements ProductDAO {
     @Override
     public Review createReview(Review review) throws IOException {
 
-        Product productToReview = getProductById(review.getProductid());
-
-        if (productToReview == null) {
-            return null;
-        } else {
-            productToReview.addReview(review);
-            save();
+        synchronized (writeLock) {
+            Product productToReview = catalog.get(review.getProductid());
+            if (productToReview == null) {
+                return null;
+            }
+            saveProduct(publish(productToReview, productToReview.withReview(review)));
             return review;
         }
     }
@@ -384,14 +885,11 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Color[] getProductColors(int productid) throws IOException {
-        synchronized (products) {
-            for (Product product : products.values()) {
-                if (product.getId() == productid) {
-                    return product.getAllColors().toArray(new Color[0]);
-                }
-            }
-            return new Color[0];
+        Product product = catalog.get(productid);
+        if (product != null) {
+            return product.getAllColors().toArray(new Color[0]);
         }
+        return new Color[0];
     }
 
     /**
@@ -403,13 +901,12 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Color[] addProductColor(int productid, Color color) throws IOException {
-        synchronized (products) {
-            for (Product product : products.values()) {
-                if (product.getId() == productid) {
-                    product.addColor(color);
-                    save();
-                    return product.getAllColors().toArray(new Color[0]);
-                }
+        synchronized (writeLock) {
+            Product product = catalog.get(productid);
+            if (product != null) {
+                product = publish(product, product.withColor(color));
+                saveProduct(product);
+                return product.getAllColors().toArray(new Color[0]);
             }
             return new Color[0];
         }
@@ -424,13 +921,12 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Color[] removeProductColor(int productid, Color color) throws IOException {
-        synchronized (products) {
-            for (Product product : products.values()) {
-                if (product.getId() == productid) {
-                    product.removeColor(color);
-                    save();
-                    return product.getAllColors().toArray(new Color[0]);
-                }
+        synchronized (writeLock) {
+            Product product = catalog.get(productid);
+            if (product != null) {
+                product = publish(product, product.withoutColor(color));
+                saveProduct(product);
+                return product.getAllColors().toArray(new Color[0]);
             }
             return new Color[0];
         }
@@ -445,13 +941,12 @@ public class ProductFileDAO implements ProductDAO {
      */
     @Override
     public Color[] setProductColors(int productid, Color[] colors) throws IOException {
-        synchronized (products) {
-            for (Product product : products.values()) {
-                if (product.getId() == productid) {
-                    product.setAllColors(colors);
-                    save();
-                    return product.getAllColors().toArray(new Color[0]);
-                }
+        synchronized (writeLock) {
+            Product product = catalog.get(productid);
+            if (product != null) {
+                product = publish(product, product.withColors(Arrays.asList(colors)));
+                saveProduct(product);
+                return product.getAllColors().toArray(new Color[0]);
             }
             return new Color[0];
         }
@@ -0,0 +1,884 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.FacetResult;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductPage;
+import com.estore.api.estoreapi.model.ProductType;
+import com.estore.api.estoreapi.model.Review;
+import com.estore.api.estoreapi.model.SearchHit;
+import com.estore.api.estoreapi.model.SearchPage;
+import com.estore.api.estoreapi.model.Suggestion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Stores products, their colors and reviews in the embedded database
+ *
+ * Every change only writes the rows of the product it touches, lookups by id,
+ * name and user go through the indexes created by {@link JdbcStorage}. On the
+ * first start with an empty database the products are imported from
+ * product.file. Full-text searches and facet filters are answered from an
+ * in-memory {@link ProductSearchIndex} and {@link FacetIndex} that this DAO's
+ * writes keep up to date. Every write is also counted in the database, so an
+ * instance sharing it rebuilds its indexes from the table before its next read
+ * once it sees a change it did not make.
+ *
+ * @author Team H
+ */
+public class ProductJdbcDAO implements ProductDAO {
+    private static final Logger LOG = Logger.getLogger(ProductJdbcDAO.class.getName());
+    private static final String SELECT_PRODUCTS = "SELECT id, product_type, name, quantity, price, description,"
+            + " image_url, version FROM products";
+    private static final String SELECT_REVIEWS = "SELECT product_id, user_id, rating, review FROM reviews";
+
+    private JdbcStorage storage;
+    private ObjectMapper mapper;
+    private IdAllocator ids;
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private final FacetIndex facetIndex = new FacetIndex();
+    private final SuggestIndex suggestIndex = new SuggestIndex();
+    // held by the writers of a product from their transaction until their
+    // index updates are done, so the indexes see its versions in commit order
+    private final StripedLock locks = new StripedLock(64);
+    // creates of the same name wait on each other, so this DAO never inserts one twice
+    private final StripedLock names = new StripedLock(64);
+    // writers hold the read side from their transaction until their change is
+    // counted, a rebuild from the table holds the write side
+    private final ReadWriteLock indexing = new ReentrantReadWriteLock();
+    // the count of product changes in the database that the indexes include
+    private volatile long indexedChanges;
+    // changes counted by this DAO after it put them in the indexes itself
+    private final NavigableSet<Long> ownChanges = new ConcurrentSkipListSet<>();
+
+    public ProductJdbcDAO(JdbcStorage storage, ObjectMapper mapper, String filename) throws IOException {
+        this(storage, mapper, filename, new StorageProperties());
+    }
+
+    public ProductJdbcDAO(JdbcStorage storage, ObjectMapper mapper, String filename, StorageProperties properties)
+            throws IOException {
+        this.storage = storage;
+        this.mapper = mapper;
+        this.ids = new IdAllocator((floor, size) -> storage.leaseIds("products", size), properties.getIdBlockSize(),
+                1);
+        int imported = storage.inTransaction(connection -> {
+            if (count(connection, "available_colors") == 0) {
+                writeAvailableColors(connection, ProductFileDAO.availableColors);
+            }
+            File file = new File(filename);
+            if (count(connection, "products") == 0 && file.exists()) {
+                Product[] productArray = mapper.readValue(file, Product[].class);
+                for (Product product : productArray) {
+                    writeProduct(connection, product);
+                }
+                LOG.info("Imported " + productArray.length + " products from " + filename);
+                return productArray.length;
+            }
+            return 0;
+        });
+        if (imported > 0) {
+            // instances that started on the empty database pick the import up
+            storage.countChange("products");
+        }
+        rebuildIndexes();
+    }
+
+    /**
+     * Rebuild the indexes from the table. The count is read first, so the
+     * products read after it include at least the changes it counts
+     */
+    private void rebuildIndexes() throws IOException {
+        long changes = storage.readChanges("products");
+        List<Product> stored = Arrays.asList(getProducts());
+        searchIndex.rebuild(stored);
+        facetIndex.rebuild(stored);
+        suggestIndex.rebuild(stored);
+        indexedChanges = changes;
+        ownChanges.headSet(changes, true).clear();
+    }
+
+    /**
+     * Bring the indexes up to date before a read. The changes this DAO counted
+     * are in them already, any other one was made by another instance sharing
+     * the database and the indexes are rebuilt from the table
+     */
+    private void refreshIndexes() throws IOException {
+        if (storage.readChanges("products") == indexedChanges) {
+            return;
+        }
+        indexing.writeLock().lock();
+        try {
+            while (ownChanges.remove(indexedChanges + 1)) {
+                indexedChanges++;
+            }
+            if (storage.readChanges("products") != indexedChanges) {
+                rebuildIndexes();
+            }
+        } finally {
+            indexing.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count a change after this DAO put it in its indexes. Called with the read
+     * side of indexing held, so no rebuild runs between the commit and the count
+     */
+    private void countChange() {
+        try {
+            ownChanges.add(storage.countChange("products"));
+        } catch (IOException e) {
+            // the change is committed, other instances see it with the next counted one
+            LOG.log(Level.WARNING, "Could not count a product change", e);
+        }
+    }
+
+    private static int count(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + table);
+                ResultSet result = statement.executeQuery()) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+    }
+
+    /**
+     * Read products with their colors and reviews
+     *
+     * @param connection the connection of the transaction
+     * @param where      an optional where clause on the products table
+     * @param parameters the parameters of the where clause
+     *
+     * @return the products in id order
+     */
+    private List<Product> readProducts(Connection connection, String where, Object... parameters)
+            throws SQLException, IOException {
+        Map<Integer, ObjectNode> nodes = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCTS + where + " ORDER BY id")) {
+            bind(statement, parameters);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    ObjectNode node = mapper.createObjectNode();
+                    node.put("id", result.getInt("id"));
+                    node.put("productType", result.getString("product_type"));
+                    node.put("name", result.getString("name"));
+                    node.put("quantity", result.getInt("quantity"));
+                    node.put("price", result.getDouble("price"));
+                    node.put("description", result.getString("description"));
+                    node.put("imageURL", result.getString("image_url"));
+                    node.put("version", result.getLong("version"));
+                    node.putArray("allColors");
+                    node.putArray("reviews");
+                    nodes.put(result.getInt("id"), node);
+                }
+            }
+        }
+        if (nodes.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String owners = " WHERE product_id IN (SELECT id FROM products" + where + ")";
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT product_id, name FROM product_colors" + owners + " ORDER BY line_no")) {
+            bind(statement, parameters);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    ((ArrayNode) nodes.get(result.getInt("product_id")).get("allColors")).addObject()
+                            .put("name", result.getString("name"));
+                }
+            }
+        }
+        for (Review review : readReviews(connection, owners, parameters)) {
+            ((ArrayNode) nodes.get(review.getProductid()).get("reviews")).addPOJO(review);
+        }
+
+        List<Product> products = new ArrayList<>();
+        for (ObjectNode node : nodes.values()) {
+            products.add(mapper.treeToValue(node, Product.class));
+        }
+        return products;
+    }
+
+    private List<Review> readReviews(Connection connection, String where, Object... parameters)
+            throws SQLException {
+        List<Review> reviews = new ArrayList<>();
+        try (PreparedStatement statement = connection
+                .prepareStatement(SELECT_REVIEWS + where + " ORDER BY product_id, id")) {
+            bind(statement, parameters);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    reviews.add(new Review(result.getInt("product_id"), result.getInt("user_id"),
+                            result.getInt("rating"), result.getString("review")));
+                }
+            }
+        }
+        return reviews;
+    }
+
+    private Product readProduct(Connection connection, int id) throws SQLException, IOException {
+        List<Product> products = readProducts(connection, " WHERE id = ?", id);
+        return products.isEmpty() ? null : products.get(0);
+    }
+
+    private boolean exists(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM products WHERE id = ?")) {
+            statement.setInt(1, id);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    /**
+     * @return the stored version of a product, -1 if there is no such product
+     */
+    private long readVersion(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT version FROM products WHERE id = ?")) {
+            statement.setInt(1, id);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Move a product on to its next version. With an expected version this is
+     * a compare-and-swap: the row is only touched if nobody else moved it first
+     *
+     * @return true if the version was bumped
+     */
+    private boolean bumpVersion(Connection connection, int id, long expectedVersion) throws SQLException {
+        String sql = "UPDATE products SET version = version + 1 WHERE id = ?";
+        if (expectedVersion != ANY_VERSION) {
+            sql += " AND version = ?";
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, id);
+            if (expectedVersion != ANY_VERSION) {
+                statement.setLong(2, expectedVersion);
+            }
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Insert or replace a product with all of its colors and reviews. The
+     * version column is left alone, it only moves through bumpVersion
+     */
+    private void writeProduct(Connection connection, Product product) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("MERGE INTO products (id, product_type,"
+                + " name, quantity, price, description, image_url) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            bind(statement, product.getId(), product.getProductType().name(), product.getName(),
+                    product.getQuantity(), product.getPrice(), product.getDescription(), product.getImageURL());
+            statement.executeUpdate();
+        }
+        writeColors(connection, product.getId(), product.getAllColors());
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM reviews WHERE product_id = ?")) {
+            statement.setInt(1, product.getId());
+            statement.executeUpdate();
+        }
+        for (Review review : product.getReviews()) {
+            insertReview(connection, product.getId(), review);
+        }
+    }
+
+    private void writeColors(Connection connection, int productid, List<Color> colors) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("DELETE FROM product_colors WHERE product_id = ?")) {
+            statement.setInt(1, productid);
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = connection
+                .prepareStatement("INSERT INTO product_colors (product_id, line_no, name) VALUES (?, ?, ?)")) {
+            for (int line = 0; line < colors.size(); line++) {
+                bind(statement, productid, line, colors.get(line).getName());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private Color[] readColors(Connection connection, int productid) throws SQLException {
+        List<Color> colors = new ArrayList<>();
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT name FROM product_colors WHERE product_id = ? ORDER BY line_no")) {
+            statement.setInt(1, productid);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    colors.add(new Color(result.getString("name")));
+                }
+            }
+        }
+        return colors.toArray(new Color[0]);
+    }
+
+    private void insertReview(Connection connection, int productid, Review review) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO reviews (product_id, user_id, rating, review) VALUES (?, ?, ?, ?)")) {
+            bind(statement, productid, review.getUserid(), review.getRating(), review.getReview());
+            statement.executeUpdate();
+        }
+    }
+
+    private Color[] readAvailableColors(Connection connection) throws SQLException {
+        List<Color> colors = new ArrayList<>();
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT name FROM available_colors ORDER BY line_no");
+                ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                colors.add(new Color(result.getString("name")));
+            }
+        }
+        return colors.toArray(new Color[0]);
+    }
+
+    private void writeAvailableColors(Connection connection, Color[] colors) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM available_colors")) {
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = connection
+                .prepareStatement("INSERT INTO available_colors (line_no, name) VALUES (?, ?)")) {
+            for (int line = 0; line < colors.length; line++) {
+                bind(statement, line, colors[line].getName());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Replace every product with its colors and reviews, keeping their ids
+     *
+     * @param products the products to store
+     */
+    public void replaceAll(Collection<Product> products) throws IOException {
+        indexing.writeLock().lock();
+        try {
+            storage.inTransaction(connection -> {
+                for (String table : new String[] { "reviews", "product_colors", "products" }) {
+                    try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table)) {
+                        statement.executeUpdate();
+                    }
+                }
+                for (Product product : products) {
+                    writeProduct(connection, product);
+                }
+                return null;
+            });
+            searchIndex.rebuild(products);
+            facetIndex.rebuild(products);
+            suggestIndex.rebuild(products);
+            countChange();
+        } finally {
+            indexing.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return list of all the products in id order
+     */
+    @Override
+    public Product[] getProducts() throws IOException {
+        return storage.inTransaction(connection -> readProducts(connection, "").toArray(new Product[0]));
+    }
+
+    /**
+     * @param id - the id of the product to get
+     *
+     * @return the product with the given id
+     */
+    @Override
+    public Product getProductById(int id) throws IOException {
+        return storage.inTransaction(connection -> readProduct(connection, id));
+    }
+
+    /**
+     * @param name - the text to look for in product names, ignoring case
+     *
+     * @return the products with the text in their name
+     */
+    @Override
+    public Product[] searchForProduct(String name) throws IOException {
+        String pattern = "%" + name.toUpperCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+                + "%";
+        return storage.inTransaction(
+                connection -> readProducts(connection, " WHERE UPPER(name) LIKE ?", pattern)
+                        .toArray(new Product[0]));
+    }
+
+    /**
+     * @param query - the words to look for in product names and descriptions
+     * @param page  - the page to return, starting at 0
+     * @param size  - the most hits on a page
+     *
+     * @return the page of hits, best match first
+     */
+    @Override
+    public SearchPage searchProducts(String query, int page, int size) throws IOException {
+        refreshIndexes();
+        ProductSearchIndex.Result result = searchIndex.search(query, ProductDAO.offset(page, size), size);
+        int[] ids = result.getIds();
+        Map<Integer, Product> products = readProducts(ids);
+        List<SearchHit> hits = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            Product product = products.get(ids[i]);
+            // a product deleted after the index was read is left out
+            if (product != null) {
+                hits.add(new SearchHit(product, result.getScores()[i]));
+            }
+        }
+        return new SearchPage(hits.toArray(new SearchHit[0]), result.getTotal(), page, size);
+    }
+
+    /**
+     * @param types   - the product types to show, all if empty
+     * @param colors  - the names of the colors to show, all if empty
+     * @param inStock - true for products in stock, false for sold out ones,
+     *                null for both
+     *
+     * @return the matching products in id order with the facet counts
+     */
+    @Override
+    public FacetResult filterProducts(Collection<ProductType> types, Collection<String> colors, Boolean inStock)
+            throws IOException {
+        refreshIndexes();
+        FacetIndex.Result result = facetIndex.filter(types, colors, inStock);
+        // a product deleted after the index was read is left out
+        Product[] products = readProducts(result.getIds()).values().toArray(new Product[0]);
+        return new FacetResult(products, result.getTypes(), result.getColors(), result.getInStock(),
+                result.getOutOfStock());
+    }
+
+    /**
+     * @param type       - the product type, null for every product
+     * @param min        - the lowest price, inclusive
+     * @param max        - the highest price, inclusive
+     * @param descending - true for the most expensive first
+     * @param page       - the page to return, starting at 0
+     * @param size       - the most products on a page
+     *
+     * @return the page of products ordered by price, ties by id
+     */
+    @Override
+    public ProductPage getProductsByPrice(ProductType type, double min, double max, boolean descending, int page,
+            int size) throws IOException {
+        // served by the products_type_price and products_price indexes
+        String where = " WHERE price >= ? AND price <= ?" + (type == null ? "" : " AND product_type = ?");
+        Object[] parameters = type == null ? new Object[] { min, max } : new Object[] { min, max, type.name() };
+        String order = descending ? " ORDER BY price DESC, id DESC" : " ORDER BY price, id";
+        return storage.inTransaction(connection -> {
+            int total;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM products" + where)) {
+                bind(statement, parameters);
+                try (ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    total = result.getInt(1);
+                }
+            }
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT id FROM products" + where + order + " LIMIT ? OFFSET ?")) {
+                bind(statement, parameters);
+                statement.setInt(parameters.length + 1, size);
+                statement.setInt(parameters.length + 2, ProductDAO.offset(page, size));
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        ids.add(result.getInt(1));
+                    }
+                }
+            }
+            Map<Integer, Product> byId = new LinkedHashMap<>();
+            if (!ids.isEmpty()) {
+                String in = " WHERE id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+                for (Product product : readProducts(connection, in, ids.toArray())) {
+                    byId.put(product.getId(), product);
+                }
+            }
+            List<Product> products = new ArrayList<>();
+            for (int id : ids) {
+                products.add(byId.get(id));
+            }
+            return new ProductPage(products.toArray(new Product[0]), total, page, size);
+        });
+    }
+
+    /**
+     * @param prefix - the start of a product name or of any word in it
+     * @param limit  - the most suggestions
+     *
+     * @return the most reviewed matching products, best first
+     */
+    @Override
+    public Suggestion[] suggestProducts(String prefix, int limit) throws IOException {
+        refreshIndexes();
+        // answered from memory, a LIKE query per keystroke could not use an index
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * @param ids the ids of the products to read
+     *
+     * @return the stored ones of the products by id, in id order
+     */
+    private Map<Integer, Product> readProducts(int[] ids) throws IOException {
+        Map<Integer, Product> products = new LinkedHashMap<>();
+        if (ids.length > 0) {
+            Object[] parameters = Arrays.stream(ids).boxed().toArray();
+            String where = " WHERE id IN (" + String.join(",", Collections.nCopies(ids.length, "?")) + ")";
+            for (Product product : storage.inTransaction(connection -> readProducts(connection, where, parameters))) {
+                products.put(product.getId(), product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Bring the facets of a product up to date after its colors changed
+     *
+     * @param id the id of the product
+     */
+    private void reindexFacets(int id) throws IOException {
+        Product product = getProductById(id);
+        if (product != null) {
+            facetIndex.put(product);
+            countChange();
+        }
+    }
+
+    /**
+     * Insert a copy of the product with the next free id
+     *
+     * @param product - The product to insert
+     *
+     * @return Product - The product that was passed in,
+     *         null if there is already a product with the same name
+     */
+    @Override
+    public Product createProduct(Product product) throws IOException {
+        synchronized (names.of(Objects.hashCode(product.getName()))) {
+            // a rejected duplicate must not use up an id
+            if (storage.inTransaction(connection -> hasName(connection, product.getName()))) {
+                return null;
+            }
+            // the lease runs its own transaction, so it is taken before the insert opens one
+            Product newProduct = product.copy(ids.next()).withColor(new Color("Black"));
+            indexing.readLock().lock();
+            try {
+                boolean created = storage.inTransaction(connection -> {
+                    // another instance sharing the database may have created the name meanwhile
+                    if (hasName(connection, product.getName())) {
+                        return false;
+                    }
+                    writeProduct(connection, newProduct);
+                    return true;
+                });
+                if (!created) {
+                    return null;
+                }
+                searchIndex.put(newProduct);
+                facetIndex.put(newProduct);
+                suggestIndex.put(newProduct);
+                countChange();
+                return product;
+            } finally {
+                indexing.readLock().unlock();
+            }
+        }
+    }
+
+    private static boolean hasName(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM products WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    /**
+     * Replaces a product and its colors and reviews if found
+     *
+     * @param product - The product to be updated
+     *
+     * @return product - the updated product, null if it is not found
+     */
+    @Override
+    public Product updateProduct(Product product) throws IOException {
+        return updateProduct(product, ANY_VERSION);
+    }
+
+    /**
+     * Replaces a product if found and still at the expected version
+     *
+     * @param product         - The product to be updated
+     * @param expectedVersion - The version the update is based on
+     *
+     * @return product - the updated product with its new version, null if it is
+     *         not found
+     */
+    @Override
+    public Product updateProduct(Product product, long expectedVersion) throws IOException {
+        synchronized (locks.of(product.getId())) {
+            indexing.readLock().lock();
+            try {
+                Product updated = storage.inTransaction(connection -> {
+                    while (true) {
+                        long current = readVersion(connection, product.getId());
+                        if (current < 0) {
+                            return null;
+                        }
+                        if (expectedVersion != ANY_VERSION && current != expectedVersion) {
+                            throw new VersionConflictException(expectedVersion, current);
+                        }
+                        if (bumpVersion(connection, product.getId(), current)) {
+                            writeProduct(connection, product);
+                            return product.withVersion(current + 1);
+                        }
+                        // another transaction committed a change between the read and the swap
+                        if (expectedVersion != ANY_VERSION) {
+                            throw new VersionConflictException(current, readVersion(connection, product.getId()));
+                        }
+                        // a blind update lands on whatever version is there, so it tries again
+                    }
+                });
+                if (updated != null) {
+                    searchIndex.put(updated);
+                    facetIndex.put(updated);
+                    suggestIndex.put(updated);
+                    countChange();
+                }
+                return updated;
+            } finally {
+                indexing.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Deletes a product with its colors and reviews if found
+     *
+     * @param id - The id of the product to delete
+     *
+     * @return boolean - true if product deleted, false if not deleted
+     */
+    @Override
+    public boolean deleteProduct(int id) throws IOException {
+        synchronized (locks.of(id)) {
+            indexing.readLock().lock();
+            try {
+                boolean deleted = storage.inTransaction(connection -> {
+                    for (String table : new String[] { "reviews", "product_colors" }) {
+                        try (PreparedStatement statement = connection
+                                .prepareStatement("DELETE FROM " + table + " WHERE product_id = ?")) {
+                            statement.setInt(1, id);
+                            statement.executeUpdate();
+                        }
+                    }
+                    try (PreparedStatement statement = connection
+                            .prepareStatement("DELETE FROM products WHERE id = ?")) {
+                        statement.setInt(1, id);
+                        return statement.executeUpdate() > 0;
+                    }
+                });
+                if (deleted) {
+                    searchIndex.remove(id);
+                    facetIndex.remove(id);
+                    suggestIndex.remove(id);
+                    countChange();
+                }
+                return deleted;
+            } finally {
+                indexing.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public Color[] getAllColors() throws IOException {
+        return storage.inTransaction(this::readAvailableColors);
+    }
+
+    @Override
+    public Color[] addToAllColors(Color color) throws IOException {
+        return storage.inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO available_colors"
+                    + " (line_no, name) SELECT COALESCE(MAX(line_no), -1) + 1, ? FROM available_colors")) {
+                statement.setString(1, color.getName());
+                statement.executeUpdate();
+            }
+            return readAvailableColors(connection);
+        });
+    }
+
+    @Override
+    public Color[] removeFromAllColors(Color color) throws IOException {
+        return storage.inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM available_colors"
+                    + " WHERE line_no = (SELECT MIN(line_no) FROM available_colors WHERE name = ?)")) {
+                statement.setString(1, color.getName());
+                statement.executeUpdate();
+            }
+            return readAvailableColors(connection);
+        });
+    }
+
+    @Override
+    public Color[] setAllColors(Color[] colors) throws IOException {
+        Color[] newColors = colors != null ? colors : new Color[0];
+        return storage.inTransaction(connection -> {
+            writeAvailableColors(connection, newColors);
+            return newColors;
+        });
+    }
+
+    @Override
+    public Color[] getProductColors(int productid) throws IOException {
+        return storage.inTransaction(connection -> readColors(connection, productid));
+    }
+
+    @Override
+    public Color[] addProductColor(int productid, Color color) throws IOException {
+        synchronized (locks.of(productid)) {
+            indexing.readLock().lock();
+            try {
+                Color[] colors = storage.inTransaction(connection -> {
+                    if (!exists(connection, productid)) {
+                        return new Color[0];
+                    }
+                    try (PreparedStatement statement = connection.prepareStatement("INSERT INTO product_colors"
+                            + " (product_id, line_no, name) SELECT ?, COALESCE(MAX(line_no), -1) + 1, ?"
+                            + " FROM product_colors WHERE product_id = ?")) {
+                        bind(statement, productid, color.getName(), productid);
+                        statement.executeUpdate();
+                    }
+                    bumpVersion(connection, productid, ANY_VERSION);
+                    return readColors(connection, productid);
+                });
+                reindexFacets(productid);
+                return colors;
+            } finally {
+                indexing.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public Color[] removeProductColor(int productid, Color color) throws IOException {
+        synchronized (locks.of(productid)) {
+            indexing.readLock().lock();
+            try {
+                Color[] remaining = storage.inTransaction(connection -> {
+                    List<Color> colors = new ArrayList<>(Arrays.asList(readColors(connection, productid)));
+                    if (colors.remove(color)) {
+                        writeColors(connection, productid, colors);
+                        bumpVersion(connection, productid, ANY_VERSION);
+                    }
+                    return colors.toArray(new Color[0]);
+                });
+                reindexFacets(productid);
+                return remaining;
+            } finally {
+                indexing.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public Color[] setProductColors(int productid, Color[] colors) throws IOException {
+        synchronized (locks.of(productid)) {
+            indexing.readLock().lock();
+            try {
+                Color[] stored = storage.inTransaction(connection -> {
+                    if (!exists(connection, productid)) {
+                        return new Color[0];
+                    }
+                    writeColors(connection, productid, Arrays.asList(colors));
+                    bumpVersion(connection, productid, ANY_VERSION);
+                    return readColors(connection, productid);
+                });
+                reindexFacets(productid);
+                return stored;
+            } finally {
+                indexing.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public Review[] getAllReviews() throws IOException {
+        return storage.inTransaction(connection -> readReviews(connection, "").toArray(new Review[0]));
+    }
+
+    @Override
+    public Review[] getReviewsByProduct(int productid) throws IOException {
+        return storage.inTransaction(
+                connection -> readReviews(connection, " WHERE product_id = ?", productid).toArray(new Review[0]));
+    }
+
+    @Override
+    public Review[] getReviewsByUser(int userid) throws IOException {
+        return storage.inTransaction(
+                connection -> readReviews(connection, " WHERE user_id = ?", userid).toArray(new Review[0]));
+    }
+
+    /**
+     * Add a review row to a product
+     *
+     * @param review - The review to add
+     *
+     * @return review - the new review, null if the product does not exist
+     */
+    @Override
+    public Review createReview(Review review) throws IOException {
+        synchronized (locks.of(review.getProductid())) {
+            indexing.readLock().lock();
+            try {
+                Review created = storage.inTransaction(connection -> {
+                    if (!exists(connection, review.getProductid())) {
+                        return null;
+                    }
+                    insertReview(connection, review.getProductid(), review);
+                    bumpVersion(connection, review.getProductid(), ANY_VERSION);
+                    return review;
+                });
+                if (created != null) {
+                    // one more review makes the product a better suggestion
+                    Product product = getProductById(review.getProductid());
+                    if (product != null) {
+                        suggestIndex.put(product);
+                    }
+                    countChange();
+                }
+                return created;
+            } finally {
+                indexing.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.estore.api.estoreapi.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only log of product mutations
+ *
+ * Every record is one line holding the CRC32 of its payload, a tab and the JSON
+ * payload. A line whose checksum does not match (for example a write torn by a
+ * crash) ends the replay and is cut off, since nothing after it can be trusted.
+ *
+ * @author Team H
+ */
+public class ProductLog {
+    private static final Logger LOG = Logger.getLogger(ProductLog.class.getName());
+
+    /**
+     * A single logged mutation, PUT stores the full product and DELETE only the id
+     */
+    public static class Record {
+        public static final String PUT = "PUT";
+        public static final String DELETE = "DELETE";
+
+        public String op;
+        public int id;
+        public Product product;
+
+        public Record() {}
+
+        public Record(String op, int id, Product product) {
+            this.op = op;
+            this.id = id;
+            this.product = product;
+        }
+    }
+
+    private File file;
+    private ObjectMapper mapper;
+    private OutputStream out;
+    private int size;
+
+    /**
+     * Create a log backed by the given file, the file is created on the first append
+     *
+     * @param file   the log file
+     * @param mapper the mapper used to serialize the records
+     */
+    public ProductLog(File file, ObjectMapper mapper) {
+        this.file = file;
+        this.mapper = mapper;
+        this.size = 0;
+    }
+
+    /**
+     * Append a PUT record for the product
+     *
+     * @param product the product that was created or changed
+     */
+    public void put(Product product) throws IOException {
+        append(new Record(Record.PUT, product.getId(), product));
+    }
+
+    /**
+     * Append a DELETE record for the product id
+     *
+     * @param id the id of the product that was deleted
+     */
+    public void delete(int id) throws IOException {
+        append(new Record(Record.DELETE, id, null));
+    }
+
+    /**
+     * Write one checksummed record to the end of the log
+     *
+     * @param record the record to append
+     */
+    public synchronized void append(Record record) throws IOException {
+        byte[] payload = mapper.writeValueAsBytes(record);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        if (out == null) {
+            out = new FileOutputStream(file, true);
+        }
+        out.write(Long.toHexString(crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+        out.write('\t');
+        out.write(payload);
+        out.write('\n');
+        out.flush();
+        size++;
+    }
+
+    /**
+     * Apply every intact record in the log to the products map
+     *
+     * @param products the map loaded from the snapshot
+     *
+     * @return the number of records that were applied
+     */
+    public synchronized int replay(Map<Integer, Product> products) throws IOException {
+        size = 0;
+        if (!file.exists()) {
+            return 0;
+        }
+        long intact = 0;
+        boolean corrupt = false;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Record record = decode(line);
+                if (record == null) {
+                    LOG.warning("Ignoring corrupt tail of " + file + " after " + size + " records");
+                    corrupt = true;
+                    break;
+                }
+                if (Record.PUT.equals(record.op)) {
+                    products.put(record.id, record.product);
+                } else if (Record.DELETE.equals(record.op)) {
+                    products.remove(record.id);
+                }
+                intact += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                size++;
+            }
+        }
+        if (corrupt) {
+            // new records must not land behind the damaged line
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(intact);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Verify the checksum of a line and parse its record
+     *
+     * @param line a line of the log without the line break
+     *
+     * @return the record, null if the line is damaged
+     */
+    private Record decode(String line) {
+        int tab = line.indexOf('\t');
+        if (tab <= 0) {
+            return null;
+        }
+        byte[] payload = line.substring(tab + 1).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        try {
+            if (Long.parseLong(line.substring(0, tab), 16) != crc.getValue()) {
+                return null;
+            }
+            return mapper.readValue(payload, Record.class);
+        } catch (NumberFormatException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drop every record, called once they are folded into a snapshot
+     */
+    public synchronized void truncate() throws IOException {
+        close();
+        new FileOutputStream(file, false).close();
+        size = 0;
+    }
+
+    /**
+     * Close the file handle, the next append reopens it
+     */
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    /**
+     * @return the number of records since the last truncate
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,397 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.estore.api.estoreapi.model.Product;
+
+/**
+ * Relevance ranked full-text index over product names and descriptions
+ *
+ * Names and descriptions are split into lower-cased words, and every word
+ * maps to the products using it with how often it occurs in each field. A
+ * query is ranked with BM25, a name match counting twice as much as a
+ * description match. Query words without an exact match are expanded to the
+ * indexed words within a small edit distance, one edit for words of four to
+ * seven letters and two for longer ones, so "razr keybord" still finds the
+ * "Razer Keyboard"; every edit halves the weight of the expanded word. The
+ * expansion never scans the vocabulary: every indexed word is also kept under
+ * the strings left after deleting one or two of its letters, and a query word
+ * only looks up its own deletions, so the words it is compared with share a
+ * deletion with it. Only the requested page of the best hits is kept while
+ * ranking.
+ *
+ * The index is changed one product at a time by the DAO that owns it, so
+ * it never has to be rebuilt to answer a query.
+ *
+ * @author Team H
+ */
+public class ProductSearchIndex {
+    private static final int NAME = 0;
+    private static final int DESCRIPTION = 1;
+    private static final double[] BOOST = { 2.0, 1.0 };
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * One page of ranked product ids
+     */
+    public static final class Result {
+        private final int[] ids;
+        private final double[] scores;
+        private final int total;
+
+        private Result(int[] ids, double[] scores, int total) {
+            this.ids = ids;
+            this.scores = scores;
+            this.total = total;
+        }
+
+        /**
+         * @return the ids on the page, best match first
+         */
+        public int[] getIds() {
+            return ids;
+        }
+
+        /**
+         * @return the score of each id on the page
+         */
+        public double[] getScores() {
+            return scores;
+        }
+
+        /**
+         * @return the number of products matching the query on all pages
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    // word to product id to its count in the name and in the description
+    private final Map<String, Map<Integer, int[]>> postings = new HashMap<>();
+    // product id to the number of words in its name and in its description
+    private final Map<Integer, int[]> lengths = new HashMap<>();
+    // product id to its distinct words, to take it out of the postings again
+    private final Map<Integer, Set<String>> words = new HashMap<>();
+    // a word with up to two letters deleted to the indexed words it comes from
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    private final long[] totalLength = new long[2];
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replace the whole content of the index
+     *
+     * @param products the products to index
+     */
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            lengths.clear();
+            words.clear();
+            deletions.clear();
+            totalLength[NAME] = 0;
+            totalLength[DESCRIPTION] = 0;
+            for (Product product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index a new or changed product
+     *
+     * @param product the product, replacing any product with the same id
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            delete(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id of a removed product
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed products
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return lengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rank the products matching any word of the query
+     *
+     * @param query  the words to look for
+     * @param offset the number of best hits to skip
+     * @param limit  the most hits to return
+     *
+     * @return the page of hits, best first, ties in id order, none if the
+     *         offset is negative
+     */
+    public Result search(String query, int offset, int limit) {
+        Map<Integer, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int count = lengths.size();
+            for (String word : new LinkedHashSet<>(tokenize(query))) {
+                Map<Integer, Double> best = new HashMap<>();
+                for (Map.Entry<String, Integer> match : expand(word).entrySet()) {
+                    double weight = 1.0 / (1 << match.getValue());
+                    Map<Integer, int[]> products = postings.get(match.getKey());
+                    double idf = Math.log(1 + (count - products.size() + 0.5) / (products.size() + 0.5));
+                    for (Map.Entry<Integer, int[]> posting : products.entrySet()) {
+                        double score = weight * idf * bm25(posting.getValue(), lengths.get(posting.getKey()));
+                        best.merge(posting.getKey(), score, Math::max);
+                    }
+                }
+                best.forEach((id, score) -> scores.merge(id, score, Double::sum));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (offset < 0) {
+            return new Result(new int[0], new double[0], scores.size());
+        }
+        return topHits(scores, offset, Math.max(0, limit));
+    }
+
+    private double bm25(int[] frequencies, int[] length) {
+        double score = 0;
+        for (int field = NAME; field <= DESCRIPTION; field++) {
+            if (frequencies[field] == 0) {
+                continue;
+            }
+            double average = (double) totalLength[field] / lengths.size();
+            double norm = 1 - B + B * length[field] / average;
+            score += BOOST[field] * frequencies[field] * (K1 + 1) / (frequencies[field] + K1 * norm);
+        }
+        return score;
+    }
+
+    /**
+     * @param word a query word
+     *
+     * @return the indexed words matching it with their edit distance, the word
+     *         itself alone if it is indexed
+     */
+    private Map<String, Integer> expand(String word) {
+        Map<String, Integer> matches = new HashMap<>();
+        if (postings.containsKey(word)) {
+            matches.put(word, 0);
+            return matches;
+        }
+        int max = word.length() < 4 ? 0 : word.length() < 8 ? 1 : 2;
+        if (max == 0) {
+            return matches;
+        }
+        // words within max edits share a string left by at most max deletions
+        // from each side
+        for (String deleted : deletionsOf(word, max)) {
+            for (String indexed : deletions.getOrDefault(deleted, Set.of())) {
+                if (!matches.containsKey(indexed)) {
+                    int distance = distance(word, indexed, max);
+                    if (distance <= max) {
+                        matches.put(indexed, distance);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the deletions to index a word under, enough for every query
+     *         word that may be expanded to it: a query word of eight or more
+     *         letters is only expanded to words of six or more
+     */
+    private static Set<String> indexedDeletionsOf(String word) {
+        return deletionsOf(word, word.length() >= 6 ? 2 : word.length() >= 3 ? 1 : 0);
+    }
+
+    /**
+     * @return the word and every string left after deleting up to max of its
+     *         letters
+     */
+    static Set<String> deletionsOf(String word, int max) {
+        Set<String> all = new HashSet<>();
+        all.add(word);
+        Set<String> last = all;
+        for (int round = 0; round < max; round++) {
+            Set<String> next = new HashSet<>();
+            for (String shorter : last) {
+                for (int i = 0; i < shorter.length(); i++) {
+                    String deleted = shorter.substring(0, i) + shorter.substring(i + 1);
+                    if (!all.contains(deleted)) {
+                        next.add(deleted);
+                    }
+                }
+            }
+            all.addAll(next);
+            last = next;
+        }
+        return all;
+    }
+
+    /**
+     * Levenshtein distance, given up as soon as it must exceed max
+     *
+     * @return the distance, or max + 1 if it is larger than max
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static Result topHits(Map<Integer, Double> scores, int offset, int limit) {
+        int keep = (int) Math.min((long) offset + limit, scores.size());
+        // the worst of the kept hits is on top, so it is the one pushed out
+        PriorityQueue<Map.Entry<Integer, Double>> heap = new PriorityQueue<>(Math.max(1, keep),
+                (a, b) -> a.getValue().equals(b.getValue()) ? Integer.compare(b.getKey(), a.getKey())
+                        : Double.compare(a.getValue(), b.getValue()));
+        if (keep > 0) {
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                heap.add(entry);
+                if (heap.size() > keep) {
+                    heap.poll();
+                }
+            }
+        }
+        int size = Math.max(0, keep - offset);
+        int[] ids = new int[size];
+        double[] pageScores = new double[size];
+        for (int i = heap.size() - 1; i >= 0; i--) {
+            Map.Entry<Integer, Double> entry = heap.poll();
+            if (i >= offset) {
+                ids[i - offset] = entry.getKey();
+                pageScores[i - offset] = entry.getValue();
+            }
+        }
+        return new Result(ids, pageScores, scores.size());
+    }
+
+    private void add(Product product) {
+        int id = product.getId();
+        List<String> name = tokenize(product.getName());
+        List<String> description = tokenize(product.getDescription());
+        Set<String> distinct = new LinkedHashSet<>(name);
+        distinct.addAll(description);
+        for (String word : distinct) {
+            if (!postings.containsKey(word)) {
+                for (String deleted : indexedDeletionsOf(word)) {
+                    deletions.computeIfAbsent(deleted, d -> new HashSet<>()).add(word);
+                }
+            }
+        }
+        for (String word : name) {
+            postings.computeIfAbsent(word, w -> new HashMap<>()).computeIfAbsent(id, i -> new int[2])[NAME]++;
+        }
+        for (String word : description) {
+            postings.computeIfAbsent(word, w -> new HashMap<>()).computeIfAbsent(id, i -> new int[2])[DESCRIPTION]++;
+        }
+        lengths.put(id, new int[] { name.size(), description.size() });
+        words.put(id, distinct);
+        totalLength[NAME] += name.size();
+        totalLength[DESCRIPTION] += description.size();
+    }
+
+    private void delete(int id) {
+        int[] length = lengths.remove(id);
+        if (length == null) {
+            return;
+        }
+        totalLength[NAME] -= length[NAME];
+        totalLength[DESCRIPTION] -= length[DESCRIPTION];
+        for (String word : words.remove(id)) {
+            Map<Integer, int[]> products = postings.get(word);
+            products.remove(id);
+            if (products.isEmpty()) {
+                postings.remove(word);
+                for (String deleted : indexedDeletionsOf(word)) {
+                    Set<String> indexed = deletions.get(deleted);
+                    indexed.remove(word);
+                    if (indexed.isEmpty()) {
+                        deletions.remove(deleted);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param text a name, description or query, may be null
+     *
+     * @return its runs of letters and digits in lower case
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,276 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Read only, memory mapped binary copy of the product file
+ *
+ * The file starts with a header, followed by one fixed width index entry per
+ * product holding its hot fields, followed by the names and the JSON of every
+ * product. The hot fields are read straight from the mapping, the JSON is only
+ * parsed when a product is needed as an object.
+ *
+ * <pre>
+ * header: magic, version, count, 0, source length, source modified time
+ * entry:  id, type, quantity, price, name offset, name length, body offset, body length
+ * </pre>
+ *
+ * The header records the length and modified time of the product file the
+ * snapshot was written for, a snapshot that does not match is ignored.
+ *
+ * @author Team H
+ */
+public class ProductSnapshot {
+    private static final Logger LOG = Logger.getLogger(ProductSnapshot.class.getName());
+    static final int MAGIC = 0x45534E50; // "ESNP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int ENTRY_SIZE = 36;
+
+    private static final ProductType[] TYPES = ProductType.values();
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private ProductSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+    }
+
+    /**
+     * Map a snapshot file
+     *
+     * @param file   the snapshot to map
+     * @param source the product file the snapshot must match
+     *
+     * @return the snapshot, or null if it is missing, damaged or out of date
+     */
+    public static ProductSnapshot open(File file, File source) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            LOG.warning("Ignoring " + file + ", not a version " + VERSION + " product snapshot");
+            return null;
+        }
+        if (buffer.getLong(16) != source.length() || buffer.getLong(24) != source.lastModified()) {
+            LOG.info("Ignoring " + file + ", " + source + " changed since it was written");
+            return null;
+        }
+        long indexEnd = HEADER_SIZE + (long) buffer.getInt(8) * ENTRY_SIZE;
+        if (buffer.getInt(8) < 0 || indexEnd > buffer.capacity()) {
+            LOG.warning("Ignoring " + file + ", the index is truncated");
+            return null;
+        }
+        return new ProductSnapshot(buffer);
+    }
+
+    /**
+     * @return the number of products in the snapshot
+     */
+    public int size() {
+        return count;
+    }
+
+    private int entry(int slot) {
+        if (slot < 0 || slot >= count) {
+            throw new IndexOutOfBoundsException("slot " + slot + " of " + count);
+        }
+        return HEADER_SIZE + slot * ENTRY_SIZE;
+    }
+
+    /**
+     * get the id of the product in a slot, slots are sorted by id
+     *
+     * @param slot the index entry
+     *
+     * @return the id
+     */
+    public int getId(int slot) {
+        return buffer.getInt(entry(slot));
+    }
+
+    public ProductType getProductType(int slot) {
+        return TYPES[buffer.getInt(entry(slot) + 4)];
+    }
+
+    public int getQuantity(int slot) {
+        return buffer.getInt(entry(slot) + 8);
+    }
+
+    public double getPrice(int slot) {
+        return buffer.getDouble(entry(slot) + 12);
+    }
+
+    public String getName(int slot) {
+        int entry = entry(slot);
+        return new String(bytes(buffer.getInt(entry + 20), buffer.getInt(entry + 24)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * get the JSON of the product in a slot without parsing it
+     *
+     * @param slot the index entry
+     *
+     * @return the JSON bytes
+     */
+    public byte[] getBody(int slot) {
+        int entry = entry(slot);
+        return bytes(buffer.getInt(entry + 28), buffer.getInt(entry + 32));
+    }
+
+    /**
+     * Build the full product in a slot
+     *
+     * @param slot   the index entry
+     * @param mapper the JSON mapper the snapshot was written with
+     *
+     * @return a new product object
+     */
+    public Product readProduct(int slot, ObjectMapper mapper) throws IOException {
+        return mapper.readValue(getBody(slot), Product.class);
+    }
+
+    /**
+     * Find the slot of a product
+     *
+     * @param id the id of the product
+     *
+     * @return the slot, or a negative number if the id is not in the snapshot
+     */
+    public int find(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = getId(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private byte[] bytes(int offset, int length) {
+        byte[] bytes = new byte[length];
+        // a duplicate has its own position, so concurrent reads do not interfere
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Collects products in id order and writes them as a snapshot
+     */
+    public static class Writer {
+        private final ObjectMapper mapper;
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private int count;
+        private int lastId = Integer.MIN_VALUE;
+
+        /**
+         * @param mapper the JSON mapper used for the product bodies
+         */
+        public Writer(ObjectMapper mapper) {
+            this.mapper = mapper;
+        }
+
+        /**
+         * Add a product, products must be added in increasing id order
+         *
+         * @param product the product
+         */
+        public void add(Product product) throws IOException {
+            add(product.getId(), product.getProductType(), product.getQuantity(), product.getPrice(),
+                    product.getName(), mapper.writeValueAsBytes(product));
+        }
+
+        /**
+         * Copy a product that did not change from another snapshot without
+         * serializing it again
+         *
+         * @param snapshot the snapshot holding the product
+         * @param slot     the slot of the product in that snapshot
+         */
+        public void copy(ProductSnapshot snapshot, int slot) {
+            add(snapshot.getId(slot), snapshot.getProductType(slot), snapshot.getQuantity(slot),
+                    snapshot.getPrice(slot), snapshot.getName(slot), snapshot.getBody(slot));
+        }
+
+        private void add(int id, ProductType type, int quantity, double price, String name, byte[] body) {
+            if (id <= lastId) {
+                throw new IllegalArgumentException("product " + id + " added after " + lastId);
+            }
+            lastId = id;
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+            entry.putInt(id).putInt(type.ordinal()).putInt(quantity).putDouble(price);
+            // offsets are relative to the data area until the index size is known
+            entry.putInt(data.size()).putInt(nameBytes.length);
+            data.write(nameBytes, 0, nameBytes.length);
+            entry.putInt(data.size()).putInt(body.length);
+            data.write(body, 0, body.length);
+            index.write(entry.array(), 0, ENTRY_SIZE);
+            count++;
+        }
+
+        /**
+         * Write the snapshot next to the product file it describes
+         *
+         * The snapshot is written to a temporary file and moved into place,
+         * so a reader never maps a half written snapshot.
+         *
+         * @param file   the snapshot file
+         * @param source the product file, it must be fully written already
+         */
+        public void write(File file, File source) throws IOException {
+            int dataStart = HEADER_SIZE + count * ENTRY_SIZE;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+            header.putLong(source.length()).putLong(source.lastModified());
+
+            ByteBuffer entries = ByteBuffer.wrap(index.toByteArray());
+            for (int entry = 0; entry < count * ENTRY_SIZE; entry += ENTRY_SIZE) {
+                entries.putInt(entry + 20, entries.getInt(entry + 20) + dataStart);
+                entries.putInt(entry + 28, entries.getInt(entry + 28) + dataStart);
+            }
+
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                header.flip();
+                ByteBuffer[] buffers = { header, entries, ByteBuffer.wrap(data.toByteArray()) };
+                while (buffers[2].hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("Wrote " + count + " products to " + file);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.estore.api.estoreapi.model.AccountSession;
+import com.estore.api.estoreapi.model.ActiveAccountSessions;
+
+/**
+ * Ends sessions that were idle or open for too long
+ *
+ * The id of every session sits in a {@link TimingWheel} at the session's
+ * earliest possible expiry. Using a session only updates its last access time
+ * and never touches the wheel, so when a session comes due its real deadline
+ * is worked out again and a session that was used meanwhile is simply put back
+ * further on. The wheel only holds ids, so a session that logs out is freed
+ * right away. An expired session is removed from the registry and handed to
+ * the expiry hook, which lets the DAO drop what it holds for the session.
+ *
+ * @author Team H
+ */
+public class SessionSweeper implements Closeable {
+    private static final Logger LOG = Logger.getLogger(SessionSweeper.class.getName());
+    private static final int SLOTS = 512;
+    // one thread ticks the sweepers of every DAO
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ActiveAccountSessions sessions;
+    private final long idleTimeout;
+    private final long absoluteTimeout;
+    private final long tickMillis;
+    private final Consumer<AccountSession> onExpiry;
+    private final TimingWheel<Integer> wheel;
+    private ScheduledFuture<?> ticks;
+
+    /**
+     * Create a sweeper, it only runs by itself once started
+     *
+     * @param sessions        the registry to remove expired sessions from
+     * @param idleTimeout     milliseconds without use before a session ends, 0
+     *                        for no idle timeout
+     * @param absoluteTimeout milliseconds after login a session ends, 0 for no
+     *                        absolute timeout
+     * @param tickMillis      how often expired sessions are looked for
+     * @param onExpiry        called with every expired session after it was
+     *                        removed
+     */
+    public SessionSweeper(ActiveAccountSessions sessions, long idleTimeout, long absoluteTimeout, long tickMillis,
+            Consumer<AccountSession> onExpiry) {
+        this.sessions = sessions;
+        this.idleTimeout = idleTimeout;
+        this.absoluteTimeout = absoluteTimeout;
+        this.tickMillis = tickMillis;
+        this.onExpiry = onExpiry;
+        this.wheel = new TimingWheel<>(tickMillis, SLOTS, System.currentTimeMillis());
+    }
+
+    /**
+     * Sweep every tick on the shared sweeper thread
+     */
+    public synchronized void start() {
+        if (ticks == null) {
+            ticks = TICKER.scheduleWithFixedDelay(this::sweepQuietly, tickMillis, tickMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Start tracking a new session
+     *
+     * @param session the session that was just added to the registry
+     */
+    public void register(AccountSession session) {
+        wheel.schedule(session.getSessionID(), deadlineOf(session));
+    }
+
+    private long deadlineOf(AccountSession session) {
+        long deadline = Long.MAX_VALUE;
+        if (idleTimeout > 0) {
+            deadline = session.getLastAccess() + idleTimeout;
+        }
+        if (absoluteTimeout > 0) {
+            deadline = Math.min(deadline, session.getCreatedAt() + absoluteTimeout);
+        }
+        return deadline;
+    }
+
+    /**
+     * End the sessions that are due
+     *
+     * @param now the current time in milliseconds
+     *
+     * @return the number of sessions that expired
+     */
+    public int sweep(long now) {
+        int expired = 0;
+        for (int sessionId : wheel.advance(now)) {
+            AccountSession session = sessions.peekBySessionId(sessionId);
+            if (session == null) {
+                // logged out meanwhile
+                continue;
+            }
+            long deadline = deadlineOf(session);
+            if (deadline > now) {
+                wheel.schedule(sessionId, deadline);
+                continue;
+            }
+            sessions.removeSession(session);
+            // the session's token must not bring it back
+            sessions.revoke(session.getLoggedAccountID(), now);
+            onExpiry.accept(session);
+            expired++;
+        }
+        return expired;
+    }
+
+    private void sweepQuietly() {
+        try {
+            int expired = sweep(System.currentTimeMillis());
+            if (expired > 0) {
+                LOG.info("Expired " + expired + " sessions");
+            }
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, "Session sweep failed", e);
+        }
+    }
+
+    /**
+     * @return the number of sessions being tracked, including ones that were
+     *         logged out since the last sweep
+     */
+    public int getTracked() {
+        return wheel.size();
+    }
+
+    /**
+     * Stop sweeping, the sessions are left as they are
+     */
+    @Override
+    public synchronized void close() {
+        if (ticks != null) {
+            ticks.cancel(false);
+            ticks = null;
+        }
+    }
+}
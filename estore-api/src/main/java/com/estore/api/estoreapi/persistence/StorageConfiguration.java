@@ -0,0 +1,39 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates the DAOs of the storage engine selected with storage.engine
+ *
+ * @author Team H
+ */
+@Configuration
+public class StorageConfiguration {
+    /**
+     * The engine is closed on shutdown, which also writes pending changes of
+     * its DAOs
+     */
+    @Bean(destroyMethod = "close")
+    public StorageEngine storageEngine(@Value("${product.file}") String productFile,
+            @Value("${account.file}") String accountFile, ObjectMapper mapper, StorageProperties properties)
+            throws IOException {
+        return properties.getStorageEngine().open(productFile, accountFile, mapper, properties);
+    }
+
+    // the DAOs are closed by their engine, not by Spring
+    @Bean(destroyMethod = "")
+    public ProductDAO productDAO(StorageEngine storageEngine) {
+        return storageEngine.getProductDAO();
+    }
+
+    @Bean(destroyMethod = "")
+    public AccountDAO accountDAO(StorageEngine storageEngine) {
+        return storageEngine.getAccountDAO();
+    }
+}
@@ -0,0 +1,55 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.Product;
+
+/**
+ * A storage engine provides the product and account DAOs of the application
+ *
+ * The engine is picked with storage.engine, see {@link StorageEngineType}.
+ * Besides the DAOs every engine can replace its whole content while keeping
+ * the ids, which is what {@link StorageMigration} uses to move data between
+ * engines.
+ *
+ * @author Team H
+ */
+public interface StorageEngine extends Closeable {
+    /**
+     * @return the type of the engine
+     */
+    StorageEngineType getType();
+
+    /**
+     * @return the product DAO backed by this engine
+     */
+    ProductDAO getProductDAO();
+
+    /**
+     * @return the account DAO backed by this engine
+     */
+    AccountDAO getAccountDAO();
+
+    /**
+     * Replace every stored product, the ids of the products are kept
+     *
+     * @param products the new products
+     */
+    void replaceProducts(Collection<Product> products) throws IOException;
+
+    /**
+     * Replace every stored account, the ids of the accounts are kept
+     *
+     * @param accounts the new accounts
+     */
+    void replaceAccounts(Collection<Account> accounts) throws IOException;
+
+    /**
+     * Write anything pending and release the engine's files or connections
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,92 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The storage engines that can be selected with storage.engine
+ *
+ * JSON, LOG and MMAP keep the data in product.file and account.file. LOG
+ * appends product changes to a log and MMAP keeps a memory mapped product
+ * snapshot, both on top of the JSON files. JDBC keeps the data in the embedded
+ * database at storage.jdbc.url. MEMORY loads the data files into a private in
+ * memory database and never writes anything back, which is meant for tests
+ * and benchmarks.
+ *
+ * @author Team H
+ */
+public enum StorageEngineType {
+    JSON,
+    LOG,
+    MMAP,
+    JDBC,
+    MEMORY;
+
+    private static final AtomicInteger memoryDatabases = new AtomicInteger();
+
+    /**
+     * Parse an engine name as written in application.properties
+     *
+     * @param name json, log, mmap, jdbc or memory in any case
+     *
+     * @return the engine type
+     */
+    public static StorageEngineType fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Open an engine of this type
+     *
+     * @param productFile the product file, also imported by an empty database
+     * @param accountFile the account file, also imported by an empty database
+     * @param mapper      the JSON mapper
+     * @param properties  the storage settings, LOG and MMAP switch on the
+     *                    product log or snapshot in a copy of them
+     *
+     * @return the open engine
+     */
+    public StorageEngine open(String productFile, String accountFile, ObjectMapper mapper,
+            StorageProperties properties) throws IOException {
+        StorageProperties engineProperties;
+        switch (this) {
+            case LOG:
+                engineProperties = properties.copy();
+                engineProperties.setProductLogEnabled(true);
+                return openFiles(productFile, accountFile, mapper, engineProperties);
+            case MMAP:
+                engineProperties = properties.copy();
+                engineProperties.setProductSnapshotEnabled(true);
+                return openFiles(productFile, accountFile, mapper, engineProperties);
+            case JDBC:
+                return openDatabase(new JdbcStorage(properties.getJdbcUrl(), properties.getJdbcUser(),
+                        properties.getJdbcPassword()), productFile, accountFile, mapper, properties);
+            case MEMORY:
+                // without DB_CLOSE_DELAY the database is dropped once the pool is disposed
+                return openDatabase(new JdbcStorage("jdbc:h2:mem:estore-" + memoryDatabases.incrementAndGet(),
+                        "sa", ""), productFile, accountFile, mapper, properties);
+            default:
+                return openFiles(productFile, accountFile, mapper, properties);
+        }
+    }
+
+    private StorageEngine openFiles(String productFile, String accountFile, ObjectMapper mapper,
+            StorageProperties properties) throws IOException {
+        return new FileStorageEngine(this, new ProductFileDAO(productFile, mapper, properties),
+                new AccountFileDAO(accountFile, mapper, properties));
+    }
+
+    private StorageEngine openDatabase(JdbcStorage storage, String productFile, String accountFile,
+            ObjectMapper mapper, StorageProperties properties) throws IOException {
+        try {
+            return new JdbcStorageEngine(this, storage, new ProductJdbcDAO(storage, mapper, productFile, properties),
+                    new AccountJdbcDAO(storage, mapper, accountFile, properties));
+        } catch (IOException | RuntimeException e) {
+            storage.close();
+            throw e;
+        }
+    }
+}
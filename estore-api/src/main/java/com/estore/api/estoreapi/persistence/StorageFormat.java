@@ -0,0 +1,83 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.Locale;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * On-disk encoding of the product and account files
+ *
+ * JSON is the readable default. SMILE and CBOR are binary encodings of the same
+ * Jackson data model, they drop repeated field names and text framing, so the
+ * files are smaller and faster to parse. The model classes are unchanged.
+ *
+ * @author Team H
+ */
+public enum StorageFormat {
+    JSON(".json"),
+    SMILE(".smile"),
+    CBOR(".cbor");
+
+    private final String extension;
+
+    StorageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * get the file extension of the format, including the dot
+     *
+     * @return the extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parse a format name as written in application.properties
+     *
+     * @param name json, smile or cbor in any case
+     *
+     * @return the format
+     */
+    public static StorageFormat fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the mapper that reads and writes this format
+     *
+     * @param jsonMapper the mapper used for JSON, returned as is for JSON
+     *
+     * @return a mapper with the same Spring defaults for the binary formats
+     */
+    public ObjectMapper mapper(ObjectMapper jsonMapper) {
+        switch (this) {
+            case SMILE:
+                return Jackson2ObjectMapperBuilder.smile().build();
+            case CBOR:
+                return Jackson2ObjectMapperBuilder.cbor().build();
+            default:
+                return jsonMapper;
+        }
+    }
+
+    /**
+     * Get the data file of this format for a configured JSON file name
+     *
+     * @param filename the configured file, for example data/product.json
+     *
+     * @return the file for this format, for example data/product.smile
+     */
+    public String file(String filename) {
+        if (this == JSON) {
+            return filename;
+        }
+        String base = filename.endsWith(JSON.extension)
+                ? filename.substring(0, filename.length() - JSON.extension.length())
+                : filename;
+        return base + extension;
+    }
+}
@@ -0,0 +1,66 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * One-shot conversion of a data file between storage formats
+ *
+ * Run from the estore-api directory with
+ * mvn exec:java -Dexec.mainClass=com.estore.api.estoreapi.persistence.StorageFormatConverter
+ * -Dexec.args="smile data/product.json data/account.json"
+ *
+ * @author Team H
+ */
+public class StorageFormatConverter {
+    private static final Logger LOG = Logger.getLogger(StorageFormatConverter.class.getName());
+
+    private StorageFormatConverter() {
+    }
+
+    /**
+     * Convert a file from one format to another, the source is left in place
+     *
+     * The data is copied as a Jackson tree, so it works for any file the DAOs
+     * write without knowing its model class.
+     *
+     * @param source     the file to read
+     * @param from       the format of the source
+     * @param target     the file to write
+     * @param to         the format of the target
+     * @param jsonMapper the mapper used for the JSON format
+     */
+    public static void convert(File source, StorageFormat from, File target, StorageFormat to,
+            ObjectMapper jsonMapper) throws IOException {
+        JsonNode tree = from.mapper(jsonMapper).readTree(source);
+        File temp = new File(target.getPath() + ".tmp");
+        to.mapper(jsonMapper).writeValue(temp, tree);
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Converted " + source + " (" + source.length() + " bytes) to " + target + " ("
+                + target.length() + " bytes)");
+    }
+
+    /**
+     * Convert JSON data files to the given format
+     *
+     * @param args the target format followed by one or more JSON files
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: StorageFormatConverter json|smile|cbor <file.json>...");
+            System.exit(1);
+        }
+        StorageFormat to = StorageFormat.fromName(args[0]);
+        ObjectMapper jsonMapper = new ObjectMapper();
+        for (int i = 1; i < args.length; i++) {
+            convert(new File(args[i]), StorageFormat.JSON, new File(to.file(args[i])), to, jsonMapper);
+        }
+    }
+}
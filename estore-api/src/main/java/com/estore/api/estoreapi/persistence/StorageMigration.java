@@ -0,0 +1,94 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Copies every product and account from one storage engine to another
+ *
+ * Run from the estore-api directory, with the application stopped, with
+ * mvn exec:java -Dexec.mainClass=com.estore.api.estoreapi.persistence.StorageMigration
+ * -Dexec.args="json jdbc"
+ *
+ * @author Team H
+ */
+public class StorageMigration {
+    private static final Logger LOG = Logger.getLogger(StorageMigration.class.getName());
+
+    private StorageMigration() {
+    }
+
+    /**
+     * Copy the data of one engine into another, replacing what the target held
+     *
+     * The source is read and closed before the target is opened, so both may
+     * use the same data files, for example when moving from json to mmap.
+     * The data is copied in one piece rather than streamed in batches: every
+     * migration has a file engine on one side, which holds all of its
+     * products and accounts in memory and rewrites whole files anyway, so
+     * batching would only add passes without lowering the peak memory.
+     *
+     * @param from             the engine to read
+     * @param to               the engine to write
+     * @param productFile      the product file of the file engines
+     * @param accountFile      the account file of the file engines
+     * @param mapper           the JSON mapper
+     * @param sourceProperties the storage settings of the source
+     * @param targetProperties the storage settings of the target
+     *
+     * @return the number of products and accounts copied
+     */
+    public static int migrate(StorageEngineType from, StorageEngineType to, String productFile,
+            String accountFile, ObjectMapper mapper, StorageProperties sourceProperties,
+            StorageProperties targetProperties) throws IOException {
+        if (to == StorageEngineType.MEMORY) {
+            throw new IllegalArgumentException("the memory engine keeps nothing to migrate to");
+        }
+        List<Product> products;
+        List<Account> accounts;
+        try (StorageEngine source = from.open(productFile, accountFile, mapper, sourceProperties)) {
+            products = Arrays.asList(source.getProductDAO().getProducts());
+            accounts = Arrays.asList(source.getAccountDAO().getAllAccounts());
+        }
+        if (to != StorageEngineType.JDBC) {
+            // a file engine can only open existing files, for example when moving away from jdbc
+            for (String filename : new String[] { productFile, accountFile }) {
+                if (!new File(filename).exists()) {
+                    mapper.writeValue(new File(filename), new Object[0]);
+                }
+            }
+        }
+        try (StorageEngine target = to.open(productFile, accountFile, mapper, targetProperties)) {
+            target.replaceProducts(products);
+            target.replaceAccounts(accounts);
+        }
+        LOG.info("Migrated " + products.size() + " products and " + accounts.size() + " accounts from " + from
+                + " to " + to);
+        return products.size() + accounts.size();
+    }
+
+    /**
+     * Migrate between two engines with the default storage settings
+     *
+     * @param args the source and target engine, optionally followed by the
+     *             product and account file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 4) {
+            System.err.println("usage: StorageMigration <from> <to> [product.json account.json]"
+                    + " where from and to are json, log, mmap or jdbc");
+            System.exit(1);
+        }
+        String productFile = args.length == 4 ? args[2] : "data/product.json";
+        String accountFile = args.length == 4 ? args[3] : "data/account.json";
+        migrate(StorageEngineType.fromName(args[0]), StorageEngineType.fromName(args[1]), productFile,
+                accountFile, new ObjectMapper(), new StorageProperties(), new StorageProperties());
+    }
+}
@@ -0,0 +1,523 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.estore.api.estoreapi.model.AccountSession;
+import com.estore.api.estoreapi.model.ActiveAccountSessions;
+
+/**
+ * Tunable settings for the storage engines, read from application.properties
+ *
+ * The field initializers are the defaults used when a DAO is built outside of
+ * Spring (for example in unit tests)
+ *
+ * @author Team H
+ */
+@Component
+public class StorageProperties implements Cloneable {
+    @Value("${product.log.enabled}")
+    private boolean productLogEnabled = false;
+
+    @Value("${product.log.compact-interval}")
+    private long productLogCompactInterval = 60;
+
+    @Value("${product.log.compact-threshold}")
+    private int productLogCompactThreshold = 1000;
+
+    @Value("${product.snapshot.enabled}")
+    private boolean productSnapshotEnabled = false;
+
+    @Value("${account.write-behind.enabled}")
+    private boolean accountWriteBehindEnabled = false;
+
+    @Value("${account.write-behind.interval}")
+    private long accountWriteBehindInterval = 1000;
+
+    @Value("${account.write-behind.max-changes}")
+    private int accountWriteBehindMaxChanges = 500;
+
+    @Value("${account.write-behind.max-staleness}")
+    private long accountWriteBehindMaxStaleness = 5000;
+
+    @Value("${account.session.idle-timeout}")
+    private long sessionIdleTimeout = 1800;
+
+    @Value("${account.session.absolute-timeout}")
+    private long sessionAbsoluteTimeout = 43200;
+
+    @Value("${account.session.sweep-interval}")
+    private long sessionSweepInterval = 1000;
+
+    @Value("${account.token.enabled}")
+    private boolean sessionTokenEnabled = false;
+
+    @Value("${account.token.secret}")
+    private String sessionTokenSecret = "";
+
+    @Value("${account.token.ttl}")
+    private long sessionTokenTtl = 3600;
+
+    @Value("${account.shards}")
+    private int accountShards = 0;
+
+    @Value("${storage.incremental-save}")
+    private boolean incrementalSave = false;
+
+    @Value("${storage.format}")
+    private String storageFormat = "json";
+
+    @Value("${storage.load-threads}")
+    private int loadThreads = 0;
+
+    @Value("${storage.ids.block-size}")
+    private int idBlockSize = 100;
+
+    @Value("${storage.ids.lease-file}")
+    private boolean idLeaseFile = false;
+
+    @Value("${storage.compression.enabled}")
+    private boolean compressionEnabled = false;
+
+    @Value("${storage.compression.level}")
+    private int compressionLevel = 6;
+
+    @Value("${storage.compression.dictionary-dir}")
+    private String compressionDictionaryDir = "data/dictionaries";
+
+    @Value("${storage.engine}")
+    private String storageEngine = "json";
+
+    @Value("${storage.jdbc.url}")
+    private String jdbcUrl = "jdbc:h2:file:./data/estore";
+
+    @Value("${storage.jdbc.user}")
+    private String jdbcUser = "sa";
+
+    @Value("${storage.jdbc.password}")
+    private String jdbcPassword = "";
+
+    private DictionaryCompression compression;
+
+    /**
+     * Empty StorageProperties constructor, every setting keeps its default
+     */
+    public StorageProperties() {
+    }
+
+    /**
+     * check if product mutations are appended to a log instead of rewriting the
+     * whole product file
+     *
+     * @return true if the product log is enabled
+     */
+    public boolean isProductLogEnabled() {
+        return productLogEnabled;
+    }
+
+    public void setProductLogEnabled(boolean productLogEnabled) {
+        this.productLogEnabled = productLogEnabled;
+    }
+
+    /**
+     * get how often the background compactor folds the product log into the
+     * snapshot
+     *
+     * @return the interval in seconds
+     */
+    public long getProductLogCompactInterval() {
+        return productLogCompactInterval;
+    }
+
+    public void setProductLogCompactInterval(long productLogCompactInterval) {
+        this.productLogCompactInterval = productLogCompactInterval;
+    }
+
+    /**
+     * get the number of log records that triggers a compaction without waiting
+     * for the next interval
+     *
+     * @return the record threshold
+     */
+    public int getProductLogCompactThreshold() {
+        return productLogCompactThreshold;
+    }
+
+    public void setProductLogCompactThreshold(int productLogCompactThreshold) {
+        this.productLogCompactThreshold = productLogCompactThreshold;
+    }
+
+    /**
+     * check if a memory mapped binary snapshot of the product file is kept
+     * for fast startup
+     *
+     * @return true if the snapshot is enabled
+     */
+    public boolean isProductSnapshotEnabled() {
+        return productSnapshotEnabled;
+    }
+
+    public void setProductSnapshotEnabled(boolean productSnapshotEnabled) {
+        this.productSnapshotEnabled = productSnapshotEnabled;
+    }
+
+    /**
+     * check if account changes are written by a background flusher instead of
+     * on every call
+     *
+     * @return true if write-behind is enabled
+     */
+    public boolean isAccountWriteBehindEnabled() {
+        return accountWriteBehindEnabled;
+    }
+
+    public void setAccountWriteBehindEnabled(boolean accountWriteBehindEnabled) {
+        this.accountWriteBehindEnabled = accountWriteBehindEnabled;
+    }
+
+    /**
+     * get how long account changes have to be quiet before they are written
+     *
+     * @return the interval in milliseconds
+     */
+    public long getAccountWriteBehindInterval() {
+        return accountWriteBehindInterval;
+    }
+
+    public void setAccountWriteBehindInterval(long accountWriteBehindInterval) {
+        this.accountWriteBehindInterval = accountWriteBehindInterval;
+    }
+
+    /**
+     * get the number of pending account changes that forces a write
+     *
+     * @return the change limit
+     */
+    public int getAccountWriteBehindMaxChanges() {
+        return accountWriteBehindMaxChanges;
+    }
+
+    public void setAccountWriteBehindMaxChanges(int accountWriteBehindMaxChanges) {
+        this.accountWriteBehindMaxChanges = accountWriteBehindMaxChanges;
+    }
+
+    /**
+     * get the longest an account change may stay unwritten
+     *
+     * @return the staleness bound in milliseconds
+     */
+    public long getAccountWriteBehindMaxStaleness() {
+        return accountWriteBehindMaxStaleness;
+    }
+
+    public void setAccountWriteBehindMaxStaleness(long accountWriteBehindMaxStaleness) {
+        this.accountWriteBehindMaxStaleness = accountWriteBehindMaxStaleness;
+    }
+
+    /**
+     * get how long a session may go unused before it ends
+     *
+     * @return the idle timeout in seconds, 0 for none
+     */
+    public long getSessionIdleTimeout() {
+        return sessionIdleTimeout;
+    }
+
+    public void setSessionIdleTimeout(long sessionIdleTimeout) {
+        this.sessionIdleTimeout = sessionIdleTimeout;
+    }
+
+    /**
+     * get how long a session may last after login however much it is used
+     *
+     * @return the absolute timeout in seconds, 0 for none
+     */
+    public long getSessionAbsoluteTimeout() {
+        return sessionAbsoluteTimeout;
+    }
+
+    public void setSessionAbsoluteTimeout(long sessionAbsoluteTimeout) {
+        this.sessionAbsoluteTimeout = sessionAbsoluteTimeout;
+    }
+
+    /**
+     * get how often expired sessions are looked for
+     *
+     * @return the sweep interval in milliseconds
+     */
+    public long getSessionSweepInterval() {
+        return sessionSweepInterval;
+    }
+
+    public void setSessionSweepInterval(long sessionSweepInterval) {
+        this.sessionSweepInterval = sessionSweepInterval;
+    }
+
+    /**
+     * get whether login hands out signed session tokens that account requests
+     * must carry
+     *
+     * @return true if session tokens are used
+     */
+    public boolean isSessionTokenEnabled() {
+        return sessionTokenEnabled;
+    }
+
+    public void setSessionTokenEnabled(boolean sessionTokenEnabled) {
+        this.sessionTokenEnabled = sessionTokenEnabled;
+    }
+
+    /**
+     * get the key session tokens are signed with, every node behind the same
+     * load balancer needs the same key
+     *
+     * @return the key, empty for a random key per process
+     */
+    public String getSessionTokenSecret() {
+        return sessionTokenSecret;
+    }
+
+    public void setSessionTokenSecret(String sessionTokenSecret) {
+        this.sessionTokenSecret = sessionTokenSecret;
+    }
+
+    /**
+     * get how long a session token is valid after login
+     *
+     * @return the lifetime in seconds
+     */
+    public long getSessionTokenTtl() {
+        return sessionTokenTtl;
+    }
+
+    public void setSessionTokenTtl(long sessionTokenTtl) {
+        this.sessionTokenTtl = sessionTokenTtl;
+    }
+
+    /**
+     * Create the session sweeper of an account DAO
+     *
+     * @param sessions the sessions of the DAO
+     * @param onExpiry called with every session that expired
+     *
+     * @return the sweeper, not started yet, or null if sessions never expire
+     */
+    public SessionSweeper newSessionSweeper(ActiveAccountSessions sessions, Consumer<AccountSession> onExpiry) {
+        if (sessionIdleTimeout <= 0 && sessionAbsoluteTimeout <= 0) {
+            return null;
+        }
+        return new SessionSweeper(sessions, TimeUnit.SECONDS.toMillis(sessionIdleTimeout),
+                TimeUnit.SECONDS.toMillis(sessionAbsoluteTimeout), sessionSweepInterval, onExpiry);
+    }
+
+    /**
+     * get the number of bucket files accounts are spread over, 0 keeps every
+     * account in the single account file
+     *
+     * @return the number of shards
+     */
+    public int getAccountShards() {
+        return accountShards;
+    }
+
+    public void setAccountShards(int accountShards) {
+        this.accountShards = accountShards;
+    }
+
+    /**
+     * check if saves reuse the cached JSON of entities that did not change
+     *
+     * @return true if incremental saves are enabled
+     */
+    public boolean isIncrementalSave() {
+        return incrementalSave;
+    }
+
+    public void setIncrementalSave(boolean incrementalSave) {
+        this.incrementalSave = incrementalSave;
+    }
+
+    /**
+     * get the on-disk encoding of the product and account files
+     *
+     * @return the storage format
+     */
+    public StorageFormat getStorageFormat() {
+        return StorageFormat.fromName(storageFormat);
+    }
+
+    public void setStorageFormat(StorageFormat storageFormat) {
+        this.storageFormat = storageFormat.name();
+    }
+
+    /**
+     * get the number of workers that bind products and accounts while the
+     * data files are streamed on startup
+     *
+     * @return the number of workers, 0 reads each file as one array
+     */
+    public int getLoadThreads() {
+        return loadThreads;
+    }
+
+    public void setLoadThreads(int loadThreads) {
+        this.loadThreads = loadThreads;
+    }
+
+    /**
+     * get the number of ids a product or account DAO leases at a time
+     *
+     * @return the block size
+     */
+    public int getIdBlockSize() {
+        return idBlockSize;
+    }
+
+    public void setIdBlockSize(int idBlockSize) {
+        this.idBlockSize = idBlockSize;
+    }
+
+    /**
+     * check if the file DAOs keep the high-water mark of their leased ids in a
+     * file next to the data file, so ids are never reused across restarts or
+     * instances sharing the data directory
+     *
+     * @return true if leases are persisted
+     */
+    public boolean isIdLeaseFile() {
+        return idLeaseFile;
+    }
+
+    public void setIdLeaseFile(boolean idLeaseFile) {
+        this.idLeaseFile = idLeaseFile;
+    }
+
+    /**
+     * Create the id allocator of a file DAO
+     *
+     * @param filename the data file of the DAO, the lease file is filename + ".ids"
+     * @param floor    one above the highest stored id
+     *
+     * @return the allocator
+     */
+    public IdAllocator newIdAllocator(String filename, long floor) {
+        IdAllocator.LeaseStore store = idLeaseFile ? IdAllocator.file(new File(filename + ".ids"))
+                : IdAllocator.inMemory();
+        return new IdAllocator(store, idBlockSize, floor);
+    }
+
+    /**
+     * check if the product and account files are written with dictionary
+     * compression
+     *
+     * @return true if compression is enabled
+     */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * get the deflate level of compressed files
+     *
+     * @return the level, 1 (fast) to 9 (small)
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * get the directory holding the trained compression dictionaries
+     *
+     * @return the directory
+     */
+    public String getCompressionDictionaryDir() {
+        return compressionDictionaryDir;
+    }
+
+    public void setCompressionDictionaryDir(String compressionDictionaryDir) {
+        this.compressionDictionaryDir = compressionDictionaryDir;
+    }
+
+    /**
+     * get the storage engine the DAOs are created from
+     *
+     * @return the engine type
+     */
+    public StorageEngineType getStorageEngine() {
+        return StorageEngineType.fromName(storageEngine);
+    }
+
+    public void setStorageEngine(StorageEngineType storageEngine) {
+        this.storageEngine = storageEngine.name();
+    }
+
+    /**
+     * get the JDBC url of the database used by the jdbc engine
+     *
+     * @return the url
+     */
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    public void setJdbcUrl(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    public String getJdbcUser() {
+        return jdbcUser;
+    }
+
+    public void setJdbcUser(String jdbcUser) {
+        this.jdbcUser = jdbcUser;
+    }
+
+    public String getJdbcPassword() {
+        return jdbcPassword;
+    }
+
+    public void setJdbcPassword(String jdbcPassword) {
+        this.jdbcPassword = jdbcPassword;
+    }
+
+    /**
+     * copy the settings, so a caller can change some of them without touching
+     * the shared bean. The copy uses the same compression
+     *
+     * @return the copy
+     */
+    public synchronized StorageProperties copy() throws IOException {
+        getCompression();
+        try {
+            return (StorageProperties) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * get the compression shared by every DAO built with these properties, so
+     * a retrained dictionary is used for all data files
+     *
+     * @return the compression, or null if compression is disabled
+     */
+    public synchronized DictionaryCompression getCompression() throws IOException {
+        if (compressionEnabled && compression == null) {
+            compression = new DictionaryCompression(new File(compressionDictionaryDir), compressionLevel);
+        }
+        return compressionEnabled ? compression : null;
+    }
+}
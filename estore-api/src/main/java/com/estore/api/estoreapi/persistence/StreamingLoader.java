@@ -0,0 +1,129 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads a top level array from a data file one element at a time
+ *
+ * The file is walked with a streaming parser on the calling thread, every
+ * element is read as a small tree and handed to a pool of workers that bind
+ * it to the model class and pass it on. The queue between them is bounded, so
+ * only a few unbound elements are held at once and the whole array is never in
+ * memory next to the map it is loaded into.
+ *
+ * @author Team H
+ */
+public class StreamingLoader {
+    // unbound elements queued per worker before the parser blocks
+    private static final int QUEUE_PER_THREAD = 64;
+
+    private StreamingLoader() {
+    }
+
+    /**
+     * Load every element of the array in a file
+     *
+     * @param mapper  the mapper of the file's format
+     * @param file    the file holding a top level array
+     * @param type    the class each element is bound to
+     * @param threads the number of workers, 1 binds on the calling thread
+     * @param sink    receives every element, from several threads at once when
+     *                threads is more than 1
+     * @param <T>     the model class
+     *
+     * @return the number of elements loaded
+     */
+    public static <T> int load(ObjectMapper mapper, File file, Class<T> type, int threads, Consumer<T> sink)
+            throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return load(mapper, in, file.getPath(), type, threads, sink);
+        }
+    }
+
+    /**
+     * Load every element of the array in a stream, for example a decompressed
+     * data file
+     *
+     * @param mapper  the mapper of the stream's format
+     * @param in      the stream holding a top level array, it is not closed
+     * @param source  names the stream in error messages
+     * @param type    the class each element is bound to
+     * @param threads the number of workers, 1 binds on the calling thread
+     * @param sink    receives every element
+     * @param <T>     the model class
+     *
+     * @return the number of elements loaded
+     */
+    public static <T> int load(ObjectMapper mapper, InputStream in, String source, Class<T> type, int threads,
+            Consumer<T> sink) throws IOException {
+        AtomicInteger count = new AtomicInteger();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ThreadPoolExecutor workers = null;
+        if (threads > 1) {
+            AtomicInteger workerNumber = new AtomicInteger();
+            workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), runnable -> {
+                        Thread thread = new Thread(runnable, "streaming-loader-" + workerNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    // a full queue makes the parser bind the element itself instead of reading ahead
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+
+        try (JsonParser parser = mapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException(source + " does not hold an array");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY && failure.get() == null) {
+                TreeNode element = parser.readValueAsTree();
+                Runnable bind = () -> {
+                    try {
+                        sink.accept(mapper.treeToValue(element, type));
+                        count.incrementAndGet();
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                };
+                if (workers == null) {
+                    bind.run();
+                } else {
+                    workers.execute(bind);
+                }
+            }
+        } finally {
+            if (workers != null) {
+                workers.shutdown();
+                try {
+                    workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while loading " + source, e);
+                }
+            }
+        }
+
+        Exception e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e != null) {
+            throw new IOException("Could not load " + source, e);
+        }
+        return count.get();
+    }
+}
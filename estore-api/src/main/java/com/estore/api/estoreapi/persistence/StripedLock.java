@@ -0,0 +1,43 @@
+package com.estore.api.estoreapi.persistence;
+
+/**
+ * A fixed set of lock objects shared out by id
+ *
+ * Operations on the same id always get the same lock, operations on different
+ * ids usually get different ones and run in parallel. Ids that share a stripe
+ * just wait on each other, which is harmless.
+ *
+ * @author Team H
+ */
+public class StripedLock {
+    private final Object[] stripes;
+
+    /**
+     * @param stripeCount the number of locks, rounded up to a power of two
+     */
+    public StripedLock(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * @param id the id of the entity about to change
+     *
+     * @return the object to synchronize on for that id
+     */
+    public Object of(int id) {
+        // spread the bits so that consecutive ids land on different stripes
+        int hash = id * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * @return the number of locks
+     */
+    public int size() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,304 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Suggestion;
+
+/**
+ * Prefix trie over product names for the autocomplete of the search box
+ *
+ * A name is lower-cased, split into words and inserted once for every word
+ * it could be typed from, so "Razer BlackWidow V3" is found by "raz", "razer
+ * bl", "black" and "v3". Every node keeps the ids of its most popular
+ * products, at most {@link #MAX_SUGGESTIONS}, so a lookup only walks the
+ * prefix and copies that list, however many products share the prefix.
+ * Popularity is the number of reviews a product has, ties go to the name and
+ * then the id.
+ *
+ * The index is changed one product at a time by the DAO that owns it.
+ *
+ * @author Team H
+ */
+public class SuggestIndex {
+    /** The most suggestions one lookup can return */
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * A trie node, children are kept in arrays sorted by their character
+     */
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        // ids of the products with a key ending at this node
+        private int[] here = NONE;
+        // the best ids in this subtree, best first
+        private int[] top = NONE;
+
+        private Node child(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            return at < 0 ? null : children[at];
+        }
+
+        private Node childOrCreate(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            if (at >= 0) {
+                return children[at];
+            }
+            at = -at - 1;
+            Node child = new Node();
+            char[] nextLabels = new char[labels.length + 1];
+            Node[] nextChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, nextLabels, 0, at);
+            System.arraycopy(children, 0, nextChildren, 0, at);
+            nextLabels[at] = label;
+            nextChildren[at] = child;
+            System.arraycopy(labels, at, nextLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, nextChildren, at + 1, children.length - at);
+            labels = nextLabels;
+            children = nextChildren;
+            return child;
+        }
+
+        private void removeChild(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            char[] nextLabels = new char[labels.length - 1];
+            Node[] nextChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, nextLabels, 0, at);
+            System.arraycopy(children, 0, nextChildren, 0, at);
+            System.arraycopy(labels, at + 1, nextLabels, at, labels.length - at - 1);
+            System.arraycopy(children, at + 1, nextChildren, at, children.length - at - 1);
+            labels = nextLabels;
+            children = nextChildren;
+        }
+
+        private boolean isEmpty() {
+            return here.length == 0 && children.length == 0;
+        }
+    }
+
+    /**
+     * What the index knows about a product
+     */
+    private static final class Entry {
+        private final String name;
+        private final int popularity;
+        private final List<String> keys;
+
+        private Entry(String name, int popularity, List<String> keys) {
+            this.name = name;
+            this.popularity = popularity;
+            this.keys = keys;
+        }
+    }
+
+    private Node root = new Node();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Comparator<Integer> rank = Comparator
+            .comparingInt((Integer id) -> -entries.get(id).popularity)
+            .thenComparing(id -> entries.get(id).name)
+            .thenComparingInt(id -> id);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replace the whole content of the index
+     *
+     * @param products the products to index
+     */
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            entries.clear();
+            for (Product product : products) {
+                if (product.getName() == null) {
+                    continue;
+                }
+                Entry entry = entry(product);
+                entries.put(product.getId(), entry);
+                for (String key : entry.keys) {
+                    Node node = root;
+                    for (int i = 0; i < key.length(); i++) {
+                        node = node.childOrCreate(key.charAt(i));
+                    }
+                    node.here = append(node.here, product.getId());
+                }
+            }
+            // fill in every top list once instead of after every insert
+            fillTop(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index a new or changed product, nothing happens if neither its name nor
+     * its popularity changed
+     *
+     * @param product the product, replacing any product with the same id
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(product.getId());
+            Entry entry = product.getName() == null ? null : entry(product);
+            if (old != null && entry != null && old.name.equals(entry.name) && old.popularity == entry.popularity) {
+                return;
+            }
+            if (old != null) {
+                delete(product.getId(), old);
+            }
+            if (entry != null) {
+                entries.put(product.getId(), entry);
+                for (String key : entry.keys) {
+                    insert(key, product.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id of a removed product
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(id);
+            if (old != null) {
+                delete(id, old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Suggest products for what was typed so far
+     *
+     * @param prefix the start of a name or of any word in it, ignoring case
+     * @param limit  the most suggestions, at most {@link #MAX_SUGGESTIONS}
+     *
+     * @return the most popular matching products, best first
+     */
+    public Suggestion[] suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return new Suggestion[0];
+            }
+            int count = Math.max(0, Math.min(limit, node.top.length));
+            Suggestion[] suggestions = new Suggestion[count];
+            for (int i = 0; i < count; i++) {
+                suggestions[i] = new Suggestion(node.top[i], entries.get(node.top[i]).name);
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the prefix in the form of the keys, words in lower case joined
+     *         by single spaces, with a trailing space if a word was finished
+     */
+    static String normalize(String prefix) {
+        List<String> words = ProductSearchIndex.tokenize(prefix);
+        String key = String.join(" ", words);
+        if (!words.isEmpty() && !Character.isLetterOrDigit(prefix.charAt(prefix.length() - 1))) {
+            key += " ";
+        }
+        return key;
+    }
+
+    private static Entry entry(Product product) {
+        List<String> words = ProductSearchIndex.tokenize(product.getName());
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            keys.add(String.join(" ", words.subList(i, words.size())));
+        }
+        return new Entry(product.getName(), product.getReviews().size(), new ArrayList<>(keys));
+    }
+
+    private void insert(String key, int id) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].childOrCreate(key.charAt(i));
+        }
+        path[key.length()].here = append(path[key.length()].here, id);
+        for (int i = key.length(); i >= 0; i--) {
+            path[i].top = top(path[i]);
+        }
+    }
+
+    private void delete(int id, Entry old) {
+        // top lists not recomputed yet skip the id once it has no entry; the
+        // nodes shared by several keys are recomputed again with the last key
+        entries.remove(id);
+        for (String key : old.keys) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].child(key.charAt(i));
+            }
+            Node end = path[key.length()];
+            end.here = Arrays.stream(end.here).filter(other -> other != id).toArray();
+            for (int i = key.length(); i >= 0; i--) {
+                if (i > 0 && path[i].isEmpty()) {
+                    path[i - 1].removeChild(key.charAt(i - 1));
+                } else {
+                    path[i].top = top(path[i]);
+                }
+            }
+        }
+    }
+
+    private void fillTop(Node node) {
+        for (Node child : node.children) {
+            fillTop(child);
+        }
+        node.top = top(node);
+    }
+
+    /**
+     * @return the best ids of the products ending at the node or in the top
+     *         lists of its children
+     */
+    private int[] top(Node node) {
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for (int id : node.here) {
+            candidates.add(id);
+        }
+        for (Node child : node.children) {
+            for (int id : child.top) {
+                candidates.add(id);
+            }
+        }
+        return candidates.stream().filter(entries::containsKey).sorted(rank).limit(MAX_SUGGESTIONS).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] append(int[] ids, int id) {
+        int[] next = Arrays.copyOf(ids, ids.length + 1);
+        next[ids.length] = id;
+        return next;
+    }
+}
@@ -0,0 +1,108 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel holding items until their deadline
+ *
+ * The wheel has a fixed number of slots of tick milliseconds each, an item is
+ * put into the slot its deadline falls into. Advancing the wheel only visits
+ * the slots that elapsed, so scheduling is O(1) and each tick only costs the
+ * items of one slot, however many items there are. Deadlines further away
+ * than one turn of the wheel stay in their slot until the turn they are due.
+ *
+ * @param <T> the items
+ *
+ * @author Team H
+ */
+public class TimingWheel<T> {
+    private static class Entry<T> {
+        final T item;
+        final long deadline;
+
+        Entry(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> slots;
+    // the start of the next slot to expire, slots before it are done
+    private long cursor;
+    private int size;
+
+    /**
+     * Create an empty wheel
+     *
+     * @param tickMillis the time covered by one slot
+     * @param slotCount  the number of slots, one turn is tickMillis * slotCount
+     * @param now        the current time in milliseconds
+     */
+    public TimingWheel(long tickMillis, int slotCount, long now) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.cursor = now - Math.floorMod(now, tickMillis);
+    }
+
+    private List<Entry<T>> slotOf(long time) {
+        return slots.get((int) Math.floorMod(Math.floorDiv(time, tickMillis), (long) slots.size()));
+    }
+
+    /**
+     * Hold an item until its deadline, a deadline in the past is due on the
+     * next tick
+     *
+     * @param item     the item
+     * @param deadline the time in milliseconds the item is due
+     */
+    public synchronized void schedule(T item, long deadline) {
+        slotOf(Math.max(deadline, cursor)).add(new Entry<>(item, deadline));
+        size++;
+    }
+
+    /**
+     * Move the wheel forward to the current time
+     *
+     * @param now the current time in milliseconds
+     *
+     * @return the items that are due, they are no longer held
+     */
+    public synchronized List<T> advance(long now) {
+        List<T> due = new ArrayList<>();
+        long elapsed = Math.floorDiv(now - cursor, tickMillis);
+        // after a long pause every slot is visited once instead of once per missed tick
+        long visits = Math.min(elapsed, slots.size());
+        for (long i = 0; i < visits; i++) {
+            List<Entry<T>> slot = slotOf(cursor + i * tickMillis);
+            List<Entry<T>> remaining = new ArrayList<>();
+            for (Entry<T> entry : slot) {
+                if (entry.deadline <= now) {
+                    due.add(entry.item);
+                } else {
+                    remaining.add(entry);
+                }
+            }
+            if (remaining.size() != slot.size()) {
+                slot.clear();
+                slot.addAll(remaining);
+            }
+        }
+        if (elapsed > 0) {
+            cursor += elapsed * tickMillis;
+        }
+        size -= due.size();
+        return due;
+    }
+
+    /**
+     * @return the number of items held
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,30 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a conditional update when the stored object has moved on from the
+ * version the caller last saw, so applying the update would lose the other
+ * change
+ *
+ * @author Team H
+ */
+public class VersionConflictException extends IOException {
+    private final long currentVersion;
+
+    /**
+     * @param expectedVersion the version the caller based its update on
+     * @param currentVersion  the version that is stored now
+     */
+    public VersionConflictException(long expectedVersion, long currentVersion) {
+        super("expected version " + expectedVersion + " but found " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * @return the version that is stored now
+     */
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,188 @@
+package com.estore.api.estoreapi.persistence;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces many "store is dirty" signals into few writes
+ *
+ * A single background thread runs the flush action once changes have been
+ * quiet for the flush interval, as soon as the number of pending changes
+ * reaches the change limit, or when the oldest unflushed change reaches the
+ * max staleness, whichever comes first.
+ *
+ * @author Team H
+ */
+public class WriteBehindFlusher {
+    private static final Logger LOG = Logger.getLogger(WriteBehindFlusher.class.getName());
+
+    /**
+     * The write that persists the whole store
+     */
+    public interface FlushAction {
+        void flush() throws IOException;
+    }
+
+    private final FlushAction action;
+    private final long intervalNanos;
+    private final int maxChanges;
+    private final long maxStalenessNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Object flushLock = new Object();
+    private final Thread thread;
+
+    private int pendingChanges;
+    private long firstChangeAt;
+    private long lastChangeAt;
+    private boolean closed;
+
+    /**
+     * Create and start a flusher
+     *
+     * @param name         name of the background thread
+     * @param action       the write to run
+     * @param interval     quiet period in milliseconds before pending changes are
+     *                     written
+     * @param maxChanges   number of pending changes that forces a write
+     * @param maxStaleness age in milliseconds of the oldest pending change that
+     *                     forces a write
+     */
+    public WriteBehindFlusher(String name, FlushAction action, long interval, int maxChanges, long maxStaleness) {
+        this.action = action;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        this.maxChanges = Math.max(1, maxChanges);
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleness);
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Record that the store changed and has to be written eventually
+     */
+    public void markDirty() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (pendingChanges == 0) {
+                firstChangeAt = now;
+            }
+            lastChangeAt = now;
+            pendingChanges++;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of changes not yet written
+     */
+    public int getPendingChanges() {
+        lock.lock();
+        try {
+            return pendingChanges;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write pending changes right away on the calling thread
+     */
+    public void flush() throws IOException {
+        int taken;
+        lock.lock();
+        try {
+            taken = pendingChanges;
+            pendingChanges = 0;
+        } finally {
+            lock.unlock();
+        }
+        if (taken > 0) {
+            write(taken);
+        }
+    }
+
+    /**
+     * Stop the background thread and write whatever is still pending
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void run() {
+        while (true) {
+            int taken;
+            lock.lock();
+            try {
+                while (pendingChanges == 0 && !closed) {
+                    changed.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                if (pendingChanges < maxChanges) {
+                    long deadline = Math.min(lastChangeAt + intervalNanos, firstChangeAt + maxStalenessNanos);
+                    long wait = deadline - System.nanoTime();
+                    if (wait > 0) {
+                        changed.awaitNanos(wait);
+                        continue;
+                    }
+                }
+                taken = pendingChanges;
+                pendingChanges = 0;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                write(taken);
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Write-behind flush failed, will retry", e);
+            }
+        }
+    }
+
+    /**
+     * Run the flush action, putting the changes back as pending if it fails
+     */
+    private void write(int taken) throws IOException {
+        synchronized (flushLock) {
+            try {
+                action.flush();
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    if (pendingChanges == 0) {
+                        firstChangeAt = System.nanoTime();
+                        lastChangeAt = firstChangeAt;
+                    }
+                    pendingChanges += taken;
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+        }
+    }
+}
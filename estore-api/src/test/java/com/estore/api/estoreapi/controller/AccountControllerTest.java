@@ -1,20 +1,28 @@
 package com.estore.api.estoreapi.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.autoconfigure.couchbase.CouchbaseProperties.Io;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
 
 import com.estore.api.estoreapi.model.Account;
 import com.estore.api.estoreapi.model.Color;
@@ -22,8 +30,13 @@ import com.estore.api.estoreapi.model.Keyboard;
 import com.estore.api.estoreapi.model.Payment;
 import com.estore.api.estoreapi.model.Address;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.SessionToken;
 import com.estore.api.estoreapi.model.ShoppingCart;
 import com.estore.api.estoreapi.persistence.AccountDAO;
+import com.estore.api.estoreapi.persistence.AccountFileDAO;
+import com.estore.api.estoreapi.persistence.StorageProperties;
+import com.estore.api.estoreapi.persistence.VersionConflictException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Tag("Controller-tier")
 public class AccountControllerTest{
@@ -155,7 +168,7 @@ public class AccountControllerTest{
         when(mockAccountDAO.updateAccount(account)).thenReturn(account);
 
         //Invoke
-        ResponseEntity<Account> response = accountController.updateAccount(account);
+        ResponseEntity<Account> response = accountController.updateAccount(account, null, null);
 
         //Analyze
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -166,7 +179,7 @@ public class AccountControllerTest{
         //Setup
         Account account = new Account("jw123", "bb@gmail.com", "password", "John", "Wayne", 100, "");
         //Invoke
-        ResponseEntity<Account> response = accountController.updateAccount(null);
+        ResponseEntity<Account> response = accountController.updateAccount(null, null, null);
 
         //Analyze
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -181,7 +194,7 @@ public class AccountControllerTest{
         doThrow(new IOException()).when(mockAccountDAO).updateAccount(account);
 
         //Invoke
-        ResponseEntity<Account> response = accountController.updateAccount(account);
+        ResponseEntity<Account> response = accountController.updateAccount(account, null, null);
         
         //Analyze
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
@@ -246,6 +259,84 @@ public class AccountControllerTest{
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
+    @Test
+    public void testLoginIssuesSessionToken() throws IOException{
+        //Setup
+        StorageProperties properties = new StorageProperties();
+        properties.setSessionTokenEnabled(true);
+        properties.setSessionTokenSecret("secret");
+        SessionTokens sessionTokens = new SessionTokens(properties);
+        accountController = new AccountController(mockAccountDAO, sessionTokens);
+        Account account = new Account("jw123", "bb@gmail.com", "password", "John", "Wayne", 100, "");
+        account.setSessionID(7);
+        when(mockAccountDAO.loginAccount(account.getUsername(), account.getPassword())).thenReturn(account);
+
+        //Invoke
+        ResponseEntity<Account> response = accountController.loginAccount(account.getUsername(), account.getPassword());
+
+        //Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        SessionToken token = sessionTokens.verify(
+                response.getHeaders().getFirst(AccountController.SESSION_TOKEN_HEADER), System.currentTimeMillis());
+        assertEquals(100, token.getAccountID());
+        assertEquals(7, token.getSessionID());
+    }
+
+    private SessionTokens enabledSessionTokens() {
+        StorageProperties properties = new StorageProperties();
+        properties.setSessionTokenEnabled(true);
+        properties.setSessionTokenSecret("secret");
+        return new SessionTokens(properties);
+    }
+
+    @Test
+    public void testSignupThenAuthenticatedCall(@TempDir File tempDir) throws IOException{
+        //Setup: a real DAO, signing up logs in and the token opens the cart
+        ObjectMapper mapper = new ObjectMapper();
+        File file = new File(tempDir, "account.json");
+        mapper.writeValue(file, new Account[0]);
+        AccountDAO accountDAO = new AccountFileDAO(file.getPath(), mapper);
+        SessionTokens sessionTokens = enabledSessionTokens();
+        accountController = new AccountController(accountDAO, sessionTokens);
+        SessionTokenInterceptor interceptor = new SessionTokenInterceptor(sessionTokens, accountDAO);
+
+        //Invoke
+        ResponseEntity<Account> created = accountController.createAccount(
+                new Account("jw123", "bb@gmail.com", "password", "John", "Wayne", 0, ""));
+        String token = created.getHeaders().getFirst(AccountController.SESSION_TOKEN_HEADER);
+        int id = created.getBody().getId();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/account/cart/" + id);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", String.valueOf(id)));
+        request.addHeader("Authorization", "Bearer " + token);
+
+        //Analyze
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertNotNull(token);
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+        assertEquals(HttpStatus.OK, accountController.getShoppingCart(id).getStatusCode());
+    }
+
+    @Test
+    public void testUpdateOfAnotherAccount() throws IOException{
+        //Setup
+        SessionTokens sessionTokens = enabledSessionTokens();
+        accountController = new AccountController(mockAccountDAO, sessionTokens);
+        Account user = new Account("jw123", "bb@gmail.com", "password", "John", "Wayne", 100, "");
+        Account admin = new Account("admin", "admin@gmail.com", "1234", "ad", "admin", 1, "");
+        Account other = new Account("av456", "cc@gmail.com", "password", "Anna", "Vi", 70, "");
+        when(mockAccountDAO.getAccountById(100)).thenReturn(user);
+        when(mockAccountDAO.getAccountById(1)).thenReturn(admin);
+        when(mockAccountDAO.updateAccount(other)).thenReturn(other);
+
+        //Invoke
+        ResponseEntity<Account> byUser = accountController.updateAccount(other, null, new SessionToken(100, 7, 0, 0));
+        ResponseEntity<Account> byAdmin = accountController.updateAccount(other, null, new SessionToken(1, 8, 0, 0));
+
+        //Analyze
+        assertEquals(HttpStatus.FORBIDDEN, byUser.getStatusCode());
+        assertEquals(HttpStatus.OK, byAdmin.getStatusCode());
+    }
+
     @Test
     public void testLoginFailed() throws IOException{
         //Setup
@@ -857,4 +948,17 @@ public class AccountControllerTest{
         //Analyze
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUpdateAccountIfMatchConflict() throws IOException {
+        // Setup
+        Account account = new Account("admin", "admin@gmail.com", "1234", "ad", "admin", 1, "");
+        doThrow(new VersionConflictException(2, 3)).when(mockAccountDAO).updateAccount(account, 2);
+
+        // Invoke
+        ResponseEntity<Account> response = accountController.updateAccount(account, "\"2\"", null);
+
+        // Analyze
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+    }
+}
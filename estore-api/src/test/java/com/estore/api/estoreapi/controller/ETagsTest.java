@@ -0,0 +1,37 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.persistence.ProductDAO;
+
+/**
+ * Test the ETags helper
+ * 
+ * @author Team H
+ */
+@Tag("Controller-tier")
+public class ETagsTest {
+    @Test
+    public void testRoundTrip() {
+        assertEquals("\"7\"", ETags.of(7));
+        assertEquals(7, ETags.parseIfMatch(ETags.of(7)));
+        assertEquals(7, ETags.parseIfMatch(" \"7\" "));
+    }
+
+    @Test
+    public void testAnyVersion() {
+        assertEquals(ProductDAO.ANY_VERSION, ETags.parseIfMatch("*"));
+    }
+
+    @Test
+    public void testUnreadableNeverMatches() {
+        assertEquals(ETags.NO_VERSION, ETags.parseIfMatch("7"));
+        assertEquals(ETags.NO_VERSION, ETags.parseIfMatch("W/\"7\""));
+        assertEquals(ETags.NO_VERSION, ETags.parseIfMatch("\"seven\""));
+        assertEquals(ETags.NO_VERSION, ETags.parseIfMatch("\"-3\""));
+        assertEquals(ETags.NO_VERSION, ETags.parseIfMatch("\""));
+    }
+}
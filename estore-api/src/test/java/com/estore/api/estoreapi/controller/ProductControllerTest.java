@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -21,10 +22,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.FacetResult;
 import com.estore.api.estoreapi.model.Mouse;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductPage;
+import com.estore.api.estoreapi.model.ProductType;
 import com.estore.api.estoreapi.model.Review;
+import com.estore.api.estoreapi.model.SearchHit;
+import com.estore.api.estoreapi.model.SearchPage;
+import com.estore.api.estoreapi.model.Suggestion;
 import com.estore.api.estoreapi.persistence.ProductDAO;
+import com.estore.api.estoreapi.persistence.VersionConflictException;
 
 /**
  * Test the Product Controller class
@@ -164,11 +172,12 @@ public class ProductControllerTest {
                                                                     // simulating successful
         // update and save
         when(mockProductDAO.updateProduct(mos)).thenReturn(mos);
-        ResponseEntity<Product> response = productController.updateProduct(mos);
-        mos.setName("Bolt");
+        ResponseEntity<Product> response = productController.updateProduct(mos, null);
+        mos = (Mouse) mos.withName("Bolt");
+        when(mockProductDAO.updateProduct(mos)).thenReturn(mos);
 
         // Invoke
-        response = productController.updateProduct(mos);
+        response = productController.updateProduct(mos, null);
 
         // Analyze
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -187,7 +196,7 @@ public class ProductControllerTest {
         when(mockProductDAO.updateProduct(mos)).thenReturn(null);
 
         // Invoke
-        ResponseEntity<Product> response = productController.updateProduct(mos);
+        ResponseEntity<Product> response = productController.updateProduct(mos, null);
 
         // Analyze
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -204,7 +213,7 @@ public class ProductControllerTest {
         doThrow(new IOException()).when(mockProductDAO).updateProduct(mos);
 
         // Invoke
-        ResponseEntity<Product> response = productController.updateProduct(mos);
+        ResponseEntity<Product> response = productController.updateProduct(mos, null);
 
         // Analyze
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
@@ -279,6 +288,128 @@ public class ProductControllerTest {
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
 
+    @Test
+    public void testSearchProductsRanked() throws IOException {
+        Product mouse = new Mouse(7, new ArrayList<>(), "Razer Mouse", 0, 0, null);
+        SearchPage page = new SearchPage(new SearchHit[] { new SearchHit(mouse, 1.5) }, 3, 1, 1);
+        when(mockProductDAO.searchProducts("razr", 1, 1)).thenReturn(page);
+
+        ResponseEntity<SearchPage> response = productController.searchProducts("razr", 1, 1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(page, response.getBody());
+    }
+
+    @Test
+    public void testSearchProductsBadPage() {
+        assertEquals(HttpStatus.BAD_REQUEST, productController.searchProducts("razr", -1, 20).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, productController.searchProducts("razr", 0, 0).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, productController.searchProducts("razr", 0, 101).getStatusCode());
+    }
+
+    @Test
+    public void testSearchProductsHandleException() throws IOException {
+        doThrow(new IOException()).when(mockProductDAO).searchProducts("razr", 0, 20);
+
+        ResponseEntity<SearchPage> response = productController.searchProducts("razr", 0, 20);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    public void testFilterProducts() throws IOException {
+        Product mouse = new Mouse(7, new ArrayList<>(), "Razer Mouse", 3, 0, null);
+        FacetResult result = new FacetResult(new Product[] { mouse }, Map.of(ProductType.MOUSE, 1),
+                Map.of("Black", 1), 1, 0);
+        when(mockProductDAO.filterProducts(List.of(ProductType.MOUSE), List.of("Black"), true)).thenReturn(result);
+
+        ResponseEntity<FacetResult> response = productController.filterProducts(List.of(ProductType.MOUSE),
+                List.of("Black"), true);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    @Test
+    public void testFilterProductsHandleException() throws IOException {
+        doThrow(new IOException()).when(mockProductDAO).filterProducts(null, null, null);
+
+        ResponseEntity<FacetResult> response = productController.filterProducts(null, null, null);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    public void testGetProductsByPrice() throws IOException {
+        Product mouse = new Mouse(7, new ArrayList<>(), "Razer Mouse", 3, 60, null);
+        ProductPage page = new ProductPage(new Product[] { mouse }, 1, 0, 20);
+        when(mockProductDAO.getProductsByPrice(ProductType.MOUSE, 50, 120, true, 0, 20)).thenReturn(page);
+
+        ResponseEntity<ProductPage> response = productController.getProductsByPrice(ProductType.MOUSE, 50.0, 120.0,
+                "DESC", 0, 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(page, response.getBody());
+    }
+
+    @Test
+    public void testGetProductsByPriceOpenRange() throws IOException {
+        ProductPage page = new ProductPage(new Product[0], 0, 2, 10);
+        when(mockProductDAO.getProductsByPrice(null, -Double.MAX_VALUE, Double.MAX_VALUE, false, 2, 10))
+                .thenReturn(page);
+
+        ResponseEntity<ProductPage> response = productController.getProductsByPrice(null, null, null, "asc", 2, 10);
+
+        assertEquals(page, response.getBody());
+    }
+
+    @Test
+    public void testGetProductsByPriceBadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST,
+                productController.getProductsByPrice(null, 10.0, 5.0, "asc", 0, 20).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                productController.getProductsByPrice(null, null, null, "cheapest", 0, 20).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                productController.getProductsByPrice(null, null, null, "asc", -1, 20).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                productController.getProductsByPrice(null, null, null, "asc", 0, 101).getStatusCode());
+    }
+
+    @Test
+    public void testGetProductsByPriceHandleException() throws IOException {
+        doThrow(new IOException()).when(mockProductDAO).getProductsByPrice(null, 1, 2, false, 0, 20);
+
+        ResponseEntity<ProductPage> response = productController.getProductsByPrice(null, 1.0, 2.0, "asc", 0, 20);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    public void testSuggestProducts() throws IOException {
+        Suggestion[] suggestions = { new Suggestion(7, "Razer Mouse"), new Suggestion(3, "Razer Keyboard") };
+        when(mockProductDAO.suggestProducts("raz", 5)).thenReturn(suggestions);
+
+        ResponseEntity<Suggestion[]> response = productController.suggestProducts("raz", 5);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(suggestions, response.getBody());
+    }
+
+    @Test
+    public void testSuggestProductsBadLimit() {
+        assertEquals(HttpStatus.BAD_REQUEST, productController.suggestProducts("raz", 0).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, productController.suggestProducts("raz", 11).getStatusCode());
+    }
+
+    @Test
+    public void testSuggestProductsHandleException() throws IOException {
+        doThrow(new IOException()).when(mockProductDAO).suggestProducts("raz", 10);
+
+        ResponseEntity<Suggestion[]> response = productController.suggestProducts("raz", 10);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
     @Test
     public void testDeleteProduct() throws IOException { // deleteProduct may throw IOException
         // Setup
@@ -688,4 +819,31 @@ public class ProductControllerTest {
         // Analyze
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
+
+    @Test
+    public void testUpdateProductIfMatch() throws IOException {
+        // Setup
+        Product mos = new Mouse(99, new ArrayList<Color>(), "red snake", 0, 0, null);
+        when(mockProductDAO.updateProduct(mos, 3)).thenReturn(mos.withVersion(4));
+
+        // Invoke
+        ResponseEntity<Product> response = productController.updateProduct(mos, "\"3\"");
+
+        // Analyze
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    public void testUpdateProductIfMatchConflict() throws IOException {
+        // Setup
+        Product mos = new Mouse(99, new ArrayList<Color>(), "red snake", 0, 0, null);
+        doThrow(new VersionConflictException(3, 5)).when(mockProductDAO).updateProduct(mos, 3);
+
+        // Invoke
+        ResponseEntity<Product> response = productController.updateProduct(mos, "\"3\"");
+
+        // Analyze
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+    }
 }
@@ -0,0 +1,158 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.SessionToken;
+import com.estore.api.estoreapi.persistence.AccountDAO;
+import com.estore.api.estoreapi.persistence.StorageProperties;
+
+@Tag("Controller-tier")
+public class SessionTokenInterceptorTest {
+    private SessionTokens sessionTokens;
+    private AccountDAO mockAccountDAO;
+    private SessionTokenInterceptor interceptor;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    public void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setSessionTokenEnabled(true);
+        properties.setSessionTokenSecret("secret");
+        sessionTokens = new SessionTokens(properties);
+        mockAccountDAO = mock(AccountDAO.class);
+        interceptor = new SessionTokenInterceptor(sessionTokens, mockAccountDAO);
+        response = new MockHttpServletResponse();
+    }
+
+    private MockHttpServletRequest request(String path, String id, String token) {
+        return request("GET", path, id, token);
+    }
+
+    private MockHttpServletRequest request(String method, String path, String id, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                id == null ? Map.of() : Map.of("id", id));
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    @Test
+    public void testValidToken() throws IOException {
+        String token = sessionTokens.issue(4, 123, System.currentTimeMillis());
+        when(mockAccountDAO.resumeSession(any(SessionToken.class))).thenReturn(true);
+
+        assertTrue(interceptor.preHandle(request("/account/cart/4", "4", token), response, null));
+        assertTrue(interceptor.preHandle(request("/account/current/123", "123", token), response, null));
+    }
+
+    @Test
+    public void testMissingToken() throws IOException {
+        assertFalse(interceptor.preHandle(request("/account/cart/4", "4", null), response, null));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        verify(mockAccountDAO, never()).resumeSession(any(SessionToken.class));
+    }
+
+    @Test
+    public void testAccountChangesNeedToken() throws IOException {
+        String token = sessionTokens.issue(4, 123, System.currentTimeMillis());
+        when(mockAccountDAO.resumeSession(any(SessionToken.class))).thenReturn(true);
+
+        assertTrue(interceptor.preHandle(request("POST", "/account/update", null, token), response, null));
+        assertTrue(interceptor.preHandle(request("GET", "/account/logout", null, token), response, null));
+        assertTrue(interceptor.preHandle(request("DELETE", "/account/4", "4", token), response, null));
+        verify(mockAccountDAO, times(3)).resumeSession(any(SessionToken.class));
+
+        for (MockHttpServletRequest request : new MockHttpServletRequest[] {
+                request("POST", "/account/update", null, null), request("GET", "/account/logout", null, null),
+                request("DELETE", "/account/4", "4", null) }) {
+            MockHttpServletResponse denied = new MockHttpServletResponse();
+            assertFalse(interceptor.preHandle(request, denied, null));
+            assertEquals(HttpStatus.UNAUTHORIZED.value(), denied.getStatus());
+        }
+    }
+
+    @Test
+    public void testDeleteOfAnotherAccount() throws IOException {
+        String token = sessionTokens.issue(4, 123, System.currentTimeMillis());
+
+        assertFalse(interceptor.preHandle(request("DELETE", "/account/5", "5", token), response, null));
+        assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+    }
+
+    @Test
+    public void testLogoutOfAnotherAccount() throws IOException {
+        String token = sessionTokens.issue(4, 123, System.currentTimeMillis());
+        when(mockAccountDAO.getAccountById(4)).thenReturn(new Account("user4", "", "", "", "", 4, ""));
+        when(mockAccountDAO.resumeSession(any(SessionToken.class))).thenReturn(true);
+        MockHttpServletRequest own = request("GET", "/account/logout", null, token);
+        own.setParameter("username", "user4");
+        MockHttpServletRequest other = request("GET", "/account/logout", null, token);
+        other.setParameter("username", "user5");
+
+        assertTrue(interceptor.preHandle(own, response, null));
+        assertEquals(sessionTokens.verify(token, System.currentTimeMillis()).getAccountID(),
+                ((SessionToken) own.getAttribute(SessionTokenInterceptor.TOKEN_ATTRIBUTE)).getAccountID());
+        assertFalse(interceptor.preHandle(other, response, null));
+        assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+    }
+
+    @Test
+    public void testAdminActsForOtherAccounts() throws IOException {
+        String token = sessionTokens.issue(1, 123, System.currentTimeMillis());
+        when(mockAccountDAO.getAccountById(1)).thenReturn(new Account("admin", "", "", "", "", 1, ""));
+        when(mockAccountDAO.resumeSession(any(SessionToken.class))).thenReturn(true);
+        MockHttpServletRequest logout = request("GET", "/account/logout", null, token);
+        logout.setParameter("username", "user5");
+
+        assertTrue(interceptor.preHandle(request("DELETE", "/account/5", "5", token), response, null));
+        assertTrue(interceptor.preHandle(request("/account/cart/5", "5", token), response, null));
+        assertTrue(interceptor.preHandle(logout, response, null));
+    }
+
+    @Test
+    public void testOpenEndpoints() throws IOException {
+        assertTrue(interceptor.preHandle(request("GET", "/account/login", null, null), response, null));
+        assertTrue(interceptor.preHandle(request("POST", "/account/create", null, null), response, null));
+        assertTrue(interceptor.preHandle(request("GET", "/account/4", "4", null), response, null));
+        verify(mockAccountDAO, never()).resumeSession(any(SessionToken.class));
+    }
+
+    @Test
+    public void testTokenOfAnotherAccount() throws IOException {
+        String token = sessionTokens.issue(4, 123, System.currentTimeMillis());
+
+        assertFalse(interceptor.preHandle(request("/account/cart/5", "5", token), response, null));
+        assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+    }
+
+    @Test
+    public void testLoggedOutSession() throws IOException {
+        String token = sessionTokens.issue(4, 123, System.currentTimeMillis());
+        when(mockAccountDAO.resumeSession(any(SessionToken.class))).thenReturn(false);
+
+        assertFalse(interceptor.preHandle(request("/account/cart/4", "4", token), response, null));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    }
+}
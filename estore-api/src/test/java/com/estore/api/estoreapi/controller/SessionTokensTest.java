@@ -0,0 +1,71 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.SessionToken;
+import com.estore.api.estoreapi.persistence.StorageProperties;
+
+@Tag("Controller-tier")
+public class SessionTokensTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private StorageProperties properties;
+    private SessionTokens sessionTokens;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new StorageProperties();
+        properties.setSessionTokenEnabled(true);
+        properties.setSessionTokenSecret("shared secret");
+        properties.setSessionTokenTtl(60);
+        sessionTokens = new SessionTokens(properties);
+    }
+
+    @Test
+    public void testIssuedTokenVerifies() {
+        SessionToken token = sessionTokens.verify(sessionTokens.issue(4, 123, NOW), NOW);
+
+        assertEquals(4, token.getAccountID());
+        assertEquals(123, token.getSessionID());
+        assertEquals(NOW, token.getIssuedAt());
+        assertEquals(NOW / 1000 + 60, token.getExpiresAt());
+    }
+
+    @Test
+    public void testOtherNodeWithSameSecretVerifies() {
+        String token = sessionTokens.issue(4, 123, NOW);
+
+        assertNotNull(new SessionTokens(properties).verify(token, NOW));
+        properties.setSessionTokenSecret("another secret");
+        assertNull(new SessionTokens(properties).verify(token, NOW));
+    }
+
+    @Test
+    public void testExpiredToken() {
+        String token = sessionTokens.issue(4, 123, NOW);
+
+        assertNotNull(sessionTokens.verify(token, NOW + 59_000));
+        assertNull(sessionTokens.verify(token, NOW + 60_000));
+    }
+
+    @Test
+    public void testTamperedToken() {
+        String token = sessionTokens.issue(4, 123, NOW);
+        String signature = token.substring(token.indexOf('.'));
+        // the same signature on a payload naming another account
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("5.123." + (NOW / 1000 + 60)).getBytes()) + signature;
+
+        assertNull(sessionTokens.verify(forged, NOW));
+        assertNull(sessionTokens.verify("not a token", NOW));
+        assertNull(sessionTokens.verify("a.b", NOW));
+        assertNull(sessionTokens.verify(null, NOW));
+    }
+}
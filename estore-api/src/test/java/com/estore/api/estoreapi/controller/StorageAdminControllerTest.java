@@ -0,0 +1,75 @@
+package com.estore.api.estoreapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.estore.api.estoreapi.persistence.AccountDAO;
+import com.estore.api.estoreapi.persistence.AccountFileDAO;
+import com.estore.api.estoreapi.persistence.ProductDAO;
+import com.estore.api.estoreapi.persistence.ProductFileDAO;
+
+@Tag("Controller-tier")
+public class StorageAdminControllerTest {
+    private StorageAdminController storageAdminController;
+    private ProductFileDAO mockProductDAO;
+    private AccountFileDAO mockAccountDAO;
+
+    @BeforeEach
+    public void setupStorageAdminController() {
+        mockProductDAO = mock(ProductFileDAO.class);
+        mockAccountDAO = mock(AccountFileDAO.class);
+        storageAdminController = new StorageAdminController(mockProductDAO, mockAccountDAO);
+    }
+
+    @Test
+    public void testRetrainDictionary() throws IOException {
+        when(mockProductDAO.retrainDictionary()).thenReturn(42);
+
+        ResponseEntity<Integer> response = storageAdminController.retrainDictionary();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(42, response.getBody());
+        verify(mockAccountDAO).rewriteAccounts();
+    }
+
+    @Test
+    public void testRetrainDictionaryDisabled() throws IOException {
+        when(mockProductDAO.retrainDictionary()).thenThrow(new IllegalStateException());
+
+        ResponseEntity<Integer> response = storageAdminController.retrainDictionary();
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        verify(mockAccountDAO, never()).rewriteAccounts();
+    }
+
+    @Test
+    public void testRetrainDictionaryHandleException() throws IOException {
+        when(mockProductDAO.retrainDictionary()).thenReturn(42);
+        doThrow(new IOException()).when(mockAccountDAO).rewriteAccounts();
+
+        ResponseEntity<Integer> response = storageAdminController.retrainDictionary();
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    public void testRetrainDictionaryWithoutDataFiles() {
+        storageAdminController = new StorageAdminController(mock(ProductDAO.class), mock(AccountDAO.class));
+
+        ResponseEntity<Integer> response = storageAdminController.retrainDictionary();
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+}
@@ -1,6 +1,12 @@
 package com.estore.api.estoreapi.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
 
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -282,4 +288,39 @@ public class AccountTest {
         // Analysis
         assertEquals(expected, result);
     }
+
+    @Test
+    public void testWithoutSession() {
+        // Setup
+        account.setIsLoggedIn(true);
+        account.setSessionID(42);
+
+        // Invoke
+        Account result = account.withoutSession();
+
+        // Analysis
+        assertEquals(account.getId(), result.getId());
+        assertEquals(account.getUsername(), result.getUsername());
+        assertNotSame(account.getShoppingCart(), result.getShoppingCart());
+        assertFalse(result.getIsLoggedIn());
+        assertEquals(0, result.getSessionID());
+        assertTrue(account.getIsLoggedIn());
+    }
+
+    @Test
+    public void testWithoutSessionIsNotChangedLater() {
+        // Setup
+        Account result = account.withoutSession();
+
+        // Invoke
+        account.getShoppingCart().addProductToShoppingCart(new Keyboard(new ArrayList<>(), "Razer Blackwidow"));
+        account.getShoppingCart().clearCart();
+        account.updateAddressInfo("Rochester", "Main St", "1", "NY", 14623);
+
+        // Analysis: a writer holding the copy sees the account as it was
+        assertEquals(0, result.getShoppingCart().getProductsInCart().length);
+        assertEquals(0, result.getShoppingCart().getProductHistory().size());
+        assertEquals(1, account.getShoppingCart().getProductHistory().size());
+        assertNull(result.getAddress().getCity());
+    }
 }
@@ -0,0 +1,91 @@
+package com.estore.api.estoreapi.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Model-tier")
+public class ActiveAccountSessionsTest {
+    private ActiveAccountSessions activeAccountSessions = new ActiveAccountSessions();
+
+    @Test
+    public void testLookups() throws Exception {
+        Account account = new Account("user", "email", "password", "firstName", "lastName", 4, "");
+        AccountSession session = new AccountSession(account, activeAccountSessions);
+
+        assertTrue(activeAccountSessions.addSession(session));
+
+        assertSame(session, activeAccountSessions.getByAccountId(4));
+        assertSame(session, activeAccountSessions.getBySessionId(session.getSessionID()));
+        assertEquals(1, activeAccountSessions.getSessions().size());
+    }
+
+    @Test
+    public void testRemoveSession() throws Exception {
+        Account account = new Account("user", "email", "password", "firstName", "lastName", 4, "");
+        AccountSession session = new AccountSession(account, activeAccountSessions);
+        activeAccountSessions.addSession(session);
+
+        activeAccountSessions.removeSession(session);
+        activeAccountSessions.removeSession(null);
+
+        assertNull(activeAccountSessions.getByAccountId(4));
+        assertNull(activeAccountSessions.getBySessionId(session.getSessionID()));
+        assertTrue(activeAccountSessions.getSessions().isEmpty());
+    }
+
+    @Test
+    public void testDuplicateLogin() throws Exception {
+        Account account = new Account("user", "email", "password", "firstName", "lastName", 4, "");
+        AccountSession first = new AccountSession(account, activeAccountSessions);
+        AccountSession second = new AccountSession(account, activeAccountSessions);
+
+        assertTrue(activeAccountSessions.addSession(first));
+        assertFalse(activeAccountSessions.addSession(second));
+
+        assertSame(first, activeAccountSessions.getByAccountId(4));
+        assertNull(activeAccountSessions.getBySessionId(second.getSessionID()));
+        assertThrows(Exception.class, () -> new AccountSession(account, activeAccountSessions));
+    }
+
+    @Test
+    public void testConcurrentLogins() throws Exception {
+        Account account = new Account("user", "email", "password", "firstName", "lastName", 4, "");
+        AtomicInteger added = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    if (activeAccountSessions.addSession(new AccountSession(account, activeAccountSessions))) {
+                        added.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    // the account already had a session when this one was created
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, added.get());
+        assertEquals(1, activeAccountSessions.getSessions().size());
+    }
+}
@@ -5,14 +5,19 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 class ProductTest {
 
     private Keyboard keyboard;
@@ -33,35 +38,88 @@ class ProductTest {
     }
 
     @Test
-    void testSetters() {
-        keyboard.setName("New Name");
-        assertEquals("New Name", keyboard.getName());
+    void testWithers() {
+        Product product = keyboard.withName("New Name");
+        assertEquals("New Name", product.getName());
 
-        keyboard.setQuantity(5);
-        assertEquals(5, keyboard.getQuantity());
+        product = product.withQuantity(5);
+        assertEquals(5, product.getQuantity());
 
-        keyboard.setImageURL("http://example.com/new_keyboard1.jpg");
-        assertEquals("http://example.com/new_keyboard1.jpg", keyboard.getImageURL());
+        product = product.withImageURL("http://example.com/new_keyboard1.jpg");
+        assertEquals("http://example.com/new_keyboard1.jpg", product.getImageURL());
 
-        keyboard.setDescription("New description");
-        assertEquals("New description", keyboard.getDescription());
+        product = product.withDescription("New description");
+        assertEquals("New description", product.getDescription());
 
-        keyboard.setAllColors(new Color[] { new Color("White"), new Color("Black") });
-        assertEquals(Arrays.asList(new Color("White"), new Color("Black")), keyboard.getAllColors());
+        product = product.withColors(Arrays.asList(new Color("White"), new Color("Black")));
+        assertEquals(Arrays.asList(new Color("White"), new Color("Black")), product.getAllColors());
 
-        keyboard.addColor(new Color("Red"));
-        assertTrue(keyboard.getAllColors().contains(new Color("Red")));
+        product = product.withColor(new Color("Red"));
+        assertTrue(product.getAllColors().contains(new Color("Red")));
 
-        keyboard.removeColor(new Color("White"));
-        assertFalse(keyboard.getAllColors().contains(new Color("White")));
+        product = product.withoutColor(new Color("White"));
+        assertFalse(product.getAllColors().contains(new Color("White")));
 
-        assertNotNull(keyboard.getColor("Black"));
-        assertNull(keyboard.getColor("Blue"));
+        assertNotNull(product.getColor("Black"));
+        assertNull(product.getColor("Blue"));
 
         Review review = new Review(5, 5, 5, "Great keyboard!");
-        keyboard.addReview(review);
-        assertTrue(keyboard.getReviews().contains(review));
+        product = product.withReview(review);
+        assertTrue(product.getReviews().contains(review));
+
+        assertTrue(product instanceof Keyboard);
+        assertEquals(1, product.getId());
+        assertEquals(50.0, product.getPrice());
+    }
+
+    @Test
+    void testWithersLeaveOriginalUntouched() {
+        keyboard.withName("New Name").withQuantity(5).withColor(new Color("Red"))
+                .withReview(new Review(1, 1, 5, "Great"));
+
+        assertEquals("Keyboard 1", keyboard.getName());
+        assertEquals(10, keyboard.getQuantity());
+        assertTrue(keyboard.getAllColors().isEmpty());
+        assertTrue(keyboard.getReviews().isEmpty());
+    }
+
+    @Test
+    void testListsAreUnmodifiable() {
+        List<Color> colors = new ArrayList<>(Arrays.asList(new Color("Red")));
+        Product product = keyboard.withColors(colors);
+        colors.add(new Color("Blue"));
+
+        assertEquals(1, product.getAllColors().size());
+        assertThrows(UnsupportedOperationException.class, () -> product.getAllColors().add(new Color("Blue")));
+        assertThrows(UnsupportedOperationException.class, () -> product.getReviews().add(new Review(1, 1, 1, "review")));
+    }
+
+    @Test
+    void testHashCodeMatchesEquals() {
+        Product other = new Keyboard(7, null, "Keyboard 1", 0, 1.0, "").withColor(new Color("Red"));
+
+        assertEquals(keyboard, other);
+        assertEquals(keyboard.hashCode(), other.hashCode());
+        assertEquals(keyboard.hashCode(), keyboard.withQuantity(3).hashCode());
+    }
 
+    @Test
+    void testDeserializeKeepsAllFields() throws IOException {
+        Product product = keyboard.withDescription("Clicky").withColor(new Color("Black"))
+                .withReview(new Review(1, 2, 4, "Nice"));
+        ObjectMapper mapper = new ObjectMapper();
+
+        Product read = mapper.readValue(mapper.writeValueAsString(product), Product.class);
+
+        assertTrue(read instanceof Keyboard);
+        assertEquals(1, read.getId());
+        assertEquals(10, read.getQuantity());
+        assertEquals(50.0, read.getPrice());
+        assertEquals("Clicky", read.getDescription());
+        assertEquals("http://example.com/keyboard1.jpg", read.getImageURL());
+        assertEquals(Arrays.asList(new Color("Black")), read.getAllColors());
+        assertEquals(1, read.getReviews().size());
+        assertEquals("Nice", read.getReviews().get(0).getReview());
     }
 
     @Test
@@ -115,6 +173,17 @@ class ProductTest {
             public Product copy(int id) {
                 return null;
             }
+
+
+            @Override
+
+            protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+
+                    String description, String imageURL, List<Review> reviews, long version) {
+
+                return null;
+
+            }
         };
 
         // verify that the instance was constructed with the expected values
@@ -145,6 +214,17 @@ class ProductTest {
                 return null;
             }
 
+
+            @Override
+
+            protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+
+                    String description, String imageURL, List<Review> reviews, long version) {
+
+                return null;
+
+            }
+
             @Override
             public List<Color> getAllColors() {
                 return null;
@@ -178,6 +258,17 @@ class ProductTest {
             public Product copy(int id) {
                 return null;
             }
+
+
+            @Override
+
+            protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+
+                    String description, String imageURL, List<Review> reviews, long version) {
+
+                return null;
+
+            }
         };
 
         // create a second concrete subclass of Product
@@ -192,6 +283,17 @@ class ProductTest {
             public Product copy(int id) {
                 return null;
             }
+
+
+            @Override
+
+            protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+
+                    String description, String imageURL, List<Review> reviews, long version) {
+
+                return null;
+
+            }
         };
 
         // verify that the two instances are equal
@@ -214,6 +316,17 @@ class ProductTest {
             public Product copy(int id) {
                 return null;
             }
+
+
+            @Override
+
+            protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+
+                    String description, String imageURL, List<Review> reviews, long version) {
+
+                return null;
+
+            }
         };
         Product product2 = new Product(34, colors2, "Test Product", 7, 55.66,
                 ProductType.CONTROLLER, "Test description", "testimage.jpg") {
@@ -226,6 +339,17 @@ class ProductTest {
             public Product copy(int id) {
                 return null;
             }
+
+
+            @Override
+
+            protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+
+                    String description, String imageURL, List<Review> reviews, long version) {
+
+                return null;
+
+            }
         };
         Product product3 = new Product(123, colors1, "Test Product", 100, 99.99,
                 ProductType.HEADSET, "Test description", "testimage.jpg") {
@@ -238,6 +362,17 @@ class ProductTest {
             public Product copy(int id) {
                 return null;
             }
+
+
+            @Override
+
+            protected Product rebuild(int id, List<Color> colors, String name, int quantity, double price,
+
+                    String description, String imageURL, List<Review> reviews, long version) {
+
+                return null;
+
+            }
         };
 
         // Act
@@ -245,9 +380,10 @@ class ProductTest {
         int hash2 = product2.hashCode();
         int hash3 = product3.hashCode();
 
-        // Assert
-        assertNotEquals(hash1, hash2);
-        assertNotEquals(hash2, hash3);
-        assertNotEquals(hash1, hash3);
+        // Assert: the products share a name, so they are equal and must hash alike
+        assertEquals(product1, product2);
+        assertEquals(hash1, hash2);
+        assertEquals(hash2, hash3);
+        assertNotEquals(hash1, new Keyboard(69, colors1, "Other Product", 10, 9.99, "testimage.jpg").hashCode());
     }
 }
@@ -2,9 +2,13 @@ package com.estore.api.estoreapi.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.IOException;
+
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 @Tag("Model-tier")
 public class ReviewTest {
     private final Review review = new Review(1, 1, 1, "review");
@@ -58,55 +62,20 @@ public class ReviewTest {
     }
 
     @Test
-    public void testSetProductid() {
+    public void testJsonRoundTrip() throws IOException {
         // Setup
-        int expected = 2;
+        ObjectMapper mapper = new ObjectMapper();
 
         // Invoke
-        review.setProductid(2);
-        int result = review.getProductid();
-
-        // Analysis
-        assertEquals(expected, result);
+        String json = mapper.writeValueAsString(review);
+        Review result = mapper.readValue(json, Review.class);
+
+        // Analysis: the same property names as the stored files use
+        assertEquals(mapper.readTree("{\"productid\":1,\"userid\":1,\"review\":\"review\",\"rating\":1}"),
+                mapper.readTree(json));
+        assertEquals(1, result.getProductid());
+        assertEquals(1, result.getUserid());
+        assertEquals("review", result.getReview());
+        assertEquals(1, result.getRating());
     }
-
-    @Test
-    public void testSetUserid() {
-        // Setup
-        int expected = 2;
-
-        // Invoke
-        review.setUserid(2);
-        int result = review.getUserid();
-
-        // Analysis
-        assertEquals(expected, result);
-    }
-
-    @Test
-    public void testSetReview() {
-        // Setup
-        String expected = "review2";
-
-        // Invoke
-        review.setReview("review2");
-        String result = review.getReview();
-
-        // Analysis
-        assertEquals(expected, result);
-    }
-
-    @Test
-    public void testSetRating() {
-        // Setup
-        int expected = 2;
-
-        // Invoke
-        review.setRating(2);
-        int result = review.getRating();
-
-        // Analysis
-        assertEquals(expected, result);
-    }
-
 }
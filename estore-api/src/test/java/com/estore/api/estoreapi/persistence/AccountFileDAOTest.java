@@ -12,6 +12,8 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.springframework.util.Assert;
 
 import static org.mockito.Mockito.mock;
@@ -26,6 +28,7 @@ import com.estore.api.estoreapi.model.Mouse;
 import com.estore.api.estoreapi.model.Payment;
 import com.estore.api.estoreapi.model.Address;
 import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.SessionToken;
 import com.estore.api.estoreapi.model.ShoppingCart;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -206,7 +209,8 @@ public class AccountFileDAOTest {
         Account deletedAccount2 = accountFileDAO.deleteAccount(999);
         assertNull(deletedAccount2); // Assert that a non-null account is returned
 
-        // Test case 3: Incorrect authentication
+        // Test case 3: Incorrect authentication, no session may change the account
+        accountFileDAO.logoutAccount(deleteAccount2.getUsername());
         Account deletedAccount3 = accountFileDAO.deleteAccount(deleteAccount2Id);
         assertNotNull(deletedAccount3); // Assert that a non-null account is returned
     }
@@ -1024,4 +1028,300 @@ public class AccountFileDAOTest {
         // Analyze results
         assertNull(address);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWriteBehindDefersWrites() throws IOException {
+        // Setup
+        StorageProperties properties = new StorageProperties();
+        properties.setAccountWriteBehindEnabled(true);
+        properties.setAccountWriteBehindInterval(60000);
+        properties.setAccountWriteBehindMaxStaleness(60000);
+        AccountFileDAO writeBehindDAO = new AccountFileDAO("file.txt", mockObjectMapper, properties);
+
+        // Invoke
+        writeBehindDAO.loginAccount("user1", "password");
+        writeBehindDAO.incrementQuantity(1, 0);
+        writeBehindDAO.logoutAccount("user1");
+
+        // Analyze results: nothing written until the flusher runs
+        verify(mockObjectMapper, never()).writeValue(any(File.class), any(Account[].class));
+        writeBehindDAO.close();
+        verify(mockObjectMapper, times(1)).writeValue(any(File.class), any(Account[].class));
+    }
+
+    @Test
+    public void testShardsSplitAccountFile(@TempDir File tempDir) throws IOException {
+        // Setup
+        File file = new File(tempDir, "account.json");
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.writeValue(file, testAccounts);
+        StorageProperties properties = new StorageProperties();
+        properties.setAccountShards(2);
+
+        // Invoke
+        AccountFileDAO shardedDAO = new AccountFileDAO(file.getPath(), mapper, properties);
+        File shardDirectory = new File(file.getPath() + ".shards");
+        File untouched = new File(shardDirectory, "account-0.json");
+        long untouchedModified = untouched.lastModified();
+        shardedDAO.loginAccount("user1", "password");
+        shardedDAO.updateAddress(1, new Address("City", "Street", "NY", "1", 14623));
+
+        // Analyze results: only the bucket of account 1 was rewritten
+        assertEquals(untouchedModified, untouched.lastModified());
+        AccountFileDAO reloaded = new AccountFileDAO(file.getPath(), mapper, properties);
+        assertEquals(3, reloaded.getAllAccounts().length);
+        assertEquals("City", reloaded.getAccountById(1).getAddress().getCity());
+    }
+
+    @Test
+    public void testStreamingLoad(@TempDir File tempDir) throws IOException {
+        // Setup
+        File file = new File(tempDir, "account.json");
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.writeValue(file, testAccounts);
+        StorageProperties properties = new StorageProperties();
+        properties.setLoadThreads(3);
+
+        // Invoke
+        AccountFileDAO streamedDAO = new AccountFileDAO(file.getPath(), mapper, properties);
+
+        // Analyze results
+        assertEquals(mapper.writeValueAsString(testAccounts), mapper.writeValueAsString(streamedDAO.getAllAccounts()));
+        assertEquals(testAccounts.length + 1, streamedDAO.createAccount(
+                new Account("newuser", "new@example.com", "password", "New", "User", 0, "")).getId());
+    }
+
+    @Test
+    public void testIdleSessionExpires() throws Exception {
+        // Setup
+        StorageProperties properties = new StorageProperties();
+        properties.setSessionIdleTimeout(1);
+        properties.setSessionSweepInterval(20);
+        AccountFileDAO expiringDAO = new AccountFileDAO("file.txt", mockObjectMapper, properties);
+
+        // Invoke
+        Account account = expiringDAO.loginAccount("user1", "password");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (account.getIsLoggedIn() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // Analyze results: the session is gone and the account can log in again
+        assertFalse(account.getIsLoggedIn());
+        assertEquals(0, account.getSessionID());
+        assertNotNull(expiringDAO.loginAccount("user1", "password"));
+        expiringDAO.close();
+    }
+
+    @Test
+    public void testResumeSession() throws IOException {
+        // Setup: user1 logged in on another node, this node knows nothing of it
+        long now = System.currentTimeMillis();
+        SessionToken token = new SessionToken(1, 4242, now - 1000, now / 1000 + 60);
+
+        // Invoke and analyze
+        assertTrue(accountFileDAO.resumeSession(token));
+        assertEquals(testAccounts[0], accountFileDAO.getCurrentAccount(4242));
+        assertTrue(testAccounts[0].getIsLoggedIn());
+        assertNotNull(accountFileDAO.getShoppingCart(1));
+        assertTrue(accountFileDAO.resumeSession(token));
+        assertFalse(accountFileDAO.resumeSession(new SessionToken(42, 4242, now, now / 1000 + 60)));
+
+        // a logged out session cannot be resumed
+        accountFileDAO.logoutAccount("user1");
+        assertFalse(accountFileDAO.resumeSession(token));
+    }
+
+    @Test
+    public void testLaterLoginReplacesSession() throws IOException {
+        long now = System.currentTimeMillis();
+        SessionToken older = new SessionToken(1, 4241, now - 2000, now / 1000 + 60);
+        SessionToken session = new SessionToken(1, 4242, now - 1000, now / 1000 + 60);
+        SessionToken later = new SessionToken(1, 4343, now, now / 1000 + 60);
+        assertTrue(accountFileDAO.resumeSession(session));
+
+        // Invoke and analyze: an older login gives way, a later one takes over
+        assertFalse(accountFileDAO.resumeSession(older));
+        assertTrue(accountFileDAO.resumeSession(later));
+        assertEquals(4343, testAccounts[0].getSessionID());
+        assertNull(accountFileDAO.getCurrentAccount(4242));
+        assertFalse(accountFileDAO.resumeSession(session));
+    }
+
+    @Test
+    public void testLoginStateStaysOffDisk() throws IOException {
+        // Invoke: login and logout alone never write
+        accountFileDAO.loginAccount("user1", "password");
+        accountFileDAO.logoutAccount("user1");
+        verify(mockObjectMapper, never()).writeValue(any(File.class), any(Account[].class));
+
+        // a real change while logged in writes the account without its session
+        accountFileDAO.loginAccount("user1", "password");
+        accountFileDAO.clearShoppingCart(1);
+        ArgumentCaptor<Account[]> written = ArgumentCaptor.forClass(Account[].class);
+        verify(mockObjectMapper).writeValue(any(File.class), written.capture());
+
+        // Analyze results
+        assertTrue(testAccounts[0].getIsLoggedIn());
+        assertFalse(written.getValue()[0].getIsLoggedIn());
+        assertEquals(0, written.getValue()[0].getSessionID());
+    }
+
+    @Test
+    public void testLoginStateResetOnLoad() throws IOException {
+        // Setup: a file written before login state was kept off disk
+        testAccounts[1].setIsLoggedIn(true);
+        testAccounts[1].setSessionID(77);
+
+        // Invoke
+        AccountFileDAO reloadedDAO = new AccountFileDAO("file.txt", mockObjectMapper);
+
+        // Analyze results
+        assertFalse(reloadedDAO.getAccountById(2).getIsLoggedIn());
+        assertEquals(0, reloadedDAO.getAccountById(2).getSessionID());
+        assertNotNull(reloadedDAO.loginAccount("user2", "password"));
+    }
+
+    @Test
+    public void testCreateAccountEmailIgnoresCase() throws IOException {
+        // Invoke
+        Account clash = accountFileDAO.createAccount(
+                new Account("newuser", "JOHN.DOE@example.com", "password", "New", "User", 0, ""));
+
+        // Analyze results
+        assertNull(clash);
+    }
+
+    @Test
+    public void testUpdateAccountMovesUsername() throws IOException {
+        // Setup
+        Account renamed = new Account("renamed", "john.doe@example.com", "password", "John", "doe", 1, "");
+        accountFileDAO.loginAccount("user1", "password");
+
+        // Invoke
+        accountFileDAO.updateAccount(renamed);
+
+        // Analyze results: the old username is free and the new one is taken
+        assertNotNull(accountFileDAO.createAccount(
+                new Account("user1", "new@example.com", "password", "New", "User", 0, "")));
+        assertNull(accountFileDAO.createAccount(
+                new Account("renamed", "other@example.com", "password", "New", "User", 0, "")));
+    }
+
+    @Test
+    public void testUpdateAccountCannotTakeAnotherUsername() throws IOException {
+        // Setup
+        Account thief = new Account("user1", "jane.doe@example.com", "password", "Jane", "Doe", 2, "");
+        accountFileDAO.loginAccount("user2", "password");
+
+        // Invoke
+        Account result = accountFileDAO.updateAccount(thief);
+
+        // Analyze results: the owner still logs in as themselves
+        assertNull(result);
+        assertEquals(1, accountFileDAO.loginAccount("user1", "password").getId());
+        assertEquals("user2", accountFileDAO.getAccountById(2).getUsername());
+    }
+
+    @Test
+    public void testConcurrentIncrementsAreNotLost() throws Exception {
+        // Setup
+        accountFileDAO.loginAccount("user1", "password");
+        accountFileDAO.loginAccount("user2", "password");
+        accountFileDAO.addProductToShoppingCart(1, new Keyboard(new ArrayList<>(), "Razer Blackwidow"));
+        accountFileDAO.addProductToShoppingCart(2, new Keyboard(new ArrayList<>(), "Razer Blackwidow"));
+        int threads = 8;
+        int increments = 250;
+        List<Thread> workers = new ArrayList<>();
+
+        // Invoke: two shoppers, each hit by several threads at once
+        for (int t = 0; t < threads; t++) {
+            int userid = t % 2 + 1;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    try {
+                        accountFileDAO.incrementQuantity(userid, 0);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Analyze results
+        int expected = 1 + threads / 2 * increments;
+        assertEquals(expected, accountFileDAO.getShoppingCart(1).getProductQuan()[0]);
+        assertEquals(expected, accountFileDAO.getShoppingCart(2).getProductQuan()[0]);
+    }
+
+    @Test
+    public void testConditionalUpdateAccount() throws IOException {
+        // Setup
+        accountFileDAO.loginAccount("user1", "password");
+        long version = accountFileDAO.getAccountById(1).getVersion();
+        Account edited = new Account("user1", "john.doe@example.com", "password", "Johnny", "doe", 1, "");
+        Account stale = new Account("user1", "john.doe@example.com", "password", "Jon", "doe", 1, "");
+
+        // Invoke
+        Account updated = accountFileDAO.updateAccount(edited, version);
+
+        // Analyze results: the second edit was based on the old version and loses
+        assertEquals(version + 1, updated.getVersion());
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> accountFileDAO.updateAccount(stale, version));
+        assertEquals(version + 1, conflict.getCurrentVersion());
+        assertEquals("Johnny", accountFileDAO.getAccountById(1).getFirstName());
+    }
+
+    @Test
+    public void testUpdateOfMissingAccount() throws IOException {
+        // Setup: only an admin session may change an account that has no session
+        accountFileDAO.createAccount(new Account("admin", "admin@example.com", "password", "Ad", "Min", 0, ""));
+        accountFileDAO.loginAccount("admin", "password");
+        Account missing = new Account("ghost", "ghost@example.com", "password", "Gh", "ost", 99, "");
+
+        // Invoke
+        Account result = accountFileDAO.updateAccount(missing, 0);
+
+        // Analyze results: an update never creates the account
+        assertNull(result);
+        assertNull(accountFileDAO.getAccountById(99));
+    }
+
+    @Test
+    public void testUpdateKeepsSessionOnStoredAccount() throws IOException {
+        // Setup
+        Account loggedIn = accountFileDAO.loginAccount("user1", "password");
+        Account edited = new Account("user1", "john.doe@example.com", "password", "Johnny", "doe", 1, "");
+        Keyboard keyboard = new Keyboard(5, new ArrayList<>(), "Cool Keyboard", 1, 10, null);
+
+        // Invoke
+        accountFileDAO.updateAccount(edited);
+        accountFileDAO.addProductToShoppingCart(1, keyboard);
+
+        // Analyze results: the cart change went to the account that is stored
+        Account stored = accountFileDAO.getAccountById(1);
+        assertEquals("Johnny", stored.getFirstName());
+        assertEquals(keyboard, stored.getShoppingCart().getProductsInCart()[0]);
+        assertEquals(loggedIn.getSessionID(), stored.getSessionID());
+        assertTrue(stored.getIsLoggedIn());
+    }
+
+    @Test
+    public void testSavedChangesBumpVersion() throws IOException {
+        // Setup
+        accountFileDAO.loginAccount("user1", "password");
+        long version = accountFileDAO.getAccountById(1).getVersion();
+
+        // Invoke
+        accountFileDAO.updatePayment(1, new Payment("John", "4111", "01/30", 123));
+
+        // Analyze results
+        assertEquals(version + 1, accountFileDAO.getAccountById(1).getVersion());
+    }
+}
@@ -0,0 +1,206 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.Address;
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Payment;
+import com.estore.api.estoreapi.model.ShoppingCart;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test the Account JDBC DAO class against an in-memory database
+ *
+ * @author Team H
+ */
+@Tag("Persistence-tier")
+public class AccountJdbcDAOTest {
+    @TempDir
+    File tempDir;
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private JdbcStorage storage;
+    private AccountJdbcDAO accountJdbcDAO;
+    private Account[] testAccounts;
+
+    @BeforeEach
+    public void setupAccountJdbcDAO() throws IOException {
+        testAccounts = new Account[2];
+        testAccounts[0] = new Account("user1", "john.doe@example.com", "password", "John", "doe", 1, "token1");
+        testAccounts[1] = new Account("user2", "jane.doe@example.com", "password", "jane", "doe", 2, "token2");
+
+        File file = new File(tempDir, "account.json");
+        mapper.writeValue(file, testAccounts);
+        storage = new JdbcStorage("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        accountJdbcDAO = new AccountJdbcDAO(storage, mapper, file.getPath());
+    }
+
+    @AfterEach
+    public void closeStorage() {
+        storage.close();
+    }
+
+    @Test
+    public void testImport() throws IOException {
+        Account[] accounts = accountJdbcDAO.getAllAccounts();
+
+        assertEquals(2, accounts.length);
+        assertEquals("user1", accounts[0].getUsername());
+        assertEquals("jane.doe@example.com", accounts[1].getEmail());
+        assertNull(accountJdbcDAO.getAccountById(42));
+    }
+
+    @Test
+    public void testLoginAndLogout() throws IOException {
+        Account account = accountJdbcDAO.loginAccount("user1", "password");
+
+        assertNotNull(account);
+        assertTrue(accountJdbcDAO.getAccountById(1).getIsLoggedIn());
+        assertNull(accountJdbcDAO.loginAccount("user1", "password"));
+        assertNull(accountJdbcDAO.loginAccount("user2", "wrong"));
+        assertSame(account, accountJdbcDAO.getCurrentAccount(account.getSessionID()));
+
+        assertSame(account, accountJdbcDAO.logoutAccount("user1"));
+        assertFalse(accountJdbcDAO.getAccountById(1).getIsLoggedIn());
+        assertNull(accountJdbcDAO.logoutAccount("user1"));
+    }
+
+    @Test
+    public void testLogoutKeepsOtherSessions() throws IOException {
+        accountJdbcDAO.loginAccount("user1", "password");
+        accountJdbcDAO.loginAccount("user2", "password");
+
+        accountJdbcDAO.logoutAccount("user1");
+
+        assertNotNull(accountJdbcDAO.logoutAccount("user2"));
+    }
+
+    @Test
+    public void testCreateAccount() throws IOException {
+        Account account = new Account("user3", "jack.doe@example.com", "password", "jack", "doe", 0, "token3");
+
+        Account created = accountJdbcDAO.createAccount(account);
+
+        assertEquals(3, created.getId());
+        assertTrue(created.getIsLoggedIn());
+        assertEquals("user3", accountJdbcDAO.getAccountById(3).getUsername());
+        assertNull(accountJdbcDAO.createAccount(
+                new Account("user4", "jack.doe@example.com", "password", "jack", "doe", 0, "token4")));
+    }
+
+    @Test
+    public void testConditionalUpdateAccount() throws IOException {
+        accountJdbcDAO.loginAccount("user1", "password");
+        long version = accountJdbcDAO.getAccountById(1).getVersion();
+        Account edited = accountJdbcDAO.getAccountById(1);
+        edited.setProfilePicture("new.jpg");
+        Account stale = accountJdbcDAO.getAccountById(1);
+        stale.setProfilePicture("old.jpg");
+
+        assertEquals(version + 1, accountJdbcDAO.updateAccount(edited, version).getVersion());
+        assertThrows(VersionConflictException.class, () -> accountJdbcDAO.updateAccount(stale, version));
+        assertEquals("new.jpg", accountJdbcDAO.getAccountById(1).getProfilePicture());
+        assertEquals(version + 1, accountJdbcDAO.getAccountById(1).getVersion());
+    }
+
+    @Test
+    public void testUpdateOfMissingAccount() throws IOException {
+        accountJdbcDAO.createAccount(new Account("admin", "admin@example.com", "password", "Ad", "Min", 0, ""));
+        accountJdbcDAO.loginAccount("admin", "password");
+
+        assertNull(accountJdbcDAO.updateAccount(
+                new Account("ghost", "ghost@example.com", "password", "Gh", "ost", 99, ""), 0));
+        assertNull(accountJdbcDAO.getAccountById(99));
+    }
+
+    @Test
+    public void testUpdateKeepsSessionOnStoredAccount() throws IOException {
+        accountJdbcDAO.loginAccount("user1", "password");
+        Account edited = accountJdbcDAO.getAccountById(1);
+        edited.setProfilePicture("new.jpg");
+        Keyboard keyboard = new Keyboard(5, new ArrayList<>(), "Cool Keyboard", 1, 10, null);
+
+        accountJdbcDAO.updateAccount(edited);
+        accountJdbcDAO.addProductToShoppingCart(1, keyboard);
+
+        Account stored = accountJdbcDAO.getAccountById(1);
+        assertEquals("new.jpg", stored.getProfilePicture());
+        assertEquals(keyboard, stored.getShoppingCart().getProductsInCart()[0]);
+        assertTrue(stored.getIsLoggedIn());
+    }
+
+    @Test
+    public void testUpdateAccountCannotTakeAnotherUsername() throws IOException {
+        accountJdbcDAO.loginAccount("user2", "password");
+        Account thief = accountJdbcDAO.getAccountById(2);
+        thief.setUsername("user1");
+
+        assertNull(accountJdbcDAO.updateAccount(thief));
+        assertEquals("user2", accountJdbcDAO.getAccountById(2).getUsername());
+        assertEquals(1, accountJdbcDAO.loginAccount("user1", "password").getId());
+    }
+
+    @Test
+    public void testDeleteAccount() throws IOException {
+        assertNotNull(accountJdbcDAO.deleteAccount(1));
+
+        accountJdbcDAO.loginAccount("user1", "password");
+
+        assertNull(accountJdbcDAO.deleteAccount(1));
+        assertNull(accountJdbcDAO.getAccountById(1));
+    }
+
+    @Test
+    public void testShoppingCart() throws IOException {
+        accountJdbcDAO.loginAccount("user1", "password");
+        Keyboard keyboard = new Keyboard(5, new ArrayList<>(), "Cool Keyboard", 1, 10, null);
+
+        accountJdbcDAO.addProductToShoppingCart(1, keyboard);
+        accountJdbcDAO.addColorToShoppingCart(1, new Color("Red"));
+        accountJdbcDAO.incrementQuantity(1, 0);
+
+        ShoppingCart stored = accountJdbcDAO.getAccountById(1).getShoppingCart();
+        assertEquals(1, stored.getProductsInCart().length);
+        assertEquals(keyboard, stored.getProductsInCart()[0]);
+        assertEquals("Red", stored.getListofColors()[0].getName());
+        assertEquals(2, stored.getProductQuan()[0]);
+
+        accountJdbcDAO.clearShoppingCart(1);
+
+        stored = accountJdbcDAO.getAccountById(1).getShoppingCart();
+        assertEquals(0, stored.getProductsInCart().length);
+        assertEquals(1, stored.getProductHistory().size());
+        assertArrayEquals(new int[] { 2 }, stored.getProductHistoryQuan());
+        assertEquals(1, accountJdbcDAO.productsAllowedToReview(1).length);
+        assertEquals(0, accountJdbcDAO.getShoppingCart(2).getProductsInCart().length);
+    }
+
+    @Test
+    public void testPaymentAndAddress() throws IOException {
+        Account account = accountJdbcDAO.loginAccount("user1", "password");
+
+        accountJdbcDAO.updatePayment(1, new Payment("John Doe", "4111", "12/30", 123));
+        accountJdbcDAO.updateAddress(1, new Address("Rochester", "Main St", "NY", "1", 14623));
+
+        Account stored = accountJdbcDAO.getAccountById(1);
+        assertEquals("4111", stored.getPayment().getCardNumber());
+        assertEquals(123, stored.getPayment().getCvv());
+        assertEquals("Rochester", stored.getAddress().getCity());
+        assertEquals(14623, stored.getAddress().getZip());
+        assertEquals("Rochester", accountJdbcDAO.getAddress(account.getSessionID()).getCity());
+        assertNull(accountJdbcDAO.updatePayment(2, new Payment()));
+    }
+}
@@ -0,0 +1,91 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Account;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("Persistence-tier")
+public class AccountShardsTest {
+    @TempDir
+    File tempDir;
+
+    private File directory;
+    private List<Account> testAccounts;
+
+    @BeforeEach
+    public void setupAccountShards() {
+        directory = new File(tempDir, "account.json.shards");
+        testAccounts = new ArrayList<>();
+        for (int id = 1; id <= 5; id++) {
+            testAccounts.add(new Account("user" + id, "user" + id + "@example.com", "password", "First", "Last", id,
+                    ""));
+        }
+    }
+
+    @Test
+    public void testBucketOf() {
+        AccountShards shards = new AccountShards(directory, 4, new ObjectMapper(), ".json");
+        assertEquals(1, shards.bucketOf(1));
+        assertEquals(0, shards.bucketOf(8));
+        assertEquals(3, shards.bucketOf(-1));
+    }
+
+    @Test
+    public void testWriteAllAndReadAll() throws IOException {
+        AccountShards shards = new AccountShards(directory, 2, new ObjectMapper(), ".json");
+        assertFalse(shards.exists());
+
+        shards.writeAll(testAccounts);
+
+        assertTrue(shards.exists());
+        assertEquals(2, directory.listFiles().length);
+        List<Account> read = shards.readAll();
+        assertEquals(5, read.size());
+        assertFalse(shards.isMisplaced());
+    }
+
+    @Test
+    public void testWriteDirtyOnlyWritesChangedBucket() throws IOException {
+        AccountShards shards = new AccountShards(directory, 2, new ObjectMapper(), ".json");
+        shards.writeAll(testAccounts);
+        File even = new File(directory, "account-0.json");
+        File odd = new File(directory, "account-1.json");
+        long oddLength = odd.length();
+
+        shards.markDirty(2);
+        shards.writeDirty(bucket -> Arrays.asList(testAccounts.get(1)));
+
+        assertEquals(oddLength, odd.length());
+        Account[] evenAccounts = new ObjectMapper().readValue(even, Account[].class);
+        assertEquals(1, evenAccounts.length);
+        assertEquals(2, evenAccounts[0].getId());
+    }
+
+    @Test
+    public void testChangedCountIsDetected() throws IOException {
+        new AccountShards(directory, 3, new ObjectMapper(), ".json").writeAll(testAccounts);
+
+        AccountShards resized = new AccountShards(directory, 2, new ObjectMapper(), ".json");
+        assertEquals(5, resized.readAll().size());
+        assertTrue(resized.isMisplaced());
+
+        resized.writeAll(testAccounts);
+        assertFalse(new File(directory, "account-2.json").exists());
+        assertEquals(5, resized.readAll().size());
+        assertFalse(resized.isMisplaced());
+    }
+}
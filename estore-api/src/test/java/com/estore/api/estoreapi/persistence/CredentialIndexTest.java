@@ -0,0 +1,94 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Account;
+
+@Tag("Persistence-tier")
+public class CredentialIndexTest {
+    private CredentialIndex credentials;
+
+    @BeforeEach
+    public void setupCredentialIndex() {
+        credentials = new CredentialIndex();
+        credentials.add(new Account("user1", "John.Doe@Example.com", "password", "John", "Doe", 1, ""));
+    }
+
+    @Test
+    public void testFind() {
+        assertEquals(1, credentials.findByUsername("user1"));
+        assertNull(credentials.findByUsername("USER1"));
+        assertEquals(1, credentials.findByEmail(" john.doe@example.com"));
+    }
+
+    @Test
+    public void testIsTaken() {
+        assertTrue(credentials.isTaken("user1", "new@example.com"));
+        assertTrue(credentials.isTaken("new", "JOHN.DOE@example.com"));
+        assertFalse(credentials.isTaken("new", "new@example.com"));
+        assertFalse(credentials.isTaken("new", null));
+    }
+
+    @Test
+    public void testIsTakenByAnotherAccount() {
+        credentials.add(new Account("user2", "jane.doe@example.com", "password", "Jane", "Doe", 2, ""));
+
+        assertFalse(credentials.isTaken("user1", "john.doe@example.com", 1));
+        assertTrue(credentials.isTaken("user1", "jane.doe@example.com", 2));
+        assertTrue(credentials.isTaken("user2", "new@example.com", 1));
+        assertFalse(credentials.isTaken("new", "new@example.com", 1));
+    }
+
+    @Test
+    public void testReplaceKeepsOtherAccountsKeys() {
+        Account old = new Account("user2", "jane.doe@example.com", "password", "Jane", "Doe", 2, "");
+        credentials.add(old);
+
+        // account 2 tries to take the username of account 1
+        assertFalse(credentials.replace(old, new Account("user1", "jane.doe@example.com", "password", "Jane", "Doe", 2, "")));
+        assertEquals(1, credentials.findByUsername("user1"));
+        assertEquals(2, credentials.findByUsername("user2"));
+
+        assertTrue(credentials.replace(old, new Account("jane", "jane.doe@example.com", "password", "Jane", "Doe", 2, "")));
+        assertNull(credentials.findByUsername("user2"));
+        assertEquals(2, credentials.findByUsername("jane"));
+        assertEquals(2, credentials.findByEmail("jane.doe@example.com"));
+    }
+
+    @Test
+    public void testRemove() {
+        Account account = new Account("user1", "john.doe@example.com", "password", "John", "Doe", 1, "");
+        credentials.remove(account);
+
+        assertNull(credentials.findByUsername("user1"));
+        assertFalse(credentials.isTaken("user1", "john.doe@example.com"));
+    }
+
+    @Test
+    public void testRemoveKeepsOtherAccountsKeys() {
+        // an old version of account 2 that used the same username
+        credentials.remove(new Account("user1", "other@example.com", "password", "Jane", "Doe", 2, ""));
+
+        assertEquals(1, credentials.findByUsername("user1"));
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        for (int i = 2; i <= 5000; i++) {
+            credentials.add(new Account("user" + i, "user" + i + "@example.com", "password", "", "", i, ""));
+        }
+
+        assertEquals(5000, credentials.size());
+        for (int i = 1; i <= 5000; i++) {
+            assertTrue(credentials.isTaken("user" + i, null));
+        }
+        assertEquals(4321, credentials.findByUsername("user4321"));
+    }
+}
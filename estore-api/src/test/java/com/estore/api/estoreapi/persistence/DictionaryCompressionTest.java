@@ -0,0 +1,127 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("Persistence-tier")
+public class DictionaryCompressionTest {
+    private static final String DESCRIPTION = "A lightweight wireless gaming mouse with customizable RGB lighting";
+
+    @TempDir
+    File tempDir;
+
+    private File dictionaries;
+    private DictionaryCompression compression;
+    private byte[] content;
+
+    @BeforeEach
+    public void setupDictionaryCompression() throws IOException {
+        dictionaries = new File(tempDir, "dictionaries");
+        compression = new DictionaryCompression(dictionaries, 6);
+        StringBuilder json = new StringBuilder("[");
+        for (int id = 0; id < 20; id++) {
+            json.append("{\"id\":").append(id).append(",\"description\":\"").append(DESCRIPTION).append("\"},");
+        }
+        content = json.append("{}]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private File write(String name) throws IOException {
+        File file = new File(tempDir, name);
+        try (OutputStream out = compression.openOutput(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    private byte[] read(File file) throws IOException {
+        try (InputStream in = compression.openInput(file)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testRoundTripWithoutDictionary() throws IOException {
+        File file = write("plain.z");
+        assertEquals(0, compression.getDictionaryId());
+        assertTrue(file.length() < content.length);
+        assertArrayEquals(content, read(file));
+    }
+
+    @Test
+    public void testDictionaryMakesFilesSmaller() throws IOException {
+        long withoutDictionary = write("before.z").length();
+
+        int id = compression.train(Arrays.asList(DESCRIPTION.getBytes(StandardCharsets.UTF_8),
+                DESCRIPTION.getBytes(StandardCharsets.UTF_8), "{\"id\":".getBytes(StandardCharsets.UTF_8)));
+        File file = write("after.z");
+
+        assertEquals(id, compression.getDictionaryId());
+        assertTrue(file.length() < withoutDictionary);
+        assertArrayEquals(content, read(file));
+        // a new instance picks up the current dictionary
+        assertEquals(id, new DictionaryCompression(dictionaries, 6).getDictionaryId());
+    }
+
+    @Test
+    public void testOldFilesStayReadableAfterRetrain() throws IOException {
+        compression.train(Arrays.asList(DESCRIPTION.getBytes(StandardCharsets.UTF_8)));
+        File old = write("old.z");
+        compression.train(Arrays.asList("something else".getBytes(StandardCharsets.UTF_8)));
+
+        assertArrayEquals(content, read(old));
+        assertArrayEquals(content, new DictionaryCompression(dictionaries, 6).openInput(old).readAllBytes());
+    }
+
+    @Test
+    public void testUncompressedFileIsReadAsIs() throws IOException {
+        File file = new File(tempDir, "product.json");
+        Files.write(file.toPath(), content);
+        assertArrayEquals(content, read(file));
+
+        Files.write(file.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals("[]".getBytes(StandardCharsets.UTF_8), read(file));
+    }
+
+    @Test
+    public void testMissingDictionary() throws IOException {
+        compression.train(Arrays.asList(DESCRIPTION.getBytes(StandardCharsets.UTF_8)));
+        File file = write("orphan.z");
+        for (File dictionary : dictionaries.listFiles()) {
+            dictionary.delete();
+        }
+        assertThrows(IOException.class, () -> new DictionaryCompression(dictionaries, 6).openInput(file));
+    }
+
+    @Test
+    public void testBuildDictionary() {
+        byte[] common = "common".getBytes(StandardCharsets.UTF_8);
+        byte[] rare = "rare but longer".getBytes(StandardCharsets.UTF_8);
+        List<byte[]> samples = new ArrayList<>(Arrays.asList(rare, common, common, common));
+
+        // the sample covering the most bytes goes last
+        assertEquals("rare but longercommon",
+                new String(DictionaryCompression.buildDictionary(samples), StandardCharsets.UTF_8));
+
+        byte[] huge = new byte[DictionaryCompression.MAX_DICTIONARY_SIZE];
+        samples.add(huge);
+        samples.add(huge);
+        assertArrayEquals(huge, DictionaryCompression.buildDictionary(samples));
+    }
+}
@@ -0,0 +1,93 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Headset;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.ProductType;
+
+@Tag("Persistence-tier")
+public class FacetIndexTest {
+    private static final Color RED = new Color("Red");
+    private static final Color BLACK = new Color("Black");
+
+    private FacetIndex index;
+
+    @BeforeEach
+    public void setupFacetIndex() {
+        index = new FacetIndex();
+        index.rebuild(List.of(
+                new Keyboard(1, new ArrayList<>(), "Cool Keyboard", 5, 0, null).withColor(RED).withColor(BLACK),
+                new Keyboard(2, new ArrayList<>(), "Lame Keyboard", 0, 0, null).withColor(BLACK),
+                new Mouse(3, new ArrayList<>(), "Fancy Mouse", 2, 0, null).withColor(RED),
+                new Headset(4, new ArrayList<>(), "Loud Headset", 1, 0, null)));
+    }
+
+    @Test
+    public void testNoFilter() {
+        FacetIndex.Result result = index.filter(null, List.of(), null);
+
+        assertArrayEquals(new int[] { 1, 2, 3, 4 }, result.getIds());
+        assertEquals(Map.of(ProductType.KEYBOARD, 2, ProductType.MOUSE, 1, ProductType.HEADSET, 1),
+                result.getTypes());
+        assertEquals(Map.of("Black", 2, "Red", 2), result.getColors());
+        assertEquals(3, result.getInStock());
+        assertEquals(1, result.getOutOfStock());
+    }
+
+    @Test
+    public void testFacetsAreAnded() {
+        assertArrayEquals(new int[] { 1 },
+                index.filter(List.of(ProductType.KEYBOARD), List.of("Red"), null).getIds());
+        assertArrayEquals(new int[] { 1 },
+                index.filter(List.of(ProductType.KEYBOARD), List.of("Black"), true).getIds());
+        assertArrayEquals(new int[] { 2 },
+                index.filter(List.of(ProductType.KEYBOARD), null, false).getIds());
+    }
+
+    @Test
+    public void testValuesOfAFacetAreOred() {
+        assertArrayEquals(new int[] { 1, 2, 3 },
+                index.filter(List.of(ProductType.KEYBOARD, ProductType.MOUSE), null, null).getIds());
+        assertArrayEquals(new int[] { 1, 2, 3 }, index.filter(null, List.of("Red", "Black"), null).getIds());
+        assertArrayEquals(new int[0], index.filter(null, List.of("Purple"), null).getIds());
+    }
+
+    @Test
+    public void testCountsIgnoreTheirOwnFacet() {
+        FacetIndex.Result result = index.filter(List.of(ProductType.KEYBOARD), List.of("Red"), null);
+
+        // types are counted over the red products, colors over the keyboards
+        assertEquals(Map.of(ProductType.KEYBOARD, 1, ProductType.MOUSE, 1, ProductType.HEADSET, 0),
+                result.getTypes());
+        assertEquals(Map.of("Black", 2, "Red", 1), result.getColors());
+        assertEquals(1, result.getInStock());
+        assertEquals(0, result.getOutOfStock());
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        index.put(new Keyboard(2, new ArrayList<>(), "Lame Keyboard", 3, 0, null).withColor(RED));
+        index.remove(1);
+        index.remove(42);
+
+        FacetIndex.Result result = index.filter(null, null, true);
+        assertArrayEquals(new int[] { 2, 3, 4 }, result.getIds());
+        // no product is black any more
+        assertFalse(result.getColors().containsKey("Black"));
+        assertEquals(Map.of(ProductType.KEYBOARD, 1, ProductType.MOUSE, 1, ProductType.HEADSET, 1),
+                result.getTypes());
+    }
+}
@@ -0,0 +1,95 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("Persistence-tier")
+public class FragmentCacheTest {
+    private ObjectMapper mapper;
+    private FragmentCache<Product> productFragments;
+    private List<Product> testProducts;
+
+    @BeforeEach
+    public void setupFragmentCache() {
+        mapper = spy(new ObjectMapper());
+        productFragments = new FragmentCache<>(mapper, Product::getId);
+        testProducts = new ArrayList<>();
+        testProducts.add(new Keyboard(0, new ArrayList<Color>(), "Cool Keyboard", 1, 10.0, ""));
+        testProducts.add(new Mouse(1, new ArrayList<Color>(), "Fancy Mouse", 2, 20.0, ""));
+    }
+
+    private String write(FragmentCache<Product> cache, List<Product> products) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeArray(out, products);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void testMatchesFullSerialization() throws IOException {
+        String expected = new ObjectMapper().writeValueAsString(testProducts.toArray(new Product[0]));
+        assertEquals(expected, write(productFragments, testProducts));
+        // a second save is built from the cache only
+        assertEquals(expected, write(productFragments, testProducts));
+        verify(mapper, times(2)).writeValueAsBytes(any());
+    }
+
+    @Test
+    public void testOnlyDirtyEntitiesAreSerialized() throws IOException {
+        write(productFragments, testProducts);
+
+        testProducts.set(1, testProducts.get(1).withQuantity(7));
+        productFragments.markDirty(1);
+        String result = write(productFragments, testProducts);
+
+        verify(mapper, times(3)).writeValueAsBytes(any());
+        assertEquals(new ObjectMapper().writeValueAsString(testProducts.toArray(new Product[0])), result);
+    }
+
+    @Test
+    public void testDeletedEntitiesAreForgotten() throws IOException {
+        write(productFragments, testProducts);
+        assertEquals(2, productFragments.size());
+
+        assertEquals(new ObjectMapper().writeValueAsString(new Product[] { testProducts.get(0) }),
+                write(productFragments, testProducts.subList(0, 1)));
+        assertEquals(1, productFragments.size());
+    }
+
+    @Test
+    public void testEmptyArray() throws IOException {
+        assertEquals("[]", write(productFragments, new ArrayList<Product>()));
+    }
+
+    @Test
+    public void testAccounts() throws IOException {
+        FragmentCache<Account> accountFragments = new FragmentCache<>(mapper, Account::getId);
+        List<Account> accounts = Arrays.asList(
+                new Account("user1", "user1@example.com", "password", "John", "Doe", 1, ""),
+                new Account("user2", "user2@example.com", "password", "Jane", "Doe", 2, ""));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        accountFragments.writeArray(out, accounts);
+
+        assertEquals(new ObjectMapper().writeValueAsString(accounts.toArray(new Account[0])), out.toString("UTF-8"));
+    }
+}
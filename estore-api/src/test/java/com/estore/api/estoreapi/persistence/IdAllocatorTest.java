@@ -0,0 +1,130 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("Persistence-tier")
+public class IdAllocatorTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testIdsStartAtFloor() throws IOException {
+        IdAllocator ids = new IdAllocator(IdAllocator.inMemory(), 3, 5);
+
+        assertEquals(5, ids.next());
+        assertEquals(6, ids.next());
+        assertEquals(7, ids.next());
+        assertEquals(8, ids.next());
+        assertEquals(3, ids.getBlockSize());
+    }
+
+    @Test
+    public void testResetRaisesFloor() throws IOException {
+        IdAllocator ids = new IdAllocator(IdAllocator.inMemory(), 10, 1);
+        ids.next();
+
+        ids.reset(50);
+
+        assertEquals(50, ids.next());
+    }
+
+    @Test
+    public void testResetNeverReusesLeasedBlocks() throws IOException {
+        IdAllocator ids = new IdAllocator(IdAllocator.inMemory(), 10, 1);
+        ids.next();
+
+        ids.reset(1);
+
+        // ids 2 to 10 were leased with the first block and are skipped
+        assertEquals(11, ids.next());
+    }
+
+    @Test
+    public void testInvalidBlockSize() {
+        assertThrows(IllegalArgumentException.class, () -> new IdAllocator(IdAllocator.inMemory(), 0, 1));
+    }
+
+    @Test
+    public void testConcurrentIdsAreUnique() throws Exception {
+        IdAllocator ids = new IdAllocator(IdAllocator.inMemory(), 7, 1);
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit((Callable<Void>) () -> {
+                    for (int i = 0; i < 1000; i++) {
+                        assertTrue(taken.add(ids.next()));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(8000, taken.size());
+    }
+
+    @Test
+    public void testFileStoreSharedBetweenAllocators() throws IOException {
+        File file = new File(tempDir, "products.json.ids");
+        IdAllocator first = new IdAllocator(IdAllocator.file(file), 4, 1);
+        IdAllocator second = new IdAllocator(IdAllocator.file(file), 4, 1);
+        Set<Integer> taken = new HashSet<>();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(taken.add(first.next()));
+            assertTrue(taken.add(second.next()));
+        }
+
+        assertEquals(20, taken.size());
+    }
+
+    @Test
+    public void testFileStoreSurvivesRestart() throws IOException {
+        File file = new File(tempDir, "accounts.json.ids");
+        IdAllocator before = new IdAllocator(IdAllocator.file(file), 5, 1);
+        for (int i = 0; i < 7; i++) {
+            before.next();
+        }
+
+        IdAllocator after = new IdAllocator(IdAllocator.file(file), 5, 1);
+
+        // two blocks of five were leased, the rest of the second one is skipped
+        assertEquals("11", Files.readString(file.toPath()).trim());
+        assertEquals(11, after.next());
+    }
+
+    @Test
+    public void testUnreadableFileStore() throws IOException {
+        File file = new File(tempDir, "broken.ids");
+        Files.writeString(file.toPath(), "not a number");
+        IdAllocator ids = new IdAllocator(IdAllocator.file(file), 5, 1);
+
+        assertThrows(IOException.class, ids::next);
+    }
+}
@@ -0,0 +1,114 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class NameIndexTest {
+    private NameIndex index;
+
+    @BeforeEach
+    public void setupNameIndex() {
+        Map<Integer, String> names = new TreeMap<>();
+        names.put(1, "Cool Keyboard");
+        names.put(2, "Lame Keyboard");
+        names.put(3, "Fancy Mouse");
+        names.put(4, "Mouse Pad");
+        index = NameIndex.of(names);
+    }
+
+    @Test
+    public void testSubstringIgnoringCase() {
+        assertArrayEquals(new int[] { 1, 2 }, index.search("keyboard"));
+        assertArrayEquals(new int[] { 3, 4 }, index.search("MOUSE"));
+        assertArrayEquals(new int[] { 2 }, index.search("e kEy"));
+        assertArrayEquals(new int[0], index.search("trackball"));
+    }
+
+    @Test
+    public void testTrigramsMustBeInOrder() {
+        NameIndex split = index.with(5, "Abcd Bcde");
+
+        // every trigram of "abcde" is in "Abcd Bcde" but the text is not
+        assertArrayEquals(new int[0], split.search("abcde"));
+        assertArrayEquals(new int[] { 5 }, split.search("cd bc"));
+    }
+
+    @Test
+    public void testShortQueries() {
+        assertArrayEquals(new int[] { 1, 2, 3, 4 }, index.search(""));
+        assertArrayEquals(new int[] { 2, 3, 4 }, index.search("m"));
+        assertArrayEquals(new int[] { 4 }, index.search("pa"));
+    }
+
+    @Test
+    public void testWithAndWithout() {
+        NameIndex renamed = index.with(1, "Cool Trackball");
+        NameIndex removed = renamed.without(3);
+
+        assertArrayEquals(new int[] { 2 }, renamed.search("keyboard"));
+        assertArrayEquals(new int[] { 1 }, renamed.search("trackball"));
+        assertArrayEquals(new int[] { 4 }, removed.search("mouse"));
+        assertEquals(3, removed.size());
+        // the older indexes are untouched
+        assertArrayEquals(new int[] { 1, 2 }, index.search("keyboard"));
+        assertArrayEquals(new int[] { 3, 4 }, renamed.search("mouse"));
+    }
+
+    @Test
+    public void testUnchangedNameKeepsIndex() {
+        assertSame(index, index.with(1, "COOL KEYBOARD"));
+        assertSame(index, index.without(42));
+    }
+
+    @Test
+    public void testNullNamesAreLeftOut() {
+        Map<Integer, String> names = new TreeMap<>();
+        names.put(1, null);
+        names.put(2, "Headset");
+
+        NameIndex withNull = NameIndex.of(names);
+
+        assertEquals(1, withNull.size());
+        assertArrayEquals(new int[] { 2 }, withNull.search(""));
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(261);
+        String letters = "abcAB ";
+        Map<Integer, String> names = new TreeMap<>();
+        NameIndex built = NameIndex.of(names);
+        for (int id = 1; id <= 300; id++) {
+            String name = randomText(random, letters, 1 + random.nextInt(12));
+            names.put(id, name);
+            built = built.with(id, name);
+        }
+        for (int i = 0; i < 200; i++) {
+            String query = randomText(random, letters, random.nextInt(5));
+            int[] expected = names.entrySet().stream()
+                    .filter(entry -> entry.getValue().toUpperCase().contains(query.toUpperCase()))
+                    .mapToInt(Map.Entry::getKey).toArray();
+
+            assertArrayEquals(expected, built.search(query), query);
+            assertArrayEquals(expected, NameIndex.of(names).search(query), query);
+        }
+    }
+
+    private static String randomText(Random random, String letters, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.ProductType;
+
+@Tag("Persistence-tier")
+public class PriceIndexTest {
+    private static final ProductType KEYBOARD = ProductType.KEYBOARD;
+    private static final ProductType MOUSE = ProductType.MOUSE;
+
+    private PriceIndex index;
+
+    @BeforeEach
+    public void setupPriceIndex() {
+        index = PriceIndex.of(new int[] { 1, 2, 3, 4, 5 }, new double[] { 120, 49.99, 50, 80, 50 },
+                new ProductType[] { KEYBOARD, KEYBOARD, MOUSE, KEYBOARD, KEYBOARD });
+    }
+
+    @Test
+    public void testRangeInPriceOrder() {
+        assertArrayEquals(new int[] { 2, 3, 5, 4, 1 }, index.range(null, 0, 1000, false, 0, 10));
+        assertArrayEquals(new int[] { 5, 4, 1 }, index.range(KEYBOARD, 50, 120, false, 0, 10));
+        assertArrayEquals(new int[] { 1, 4, 5 }, index.range(KEYBOARD, 50, 120, true, 0, 10));
+        assertEquals(3, index.count(KEYBOARD, 50, 120));
+        assertEquals(0, index.count(ProductType.WEBCAM, 0, 1000));
+    }
+
+    @Test
+    public void testBoundsAreInclusive() {
+        assertArrayEquals(new int[] { 3, 5 }, index.range(null, 50, 50, false, 0, 10));
+        assertArrayEquals(new int[0], index.range(null, 50.5, 79.99, false, 0, 10));
+        assertArrayEquals(new int[] { 2, 3, 5, 4, 1 },
+                index.range(null, -Double.MAX_VALUE, Double.MAX_VALUE, false, 0, 10));
+    }
+
+    @Test
+    public void testPages() {
+        assertArrayEquals(new int[] { 5, 4 }, index.range(null, 0, 1000, false, 2, 2));
+        assertArrayEquals(new int[] { 1 }, index.range(null, 0, 1000, false, 4, 2));
+        assertArrayEquals(new int[] { 4, 5 }, index.range(null, 0, 1000, true, 1, 2));
+        assertArrayEquals(new int[0], index.range(null, 0, 1000, false, 5, 2));
+        assertArrayEquals(new int[0], index.range(null, 0, 1000, false, Integer.MAX_VALUE, 2));
+        assertArrayEquals(new int[0], index.range(null, 0, 1000, true, -2, 2));
+    }
+
+    @Test
+    public void testWithAndWithout() {
+        PriceIndex changed = index.with(1, 10, KEYBOARD).with(3, 60, KEYBOARD).with(6, 70, MOUSE).without(2);
+
+        assertArrayEquals(new int[] { 1, 5, 3, 4 }, changed.range(KEYBOARD, 0, 1000, false, 0, 10));
+        assertArrayEquals(new int[] { 6 }, changed.range(MOUSE, 0, 1000, false, 0, 10));
+        assertEquals(5, changed.count(null, 0, 1000));
+        // the older index is untouched
+        assertArrayEquals(new int[] { 2, 3, 5, 4, 1 }, index.range(null, 0, 1000, false, 0, 10));
+    }
+
+    @Test
+    public void testUnchangedPriceKeepsIndex() {
+        assertSame(index, index.with(1, 120, KEYBOARD));
+        assertSame(index, index.without(42));
+    }
+
+    @Test
+    public void testMatchesSortedScan() {
+        Random random = new Random(24);
+        List<double[]> products = new ArrayList<>();
+        PriceIndex built = PriceIndex.of(new int[0], new double[0], new ProductType[0]);
+        for (int i = 0; i < 500; i++) {
+            int id = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                built = built.without(id);
+                products.removeIf(product -> product[0] == id);
+            } else {
+                double price = random.nextInt(40) * 2.5;
+                int type = random.nextInt(3);
+                built = built.with(id, price, ProductType.values()[type]);
+                products.removeIf(product -> product[0] == id);
+                products.add(new double[] { id, price, type });
+            }
+        }
+        products.sort(Comparator.<double[]>comparingDouble(product -> product[1])
+                .thenComparingDouble(product -> product[0]));
+        int[] expected = products.stream().filter(product -> product[2] == 1 && product[1] >= 20 && product[1] <= 70)
+                .mapToInt(product -> (int) product[0]).toArray();
+
+        ProductType type = ProductType.values()[1];
+        assertArrayEquals(expected, built.range(type, 20, 70, false, 0, 1000));
+        assertEquals(expected.length, built.count(type, 20, 70));
+    }
+}
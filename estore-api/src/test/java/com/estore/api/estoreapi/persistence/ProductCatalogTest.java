@@ -0,0 +1,91 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+
+@Tag("Persistence-tier")
+public class ProductCatalogTest {
+    private ProductCatalog catalog;
+    private Product keyboard;
+
+    @BeforeEach
+    public void setupProductCatalog() {
+        TreeMap<Integer, Product> products = new TreeMap<>();
+        keyboard = new Keyboard(1, new ArrayList<>(), "Cool Keyboard", 0, 0, null);
+        products.put(1, keyboard);
+        catalog = new ProductCatalog(products, 1);
+    }
+
+    @Test
+    public void testWithLeavesOldVersion() {
+        Product mouse = new Mouse(2, new ArrayList<>(), "Fancy Mouse", 0, 0, null);
+
+        ProductCatalog next = catalog.with(mouse);
+
+        assertEquals(2, next.getVersion());
+        assertSame(mouse, next.get(2));
+        assertEquals("Fancy Mouse", next.nameOf(2));
+        assertFalse(catalog.contains(2));
+        assertEquals(1, catalog.size());
+    }
+
+    @Test
+    public void testWithout() {
+        ProductCatalog next = catalog.without(1);
+
+        assertNull(next.get(1));
+        assertNull(next.nameOf(1));
+        assertSame(keyboard, catalog.get(1));
+    }
+
+    @Test
+    public void testSearchFollowsChanges() {
+        Product mouse = new Mouse(2, new ArrayList<>(), "Fancy Mouse", 0, 0, null);
+        ProductCatalog next = catalog.with(mouse).with(keyboard.withName("Cool Mouse"));
+
+        assertEquals(List.of(keyboard), catalog.search("KEYBOARD"));
+        assertEquals(List.of(), next.search("keyboard"));
+        assertEquals(2, next.search("mouse").size());
+        assertEquals(List.of(mouse), next.without(1).search("mouse"));
+    }
+
+    @Test
+    public void testHasName() {
+        ProductCatalog next = catalog.with(new Mouse(2, new ArrayList<>(), "Fancy Mouse", 0, 0, null));
+
+        assertTrue(next.hasName("Fancy Mouse"));
+        assertFalse(next.hasName("fancy mouse"));
+        assertFalse(next.hasName("Fancy"));
+        assertFalse(catalog.hasName("Fancy Mouse"));
+    }
+
+    @Test
+    public void testIdsInOrder() {
+        ProductCatalog next = catalog.with(new Mouse(0, new ArrayList<>(), "Fancy Mouse", 0, 0, null));
+
+        assertEquals(List.of(0, 1), new ArrayList<>(next.ids()));
+    }
+
+    @Test
+    public void testViewsAreReadOnly() {
+        assertThrows(UnsupportedOperationException.class, () -> catalog.values().clear());
+        assertThrows(UnsupportedOperationException.class, () -> catalog.ids().remove(1));
+        assertTrue(catalog.contains(1));
+    }
+}
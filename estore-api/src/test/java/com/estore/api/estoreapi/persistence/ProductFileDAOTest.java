@@ -6,10 +6,13 @@ import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -18,9 +21,16 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 
 import com.fasterxml.jackson.core.exc.StreamReadException;
 import com.fasterxml.jackson.databind.DatabindException;
@@ -83,6 +93,16 @@ public class ProductFileDAOTest {
 		assertEquals(noResult.length, 0);
 	}
 
+	@Test
+	public void testFindProductAfterChanges() throws IOException {
+		productFileDAO.updateProduct(testProducts[0].withName("Cool Trackball"));
+		productFileDAO.deleteProduct(2);
+
+		assertEquals(1, productFileDAO.searchForProduct("keyboard").length);
+		assertEquals(1, productFileDAO.searchForProduct("TRACK").length);
+		assertEquals(0, productFileDAO.searchForProduct("mouse").length);
+	}
+
 	@Test
 	public void testGetProduct() {
 		int productId = 1;
@@ -128,6 +148,15 @@ public class ProductFileDAOTest {
 		}
 	}
 
+	@Test
+	public void testRejectedDuplicateKeepsIds() throws IOException {
+		assertNull(productFileDAO.createProduct(new Keyboard(0, new ArrayList<>(), "Cool Keyboard", 0, 0, null)));
+		productFileDAO.createProduct(new Keyboard(0, new ArrayList<>(), "Office Keyboard", 0, 0, null));
+
+		// the rejected duplicate did not use up id 3
+		assertEquals("Office Keyboard", productFileDAO.getProductById(3).getName());
+	}
+
 	@Test
 	public void testUpdateProduct() {
 		List<Color> colors = new ArrayList<Color>();
@@ -213,11 +242,11 @@ public class ProductFileDAOTest {
 	public void testgetReviewsByProduct() throws IOException {
 		// Create a product with ID 1 and add a review to it
 		Review review = new Review(1, 7, 5, "Great product");
-		testProducts[0].addReview(review);
+		productFileDAO.createReview(review);
 
 		// Create a product with ID 2 and add a review to it
-		Review review2 = new Review(1, 2, 2, "Average product");
-		testProducts[1].addReview(review2);
+		Review review2 = new Review(2, 2, 2, "Average product");
+		productFileDAO.createReview(review2);
 
 		Review[] reviews = productFileDAO.getReviewsByProduct(1);
 
@@ -233,9 +262,8 @@ public class ProductFileDAOTest {
 		Review review2 = new Review(5, userid, 2, "Not so good");
 
 		// create a sample product with the reviews
-		Product product = new Keyboard(5, new ArrayList<Color>(), "test", 10, 3.1, "");
-		product.addReview(review1);
-		product.addReview(review2);
+		Product product = new Keyboard(5, new ArrayList<Color>(), "test", 10, 3.1, "")
+				.withReview(review1).withReview(review2);
 
 		// call the getReviewsByUser method with the sample user id
 		Review[] reviews = productFileDAO.getReviewsByUser(userid);
@@ -348,7 +376,7 @@ public class ProductFileDAOTest {
 	public void testRemoveProductColor() throws IOException {
 		// Setup
 		Product product = testProducts[0];
-		product.addColor(new Color("Red"));
+		productFileDAO.addProductColor(product.getId(), new Color("Red"));
 		Color colorToRemove = new Color("Blue");
 
 		// Call the removeProductColor() method to remove a color from the product
@@ -392,4 +420,196 @@ public class ProductFileDAOTest {
 		// Check if the colors were set correctly
 		assertEquals(expected.length, actual.length);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testProductLogReplay(@TempDir File tempDir) throws IOException {
+		File file = new File(tempDir, "product.json");
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.writeValue(file, testProducts);
+		StorageProperties properties = new StorageProperties();
+		properties.setProductLogEnabled(true);
+
+		ProductFileDAO logDAO = new ProductFileDAO(file.getPath(), mapper, properties);
+		long snapshotLength = file.length();
+		logDAO.deleteProduct(1);
+		logDAO.createReview(new Review(2, 7, 4, "Good mouse"));
+
+		// Changes go to the log, the snapshot is left alone
+		assertEquals(snapshotLength, file.length());
+		assertTrue(new File(file.getPath() + ".log").length() > 0);
+
+		ProductFileDAO reloaded = new ProductFileDAO(file.getPath(), mapper, properties);
+		assertNull(reloaded.getProductById(1));
+		assertEquals(1, reloaded.getReviewsByProduct(2).length);
+	}
+
+	@Test
+	public void testProductLogCompact(@TempDir File tempDir) throws IOException {
+		File file = new File(tempDir, "product.json");
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.writeValue(file, testProducts);
+		StorageProperties properties = new StorageProperties();
+		properties.setProductLogEnabled(true);
+
+		ProductFileDAO logDAO = new ProductFileDAO(file.getPath(), mapper, properties);
+		logDAO.deleteProduct(0);
+		logDAO.compact();
+
+		assertEquals(0, new File(file.getPath() + ".log").length());
+		assertEquals(2, mapper.readValue(file, Product[].class).length);
+		assertNull(new ProductFileDAO(file.getPath(), mapper, properties).getProductById(0));
+		logDAO.close();
+	}
+
+	@Test
+	public void testIncrementalSave(@TempDir File tempDir) throws IOException {
+		File file = new File(tempDir, "product.json");
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.writeValue(file, testProducts);
+		StorageProperties properties = new StorageProperties();
+		properties.setIncrementalSave(true);
+
+		ProductFileDAO incrementalDAO = new ProductFileDAO(file.getPath(), mapper, properties);
+		incrementalDAO.addProductColor(2, new Color("Red"));
+		incrementalDAO.deleteProduct(0);
+
+		Product[] saved = mapper.readValue(file, Product[].class);
+		assertEquals(2, saved.length);
+		assertEquals(mapper.writeValueAsString(incrementalDAO.getProducts()), mapper.writeValueAsString(saved));
+	}
+
+	@Test
+	public void testSmileFormat(@TempDir File tempDir) throws IOException {
+		File file = new File(tempDir, "product.json");
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.writeValue(file, testProducts);
+		StorageProperties properties = new StorageProperties();
+		properties.setStorageFormat(StorageFormat.SMILE);
+
+		// The JSON file is converted on first start
+		ProductFileDAO smileDAO = new ProductFileDAO(file.getPath(), mapper, properties);
+		File smileFile = new File(tempDir, "product.smile");
+		assertTrue(smileFile.exists());
+		assertTrue(smileFile.length() < file.length());
+		assertEquals(3, smileDAO.getProducts().length);
+
+		smileDAO.deleteProduct(0);
+		ProductFileDAO reloaded = new ProductFileDAO(file.getPath(), mapper, properties);
+		assertNull(reloaded.getProductById(0));
+		assertEquals(testProducts[2].getName(), reloaded.getProductById(2).getName());
+	}
+
+	@Test
+	public void testMappedSnapshot(@TempDir File tempDir) throws IOException {
+		File file = new File(tempDir, "product.json");
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.writeValue(file, testProducts);
+		StorageProperties properties = new StorageProperties();
+		properties.setProductSnapshotEnabled(true);
+
+		// The first start parses the JSON and writes the snapshot
+		ProductFileDAO snapshotDAO = new ProductFileDAO(file.getPath(), mapper, properties);
+		File snapshotFile = new File(tempDir, "product.json.snap");
+		assertTrue(snapshotFile.exists());
+
+		// A change makes the snapshot stale until shutdown
+		snapshotDAO.deleteProduct(0);
+		assertFalse(snapshotFile.exists());
+		snapshotDAO.close();
+		assertTrue(snapshotFile.exists());
+
+		// The next start maps the snapshot and parses nothing up front
+		ObjectMapper spyMapper = spy(mapper);
+		ProductFileDAO mappedDAO = new ProductFileDAO(file.getPath(), spyMapper, properties);
+		verify(spyMapper, never()).readValue(any(File.class), eq(Product[].class));
+		assertEquals(1, mappedDAO.searchForProduct("mouse").length);
+		assertNull(mappedDAO.getProductById(0));
+		assertNotNull(mappedDAO.createProduct(new Mouse(0, new ArrayList<Color>(), "Quiet Mouse", 1, 1.0, "")));
+		assertEquals(3, mappedDAO.getProducts().length);
+	}
+
+	@Test
+	public void testCompression(@TempDir File tempDir) throws IOException {
+		File file = new File(tempDir, "product.json");
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.writeValue(file, testProducts);
+		long plainLength = file.length();
+		StorageProperties properties = new StorageProperties();
+		properties.setCompressionEnabled(true);
+		properties.setCompressionDictionaryDir(new File(tempDir, "dictionaries").getPath());
+
+		// The plain file is still read, the next save compresses it
+		ProductFileDAO compressedDAO = new ProductFileDAO(file.getPath(), mapper, properties);
+		compressedDAO.deleteProduct(0);
+		assertTrue(file.length() < plainLength);
+		assertThrows(IOException.class, () -> mapper.readValue(file, Product[].class));
+
+		int id = compressedDAO.retrainDictionary();
+		assertEquals(id, properties.getCompression().getDictionaryId());
+
+		ProductFileDAO reloaded = new ProductFileDAO(file.getPath(), mapper, properties);
+		assertEquals(2, reloaded.getProducts().length);
+		assertEquals("Fancy Mouse", reloaded.getProductById(2).getName());
+		assertThrows(IllegalStateException.class, () -> productFileDAO.retrainDictionary());
+	}
+
+	@Test
+	public void testWritesPublishNewCatalog() throws IOException {
+		ProductCatalog before = productFileDAO.getCatalog();
+
+		productFileDAO.deleteProduct(1);
+
+		ProductCatalog after = productFileDAO.getCatalog();
+		assertEquals(before.getVersion() + 1, after.getVersion());
+		assertNull(after.get(1));
+		// readers still holding the old version see it unchanged
+		assertNotNull(before.get(1));
+		assertEquals(3, before.size());
+	}
+
+	@Test
+	public void testUpdatesDoNotMutateSharedProducts() throws IOException {
+		Product before = productFileDAO.getProductById(1);
+		int colors = before.getAllColors().size();
+
+		productFileDAO.addProductColor(1, new Color("Red"));
+		productFileDAO.createReview(new Review(1, 7, 5, "Great product"));
+
+		Product after = productFileDAO.getProductById(1);
+		assertNotSame(before, after);
+		assertEquals(colors, before.getAllColors().size());
+		assertEquals(0, before.getReviews().size());
+		assertEquals(colors + 1, after.getAllColors().size());
+		assertEquals(1, after.getReviews().size());
+	}
+
+	@Test
+	public void testReadsDoNotWaitForSave() throws Exception {
+		CountDownLatch saving = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			saving.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return null;
+		}).when(mockObjectMapper).writeValue(any(File.class), any(Product[].class));
+		Product renamed = new Mouse(2, new ArrayList<>(), "Fancier Mouse", 0, 0, null);
+		Thread writer = new Thread(() -> {
+			try {
+				productFileDAO.updateProduct(renamed);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		writer.start();
+		assertTrue(saving.await(10, TimeUnit.SECONDS));
+
+		// the writer is stuck in save, reads go on and already see the update
+		assertEquals(3, productFileDAO.getProducts().length);
+		assertEquals("Fancier Mouse", productFileDAO.getProductById(2).getName());
+		assertEquals(2, productFileDAO.searchForProduct("keyboard").length);
+		assertEquals(0, productFileDAO.getAllReviews().length);
+
+		release.countDown();
+		writer.join();
+	}
+}
@@ -0,0 +1,277 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Review;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test the Product JDBC DAO class against an in-memory database
+ *
+ * @author Team H
+ */
+@Tag("Persistence-tier")
+public class ProductJdbcDAOTest {
+    @TempDir
+    File tempDir;
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private JdbcStorage storage;
+    private ProductJdbcDAO productJdbcDAO;
+    private Product[] testProducts;
+
+    @BeforeEach
+    public void setupProductJdbcDAO() throws IOException {
+        testProducts = new Product[3];
+        testProducts[0] = new Keyboard(1, new ArrayList<>(), "Cool Keyboard", 5, 10.5, null)
+                .withColor(new Color("Red"));
+        testProducts[1] = new Keyboard(2, new ArrayList<>(), "Lame Keyboard", 0, 1, null);
+        testProducts[2] = new Mouse(3, new ArrayList<>(), "Fancy Mouse", 2, 20, null)
+                .withReview(new Review(3, 7, 4, "Nice"));
+
+        File file = new File(tempDir, "product.json");
+        mapper.writeValue(file, testProducts);
+        storage = new JdbcStorage("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        productJdbcDAO = new ProductJdbcDAO(storage, mapper, file.getPath());
+    }
+
+    @AfterEach
+    public void closeStorage() {
+        storage.close();
+    }
+
+    @Test
+    public void testImport() throws IOException {
+        Product[] products = productJdbcDAO.getProducts();
+
+        assertArrayEquals(testProducts, products);
+        assertEquals(10.5, products[0].getPrice());
+        assertEquals(5, products[0].getQuantity());
+        assertEquals("Red", products[0].getAllColors().get(0).getName());
+        assertEquals(1, products[2].getReviews().size());
+        assertEquals("Nice", products[2].getReviews().get(0).getReview());
+        assertArrayEquals(ProductFileDAO.availableColors, productJdbcDAO.getAllColors());
+    }
+
+    @Test
+    public void testImportOnlyIntoEmptyDatabase() throws IOException {
+        productJdbcDAO.deleteProduct(1);
+        ProductJdbcDAO restarted = new ProductJdbcDAO(storage, mapper, new File(tempDir, "product.json").getPath());
+
+        assertEquals(2, restarted.getProducts().length);
+    }
+
+    @Test
+    public void testGetProductById() throws IOException {
+        assertEquals(testProducts[2], productJdbcDAO.getProductById(3));
+        assertNull(productJdbcDAO.getProductById(42));
+    }
+
+    @Test
+    public void testSearchForProduct() throws IOException {
+        Product[] products = productJdbcDAO.searchForProduct("keyb");
+
+        assertEquals(2, products.length);
+        assertEquals(0, productJdbcDAO.searchForProduct("%").length);
+    }
+
+    @Test
+    public void testCreateProduct() throws IOException {
+        Product product = new Mouse(0, new ArrayList<>(), "Wireless Mouse", 1, 15, null);
+
+        assertSame(product, productJdbcDAO.createProduct(product));
+        Product created = productJdbcDAO.getProductById(4);
+        assertEquals(product, created);
+        assertArrayEquals(new Color[] { new Color("Black") }, productJdbcDAO.getProductColors(4));
+        assertNull(productJdbcDAO.createProduct(product));
+    }
+
+    @Test
+    public void testInstancesLeaseDisjointIds() throws IOException {
+        ProductJdbcDAO other = new ProductJdbcDAO(storage, mapper, new File(tempDir, "product.json").getPath());
+
+        productJdbcDAO.createProduct(new Mouse(0, new ArrayList<>(), "Mouse A", 1, 15, null));
+        other.createProduct(new Mouse(0, new ArrayList<>(), "Mouse B", 1, 15, null));
+
+        Product[] a = productJdbcDAO.searchForProduct("Mouse A");
+        Product[] b = productJdbcDAO.searchForProduct("Mouse B");
+        assertEquals(1, a.length);
+        assertEquals(1, b.length);
+        assertNotEquals(a[0].getId(), b[0].getId());
+        assertEquals(4, a[0].getId());
+    }
+
+    @Test
+    public void testIndexesFollowOtherInstances() throws IOException {
+        ProductJdbcDAO other = new ProductJdbcDAO(storage, mapper, new File(tempDir, "product.json").getPath());
+
+        other.createProduct(new Mouse(0, new ArrayList<>(), "Trackball Mouse", 1, 15, null));
+        other.deleteProduct(1);
+
+        assertEquals(1, productJdbcDAO.searchProducts("trackball", 0, 10).getTotal());
+        assertEquals("Trackball Mouse", productJdbcDAO.suggestProducts("track", 10)[0].getName());
+        assertEquals(0, productJdbcDAO.searchProducts("cool", 0, 10).getTotal());
+        assertEquals(3, productJdbcDAO.filterProducts(List.of(), List.of(), null).getProducts().length);
+    }
+
+    @Test
+    public void testOwnWritesNeedNoRebuild() throws IOException {
+        productJdbcDAO.createProduct(new Mouse(0, new ArrayList<>(), "Trackball Mouse", 1, 15, null));
+        // the table changes behind the DAO's back, only a rebuild would see it
+        storage.inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate("UPDATE products SET name = 'Renamed' WHERE id = 1");
+            }
+        });
+
+        assertEquals(1, productJdbcDAO.searchProducts("trackball", 0, 10).getTotal());
+        assertEquals(1, productJdbcDAO.searchProducts("cool", 0, 10).getTotal());
+    }
+
+    @Test
+    public void testUpdateProduct() throws IOException {
+        Product product = productJdbcDAO.getProductById(1).withQuantity(9);
+
+        Product updated = productJdbcDAO.updateProduct(product);
+        assertEquals(product, updated);
+        assertEquals(product.getVersion() + 1, updated.getVersion());
+        assertEquals(9, productJdbcDAO.getProductById(1).getQuantity());
+        assertEquals(updated.getVersion(), productJdbcDAO.getProductById(1).getVersion());
+        assertNull(productJdbcDAO.updateProduct(new Mouse(42, new ArrayList<>(), "Missing", 0, 0, null)));
+    }
+
+    @Test
+    public void testConditionalUpdate() throws IOException {
+        Product product = productJdbcDAO.getProductById(1);
+        long version = product.getVersion();
+
+        assertEquals(version + 1, productJdbcDAO.updateProduct(product.withQuantity(9), version).getVersion());
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> productJdbcDAO.updateProduct(product.withQuantity(3), version));
+        assertEquals(version + 1, conflict.getCurrentVersion());
+        // the losing update was rolled back
+        assertEquals(9, productJdbcDAO.getProductById(1).getQuantity());
+
+        productJdbcDAO.addProductColor(1, new Color("Teal"));
+        assertEquals(version + 2, productJdbcDAO.getProductById(1).getVersion());
+    }
+
+    @Test
+    public void testBlindUpdatesNeverConflict() throws Exception {
+        // two nodes sharing the database race on the version swap
+        ProductJdbcDAO otherNode = new ProductJdbcDAO(storage, mapper, new File(tempDir, "product.json").getPath());
+        long version = productJdbcDAO.getProductById(1).getVersion();
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (ProductJdbcDAO node : new ProductJdbcDAO[] { productJdbcDAO, otherNode, productJdbcDAO, otherNode }) {
+            writers.add(() -> {
+                for (int i = 0; i < 25; i++) {
+                    node.updateProduct(node.getProductById(1).withQuantity(i));
+                }
+                return null;
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers.size());
+        try {
+            for (Future<Void> writer : pool.invokeAll(writers)) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(version + 100, productJdbcDAO.getProductById(1).getVersion());
+    }
+
+    @Test
+    public void testIndexesFollowCommitOrder() throws Exception {
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            writers.add(() -> {
+                for (int i = 0; i < 25; i++) {
+                    productJdbcDAO.updateProduct(productJdbcDAO.getProductById(1).withName("Trackball " + thread + i));
+                }
+                return null;
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers.size());
+        try {
+            for (Future<Void> writer : pool.invokeAll(writers)) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // the indexes hold the name that was committed last
+        String stored = productJdbcDAO.getProductById(1).getName();
+        assertEquals(1, productJdbcDAO.suggestProducts("trackball", 10).length);
+        assertEquals(stored, productJdbcDAO.suggestProducts("trackball", 10)[0].getName());
+        assertEquals(stored, productJdbcDAO.searchProducts(stored, 0, 1).getHits()[0].getProduct().getName());
+    }
+
+    @Test
+    public void testDeleteProduct() throws IOException {
+        assertTrue(productJdbcDAO.deleteProduct(3));
+        assertFalse(productJdbcDAO.deleteProduct(3));
+        assertEquals(0, productJdbcDAO.getAllReviews().length);
+    }
+
+    @Test
+    public void testProductColors() throws IOException {
+        productJdbcDAO.addProductColor(1, new Color("Blue"));
+        assertArrayEquals(new Color[] { new Color("Red"), new Color("Blue") }, productJdbcDAO.getProductColors(1));
+
+        productJdbcDAO.removeProductColor(1, new Color("Red"));
+        assertArrayEquals(new Color[] { new Color("Blue") }, productJdbcDAO.getProductColors(1));
+
+        productJdbcDAO.setProductColors(1, new Color[] { new Color("Green") });
+        assertArrayEquals(new Color[] { new Color("Green") }, productJdbcDAO.getProductColors(1));
+        assertEquals(0, productJdbcDAO.addProductColor(42, new Color("Blue")).length);
+    }
+
+    @Test
+    public void testAllColors() throws IOException {
+        int count = productJdbcDAO.getAllColors().length;
+
+        assertEquals(count + 1, productJdbcDAO.addToAllColors(new Color("Teal")).length);
+        assertEquals(count, productJdbcDAO.removeFromAllColors(new Color("Teal")).length);
+        assertEquals(1, productJdbcDAO.setAllColors(new Color[] { new Color("Teal") }).length);
+        assertEquals(0, productJdbcDAO.setAllColors(null).length);
+    }
+
+    @Test
+    public void testReviews() throws IOException {
+        Review review = new Review(1, 7, 5, "Great");
+
+        assertSame(review, productJdbcDAO.createReview(review));
+        assertNull(productJdbcDAO.createReview(new Review(42, 7, 5, "Missing")));
+        assertEquals(2, productJdbcDAO.getAllReviews().length);
+        assertEquals(1, productJdbcDAO.getReviewsByProduct(1).length);
+        assertEquals(2, productJdbcDAO.getReviewsByUser(7).length);
+        assertEquals(0, productJdbcDAO.getReviewsByUser(8).length);
+    }
+}
@@ -0,0 +1,94 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("Persistence-tier")
+public class ProductLogTest {
+    @TempDir
+    File tempDir;
+
+    private ProductLog productLog;
+    private File logFile;
+
+    @BeforeEach
+    public void setupProductLog() {
+        logFile = new File(tempDir, "product.json.log");
+        productLog = new ProductLog(logFile, new ObjectMapper());
+    }
+
+    @Test
+    public void testReplayPutAndDelete() throws IOException {
+        productLog.put(new Keyboard(1, new ArrayList<Color>(), "Cool Keyboard", 3, 10.0, ""));
+        productLog.put(new Mouse(2, new ArrayList<Color>(), "Fancy Mouse", 1, 5.0, ""));
+        productLog.delete(1);
+        productLog.close();
+
+        Map<Integer, Product> products = new TreeMap<>();
+        int replayed = new ProductLog(logFile, new ObjectMapper()).replay(products);
+
+        assertEquals(3, replayed);
+        assertEquals(1, products.size());
+        assertEquals("Fancy Mouse", products.get(2).getName());
+        assertTrue(products.get(2) instanceof Mouse);
+    }
+
+    @Test
+    public void testReplayMissingFile() throws IOException {
+        Map<Integer, Product> products = new TreeMap<>();
+        assertEquals(0, productLog.replay(products));
+        assertTrue(products.isEmpty());
+    }
+
+    @Test
+    public void testReplayStopsAtCorruptRecord() throws IOException {
+        productLog.put(new Keyboard(1, new ArrayList<Color>(), "Cool Keyboard", 3, 10.0, ""));
+        productLog.close();
+        // Simulate a torn write at the end of the log
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("deadbeef\t{\"op\":\"PUT\",\"id\":2".getBytes());
+        }
+
+        ProductLog reopened = new ProductLog(logFile, new ObjectMapper());
+        Map<Integer, Product> products = new TreeMap<>();
+        assertEquals(1, reopened.replay(products));
+        assertFalse(products.containsKey(2));
+
+        // Records appended after the damaged line was cut off are replayed
+        reopened.put(new Mouse(3, new ArrayList<Color>(), "Fancy Mouse", 1, 5.0, ""));
+        reopened.close();
+        products.clear();
+        assertEquals(2, new ProductLog(logFile, new ObjectMapper()).replay(products));
+        assertTrue(products.containsKey(3));
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        productLog.put(new Keyboard(1, new ArrayList<Color>(), "Cool Keyboard", 3, 10.0, ""));
+        assertEquals(1, productLog.size());
+
+        productLog.truncate();
+
+        assertEquals(0, productLog.size());
+        assertEquals(0, logFile.length());
+    }
+}
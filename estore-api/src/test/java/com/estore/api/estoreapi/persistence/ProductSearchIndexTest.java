@@ -0,0 +1,152 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+
+@Tag("Persistence-tier")
+public class ProductSearchIndexTest {
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    public void setupProductSearchIndex() {
+        index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                new Keyboard(1, new ArrayList<>(), "Razer Keyboard", 0, 0, null)
+                        .withDescription("Mechanical keyboard with green switches"),
+                new Keyboard(2, new ArrayList<>(), "Cool Keyboard", 0, 0, null)
+                        .withDescription("A quiet office keyboard"),
+                new Mouse(3, new ArrayList<>(), "Razer Mouse", 0, 0, null).withDescription("Light mouse for gaming"),
+                new Mouse(4, new ArrayList<>(), "Office Mouse", 0, 0, null).withDescription(null)));
+    }
+
+    @Test
+    public void testBestMatchFirst() {
+        ProductSearchIndex.Result result = index.search("razer keyboard", 0, 10);
+
+        assertEquals(3, result.getTotal());
+        assertEquals(1, result.getIds()[0]);
+        assertTrue(result.getScores()[0] > result.getScores()[1]);
+        assertTrue(result.getScores()[1] >= result.getScores()[2]);
+    }
+
+    @Test
+    public void testNameCountsMoreThanDescription() {
+        // "office" is in the name of 4 and only in the description of 2
+        assertArrayEquals(new int[] { 4, 2 }, index.search("office", 0, 10).getIds());
+    }
+
+    @Test
+    public void testTypos() {
+        assertEquals(1, index.search("razr keybord", 0, 10).getIds()[0]);
+        assertEquals(3, index.search("gamming", 0, 10).getIds()[0]);
+        assertEquals(2, index.search("ofice", 0, 10).getTotal());
+        // words of up to three letters must match exactly
+        assertEquals(0, index.search("mse", 0, 10).getTotal());
+    }
+
+    @Test
+    public void testExactMatchBeatsTypo() {
+        // "house" is one edit away from "mouse"
+        index.put(new Mouse(5, new ArrayList<>(), "Razer House", 0, 0, null).withDescription(null));
+
+        assertEquals(3, index.search("razer mouse", 0, 10).getIds()[0]);
+    }
+
+    @Test
+    public void testPages() {
+        ProductSearchIndex.Result all = index.search("keyboard mouse", 0, 10);
+        ProductSearchIndex.Result second = index.search("keyboard mouse", 1, 2);
+        ProductSearchIndex.Result past = index.search("keyboard mouse", 10, 2);
+
+        assertEquals(4, all.getTotal());
+        assertArrayEquals(new int[] { all.getIds()[1], all.getIds()[2] }, second.getIds());
+        assertEquals(4, second.getTotal());
+        assertEquals(0, past.getIds().length);
+        assertEquals(0, index.search("keyboard", 0, 0).getIds().length);
+        assertEquals(0, index.search("keyboard mouse", -2, 2).getIds().length);
+        assertEquals(4, index.search("keyboard mouse", Integer.MAX_VALUE, 2).getTotal());
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        index.put(new Keyboard(2, new ArrayList<>(), "Cool Trackball", 0, 0, null).withDescription(null));
+        index.remove(3);
+        index.remove(42);
+
+        assertArrayEquals(new int[] { 1 }, index.search("keyboard", 0, 10).getIds());
+        assertArrayEquals(new int[] { 2 }, index.search("trackball", 0, 10).getIds());
+        assertArrayEquals(new int[] { 4 }, index.search("mouse", 0, 10).getIds());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testDistance() {
+        assertEquals(0, ProductSearchIndex.distance("mouse", "mouse", 2));
+        assertEquals(1, ProductSearchIndex.distance("keybord", "keyboard", 2));
+        assertEquals(2, ProductSearchIndex.distance("razr", "rzer", 2));
+        assertEquals(2, ProductSearchIndex.distance("mouse", "keyboard", 1));
+    }
+
+    @Test
+    public void testTokenize() {
+        assertEquals(List.of("razer", "blackwidow", "v3", "rgb"),
+                ProductSearchIndex.tokenize("Razer BlackWidow-V3 (RGB)"));
+        assertEquals(List.of(), ProductSearchIndex.tokenize(null));
+    }
+
+    @Test
+    public void testFuzzyMatchesLinearScan() {
+        Random random = new Random(261);
+        Map<Integer, String> names = new TreeMap<>();
+        ProductSearchIndex fuzzy = new ProductSearchIndex();
+        for (int i = 0; i < 600; i++) {
+            int id = 1 + random.nextInt(80);
+            if (random.nextInt(4) == 0) {
+                names.remove(id);
+                fuzzy.remove(id);
+                continue;
+            }
+            String name = randomWord(random, 2 + random.nextInt(9)) + " " + randomWord(random, 2 + random.nextInt(9));
+            names.put(id, name);
+            fuzzy.put(new Mouse(id, new ArrayList<>(), name, 0, 0, null).withDescription(null));
+        }
+        for (int i = 0; i < 300; i++) {
+            String query = randomWord(random, 4 + random.nextInt(7));
+            int max = query.length() < 8 ? 1 : 2;
+            boolean exact = names.values().stream().anyMatch(name -> List.of(name.split(" ")).contains(query));
+            int[] expected = names.entrySet().stream()
+                    .filter(entry -> List.of(entry.getValue().split(" ")).stream().anyMatch(word -> exact
+                            ? word.equals(query)
+                            : ProductSearchIndex.distance(query, word, max) <= max))
+                    .mapToInt(Map.Entry::getKey).toArray();
+
+            int[] found = fuzzy.search(query, 0, 1000).getIds();
+            Arrays.sort(found);
+            assertArrayEquals(expected, found, query);
+        }
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append("abcd".charAt(random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,178 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("Persistence-tier")
+public class ProductSnapshotTest {
+    @TempDir
+    File tempDir;
+
+    private ObjectMapper mapper;
+    private File source;
+    private File snapshotFile;
+    private List<Product> testProducts;
+
+    @BeforeEach
+    public void setupProductSnapshot() throws IOException {
+        mapper = new ObjectMapper();
+        source = new File(tempDir, "product.json");
+        snapshotFile = new File(tempDir, "product.json.snap");
+        testProducts = new ArrayList<>();
+        testProducts.add(new Keyboard(1, new ArrayList<Color>(), "Cool Keyboard", 3, 10.5, "").withDescription("Clicky"));
+        testProducts.add(new Mouse(4, new ArrayList<Color>(), "Fancy Mouse é", 7, 5.25, "").withDescription("Shiny"));
+        mapper.writeValue(source, testProducts);
+    }
+
+    private ProductSnapshot writeAndOpen() throws IOException {
+        ProductSnapshot.Writer writer = new ProductSnapshot.Writer(mapper);
+        for (Product product : testProducts) {
+            writer.add(product);
+        }
+        writer.write(snapshotFile, source);
+        return ProductSnapshot.open(snapshotFile, source);
+    }
+
+    @Test
+    public void testHotFields() throws IOException {
+        ProductSnapshot snapshot = writeAndOpen();
+
+        assertEquals(2, snapshot.size());
+        assertEquals(4, snapshot.getId(1));
+        assertEquals(ProductType.MOUSE, snapshot.getProductType(1));
+        assertEquals(7, snapshot.getQuantity(1));
+        assertEquals(5.25, snapshot.getPrice(1));
+        assertEquals("Fancy Mouse é", snapshot.getName(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getId(2));
+    }
+
+    @Test
+    public void testReadProduct() throws IOException {
+        ProductSnapshot snapshot = writeAndOpen();
+
+        Product product = snapshot.readProduct(0, mapper);
+        assertTrue(product instanceof Keyboard);
+        assertEquals("Clicky", product.getDescription());
+        assertEquals(mapper.writeValueAsString(testProducts.get(0)), mapper.writeValueAsString(product));
+    }
+
+    @Test
+    public void testFind() throws IOException {
+        ProductSnapshot snapshot = writeAndOpen();
+
+        assertEquals(0, snapshot.find(1));
+        assertEquals(1, snapshot.find(4));
+        assertTrue(snapshot.find(2) < 0);
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        ProductSnapshot snapshot = writeAndOpen();
+        File copyFile = new File(tempDir, "copy.snap");
+        ProductSnapshot.Writer writer = new ProductSnapshot.Writer(mapper);
+        writer.copy(snapshot, 0);
+        writer.copy(snapshot, 1);
+        writer.write(copyFile, source);
+
+        ProductSnapshot copy = ProductSnapshot.open(copyFile, source);
+        assertEquals("Cool Keyboard", copy.getName(0));
+        assertEquals("Shiny", copy.readProduct(1, mapper).getDescription());
+    }
+
+    @Test
+    public void testOutOfOrderIsRejected() throws IOException {
+        ProductSnapshot.Writer writer = new ProductSnapshot.Writer(mapper);
+        writer.add(testProducts.get(1));
+        assertThrows(IllegalArgumentException.class, () -> writer.add(testProducts.get(0)));
+    }
+
+    @Test
+    public void testStaleSnapshotIsIgnored() throws IOException {
+        assertNotNull(writeAndOpen());
+
+        testProducts.remove(0);
+        mapper.writeValue(source, testProducts);
+
+        assertNull(ProductSnapshot.open(snapshotFile, source));
+    }
+
+    @Test
+    public void testDamagedSnapshotIsIgnored() throws IOException {
+        assertNull(ProductSnapshot.open(snapshotFile, source));
+        Files.write(snapshotFile.toPath(), new byte[ProductSnapshot.HEADER_SIZE]);
+        assertNull(ProductSnapshot.open(snapshotFile, source));
+    }
+
+    @Test
+    public void testLazyProductMap() throws IOException {
+        LazyProductMap products = new LazyProductMap(writeAndOpen(), mapper);
+
+        assertEquals(2, products.size());
+        assertTrue(products.containsKey(4));
+        assertEquals("Fancy Mouse é", products.getName(4));
+        assertEquals(0, products.getBuiltCount());
+
+        assertEquals("Shiny", products.get(4).getDescription());
+        assertEquals(1, products.getBuiltCount());
+        // the same object is returned once built
+        assertSame(products.get(4), products.get(4));
+
+        products.put(2, new Mouse(2, new ArrayList<Color>(), "New Mouse", 1, 1.0, ""));
+        products.remove(1);
+        assertEquals("[2, 4]", products.keySet().toString());
+        assertFalse(products.containsKey(1));
+    }
+
+    @Test
+    public void testLazyProductMapCopy() throws IOException {
+        LazyProductMap products = new LazyProductMap(writeAndOpen(), mapper);
+        products.get(4);
+
+        LazyProductMap copy = products.copy();
+        copy.remove(1);
+
+        // nothing is built by copying, built products are shared
+        assertEquals(1, copy.getBuiltCount());
+        assertEquals(1, products.getBuiltCount());
+        assertTrue(products.containsKey(1));
+        assertEquals("[4]", copy.keySet().toString());
+    }
+
+    @Test
+    public void testLazyProductMapReadersShareBuilds() throws IOException {
+        LazyProductMap products = new LazyProductMap(writeAndOpen(), mapper);
+        LazyProductMap copy = products.copy();
+
+        // a product a reader builds in one version is not built again in the next
+        Product built = copy.get(1);
+        assertSame(built, products.get(1));
+        assertEquals(1, products.getBuiltCount());
+        for (Map.Entry<Integer, Product> entry : products.entrySet()) {
+            assertSame(products.get(entry.getKey()), entry.getValue());
+        }
+    }
+}
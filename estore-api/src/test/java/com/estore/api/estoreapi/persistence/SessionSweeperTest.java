@@ -0,0 +1,103 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.AccountSession;
+import com.estore.api.estoreapi.model.ActiveAccountSessions;
+
+@Tag("Persistence-tier")
+public class SessionSweeperTest {
+    private ActiveAccountSessions sessions;
+    private List<AccountSession> expired;
+
+    @BeforeEach
+    public void setupSessionSweeper() {
+        sessions = new ActiveAccountSessions();
+        expired = new ArrayList<>();
+    }
+
+    private AccountSession login(int id) throws Exception {
+        Account account = new Account("user" + id, "email", "password", "firstName", "lastName", id, "");
+        AccountSession session = new AccountSession(account, sessions);
+        sessions.addSession(session);
+        return session;
+    }
+
+    @Test
+    public void testIdleSessionExpires() throws Exception {
+        SessionSweeper sweeper = new SessionSweeper(sessions, 1000, 0, 10, expired::add);
+        AccountSession session = login(1);
+        sweeper.register(session);
+
+        assertEquals(0, sweeper.sweep(session.getLastAccess() + 500));
+        assertEquals(1, sweeper.sweep(session.getLastAccess() + 1100));
+
+        assertNull(sessions.getByAccountId(1));
+        assertEquals(List.of(session), expired);
+        assertEquals(0, sweeper.getTracked());
+        // its session token cannot start it again
+        assertTrue(sessions.isRevoked(1, session.getCreatedAt()));
+    }
+
+    @Test
+    public void testUseExtendsIdleSession() throws Exception {
+        SessionSweeper sweeper = new SessionSweeper(sessions, 1000, 0, 10, expired::add);
+        AccountSession session = login(1);
+        sweeper.register(session);
+        long loggedIn = session.getLastAccess();
+
+        Thread.sleep(50);
+        sessions.getBySessionId(session.getSessionID());
+
+        // due by the login time, but the session was used since
+        assertEquals(0, sweeper.sweep(loggedIn + 1020));
+        assertSame(session, sessions.peekBySessionId(session.getSessionID()));
+        assertEquals(1, sweeper.getTracked());
+        assertEquals(1, sweeper.sweep(session.getLastAccess() + 1100));
+    }
+
+    @Test
+    public void testAbsoluteTimeoutIgnoresUse() throws Exception {
+        SessionSweeper sweeper = new SessionSweeper(sessions, 60000, 1500, 10, expired::add);
+        AccountSession session = login(1);
+        sweeper.register(session);
+
+        session.touch();
+        assertEquals(0, sweeper.sweep(session.getCreatedAt() + 1000));
+        session.touch();
+        assertEquals(1, sweeper.sweep(session.getCreatedAt() + 1600));
+        assertEquals(List.of(session), expired);
+    }
+
+    @Test
+    public void testLoggedOutSessionIsDropped() throws Exception {
+        SessionSweeper sweeper = new SessionSweeper(sessions, 1000, 0, 10, expired::add);
+        AccountSession session = login(1);
+        sweeper.register(session);
+        sessions.removeSession(session);
+
+        assertEquals(0, sweeper.sweep(session.getLastAccess() + 1100));
+        assertTrue(expired.isEmpty());
+        assertEquals(0, sweeper.getTracked());
+    }
+
+    @Test
+    public void testNoTimeoutsMeansNoSweeper() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setSessionIdleTimeout(0);
+        properties.setSessionAbsoluteTimeout(0);
+
+        assertNull(properties.newSessionSweeper(sessions, expired::add));
+    }
+}
@@ -0,0 +1,330 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.estore.api.estoreapi.model.Account;
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.FacetResult;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.ProductPage;
+import com.estore.api.estoreapi.model.ProductType;
+import com.estore.api.estoreapi.model.Review;
+import com.estore.api.estoreapi.model.SearchPage;
+import com.estore.api.estoreapi.model.ShoppingCart;
+import com.estore.api.estoreapi.model.Suggestion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The behaviour every storage engine has to share, run against each engine
+ *
+ * @author Team H
+ */
+@Tag("Persistence-tier")
+public class StorageEngineConformanceTest {
+    @TempDir
+    File tempDir;
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private String productFile;
+    private String accountFile;
+    private Product[] testProducts;
+    private Account[] testAccounts;
+    private StorageEngine engine;
+
+    @BeforeEach
+    public void setupDataFiles() throws IOException {
+        testProducts = new Product[2];
+        testProducts[0] = new Keyboard(1, new ArrayList<>(), "Cool Keyboard", 5, 10.5, null)
+                .withColor(new Color("Red"));
+        testProducts[1] = new Mouse(2, new ArrayList<>(), "Fancy Mouse", 2, 20, null)
+                .withReview(new Review(2, 1, 4, "Nice"));
+        testAccounts = new Account[2];
+        testAccounts[0] = new Account("user1", "john.doe@example.com", "password", "John", "doe", 1, "token1");
+        testAccounts[1] = new Account("user2", "jane.doe@example.com", "password", "jane", "doe", 2, "token2");
+
+        productFile = new File(tempDir, "product.json").getPath();
+        accountFile = new File(tempDir, "account.json").getPath();
+        mapper.writeValue(new File(productFile), testProducts);
+        mapper.writeValue(new File(accountFile), testAccounts);
+    }
+
+    @AfterEach
+    public void closeEngine() throws IOException {
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    private StorageProperties properties() {
+        StorageProperties properties = new StorageProperties();
+        properties.setJdbcUrl("jdbc:h2:file:" + new File(tempDir, "estore").getAbsolutePath());
+        return properties;
+    }
+
+    private StorageEngine open(StorageEngineType type) throws IOException {
+        return type.open(productFile, accountFile, mapper, properties());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testLoad(StorageEngineType type) throws IOException {
+        engine = open(type);
+
+        Product[] products = engine.getProductDAO().getProducts();
+        assertEquals(type, engine.getType());
+        assertArrayEquals(testProducts, products);
+        assertEquals(10.5, products[0].getPrice());
+        assertEquals("Red", products[0].getAllColors().get(0).getName());
+        assertEquals("Nice", products[1].getReviews().get(0).getReview());
+        assertEquals(2, engine.getAccountDAO().getAllAccounts().length);
+        assertEquals("user2", engine.getAccountDAO().getAccountById(2).getUsername());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testProducts(StorageEngineType type) throws IOException {
+        engine = open(type);
+        ProductDAO productDAO = engine.getProductDAO();
+
+        assertNotNull(productDAO.createProduct(new Mouse(0, new ArrayList<>(), "Wireless Mouse", 1, 15, null)));
+        assertEquals("Wireless Mouse", productDAO.getProductById(3).getName());
+        assertNull(productDAO.createProduct(new Mouse(0, new ArrayList<>(), "Fancy Mouse", 1, 15, null)));
+        assertEquals(2, productDAO.searchForProduct("MOUSE").length);
+
+        Product product = productDAO.getProductById(1).withQuantity(9);
+        assertNotNull(productDAO.updateProduct(product));
+        assertEquals(9, productDAO.getProductById(1).getQuantity());
+
+        assertTrue(productDAO.deleteProduct(2));
+        assertFalse(productDAO.deleteProduct(2));
+        assertNull(productDAO.getProductById(2));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testRankedSearch(StorageEngineType type) throws IOException {
+        engine = open(type);
+        ProductDAO productDAO = engine.getProductDAO();
+
+        productDAO.createProduct(new Mouse(0, new ArrayList<>(), "Razer Mouse", 1, 15, null)
+                .withDescription("A light keyboard companion"));
+        SearchPage page = productDAO.searchProducts("razr keybord", 0, 10);
+
+        assertEquals(2, page.getTotal());
+        assertEquals(2, page.getHits().length);
+        assertTrue(page.getHits()[0].getScore() >= page.getHits()[1].getScore());
+        // page * size does not fit in an int, the page is past the last hit
+        page = productDAO.searchProducts("razr keybord", 1 << 30, 2);
+        assertEquals(0, page.getHits().length);
+        assertEquals(2, page.getTotal());
+
+        productDAO.updateProduct(productDAO.getProductById(1).withName("Cool Trackball"));
+        productDAO.deleteProduct(3);
+        assertEquals(0, productDAO.searchProducts("razr keybord", 0, 10).getTotal());
+        assertEquals("Cool Trackball", productDAO.searchProducts("trackbal", 0, 10).getHits()[0].getProduct().getName());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testFacetFilter(StorageEngineType type) throws IOException {
+        engine = open(type);
+        ProductDAO productDAO = engine.getProductDAO();
+
+        FacetResult result = productDAO.filterProducts(List.of(ProductType.KEYBOARD), List.of("Red"), null);
+        assertArrayEquals(new Product[] { testProducts[0] }, result.getProducts());
+        assertEquals(0, (int) result.getTypes().get(ProductType.MOUSE));
+
+        productDAO.addProductColor(2, new Color("Red"));
+        productDAO.updateProduct(productDAO.getProductById(1).withQuantity(0));
+        result = productDAO.filterProducts(null, List.of("Red"), true);
+        assertEquals(1, result.getProducts().length);
+        assertEquals("Fancy Mouse", result.getProducts()[0].getName());
+        assertEquals(1, result.getOutOfStock());
+
+        productDAO.deleteProduct(2);
+        assertEquals(0, productDAO.filterProducts(null, List.of("Red"), true).getProducts().length);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testProductsByPrice(StorageEngineType type) throws IOException {
+        engine = open(type);
+        ProductDAO productDAO = engine.getProductDAO();
+
+        productDAO.createProduct(new Keyboard(0, new ArrayList<>(), "Cheap Keyboard", 1, 5, null));
+        ProductPage page = productDAO.getProductsByPrice(ProductType.KEYBOARD, 0, 100, false, 0, 10);
+        assertEquals(2, page.getTotal());
+        assertEquals("Cheap Keyboard", page.getProducts()[0].getName());
+        assertEquals("Cool Keyboard", page.getProducts()[1].getName());
+
+        productDAO.updateProduct(new Keyboard(3, new ArrayList<>(), "Cheap Keyboard", 1, 99, null));
+        page = productDAO.getProductsByPrice(null, 10, 100, true, 0, 1);
+        assertEquals(3, page.getTotal());
+        assertEquals(1, page.getProducts().length);
+        assertEquals("Cheap Keyboard", page.getProducts()[0].getName());
+        assertEquals(99, page.getProducts()[0].getPrice());
+
+        productDAO.deleteProduct(3);
+        assertEquals(2, productDAO.getProductsByPrice(null, 0, 100, false, 0, 10).getTotal());
+
+        // page * size does not fit in an int
+        page = productDAO.getProductsByPrice(null, 0, 100, false, 1 << 30, 2);
+        assertEquals(0, page.getProducts().length);
+        assertEquals(2, page.getTotal());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testSuggestions(StorageEngineType type) throws IOException {
+        engine = open(type);
+        ProductDAO productDAO = engine.getProductDAO();
+
+        productDAO.createProduct(new Mouse(0, new ArrayList<>(), "Cool Mouse", 1, 15, null));
+        Suggestion[] suggestions = productDAO.suggestProducts("mo", 10);
+        // the reviewed mouse comes first
+        assertEquals(2, suggestions.length);
+        assertEquals("Fancy Mouse", suggestions[0].getName());
+        assertEquals(3, suggestions[1].getId());
+        assertEquals(2, productDAO.suggestProducts("COOL", 10).length);
+
+        productDAO.createReview(new Review(3, 1, 5, "Great"));
+        productDAO.createReview(new Review(3, 2, 5, "Great"));
+        assertEquals("Cool Mouse", productDAO.suggestProducts("mo", 1)[0].getName());
+
+        productDAO.deleteProduct(3);
+        assertEquals(1, productDAO.suggestProducts("cool ", 10).length);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testColorsAndReviews(StorageEngineType type) throws IOException {
+        engine = open(type);
+        ProductDAO productDAO = engine.getProductDAO();
+
+        productDAO.addProductColor(1, new Color("Blue"));
+        assertArrayEquals(new Color[] { new Color("Red"), new Color("Blue") }, productDAO.getProductColors(1));
+        productDAO.removeProductColor(1, new Color("Red"));
+        assertArrayEquals(new Color[] { new Color("Blue") }, productDAO.getProductColors(1));
+
+        assertNotNull(productDAO.createReview(new Review(1, 2, 5, "Great")));
+        assertEquals(2, productDAO.getAllReviews().length);
+        assertEquals(1, productDAO.getReviewsByUser(2).length);
+        assertEquals(1, productDAO.getReviewsByProduct(2).length);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngineType.class)
+    public void testAccounts(StorageEngineType type) throws IOException {
+        engine = open(type);
+        AccountDAO accountDAO = engine.getAccountDAO();
+
+        Account account = accountDAO.loginAccount("user1", "password");
+        assertNotNull(account);
+        assertNull(accountDAO.loginAccount("user2", "wrong"));
+
+        accountDAO.addProductToShoppingCart(1, testProducts[0]);
+        ShoppingCart cart = accountDAO.getShoppingCart(1);
+        assertEquals(1, cart.getProductsInCart().length);
+
+        assertNotNull(accountDAO.logoutAccount("user1"));
+        assertFalse(accountDAO.getAccountById(1).getIsLoggedIn());
+
+        Account created = accountDAO.createAccount(
+                new Account("user3", "jack.doe@example.com", "password", "jack", "doe", 0, "token3"));
+        assertEquals(3, created.getId());
+        assertNull(accountDAO.createAccount(
+                new Account("user3", "other@example.com", "password", "jack", "doe", 0, "token3")));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = StorageEngineType.class, names = "MEMORY", mode = EnumSource.Mode.EXCLUDE)
+    public void testChangesSurviveRestart(StorageEngineType type) throws IOException {
+        engine = open(type);
+        engine.getProductDAO().createProduct(new Mouse(0, new ArrayList<>(), "Wireless Mouse", 1, 15, null));
+        engine.getProductDAO().deleteProduct(1);
+        engine.getAccountDAO().createAccount(
+                new Account("user3", "jack.doe@example.com", "password", "jack", "doe", 0, "token3"));
+        engine.close();
+
+        engine = open(type);
+        assertNull(engine.getProductDAO().getProductById(1));
+        assertEquals("Wireless Mouse", engine.getProductDAO().getProductById(3).getName());
+        assertEquals("user3", engine.getAccountDAO().getAccountById(3).getUsername());
+    }
+
+    @Test
+    public void testMemoryEngineKeepsNothing() throws IOException {
+        engine = open(StorageEngineType.MEMORY);
+        engine.getProductDAO().deleteProduct(1);
+        engine.close();
+
+        engine = open(StorageEngineType.MEMORY);
+        assertNotNull(engine.getProductDAO().getProductById(1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = StorageEngineType.class, names = { "LOG", "MMAP" })
+    public void testOpenKeepsProperties(StorageEngineType type) throws IOException {
+        StorageProperties properties = properties();
+        engine = type.open(productFile, accountFile, mapper, properties);
+
+        // an engine opened later with the same settings is a plain json engine
+        assertFalse(properties.isProductLogEnabled());
+        assertFalse(properties.isProductSnapshotEnabled());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = StorageEngineType.class, names = { "LOG", "MMAP", "JDBC" })
+    public void testMigration(StorageEngineType type) throws IOException {
+        // change the source so the target cannot just have read the same data files
+        engine = open(StorageEngineType.JSON);
+        engine.getProductDAO().deleteProduct(1);
+        engine.close();
+        engine = null;
+
+        assertEquals(3, StorageMigration.migrate(StorageEngineType.JSON, type, productFile, accountFile, mapper,
+                properties(), properties()));
+        if (type == StorageEngineType.JDBC) {
+            // the data is only in the database now
+            new File(productFile).delete();
+            new File(accountFile).delete();
+        }
+        assertEquals(3, StorageMigration.migrate(type, StorageEngineType.JSON, productFile, accountFile, mapper,
+                properties(), properties()));
+
+        engine = open(StorageEngineType.JSON);
+        Product[] products = engine.getProductDAO().getProducts();
+        assertArrayEquals(new Product[] { testProducts[1] }, products);
+        assertEquals(2, products[0].getId());
+        assertEquals("Nice", products[0].getReviews().get(0).getReview());
+        assertEquals(2, engine.getAccountDAO().getAllAccounts().length);
+    }
+
+    @Test
+    public void testMigrationToMemory() {
+        assertThrows(IllegalArgumentException.class, () -> StorageMigration.migrate(StorageEngineType.JSON,
+                StorageEngineType.MEMORY, productFile, accountFile, mapper, properties(), properties()));
+    }
+
+    @Test
+    public void testFromName() {
+        assertEquals(StorageEngineType.MMAP, StorageEngineType.fromName(" mmap "));
+        assertThrows(IllegalArgumentException.class, () -> StorageEngineType.fromName("tape"));
+    }
+}
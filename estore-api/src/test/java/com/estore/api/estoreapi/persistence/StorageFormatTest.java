@@ -0,0 +1,57 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Account;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("Persistence-tier")
+public class StorageFormatTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testFromName() {
+        assertEquals(StorageFormat.SMILE, StorageFormat.fromName(" Smile "));
+        assertEquals(StorageFormat.CBOR, StorageFormat.fromName("cbor"));
+        assertThrows(IllegalArgumentException.class, () -> StorageFormat.fromName("xml"));
+    }
+
+    @Test
+    public void testFile() {
+        assertEquals("data/account.json", StorageFormat.JSON.file("data/account.json"));
+        assertEquals("data/account.smile", StorageFormat.SMILE.file("data/account.json"));
+        assertEquals("data/account.cbor", StorageFormat.CBOR.file("data/account"));
+    }
+
+    @Test
+    public void testJsonMapperIsKept() {
+        ObjectMapper mapper = new ObjectMapper();
+        assertSame(mapper, StorageFormat.JSON.mapper(mapper));
+    }
+
+    @Test
+    public void testConvertRoundTrip() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Account[] accounts = { new Account("user1", "user1@example.com", "password", "John", "Doe", 1, "") };
+        File json = new File(tempDir, "account.json");
+        mapper.writeValue(json, accounts);
+
+        for (StorageFormat format : StorageFormat.values()) {
+            File target = new File(tempDir, "copy" + format.getExtension());
+            StorageFormatConverter.convert(json, StorageFormat.JSON, target, format, mapper);
+
+            Account[] read = format.mapper(mapper).readValue(target, Account[].class);
+            assertEquals(mapper.writeValueAsString(accounts), mapper.writeValueAsString(read));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.estore.api.estoreapi.model.Color;
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Tag("Persistence-tier")
+public class StreamingLoaderTest {
+    @TempDir
+    File tempDir;
+
+    private ObjectMapper mapper;
+    private File file;
+    private List<Product> testProducts;
+
+    @BeforeEach
+    public void setupStreamingLoader() throws IOException {
+        mapper = new ObjectMapper();
+        file = new File(tempDir, "product.json");
+        testProducts = new ArrayList<>();
+        for (int id = 0; id < 500; id++) {
+            if (id % 2 == 0) {
+                testProducts.add(new Keyboard(id, new ArrayList<Color>(), "Keyboard " + id, id, id, ""));
+            } else {
+                testProducts.add(new Mouse(id, new ArrayList<Color>(), "Mouse " + id, id, id, ""));
+            }
+        }
+        mapper.writeValue(file, testProducts);
+    }
+
+    @Test
+    public void testLoadOnCallingThread() throws IOException {
+        List<Product> loaded = new ArrayList<>();
+        assertEquals(500, StreamingLoader.load(mapper, file, Product.class, 1, loaded::add));
+        assertEquals(mapper.writeValueAsString(testProducts), mapper.writeValueAsString(loaded));
+    }
+
+    @Test
+    public void testLoadWithWorkers() throws IOException {
+        Map<Integer, Product> loaded = new ConcurrentSkipListMap<>();
+        int count = StreamingLoader.load(mapper, file, Product.class, 4, product -> loaded.put(product.getId(), product));
+
+        assertEquals(500, count);
+        assertEquals(mapper.writeValueAsString(testProducts), mapper.writeValueAsString(loaded.values()));
+        assertTrue(loaded.get(3) instanceof Mouse);
+    }
+
+    @Test
+    public void testLoadBinaryFormat() throws IOException {
+        File smileFile = new File(tempDir, "product.smile");
+        ObjectMapper smileMapper = StorageFormat.SMILE.mapper(mapper);
+        smileMapper.writeValue(smileFile, testProducts);
+
+        List<Product> loaded = new ArrayList<>();
+        assertEquals(500, StreamingLoader.load(smileMapper, smileFile, Product.class, 1, loaded::add));
+    }
+
+    @Test
+    public void testNotAnArray() throws IOException {
+        Files.write(file.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> StreamingLoader.load(mapper, file, Product.class, 2, product -> {
+        }));
+    }
+
+    @Test
+    public void testBadElement() throws IOException {
+        Files.write(file.toPath(), "[{\"productType\":\"MOUSE\",\"id\":1},{\"productType\":\"TOASTER\"}]"
+                .getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> StreamingLoader.load(mapper, file, Product.class, 2, product -> {
+        }));
+    }
+}
@@ -0,0 +1,36 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class StripedLockTest {
+
+    @Test
+    public void testSameIdSameLock() {
+        StripedLock locks = new StripedLock(64);
+
+        assertSame(locks.of(42), locks.of(42));
+        assertEquals(64, locks.size());
+        assertEquals(128, new StripedLock(100).size());
+    }
+
+    @Test
+    public void testConsecutiveIdsSpread() {
+        StripedLock locks = new StripedLock(16);
+        Set<Object> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int id = 0; id < 64; id++) {
+            used.add(locks.of(id));
+        }
+
+        assertTrue(used.size() >= 12, used.size() + " stripes used");
+    }
+}
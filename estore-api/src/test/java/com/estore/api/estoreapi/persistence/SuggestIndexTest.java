@@ -0,0 +1,132 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.estore.api.estoreapi.model.Keyboard;
+import com.estore.api.estoreapi.model.Mouse;
+import com.estore.api.estoreapi.model.Product;
+import com.estore.api.estoreapi.model.Review;
+import com.estore.api.estoreapi.model.Suggestion;
+
+@Tag("Persistence-tier")
+public class SuggestIndexTest {
+    private SuggestIndex index;
+
+    @BeforeEach
+    public void setupSuggestIndex() {
+        index = new SuggestIndex();
+        index.rebuild(List.of(
+                reviewed(new Keyboard(1, new ArrayList<>(), "Razer BlackWidow V3", 5, 100, null), 1),
+                reviewed(new Mouse(2, new ArrayList<>(), "Razer Basilisk", 5, 50, null), 3),
+                new Mouse(3, new ArrayList<>(), "Black Mouse", 5, 10, null),
+                new Keyboard(4, new ArrayList<>(), "Mouse Pad", 5, 10, null)));
+    }
+
+    @Test
+    public void testPrefixOfAnyWord() {
+        assertArrayEquals(new int[] { 2, 1 }, ids(index.suggest("RAZ", 10)));
+        assertArrayEquals(new int[] { 1, 3 }, ids(index.suggest("black", 10)));
+        assertArrayEquals(new int[] { 1 }, ids(index.suggest("razer  bl", 10)));
+        assertArrayEquals(new int[] { 1 }, ids(index.suggest("v3", 10)));
+        assertArrayEquals(new int[0], ids(index.suggest("trackball", 10)));
+    }
+
+    @Test
+    public void testFinishedWord() {
+        assertArrayEquals(new int[] { 3, 4 }, ids(index.suggest("mouse", 10)));
+        // a trailing space asks for another word after it
+        assertArrayEquals(new int[] { 4 }, ids(index.suggest("mouse ", 10)));
+    }
+
+    @Test
+    public void testRankedByReviewsThenName() {
+        assertArrayEquals(new int[] { 2, 1, 3, 4 }, ids(index.suggest("", 10)));
+        assertArrayEquals(new int[] { 2, 1 }, ids(index.suggest("", 2)));
+        assertEquals("Razer Basilisk", index.suggest("r", 1)[0].getName());
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        index.put(reviewed(new Mouse(3, new ArrayList<>(), "Black Mouse", 5, 10, null), 5));
+        assertArrayEquals(new int[] { 3, 1 }, ids(index.suggest("bl", 10)));
+
+        index.put(new Keyboard(1, new ArrayList<>(), "Cool Keyboard", 5, 100, null));
+        assertArrayEquals(new int[] { 2 }, ids(index.suggest("razer", 10)));
+        assertArrayEquals(new int[] { 1 }, ids(index.suggest("key", 10)));
+
+        index.remove(3);
+        index.remove(42);
+        assertArrayEquals(new int[0], ids(index.suggest("black", 10)));
+        assertArrayEquals(new int[] { 4 }, ids(index.suggest("mouse", 10)));
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(261);
+        String[] words = { "ab", "abc", "b", "ba", "cab", "c" };
+        Map<Integer, Product> products = new TreeMap<>();
+        SuggestIndex built = new SuggestIndex();
+        for (int i = 0; i < 2000; i++) {
+            int id = 1 + random.nextInt(60);
+            if (random.nextInt(5) == 0) {
+                products.remove(id);
+                built.remove(id);
+                continue;
+            }
+            StringBuilder name = new StringBuilder();
+            for (int word = 0; word <= random.nextInt(3); word++) {
+                name.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            Product product = reviewed(new Mouse(id, new ArrayList<>(), name.toString() + id, 1, 1, null),
+                    random.nextInt(4));
+            products.put(id, product);
+            built.put(product);
+        }
+        SuggestIndex rebuilt = new SuggestIndex();
+        rebuilt.rebuild(products.values());
+        for (String prefix : new String[] { "", "a", "ab", "abc ", "b", "ba c", "c", "cab ab", "1", "d" }) {
+            int[] expected = products.values().stream()
+                    .filter(product -> matches(product.getName(), prefix))
+                    .sorted(Comparator.comparingInt((Product product) -> -product.getReviews().size())
+                            .thenComparing(Product::getName))
+                    .limit(SuggestIndex.MAX_SUGGESTIONS).mapToInt(Product::getId).toArray();
+
+            assertArrayEquals(expected, ids(built.suggest(prefix, SuggestIndex.MAX_SUGGESTIONS)), prefix);
+            assertArrayEquals(expected, ids(rebuilt.suggest(prefix, SuggestIndex.MAX_SUGGESTIONS)), prefix);
+        }
+    }
+
+    private static boolean matches(String name, String prefix) {
+        String[] words = name.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            if (String.join(" ", Arrays.copyOfRange(words, i, words.length)).startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Product reviewed(Product product, int reviews) {
+        for (int user = 0; user < reviews; user++) {
+            product = product.withReview(new Review(product.getId(), user, 5, "Good"));
+        }
+        return product;
+    }
+
+    private static int[] ids(Suggestion[] suggestions) {
+        return Arrays.stream(suggestions).mapToInt(Suggestion::getId).toArray();
+    }
+}
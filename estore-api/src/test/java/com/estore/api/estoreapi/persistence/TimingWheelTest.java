@@ -0,0 +1,57 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class TimingWheelTest {
+
+    @Test
+    public void testItemsComeDueAtTheirDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1000);
+        wheel.schedule("early", 1025);
+        wheel.schedule("late", 1055);
+
+        assertTrue(wheel.advance(1020).isEmpty());
+        assertEquals(List.of("early"), wheel.advance(1030));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("late"), wheel.advance(1060));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testDeadlineBeyondOneTurn() {
+        // one turn is 80ms, the item shares a slot with 1005 but is due a turn later
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1000);
+        wheel.schedule("far", 1085);
+
+        assertTrue(wheel.advance(1050).isEmpty());
+        assertTrue(wheel.advance(1080).isEmpty());
+        assertEquals(List.of("far"), wheel.advance(1090));
+    }
+
+    @Test
+    public void testPastDeadlineIsDueNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1000);
+        wheel.advance(1100);
+        wheel.schedule("overdue", 900);
+
+        assertEquals(List.of("overdue"), wheel.advance(1110));
+    }
+
+    @Test
+    public void testLongPauseVisitsEverySlot() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 8, 0);
+        for (int i = 0; i < 8; i++) {
+            wheel.schedule(i, i * 10 + 5);
+        }
+
+        assertEquals(8, wheel.advance(10_000).size());
+        assertEquals(0, wheel.size());
+    }
+}
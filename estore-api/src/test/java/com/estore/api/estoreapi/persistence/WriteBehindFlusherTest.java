@@ -0,0 +1,88 @@
+package com.estore.api.estoreapi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("Persistence-tier")
+public class WriteBehindFlusherTest {
+
+    @Test
+    public void testChangesAreCoalesced() throws Exception {
+        AtomicInteger flushes = new AtomicInteger();
+        CountDownLatch flushed = new CountDownLatch(1);
+        WriteBehindFlusher flusher = new WriteBehindFlusher("test-flusher", () -> {
+            flushes.incrementAndGet();
+            flushed.countDown();
+        }, 50, 1000, 10000);
+
+        for (int i = 0; i < 100; i++) {
+            flusher.markDirty();
+        }
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, flushes.get());
+        assertEquals(0, flusher.getPendingChanges());
+        flusher.close();
+    }
+
+    @Test
+    public void testMaxChangesForcesFlush() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(1);
+        // The quiet period is far longer than the test, only the change limit can flush
+        WriteBehindFlusher flusher = new WriteBehindFlusher("test-flusher", flushed::countDown, 60000, 3, 60000);
+
+        flusher.markDirty();
+        flusher.markDirty();
+        flusher.markDirty();
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        flusher.close();
+    }
+
+    @Test
+    public void testMaxStalenessForcesFlush() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(1);
+        WriteBehindFlusher flusher = new WriteBehindFlusher("test-flusher", flushed::countDown, 60000, 1000, 50);
+
+        flusher.markDirty();
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        flusher.close();
+    }
+
+    @Test
+    public void testCloseFlushesPendingChanges() throws Exception {
+        AtomicInteger flushes = new AtomicInteger();
+        WriteBehindFlusher flusher = new WriteBehindFlusher("test-flusher", flushes::incrementAndGet, 60000, 1000,
+                60000);
+
+        flusher.markDirty();
+        flusher.close();
+
+        assertEquals(1, flushes.get());
+        assertEquals(0, flusher.getPendingChanges());
+    }
+
+    @Test
+    public void testFailedFlushKeepsChangesPending() throws Exception {
+        WriteBehindFlusher flusher = new WriteBehindFlusher("test-flusher", () -> {
+            throw new IOException();
+        }, 60000, 1000, 60000);
+
+        flusher.markDirty();
+        flusher.markDirty();
+
+        assertThrows(IOException.class, flusher::flush);
+        assertEquals(2, flusher.getPendingChanges());
+        assertThrows(IOException.class, flusher::close);
+    }
+}
@@ -7,7 +7,7 @@ import {
   debounceTime, distinctUntilChanged, switchMap
 } from 'rxjs/operators';
 
-import { Product } from '../product';
+import { Suggestion } from '../suggestion';
 import { ProductService } from '../product.service';
 import { NavigationEnd, Router } from '@angular/router';
 
@@ -17,7 +17,7 @@ import { NavigationEnd, Router } from '@angular/router';
   styleUrls: ['./product-search.component.css']
 })
 export class ProductSearchComponent implements OnInit {
-  products$!: Observable<Product[]>;
+  products$!: Observable<Suggestion[]>;
   private searchTerms = new Subject<string>();
 
   constructor(private productService: ProductService, private route: Router, private location: Location) {
@@ -30,14 +30,14 @@ export class ProductSearchComponent implements OnInit {
 
   ngOnInit(): void {
     this.products$ = this.searchTerms.pipe(
-      // wait 300ms after each keystroke before considering the term
-      debounceTime(300),
+      // suggestions are cheap to look up, only skip the keystrokes of fast typing
+      debounceTime(100),
 
       // ignore new term if same as previous term
       distinctUntilChanged(),
 
       // switch to new search observable each time the term changes
-      switchMap((term: string) => this.productService.searchForProduct(term)),
+      switchMap((term: string) => this.productService.suggestProducts(term)),
     );
   }
 
@@ -9,6 +9,7 @@ import { MessageService } from './message.service';
 import { log, handleError } from './utils/utils';
 import { Color } from './color';
 import { Review } from './review';
+import { Suggestion } from './suggestion';
 
 
 @Injectable({ providedIn: 'root' })
@@ -70,6 +71,17 @@ export class ProductService {
     );
   }
 
+  /* GET the most reviewed products with a name or word starting with the term */
+  suggestProducts(term: string): Observable<Suggestion[]> {
+    if (!term.trim()) {
+      // if not search term, return empty Suggestion array.
+      return of([]);
+    }
+    return this.http.get<Suggestion[]>(`${this.productsUrl}/suggest?prefix=${encodeURIComponent(term)}`).pipe(
+      catchError(handleError<Suggestion[]>('suggestProducts', []))
+    );
+  }
+
   //////// Save methods //////////
 
   /** POST: add a new Product to the server */